@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.JacksonCustomMapperProvider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Rendering a page of entities to JSON with the mapper the REST tier uses, the last step of every collection GET
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ApiResponseBenchmark {
+
+    @Param( { "SMALL", "MEDIUM" } )
+    public EntityFixtures.Size size;
+
+    @Param( { "10", "100" } )
+    public int pageSize;
+
+    private ObjectMapper mapper;
+
+    private ApiResponse response;
+
+
+    @Setup
+    public void setup() {
+        mapper = new JacksonCustomMapperProvider().getContext( ApiResponse.class );
+
+        final List<Entity> entities = new ArrayList<>( EntityFixtures.users( size, pageSize ) );
+
+        final Map<String, List<String>> params = new HashMap<>();
+        params.put( "ql", Arrays.asList( "select * where age > 21 order by created desc" ) );
+        params.put( "limit", Arrays.asList( String.valueOf( pageSize ) ) );
+
+        response = new ApiResponse();
+        response.setAction( "get" );
+        response.setParams( params );
+        response.setEntities( entities );
+        response.setCount( entities.size() );
+        response.setCursor( "LTU2ODc0MzQzOkdGcGRGaGVlRWVXQ3l1a3FZSGdsNGc" );
+    }
+
+
+    @Benchmark
+    public byte[] render() throws JsonProcessingException {
+        return mapper.writeValueAsBytes( response );
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Compares two JMH runs written with -rf json, a baseline from the last release and the current build, and reports
+ * the change of every benchmark.  A benchmark has regressed when it's slower than the baseline by more than the
+ * threshold, and by more than the error of both runs, so noise isn't reported.  Exits with 1 if anything regressed,
+ * so a build can fail on it.
+ *
+ * Usage: java -cp benchmarks.jar org.apache.usergrid.benchmarks.BaselineReport baseline.json current.json [threshold%]
+ */
+public class BaselineReport {
+
+    private static final double DEFAULT_THRESHOLD = 10;
+
+
+    public static void main( final String[] args ) throws IOException {
+        if ( args.length < 2 ) {
+            System.err.println( "Usage: BaselineReport <baseline.json> <current.json> [threshold%]" );
+            System.exit( 2 );
+        }
+
+        final double threshold = args.length > 2 ? Double.parseDouble( args[2] ) : DEFAULT_THRESHOLD;
+
+        final List<Comparison> comparisons = compare( read( new File( args[0] ) ), read( new File( args[1] ) ) );
+
+        final boolean regressed = print( comparisons, threshold, System.out );
+
+        System.exit( regressed ? 1 : 0 );
+    }
+
+
+    /**
+     * Read the results of a run by benchmark and parameters
+     */
+    static Map<String, Result> read( final File file ) throws IOException {
+        final Map<String, Result> results = new LinkedHashMap<>();
+
+        for ( JsonNode run : new ObjectMapper().readTree( file ) ) {
+            final Result result = new Result( run.path( "mode" ).asText(),
+                run.path( "primaryMetric" ).path( "score" ).asDouble(),
+                run.path( "primaryMetric" ).path( "scoreError" ).asDouble(),
+                run.path( "primaryMetric" ).path( "scoreUnit" ).asText() );
+
+            results.put( getKey( run ), result );
+        }
+
+        return results;
+    }
+
+
+    static List<Comparison> compare( final Map<String, Result> baseline, final Map<String, Result> current ) {
+        final List<Comparison> comparisons = new ArrayList<>();
+
+        for ( Map.Entry<String, Result> entry : current.entrySet() ) {
+            comparisons.add( new Comparison( entry.getKey(), baseline.get( entry.getKey() ), entry.getValue() ) );
+        }
+
+        return comparisons;
+    }
+
+
+    /**
+     * Print the comparisons, returning true if any of them regressed
+     */
+    static boolean print( final List<Comparison> comparisons, final double threshold, final PrintStream out ) {
+        boolean regressed = false;
+
+        out.println( String.format( "%-90s %14s %14s %9s  %s", "Benchmark", "Baseline", "Current", "Change", "" ) );
+
+        for ( Comparison comparison : comparisons ) {
+            final Result current = comparison.current;
+
+            if ( comparison.baseline == null ) {
+                out.println( String.format( "%-90s %14s %14.3f %9s  NEW", comparison.key, "-", current.score, "" ) );
+                continue;
+            }
+
+            final String verdict;
+            if ( comparison.isRegression( threshold ) ) {
+                verdict = "REGRESSION";
+                regressed = true;
+            }
+            else if ( comparison.isImprovement( threshold ) ) {
+                verdict = "improved";
+            }
+            else {
+                verdict = "";
+            }
+
+            out.println( String.format( "%-90s %14.3f %14.3f %+8.1f%%  %s %s", comparison.key,
+                comparison.baseline.score, current.score, comparison.getSlowdown(), current.unit, verdict ) );
+        }
+
+        return regressed;
+    }
+
+
+    private static String getKey( final JsonNode run ) {
+        final StringBuilder key = new StringBuilder( run.path( "benchmark" ).asText() );
+
+        //sort the params, JMH doesn't guarantee their order
+        final Map<String, String> params = new TreeMap<>();
+        run.path( "params" ).fields()
+           .forEachRemaining( param -> params.put( param.getKey(), param.getValue().asText() ) );
+
+        for ( Map.Entry<String, String> param : params.entrySet() ) {
+            key.append( ' ' ).append( param.getKey() ).append( '=' ).append( param.getValue() );
+        }
+
+        return key.toString();
+    }
+
+
+    static class Result {
+
+        private final String mode;
+        private final double score;
+        private final double error;
+        private final String unit;
+
+
+        Result( final String mode, final double score, final double error, final String unit ) {
+            this.mode = mode;
+            this.score = score;
+            this.error = Double.isNaN( error ) ? 0 : error;
+            this.unit = unit;
+        }
+
+
+        /**
+         * Throughput is better when higher, every other mode measures time
+         */
+        private boolean isHigherBetter() {
+            return "thrpt".equals( mode );
+        }
+    }
+
+
+    static class Comparison {
+
+        private final String key;
+        private final Result baseline;
+        private final Result current;
+
+
+        Comparison( final String key, final Result baseline, final Result current ) {
+            this.key = key;
+            this.baseline = baseline;
+            this.current = current;
+        }
+
+
+        /**
+         * How much slower the current run is, as a percentage of the baseline.  Negative when it's faster
+         */
+        double getSlowdown() {
+            final double change = ( current.score - baseline.score ) / baseline.score * 100;
+            return current.isHigherBetter() ? -change : change;
+        }
+
+
+        boolean isRegression( final double threshold ) {
+            return getSlowdown() > threshold && isSignificant();
+        }
+
+
+        boolean isImprovement( final double threshold ) {
+            return getSlowdown() < -threshold && isSignificant();
+        }
+
+
+        /**
+         * True if the scores differ by more than their errors, otherwise the runs can't be told apart
+         */
+        private boolean isSignificant() {
+            return Math.abs( current.score - baseline.score ) > current.error + baseline.error;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.usergrid.corepersistence.util.CpEntityMapUtils;
+import org.apache.usergrid.persistence.entities.User;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.util.EntityUtils;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+
+/**
+ * Entities shaped like the ones applications store, so the benchmarks measure realistic payloads.  Each fixture is a
+ * user with the usual profile fields, a location, tags, an address and nested preferences, padded with custom
+ * properties up to the requested size.  Fixtures are generated from a fixed seed, so every run sees the same data.
+ */
+public final class EntityFixtures {
+
+    /**
+     * The sizes the benchmarks are parameterized with
+     */
+    public enum Size {
+
+        /**
+         * Just the profile fields, like most users
+         */
+        SMALL( 0 ),
+
+        /**
+         * A profile with a few dozen custom properties
+         */
+        MEDIUM( 40 ),
+
+        /**
+         * A document heavy entity, a few hundred properties
+         */
+        LARGE( 300 );
+
+        private final int customProperties;
+
+
+        Size( final int customProperties ) {
+            this.customProperties = customProperties;
+        }
+    }
+
+
+    private static final String[] FIRST_NAMES =
+        { "ada", "grace", "alan", "edsger", "barbara", "donald", "ken", "linus" };
+
+    private static final String[] CITIES = { "San Francisco", "Seattle", "Austin", "New York", "Chicago", "Boston" };
+
+    private static final String[] TAGS = { "beta", "premium", "android", "ios", "web", "newsletter", "trial", "admin" };
+
+
+    private EntityFixtures() {
+    }
+
+
+    /**
+     * The properties of a user, as the REST tier would receive them
+     */
+    public static Map<String, Object> userProperties( final Size size, final int seed ) {
+        final Random random = new Random( seed );
+
+        final String first = FIRST_NAMES[random.nextInt( FIRST_NAMES.length )];
+        final String username = first + seed;
+
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put( "username", username );
+        properties.put( "name", first + " " + "user" + seed );
+        properties.put( "email", username + "@example.com" );
+        properties.put( "activated", true );
+        properties.put( "confirmed", random.nextBoolean() );
+        properties.put( "age", 18 + random.nextInt( 60 ) );
+        properties.put( "score", random.nextDouble() * 1000 );
+        properties.put( "lastLogin", 1420070400000L + random.nextInt( Integer.MAX_VALUE ) );
+        properties.put( "bio", sentence( random, 30 ) );
+
+        final Map<String, Object> location = new HashMap<>();
+        location.put( "latitude", 37.0 + random.nextDouble() );
+        location.put( "longitude", -122.0 + random.nextDouble() );
+        properties.put( "location", location );
+
+        final List<String> tags = new ArrayList<>();
+        for ( int i = 0; i < 1 + random.nextInt( 4 ); i++ ) {
+            tags.add( TAGS[random.nextInt( TAGS.length )] );
+        }
+        properties.put( "tags", tags );
+
+        final Map<String, Object> address = new LinkedHashMap<>();
+        address.put( "street", random.nextInt( 9999 ) + " Main St" );
+        address.put( "city", CITIES[random.nextInt( CITIES.length )] );
+        address.put( "zip", String.valueOf( 10000 + random.nextInt( 89999 ) ) );
+        properties.put( "address", address );
+
+        final Map<String, Object> preferences = new LinkedHashMap<>();
+        preferences.put( "notifications", Arrays.asList( "email", "push" ) );
+        preferences.put( "theme", random.nextBoolean() ? "dark" : "light" );
+        preferences.put( "locale", "en_US" );
+        properties.put( "preferences", preferences );
+
+        for ( int i = 0; i < size.customProperties; i++ ) {
+            switch ( i % 4 ) {
+                case 0:
+                    properties.put( "custom" + i, sentence( random, 5 ) );
+                    break;
+                case 1:
+                    properties.put( "custom" + i, random.nextLong() );
+                    break;
+                case 2:
+                    properties.put( "custom" + i, random.nextDouble() );
+                    break;
+                default:
+                    properties.put( "custom" + i, random.nextBoolean() );
+            }
+        }
+
+        return properties;
+    }
+
+
+    /**
+     * A user as the service tier sees it
+     */
+    public static User user( final Size size, final int seed ) {
+        final User user = new User( UUIDGenerator.newTimeUUID() );
+        final long now = System.currentTimeMillis();
+        user.setCreated( now );
+        user.setModified( now );
+        user.addProperties( userProperties( size, seed ) );
+        return user;
+    }
+
+
+    /**
+     * A user as core persistence stores it, with a version
+     */
+    public static Entity cpUser( final Size size, final int seed ) {
+        final Entity entity = CpEntityMapUtils.entityToCpEntity( user( size, seed ), null );
+        EntityUtils.setVersion( entity, UUIDGenerator.newTimeUUID() );
+        return entity;
+    }
+
+
+    /**
+     * Several users, for benchmarks that work on result pages
+     */
+    public static List<User> users( final Size size, final int count ) {
+        final List<User> users = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            users.add( user( size, i ) );
+        }
+        return users;
+    }
+
+
+    private static String sentence( final Random random, final int words ) {
+        final StringBuilder sentence = new StringBuilder();
+        for ( int i = 0; i < words; i++ ) {
+            if ( i > 0 ) {
+                sentence.append( ' ' );
+            }
+            final int length = 2 + random.nextInt( 8 );
+            for ( int j = 0; j < length; j++ ) {
+                sentence.append( ( char ) ( 'a' + random.nextInt( 26 ) ) );
+            }
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Serializing entities to and from the bytes stored in Cassandra, the cost of every entity write and load
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class EntitySerializerBenchmark {
+
+    @Param( { "SMALL", "MEDIUM", "LARGE" } )
+    public EntityFixtures.Size size;
+
+    private MvccEntitySerializationStrategyV3Impl.EntitySerializer serializer;
+
+    private MvccEntitySerializationStrategyV3Impl.EntityWrapper wrapper;
+
+    private byte[] serialized;
+
+
+    @Setup
+    public void setup() {
+        final SerializationFig serializationFig = mock( SerializationFig.class );
+        when( serializationFig.getMaxEntitySize() ).thenReturn( Integer.MAX_VALUE );
+
+        final MetricsFactory metricsFactory = new RegistryMetricsFactory();
+
+        final MvccEntitySerializationStrategyV3Impl strategy =
+            new MvccEntitySerializationStrategyV3Impl( null, serializationFig, null, metricsFactory, null );
+
+        serializer = strategy.new EntitySerializer( serializationFig, metricsFactory );
+
+        final Entity entity = EntityFixtures.cpUser( size, 1 );
+
+        wrapper = new MvccEntitySerializationStrategyV3Impl.EntityWrapper( entity.getId(), entity.getVersion(),
+            MvccEntity.Status.COMPLETE, EntityMap.fromEntity( entity ), 0 );
+
+        serialized = serializer.toByteBuffer( wrapper ).array();
+    }
+
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return serializer.toByteBuffer( wrapper );
+    }
+
+
+    @Benchmark
+    public MvccEntitySerializationStrategyV3Impl.EntityWrapper deserialize() {
+        return serializer.fromByteBuffer( ByteBuffer.wrap( serialized ) );
+    }
+
+
+    @Benchmark
+    public MvccEntitySerializationStrategyV3Impl.EntityWrapper roundTrip() {
+        return serializer.fromByteBuffer( serializer.toByteBuffer( wrapper ) );
+    }
+}
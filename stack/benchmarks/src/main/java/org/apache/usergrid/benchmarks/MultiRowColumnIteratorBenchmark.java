@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.usergrid.persistence.core.astyanax.ColumnParser;
+import org.apache.usergrid.persistence.core.astyanax.ColumnSearch;
+import org.apache.usergrid.persistence.core.astyanax.MultiRowColumnIterator;
+
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
+import com.netflix.astyanax.model.ColumnFamily;
+import com.netflix.astyanax.model.ConsistencyLevel;
+import com.netflix.astyanax.model.Rows;
+import com.netflix.astyanax.query.ColumnFamilyQuery;
+import com.netflix.astyanax.query.RowSliceQuery;
+import com.netflix.astyanax.serializers.LongSerializer;
+import com.netflix.astyanax.serializers.StringSerializer;
+import com.netflix.astyanax.thrift.model.ThriftRowsListImpl;
+import com.netflix.astyanax.util.RangeBuilder;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Merging a page of columns read from several rows into one sorted page, the way edges are read across shards.  Every
+ * row returns a full page of columns, as Cassandra does when each shard has more columns than the page size, and the
+ * iterator keeps the first page of the merged result.  Cassandra is replaced with the thrift rows it would return, so
+ * only parsing and merging are measured.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class MultiRowColumnIteratorBenchmark {
+
+    private static final ColumnFamily<String, Long> CF =
+        new ColumnFamily<>( "Benchmark_Shards", StringSerializer.get(), LongSerializer.get() );
+
+    private static final Comparator<Long> ASCENDING = Long::compare;
+
+    private static final ColumnParser<Long, Long> PARSER = column -> column.getName();
+
+    private static final ColumnSearch<Long> SEARCH = new ColumnSearch<Long>() {
+        @Override
+        public void buildRange( final RangeBuilder rangeBuilder, final Long value ) {
+            rangeBuilder.setStart( value );
+        }
+
+
+        @Override
+        public void buildRange( final RangeBuilder rangeBuilder ) {
+        }
+
+
+        @Override
+        public boolean skipFirst( final Long first ) {
+            return false;
+        }
+    };
+
+    @Param( { "1", "2", "8" } )
+    public int rows;
+
+    @Param( { "100", "1000" } )
+    public int pageSize;
+
+    private Keyspace keyspace;
+
+    private List<String> rowKeys;
+
+
+    @Setup
+    @SuppressWarnings( "unchecked" )
+    public void setup() throws ConnectionException {
+        final Random random = new Random( 1 );
+
+        final Map<ByteBuffer, List<ColumnOrSuperColumn>> slices = new LinkedHashMap<>();
+        rowKeys = new ArrayList<>( rows );
+
+        for ( int i = 0; i < rows; i++ ) {
+            final String rowKey = "shard" + i;
+            rowKeys.add( rowKey );
+
+            //columns come back from cassandra sorted
+            final TreeSet<Long> names = new TreeSet<>();
+            while ( names.size() < pageSize ) {
+                names.add( ( long ) random.nextInt( pageSize * rows * 4 ) );
+            }
+
+            final List<ColumnOrSuperColumn> columns = new ArrayList<>( pageSize );
+            for ( Long name : names ) {
+                final Column column = new Column( LongSerializer.get().toByteBuffer( name ) );
+                column.setValue( new byte[0] );
+                column.setTimestamp( name );
+                columns.add( new ColumnOrSuperColumn().setColumn( column ) );
+            }
+
+            slices.put( StringSerializer.get().toByteBuffer( rowKey ), columns );
+        }
+
+        final Rows<String, Long> result =
+            new ThriftRowsListImpl<>( slices, StringSerializer.get(), LongSerializer.get() );
+
+        final OperationResult<Rows<String, Long>> operationResult = mock( OperationResult.class );
+        when( operationResult.getResult() ).thenReturn( result );
+
+        final RowSliceQuery<String, Long> rowSliceQuery = mock( RowSliceQuery.class );
+        when( rowSliceQuery.withColumnRange( any( ByteBufferRange.class ) ) ).thenReturn( rowSliceQuery );
+        when( rowSliceQuery.execute() ).thenReturn( operationResult );
+
+        final ColumnFamilyQuery<String, Long> query = mock( ColumnFamilyQuery.class );
+        when( query.setConsistencyLevel( any( ConsistencyLevel.class ) ) ).thenReturn( query );
+        when( query.getKeySlice( any( Collection.class ) ) ).thenReturn( rowSliceQuery );
+
+        keyspace = mock( Keyspace.class );
+        when( keyspace.prepareQuery( CF ) ).thenReturn( query );
+    }
+
+
+    @Benchmark
+    public void mergePage( final Blackhole blackhole ) {
+        final MultiRowColumnIterator<String, Long, Long> iterator =
+            new MultiRowColumnIterator<>( keyspace, CF, ConsistencyLevel.CL_QUORUM, PARSER, SEARCH, ASCENDING,
+                rowKeys, pageSize );
+
+        //only read the first page, every page would be the same
+        for ( int i = 0; i < pageSize && iterator.hasNext(); i++ ) {
+            blackhole.consume( iterator.next() );
+        }
+    }
+}
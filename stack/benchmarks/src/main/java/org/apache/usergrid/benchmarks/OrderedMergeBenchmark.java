@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.core.rx.OrderedMerge;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.fasterxml.uuid.UUIDComparator;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+
+/**
+ * Merging time ordered streams of ids into one stream, the way edges are merged across shards and activities across
+ * feeds.  Each source runs on its own thread as OrderedMerge requires
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class OrderedMergeBenchmark {
+
+    private static final Comparator<UUID> DESCENDING = ( o1, o2 ) -> UUIDComparator.staticCompare( o2, o1 );
+
+    @Param( { "2", "8" } )
+    public int sources;
+
+    @Param( { "1000" } )
+    public int elementsPerSource;
+
+    @Param( { "100" } )
+    public int bufferSize;
+
+    private List<List<UUID>> inputs;
+
+
+    @Setup
+    public void setup() {
+        final Random random = new Random( 1 );
+        final List<UUID> all = new ArrayList<>( sources * elementsPerSource );
+        for ( int i = 0; i < sources * elementsPerSource; i++ ) {
+            all.add( UUIDGenerator.newTimeUUID() );
+        }
+
+        //deal the ids out at random, so the sources interleave like shards do
+        inputs = new ArrayList<>( sources );
+        for ( int i = 0; i < sources; i++ ) {
+            inputs.add( new ArrayList<>( elementsPerSource ) );
+        }
+        for ( UUID id : all ) {
+            inputs.get( random.nextInt( sources ) ).add( id );
+        }
+        for ( List<UUID> input : inputs ) {
+            Collections.sort( input, DESCENDING );
+        }
+    }
+
+
+    @Benchmark
+    @SuppressWarnings( "unchecked" )
+    public int merge() {
+        final Observable<UUID>[] observables = new Observable[sources];
+        for ( int i = 0; i < sources; i++ ) {
+            observables[i] = Observable.from( inputs.get( i ) ).subscribeOn( Schedulers.io() );
+        }
+
+        return OrderedMerge.orderedMerge( DESCENDING, bufferSize, observables ).count().toBlocking().single();
+    }
+}
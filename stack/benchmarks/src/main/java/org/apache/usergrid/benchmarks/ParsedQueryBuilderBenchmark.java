@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.impl.QueryPlanCache;
+import org.apache.usergrid.persistence.index.impl.QueryPlanCacheImpl;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Parsing the ql of a search, with and without the query plan cache.  The cached benchmark rotates the literals of the
+ * query, the way different users run the same search
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ParsedQueryBuilderBenchmark {
+
+    /**
+     * The queries applications run most, from a lookup by name to a geo search with a sort
+     */
+    public enum Query {
+
+        SIMPLE( "select * where name = '%s'" ),
+
+        COMPOUND( "select * where name = '%s' and age > %d and activated = true and status contains 'active*'" ),
+
+        SORTED( "select username, email where age >= %2$d and age < 90 or name = '%1$s' order by created desc" ),
+
+        GEO( "select * where location within 16000 of 37.776753, -122.407846 and name = '%s' and age > %d" );
+
+        private final String format;
+
+
+        Query( final String format ) {
+            this.format = format;
+        }
+
+
+        private String ql( final int i ) {
+            return String.format( format, "user" + i, 18 + i );
+        }
+    }
+
+
+    private static final int DISTINCT_LITERALS = 64;
+
+    @Param( { "SIMPLE", "COMPOUND", "SORTED", "GEO" } )
+    public Query query;
+
+    private String[] qls;
+
+    private QueryPlanCache queryPlanCache;
+
+    private int next;
+
+
+    @Setup
+    public void setup() {
+        qls = new String[DISTINCT_LITERALS];
+        for ( int i = 0; i < qls.length; i++ ) {
+            qls[i] = query.ql( i );
+        }
+
+        final IndexFig indexFig = mock( IndexFig.class );
+        when( indexFig.getQueryPlanCacheSize() ).thenReturn( 1000 );
+
+        queryPlanCache = new QueryPlanCacheImpl( indexFig, new RegistryMetricsFactory() );
+    }
+
+
+    @Benchmark
+    public ParsedQuery build() {
+        return ParsedQueryBuilder.build( nextQl() );
+    }
+
+
+    @Benchmark
+    public ParsedQuery cached() {
+        return queryPlanCache.getParsedQuery( nextQl() );
+    }
+
+
+    private String nextQl() {
+        next = ( next + 1 ) % qls.length;
+        return qls[next];
+    }
+}
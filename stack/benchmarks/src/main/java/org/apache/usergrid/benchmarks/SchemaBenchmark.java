@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.DynamicEntity;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.entities.User;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+
+/**
+ * Reading the properties of an entity through the schema, done for every entity a service returns.  The bean
+ * properties of typed entities are read through reflection, then the dynamic properties are merged in.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SchemaBenchmark {
+
+    @Param( { "SMALL", "MEDIUM", "LARGE" } )
+    public EntityFixtures.Size size;
+
+    private Schema schema;
+
+    private User user;
+
+    private DynamicEntity dynamicEntity;
+
+
+    @Setup
+    public void setup() {
+        schema = Schema.getDefaultSchema();
+
+        user = EntityFixtures.user( size, 1 );
+
+        dynamicEntity = new DynamicEntity( "customer", UUIDGenerator.newTimeUUID() );
+        dynamicEntity.addProperties( EntityFixtures.userProperties( size, 1 ) );
+
+        //registers the entity classes, which only happens once in the server
+        schema.getEntityProperties( user );
+        schema.getEntityProperties( dynamicEntity );
+    }
+
+
+    @Benchmark
+    public Map<String, Object> typedEntityProperties() {
+        return schema.getEntityProperties( user );
+    }
+
+
+    @Benchmark
+    public Map<String, Object> dynamicEntityProperties() {
+        return schema.getEntityProperties( dynamicEntity );
+    }
+}
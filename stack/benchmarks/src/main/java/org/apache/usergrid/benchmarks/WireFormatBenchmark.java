@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.JacksonCustomMapperProvider;
+import org.apache.usergrid.rest.JacksonSmileProvider;
+import org.apache.usergrid.rest.filters.CompressingOutputStream;
+import org.apache.usergrid.rest.filters.DeflaterPool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Writing a page of entities in each wire format the REST tier negotiates, with and without compression.  The size
+ * of each payload is printed at the start of the trial, the benchmark measures the CPU to write it.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class WireFormatBenchmark {
+
+    public enum Format {
+        JSON,
+        SMILE
+    }
+
+
+    public enum Encoding {
+        IDENTITY,
+        GZIP,
+        DEFLATE
+    }
+
+
+    @Param( { "JSON", "SMILE" } )
+    public Format format;
+
+    @Param( { "IDENTITY", "GZIP", "DEFLATE" } )
+    public Encoding encoding;
+
+    @Param( { "MEDIUM" } )
+    public EntityFixtures.Size size;
+
+    @Param( { "10", "100" } )
+    public int pageSize;
+
+    private ObjectMapper mapper;
+
+    private DeflaterPool deflaterPool;
+
+    private ApiResponse response;
+
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = format == Format.SMILE ? JacksonSmileProvider.createMapper() :
+                 new JacksonCustomMapperProvider().getContext( ApiResponse.class );
+
+        deflaterPool = new DeflaterPool( 6, 4 );
+
+        final List<Entity> entities = new ArrayList<>( EntityFixtures.users( size, pageSize ) );
+
+        response = new ApiResponse();
+        response.setAction( "get" );
+        response.setEntities( entities );
+        response.setCount( entities.size() );
+        response.setCursor( "LTU2ODc0MzQzOkdGcGRGaGVlRWVXQ3l1a3FZSGdsNGc" );
+
+        System.out.println( String.format( "%n%s %s, %d %s entities: %d bytes", format, encoding, pageSize, size,
+            write().length ) );
+    }
+
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( 16384 );
+
+        if ( encoding == Encoding.IDENTITY ) {
+            mapper.writeValue( bytes, response );
+            return bytes.toByteArray();
+        }
+
+        final String contentEncoding =
+            encoding == Encoding.GZIP ? CompressingOutputStream.GZIP : CompressingOutputStream.DEFLATE;
+
+        //the threshold the REST tier defaults to
+        final CompressingOutputStream compressing =
+            new CompressingOutputStream( bytes, contentEncoding, 1024, deflaterPool, () -> { } );
+
+        mapper.writeValue( new UnclosedOutputStream( compressing ), response );
+        compressing.finish();
+
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Keeps the JSON mapper from closing the stream before it's finished, as the REST tier's provider does
+     */
+    private static final class UnclosedOutputStream extends OutputStream {
+        private final OutputStream out;
+
+
+        private UnclosedOutputStream( final OutputStream out ) {this.out = out;}
+
+
+        @Override
+        public void write( final int b ) throws IOException {
+            out.write( b );
+        }
+
+
+        @Override
+        public void write( final byte[] b, final int off, final int len ) throws IOException {
+            out.write( b, off, len );
+        }
+
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
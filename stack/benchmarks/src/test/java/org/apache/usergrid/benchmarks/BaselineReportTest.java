@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.benchmarks;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class BaselineReportTest {
+
+    @Test
+    public void slowerTimeIsRegression() throws IOException {
+        final String output = compare( run( "avgt", 10, 0.5 ), run( "avgt", 12, 0.5 ), true );
+
+        assertTrue( output.contains( "REGRESSION" ) );
+    }
+
+
+    @Test
+    public void lowerThroughputIsRegression() throws IOException {
+        final String output = compare( run( "thrpt", 1000, 10 ), run( "thrpt", 800, 10 ), true );
+
+        assertTrue( output.contains( "REGRESSION" ) );
+    }
+
+
+    @Test
+    public void fasterIsImprovement() throws IOException {
+        final String output = compare( run( "avgt", 10, 0.5 ), run( "avgt", 5, 0.5 ), false );
+
+        assertTrue( output.contains( "improved" ) );
+    }
+
+
+    @Test
+    public void changeWithinErrorIsIgnored() throws IOException {
+        final String output = compare( run( "avgt", 10, 2 ), run( "avgt", 12, 2 ), false );
+
+        assertFalse( output.contains( "REGRESSION" ) );
+    }
+
+
+    @Test
+    public void newBenchmarkIsReported() throws IOException {
+        final Map<String, BaselineReport.Result> baseline = BaselineReport.read( write( "[]" ) );
+        final Map<String, BaselineReport.Result> current =
+            BaselineReport.read( write( "[" + run( "avgt", 10, 0.5 ) + "]" ) );
+
+        final String output = print( BaselineReport.compare( baseline, current ), false );
+
+        assertTrue( output.contains( "NEW" ) );
+    }
+
+
+    private String compare( final String baseline, final String current, final boolean regressed )
+        throws IOException {
+
+        final List<BaselineReport.Comparison> comparisons =
+            BaselineReport.compare( BaselineReport.read( write( "[" + baseline + "]" ) ),
+                BaselineReport.read( write( "[" + current + "]" ) ) );
+
+        return print( comparisons, regressed );
+    }
+
+
+    private String print( final List<BaselineReport.Comparison> comparisons, final boolean regressed ) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals( regressed, BaselineReport.print( comparisons, 10, new PrintStream( out ) ) );
+
+        return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+    }
+
+
+    private static String run( final String mode, final double score, final double error ) {
+        return "{\"benchmark\":\"org.apache.usergrid.benchmarks.SchemaBenchmark.typedEntityProperties\",\"mode\":\""
+            + mode + "\",\"params\":{\"size\":\"SMALL\"},\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":"
+            + error + ",\"scoreUnit\":\"us/op\"}}";
+    }
+
+
+    private static File write( final String json ) throws IOException {
+        final File file = File.createTempFile( "jmh", ".json" );
+        file.deleteOnExit();
+        Files.write( file.toPath(), json.getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+}
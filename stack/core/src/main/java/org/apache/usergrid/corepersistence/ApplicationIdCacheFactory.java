@@ -22,6 +22,8 @@ package org.apache.usergrid.corepersistence;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.core.cache.LookupCacheFactory;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
 
 /**
  * returns instances of cache.
@@ -30,14 +32,19 @@ import org.apache.usergrid.persistence.EntityManager;
 public class ApplicationIdCacheFactory {
     private final ApplicationIdCacheFig fig;
     private final ManagerCache cache;
+    private final InvalidationBus invalidationBus;
+    private final LookupCacheFactory lookupCacheFactory;
 
     @Inject
-    public ApplicationIdCacheFactory(ApplicationIdCacheFig fig,ManagerCache cache){
+    public ApplicationIdCacheFactory(ApplicationIdCacheFig fig,ManagerCache cache, InvalidationBus invalidationBus,
+                                     LookupCacheFactory lookupCacheFactory){
 
         this.fig = fig;
         this.cache = cache;
+        this.invalidationBus = invalidationBus;
+        this.lookupCacheFactory = lookupCacheFactory;
     }
     public ApplicationIdCache getInstance(EntityManager managementEntityManager){
-        return new ApplicationIdCacheImpl(managementEntityManager,cache,fig);
+        return new ApplicationIdCacheImpl(managementEntityManager,cache,fig,invalidationBus,lookupCacheFactory);
     }
 }
@@ -36,10 +36,20 @@ public interface ApplicationIdCacheFig extends GuicyFig {
     @Default( "10000" )
     int getCacheSize();
 
+    /**
+     * The time after which a read of an application id reloads it in the background
+     */
     @Key( "usergrid.applicationid_cache_timeout_ms" )
     @Default( "60000" )
     int getCacheTimeout();
 
+    /**
+     * The time after which a read of an application name that wasn't found looks it up again
+     */
+    @Key( "usergrid.applicationid_cache_negative_timeout_ms" )
+    @Default( "10000" )
+    int getCacheNegativeTimeout();
+
 
 
 }
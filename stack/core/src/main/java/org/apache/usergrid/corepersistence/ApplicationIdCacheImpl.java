@@ -20,15 +20,14 @@
 package org.apache.usergrid.corepersistence;
 
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.Schema;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
+import org.apache.usergrid.persistence.core.cache.LookupCache;
+import org.apache.usergrid.persistence.core.cache.LookupCacheFactory;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
 import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
@@ -40,50 +39,52 @@ import rx.Observable;
 
 import com.google.common.base.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 
 
 /**
  * Implements the org app cache for faster runtime lookups.  These values are immutable, so this LRU cache can stay
- * full for the duration of the execution
+ * full for the duration of the execution.  Entries are reloaded in the background so popular applications never wait
+ * on a lookup, and names that aren't found are cached too.
  */
 public class ApplicationIdCacheImpl implements ApplicationIdCache {
     private static final Logger logger = LoggerFactory.getLogger(ApplicationIdCacheImpl.class);
 
+    private static final String CACHE_NAME = "applicationIds";
+
 
     /**
      * Cache the pointer to our root entity manager for reference
      */
 
-    private final LoadingCache<String, Optional<UUID>> appCache;
+    private final LookupCache<String, UUID> appCache;
     private final EntityManager managementEnityManager;
     private final ManagerCache managerCache;
+    private final InvalidationBus invalidationBus;
 
 
-    public ApplicationIdCacheImpl(final EntityManager managementEnityManager, ManagerCache managerCache, ApplicationIdCacheFig fig) {
+    public ApplicationIdCacheImpl(final EntityManager managementEnityManager, ManagerCache managerCache, ApplicationIdCacheFig fig,
+                                  InvalidationBus invalidationBus, LookupCacheFactory lookupCacheFactory) {
         this.managementEnityManager = managementEnityManager;
         this.managerCache = managerCache;
-        appCache = CacheBuilder.newBuilder()
-            .maximumSize(fig.getCacheSize())
-            .expireAfterWrite(fig.getCacheTimeout(), TimeUnit.MILLISECONDS)
-            .build(new CacheLoader<String, Optional<UUID>>() {
-                @Override
-                public Optional<UUID> load(final String key) throws Exception {
-                    return Optional.fromNullable(fetchApplicationId(key));
-                }
-            });
+        this.invalidationBus = invalidationBus;
+        appCache = lookupCacheFactory.create(CACHE_NAME, key -> Optional.fromNullable(fetchApplicationId(key)),
+            fig.getCacheSize(), fig.getCacheTimeout(), fig.getCacheNegativeTimeout());
+
+        //applications are renamed and deleted through any node, evict them everywhere
+        invalidationBus.subscribe(CACHE_NAME, key -> {
+            if (key.isPresent()) {
+                appCache.invalidate(key.get());
+            } else {
+                appCache.invalidateAll();
+            }
+        });
     }
 
     @Override
     public  Optional<UUID> getApplicationId( final String applicationName ) {
         try {
-            Optional<UUID> optionalUuid = appCache.get( applicationName.toLowerCase() );
-            if(!optionalUuid.isPresent()){
-                appCache.invalidate(applicationName.toLowerCase());
-                return Optional.absent();
-            }
-            return optionalUuid;
+            return appCache.get( applicationName.toLowerCase() );
         } catch (Exception e) {
             if (logger.isDebugEnabled()) {
                 logger.debug("Returning for key {} value null", applicationName);
@@ -136,7 +137,7 @@ public class ApplicationIdCacheImpl implements ApplicationIdCache {
 
     @Override
     public void evictAppId( final String applicationName ) {
-        appCache.invalidate( applicationName.toLowerCase() );
+        invalidationBus.invalidate( CACHE_NAME, applicationName.toLowerCase() );
         if(logger.isDebugEnabled()) {
             logger.debug("Invalidated key {}", applicationName.toLowerCase());
         }
@@ -145,7 +146,7 @@ public class ApplicationIdCacheImpl implements ApplicationIdCache {
 
     @Override
     public void evictAll() {
-        appCache.invalidateAll();
+        invalidationBus.invalidateAll( CACHE_NAME );
         if(logger.isDebugEnabled()) {
             logger.debug("Invalidated all keys");
         }
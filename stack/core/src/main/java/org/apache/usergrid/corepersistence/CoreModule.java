@@ -28,6 +28,11 @@ import org.apache.usergrid.corepersistence.asyncevents.AsyncIndexProvider;
 import org.apache.usergrid.corepersistence.asyncevents.EventBuilder;
 import org.apache.usergrid.corepersistence.asyncevents.EventBuilderImpl;
 import org.apache.usergrid.corepersistence.asyncevents.EventExecutionScheduler;
+import org.apache.usergrid.corepersistence.changes.ChangeFeed;
+import org.apache.usergrid.corepersistence.changes.ChangeFeedFig;
+import org.apache.usergrid.corepersistence.changes.ChangeFeedImpl;
+import org.apache.usergrid.corepersistence.changes.ChangeFeedSerialization;
+import org.apache.usergrid.corepersistence.changes.ChangeFeedSerializationImpl;
 import org.apache.usergrid.corepersistence.index.ApplicationIndexBucketLocator;
 import org.apache.usergrid.corepersistence.index.CoreIndexFig;
 import org.apache.usergrid.corepersistence.index.IndexLocationStrategyFactory;
@@ -59,6 +64,9 @@ import org.apache.usergrid.corepersistence.service.CollectionService;
 import org.apache.usergrid.corepersistence.service.CollectionServiceImpl;
 import org.apache.usergrid.corepersistence.service.ConnectionService;
 import org.apache.usergrid.corepersistence.service.ConnectionServiceImpl;
+import org.apache.usergrid.corepersistence.service.FeedFig;
+import org.apache.usergrid.corepersistence.service.FeedFanoutService;
+import org.apache.usergrid.corepersistence.service.FeedFanoutServiceImpl;
 import org.apache.usergrid.corepersistence.service.ServiceSchedulerFig;
 import org.apache.usergrid.corepersistence.service.StatusService;
 import org.apache.usergrid.corepersistence.service.StatusServiceImpl;
@@ -66,9 +74,11 @@ import org.apache.usergrid.persistence.collection.guice.CollectionModule;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.EntityIdScope;
 import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
 import org.apache.usergrid.persistence.core.guice.CommonModule;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.migration.data.DataMigration;
 import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
 import org.apache.usergrid.persistence.core.migration.data.MigrationPlugin;
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
 import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.rx.RxTaskSchedulerImpl;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
@@ -78,6 +88,7 @@ import org.apache.usergrid.persistence.index.guice.IndexModule;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
+import com.google.inject.Key;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
@@ -164,6 +175,13 @@ public class CoreModule extends AbstractModule {
         //bind the queue provider
         bind( AsyncEventService.class ).toProvider( AsyncIndexProvider.class );
 
+        //changes published once the async events are processed
+        bind( ChangeFeed.class ).to( ChangeFeedImpl.class );
+        bind( ChangeFeedSerialization.class ).to( ChangeFeedSerializationImpl.class );
+
+        Multibinder<Migration> migrationBinding = Multibinder.newSetBinder( binder(), Migration.class );
+        migrationBinding.addBinding().to( Key.get( ChangeFeedSerialization.class ) );
+
 
         bind( ReIndexService.class ).to( ReIndexServiceImpl.class );
 
@@ -185,6 +203,10 @@ public class CoreModule extends AbstractModule {
 
         install( new GuicyFigModule( ServiceSchedulerFig.class ) );
 
+        install( new GuicyFigModule( FeedFig.class ) );
+
+        install( new GuicyFigModule( ChangeFeedFig.class ) );
+
         //install our pipeline modules
         install( new PipelineModule() );
 
@@ -199,6 +221,8 @@ public class CoreModule extends AbstractModule {
         bind( ApplicationService.class ).to( ApplicationServiceImpl.class );
 
         bind( StatusService.class ).to( StatusServiceImpl.class );
+
+        bind( FeedFanoutService.class ).to( FeedFanoutServiceImpl.class );
     }
 
 
@@ -206,14 +230,16 @@ public class CoreModule extends AbstractModule {
     @Inject
     @EventExecutionScheduler
     @Singleton
-    public RxTaskScheduler getSqsTaskScheduler( final AsyncEventsSchedulerFig asyncEventsSchedulerFig ) {
+    public RxTaskScheduler getSqsTaskScheduler( final AsyncEventsSchedulerFig asyncEventsSchedulerFig,
+                                                final MetricsFactory metricsFactory ) {
 
         final String poolName = asyncEventsSchedulerFig.getIoSchedulerName();
         final int threadCount = asyncEventsSchedulerFig.getMaxIoThreads();
 
 
         final ThreadPoolExecutor executor = TaskExecutorFactory
-            .createTaskExecutor( poolName, threadCount, threadCount, TaskExecutorFactory.RejectionAction.CALLERRUNS );
+            .createTaskExecutor( poolName, threadCount, threadCount, TaskExecutorFactory.RejectionAction.CALLERRUNS,
+                metricsFactory );
 
         final RxTaskScheduler taskScheduler = new RxTaskSchedulerImpl( executor );
 
@@ -225,14 +251,15 @@ public class CoreModule extends AbstractModule {
     @Inject
     @AsyncRepair
     @Singleton
-    public RxTaskScheduler getAsyncRepairScheduler( final AsyncEventsSchedulerFig asyncEventsSchedulerFig ) {
+    public RxTaskScheduler getAsyncRepairScheduler( final AsyncEventsSchedulerFig asyncEventsSchedulerFig,
+                                                    final MetricsFactory metricsFactory ) {
 
         final String poolName = asyncEventsSchedulerFig.getRepairPoolName();
         final int threadCount = asyncEventsSchedulerFig.getMaxRepairThreads();
 
 
         final ThreadPoolExecutor executor = TaskExecutorFactory
-            .createTaskExecutor( poolName, threadCount, 0, TaskExecutorFactory.RejectionAction.DROP );
+            .createTaskExecutor( poolName, threadCount, 0, TaskExecutorFactory.RejectionAction.DROP, metricsFactory );
 
         final RxTaskScheduler taskScheduler = new RxTaskSchedulerImpl( executor );
 
@@ -244,14 +271,17 @@ public class CoreModule extends AbstractModule {
     @Inject
     @ResponseImportTasks
     @Singleton
-    public RxTaskScheduler getResponseImportScheduler(final ServiceSchedulerFig serviceSchedulerFig ) {
+    public RxTaskScheduler getResponseImportScheduler(final ServiceSchedulerFig serviceSchedulerFig,
+                                                      final MetricsFactory metricsFactory ) {
 
         final String poolName = serviceSchedulerFig.getRepairPoolName();
         final int threadCount = serviceSchedulerFig.getImportThreadPoolSize();
+        final TaskExecutorFactory.RejectionAction rejectionAction =
+            TaskExecutorFactory.RejectionAction.valueOf( serviceSchedulerFig.getImportRejectionAction() );
 
 
         final ThreadPoolExecutor executor = TaskExecutorFactory
-            .createTaskExecutor( poolName, threadCount, 0, TaskExecutorFactory.RejectionAction.CALLERRUNS );
+            .createTaskExecutor( poolName, threadCount, 0, rejectionAction, metricsFactory );
 
         final RxTaskScheduler taskScheduler = new RxTaskSchedulerImpl( executor );
 
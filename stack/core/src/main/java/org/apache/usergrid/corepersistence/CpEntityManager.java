@@ -75,6 +75,8 @@ import org.apache.usergrid.persistence.cassandra.CounterUtils;
 import org.apache.usergrid.persistence.cassandra.util.TraceParticipant;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.FieldSet;
+import org.apache.usergrid.persistence.collection.MvccLogEntry;
+import org.apache.usergrid.persistence.collection.VersionSet;
 import org.apache.usergrid.persistence.collection.exception.WriteUniqueVerifyException;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
@@ -106,15 +108,12 @@ import com.google.common.base.Preconditions;
 
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.ColumnSlice;
-import me.prettyprint.hector.api.beans.CounterRow;
-import me.prettyprint.hector.api.beans.CounterRows;
 import me.prettyprint.hector.api.beans.CounterSlice;
 import me.prettyprint.hector.api.beans.DynamicComposite;
 import me.prettyprint.hector.api.beans.HColumn;
 import me.prettyprint.hector.api.beans.HCounterColumn;
 import me.prettyprint.hector.api.factory.HFactory;
 import me.prettyprint.hector.api.mutation.Mutator;
-import me.prettyprint.hector.api.query.MultigetSliceCounterQuery;
 import me.prettyprint.hector.api.query.QueryResult;
 import me.prettyprint.hector.api.query.SliceCounterQuery;
 import rx.Observable;
@@ -425,6 +424,7 @@ public class CpEntityManager implements EntityManager {
 
         Entity oldFormatEntity = EntityFactory.newEntity(entity.getId().getUuid(), entity.getId().getType(), clazz);
         oldFormatEntity.setProperties(CpEntityMapUtils.toMap(entity));
+        oldFormatEntity.setVersion(entity.getVersion());
 
         return oldFormatEntity;
     }
@@ -458,6 +458,35 @@ public class CpEntityManager implements EntityManager {
     }
 
 
+    @Override
+    public Map<UUID, UUID> getLatestVersions( Collection<EntityRef> entityRefs ) throws Exception {
+
+        final Map<UUID, UUID> versions = new HashMap<>( entityRefs.size() );
+
+        if ( entityRefs.isEmpty() ) {
+            return versions;
+        }
+
+        final List<Id> ids = new ArrayList<>( entityRefs.size() );
+
+        for ( EntityRef entityRef : entityRefs ) {
+            ids.add( new SimpleId( entityRef.getUuid(), entityRef.getType() ) );
+        }
+
+        final VersionSet versionSet = ecm.getLatestVersion( ids ).toBlocking().last();
+
+        for ( Id id : ids ) {
+            final MvccLogEntry logEntry = versionSet.getMaxVersion( id );
+
+            if ( logEntry != null && logEntry.getState() != MvccLogEntry.State.DELETED ) {
+                versions.put( id.getUuid(), logEntry.getVersion() );
+            }
+        }
+
+        return versions;
+    }
+
+
     @Override
     public <A extends Entity> A get( UUID entityId, Class<A> entityClass ) throws Exception {
         A e = null;
@@ -2024,37 +2053,15 @@ public class CpEntityManager implements EntityManager {
 
         start = resolution.round( start );
         finish = resolution.round( finish );
-        long expected_time = start;
         Keyspace ko = cass.getApplicationKeyspace( applicationId );
-        SliceCounterQuery<String, Long> q = createCounterSliceQuery( ko, se, le );
-        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
-        q.setRange( start, finish, false, ALL_COUNT );
 
         //Adding graphite metrics
         Timer.Context timeGetAggregateCounters = aggCounterTimer.time();
-        QueryResult<CounterSlice<Long>> r = q.setKey(
-                counterUtils.getAggregateCounterRow( counterName, userId, groupId, queueId, category, resolution ) )
-                                             .execute();
+        List<AggregateCounter> counters = counterUtils.getAggregateCounters( ko, applicationId,
+                counterUtils.getAggregateCounterRow( counterName, userId, groupId, queueId, category, resolution ),
+                resolution, start, finish, pad );
         timeGetAggregateCounters.stop();
 
-        List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
-        for ( HCounterColumn<Long> column : r.get().getColumns() ) {
-            AggregateCounter count = new AggregateCounter( column.getName(), column.getValue() );
-            if ( pad && !( resolution == CounterResolution.ALL ) ) {
-                while ( count.getTimestamp() != expected_time ) {
-                    counters.add( new AggregateCounter( expected_time, 0 ) );
-                    expected_time = resolution.next( expected_time );
-                }
-                expected_time = resolution.next( expected_time );
-            }
-            counters.add( count );
-        }
-        if ( pad && !( resolution == CounterResolution.ALL ) ) {
-            while ( expected_time <= finish ) {
-                counters.add( new AggregateCounter( expected_time, 0 ) );
-                expected_time = resolution.next( expected_time );
-            }
-        }
         return Results.fromCounters( new AggregateCounterSet( counterName, userId, groupId, category, counters ) );
     }
 
@@ -2076,7 +2083,6 @@ public class CpEntityManager implements EntityManager {
         }
         start = resolution.round( start );
         finish = resolution.round( finish );
-        long expected_time = start;
 
         if ( pad && ( resolution != CounterResolution.ALL ) ) {
             long max_counters = ( finish - start ) / resolution.interval();
@@ -2102,40 +2108,18 @@ public class CpEntityManager implements EntityManager {
             selections.put( selection.getRow( resolution ), selection );
         }
 
-        MultigetSliceCounterQuery<String, Long> q = HFactory.createMultigetSliceCounterQuery( ko, se, le );
-        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
-        q.setRange( start, finish, false, ALL_COUNT );
         //Adding graphite metrics
         Timer.Context timeGetAggregateCounters = entGetAggregateCountersQueryTimer.time();
-        QueryResult<CounterRows<String, Long>> rows = q.setKeys( selections.keySet() ).execute();
-        timeGetAggregateCounters.stop();
-
-
+        Map<String, List<AggregateCounter>> rows = counterUtils
+                .getAggregateCounters( ko, applicationId, selections.keySet(), resolution, start, finish, pad );
         List<AggregateCounterSet> countSets = new ArrayList<AggregateCounterSet>();
-        for ( CounterRow<String, Long> r : rows.get() ) {
-            expected_time = start;
-            List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
-            for ( HCounterColumn<Long> column : r.getColumnSlice().getColumns() ) {
-                AggregateCounter count = new AggregateCounter( column.getName(), column.getValue() );
-                if ( pad && ( resolution != CounterResolution.ALL ) ) {
-                    while ( count.getTimestamp() != expected_time ) {
-                        counters.add( new AggregateCounter( expected_time, 0 ) );
-                        expected_time = resolution.next( expected_time );
-                    }
-                    expected_time = resolution.next( expected_time );
-                }
-                counters.add( count );
-            }
-            if ( pad && ( resolution != CounterResolution.ALL ) ) {
-                while ( expected_time <= finish ) {
-                    counters.add( new AggregateCounter( expected_time, 0 ) );
-                    expected_time = resolution.next( expected_time );
-                }
-            }
-            CounterUtils.AggregateCounterSelection selection = selections.get( r.getKey() );
+        for ( Map.Entry<String, List<AggregateCounter>> row : rows.entrySet() ) {
+            List<AggregateCounter> counters = row.getValue();
+            CounterUtils.AggregateCounterSelection selection = selections.get( row.getKey() );
             countSets.add( new AggregateCounterSet( selection.getName(), selection.getUserId(),
                     selection.getGroupId(), selection.getCategory(), counters ) );
         }
+        timeGetAggregateCounters.stop();
 
         Collections.sort( countSets, new Comparator<AggregateCounterSet>() {
             @Override
@@ -2345,6 +2329,7 @@ public class CpEntityManager implements EntityManager {
 
         A ret = EntityFactory.newEntity(entityRef.getUuid(), entityRef.getType(), entityClass);
         ret.setProperties( entity.getProperties() );
+        ret.setVersion( entity.getVersion() );
 
         return ret;
     }
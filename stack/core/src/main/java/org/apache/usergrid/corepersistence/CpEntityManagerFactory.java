@@ -51,6 +51,9 @@ import org.apache.usergrid.persistence.cassandra.CounterUtils;
 import org.apache.usergrid.persistence.cassandra.Setup;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.EntityIdScope;
+import org.apache.usergrid.persistence.core.cache.LookupCache;
+import org.apache.usergrid.persistence.core.cache.LookupCacheFactory;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
@@ -122,6 +125,12 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
     private final CollectionService collectionService;
     private final ConnectionService connectionService;
     private final GraphManagerFactory graphManagerFactory;
+    private final InvalidationBus invalidationBus;
+    private final LookupCache<String, Map<String, String>> servicePropertiesCache;
+
+    private static final String CACHE_NAME = "entityManagers";
+
+    private static final String SERVICE_PROPERTIES_CACHE = "serviceProperties";
 
     public CpEntityManagerFactory( final CassandraService cassandraService, final CounterUtils counterUtils,
                                    final Injector injector ) {
@@ -137,6 +146,15 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
         this.graphManagerFactory = injector.getInstance( GraphManagerFactory.class );
         this.collectionService = injector.getInstance( CollectionService.class );
         this.connectionService = injector.getInstance( ConnectionService.class );
+        this.invalidationBus = injector.getInstance( InvalidationBus.class );
+
+        //a flush on any node flushes the manager caches on every node
+        this.invalidationBus.subscribe( CACHE_NAME, key -> flushLocalManagerCaches() );
+
+        //the service properties are a single entity, cached under the name of the cache
+        this.servicePropertiesCache = injector.getInstance( LookupCacheFactory.class )
+            .create( SERVICE_PROPERTIES_CACHE, key -> Optional.of( loadServiceProperties() ) );
+        this.invalidationBus.subscribe( SERVICE_PROPERTIES_CACHE, key -> servicePropertiesCache.invalidateAll() );
 
         //this line always needs to be last due to the temporary cicular dependency until spring is removed
         this.applicationIdCache = injector.getInstance(ApplicationIdCacheFactory.class).getInstance(
@@ -536,17 +554,26 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
     @Override
     public Map<String, String> getServiceProperties() {
 
+        try {
+            return new HashMap<>( servicePropertiesCache.get( SERVICE_PROPERTIES_CACHE ).get() );
+        }
+        catch ( Exception ex ) {
+            logger.error("Error getting system properties", ex);
+            return new HashMap<>();
+        }
+    }
+
+
+    /**
+     * Read the service properties from the management application
+     */
+    private Map<String, String> loadServiceProperties() throws Exception {
+
         Map<String, String> props = new HashMap<String,String>();
 
         EntityManager em = getEntityManager(getManagementAppId());
         Query q = Query.fromQL("select *");
-        Results results = null;
-        try {
-            results = em.searchCollection( em.getApplicationRef(), "propertymaps", q);
-
-        } catch (Exception ex) {
-            logger.error("Error getting system properties", ex);
-        }
+        Results results = em.searchCollection( em.getApplicationRef(), "propertymaps", q);
 
         if ( results == null || results.isEmpty() ) {
             return props;
@@ -554,7 +581,7 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
 
         org.apache.usergrid.persistence.Entity e = results.getEntity();
         for ( String key : e.getProperties().keySet() ) {
-            props.put( key, props.get(key).toString() );
+            props.put( key, e.getProperties().get(key).toString() );
         }
         return props;
     }
@@ -597,6 +624,8 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
             return false;
         }
 
+        invalidationBus.invalidate( SERVICE_PROPERTIES_CACHE, SERVICE_PROPERTIES_CACHE );
+
         return true;
     }
 
@@ -643,6 +672,8 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
             return false;
         }
 
+        invalidationBus.invalidate( SERVICE_PROPERTIES_CACHE, SERVICE_PROPERTIES_CACHE );
+
         return true;
     }
 
@@ -715,9 +746,17 @@ public class CpEntityManagerFactory implements EntityManagerFactory, Application
     @Override
     public void flushEntityManagerCaches() {
 
+        applicationIdCache.evictAll();
+
+        invalidationBus.invalidateAll( CACHE_NAME );
+    }
+
+
+    private void flushLocalManagerCaches() {
+
         managerCache.invalidate();
 
-        applicationIdCache.evictAll();
+        servicePropertiesCache.invalidateAll();
 
         Map<UUID, EntityManager>  entityManagersMap = entityManagers.asMap();
         for ( UUID appUuid : entityManagersMap.keySet() ) {
@@ -34,7 +34,7 @@ import org.apache.usergrid.persistence.model.entity.SimpleId;
 import com.google.common.base.Optional;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
+import rx.Scheduler;
 
 import static org.apache.usergrid.corepersistence.util.CpNamingUtils.getNameFromEdgeType;
 
@@ -48,12 +48,14 @@ public class CpWalker {
 
 
 
+    private final Scheduler scheduler;
+
+
     /**
-     * Wait the set amount of time between successive writes.
-     * @param
+     * @param scheduler The bounded scheduler each entity is visited on
      */
-    public CpWalker(){
-
+    public CpWalker( final Scheduler scheduler ){
+        this.scheduler = scheduler;
     }
 
 
@@ -115,7 +117,7 @@ public class CpWalker {
             return gm.loadEdgesFromSource(
                 new SimpleSearchByEdgeType( applicationId, emittedEdgeType, Long.MAX_VALUE, order, Optional.absent() ) );
         } ).flatMap( edge -> {
-            //run each edge through it's own scheduler, up to 100 at a time
+            //run each edge on the scheduler, up to 100 at a time
             return Observable.just( edge ).doOnNext( edgeValue -> {
                 logger.info( "Re-indexing edge {}", edgeValue );
 
@@ -136,7 +138,7 @@ public class CpWalker {
                 }
                 String collName = getNameFromEdgeType( edgeValue.getType() );
                 visitor.visitCollectionEntry( em, collName, entity );
-            } ).subscribeOn( Schedulers.io() );
+            } ).subscribeOn( scheduler );
         }, 100 );
 
         // wait for it to complete
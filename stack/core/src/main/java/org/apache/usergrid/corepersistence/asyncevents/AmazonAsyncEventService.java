@@ -23,6 +23,7 @@ package org.apache.usergrid.corepersistence.asyncevents;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -39,12 +40,17 @@ import org.apache.usergrid.corepersistence.asyncevents.model.EdgeIndexEvent;
 import org.apache.usergrid.corepersistence.asyncevents.model.ElasticsearchIndexEvent;
 import org.apache.usergrid.corepersistence.asyncevents.model.EntityDeleteEvent;
 import org.apache.usergrid.corepersistence.asyncevents.model.EntityIndexEvent;
+import org.apache.usergrid.corepersistence.asyncevents.model.FeedFanoutEvent;
 import org.apache.usergrid.corepersistence.asyncevents.model.InitializeApplicationIndexEvent;
+import org.apache.usergrid.corepersistence.changes.ChangeFeed;
+import org.apache.usergrid.corepersistence.changes.EntityChange;
 import org.apache.usergrid.corepersistence.index.EntityIndexOperation;
 import org.apache.usergrid.corepersistence.index.IndexLocationStrategyFactory;
 import org.apache.usergrid.corepersistence.index.IndexProcessorFig;
 import org.apache.usergrid.corepersistence.index.ReplicatedIndexLocationStrategy;
 import org.apache.usergrid.corepersistence.rx.impl.EdgeScope;
+import org.apache.usergrid.corepersistence.service.FeedFanout;
+import org.apache.usergrid.corepersistence.service.FeedFanoutService;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
 import org.apache.usergrid.corepersistence.util.ObjectJsonSerializer;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
@@ -109,9 +115,9 @@ public class AmazonAsyncEventService implements AsyncEventService {
 
     // SQS maximum receive messages is 10
     public int MAX_TAKE = 10;
-    public static final String QUEUE_NAME = "index"; //keep this short as AWS limits queue name size to 80 chars
 
-    private final QueueManager queue;
+    private final Map<EventLane, QueueManager> queues = new EnumMap<>( EventLane.class );
+    private final EventLaneScheduler<UUID, QueueMessage> laneScheduler;
     private final IndexProcessorFig indexProcessorFig;
     private final QueueFig queueFig;
     private final IndexProducer indexProducer;
@@ -119,6 +125,8 @@ public class AmazonAsyncEventService implements AsyncEventService {
     private final IndexLocationStrategyFactory indexLocationStrategyFactory;
     private final EntityIndexFactory entityIndexFactory;
     private final EventBuilder eventBuilder;
+    private final FeedFanoutService feedFanoutService;
+    private final ChangeFeed changeFeed;
     private final RxTaskScheduler rxTaskScheduler;
 
     private final Timer readTimer;
@@ -134,11 +142,15 @@ public class AmazonAsyncEventService implements AsyncEventService {
     private final AtomicLong counter = new AtomicLong();
     private final AtomicLong inFlight = new AtomicLong();
     private final Histogram messageCycle;
+    private final Map<EventLane, Histogram> laneLag = new EnumMap<>( EventLane.class );
     private final MapManager esMapPersistence;
 
     //the actively running subscription
     private List<Subscription> subscriptions = new ArrayList<>();
 
+    //the threads reading the lanes of the queue
+    private List<Thread> readers = new ArrayList<>();
+
 
     @Inject
     public AmazonAsyncEventService( final QueueManagerFactory queueManagerFactory,
@@ -149,6 +161,8 @@ public class AmazonAsyncEventService implements AsyncEventService {
                                     final IndexLocationStrategyFactory indexLocationStrategyFactory,
                                     final EntityIndexFactory entityIndexFactory,
                                     final EventBuilder eventBuilder,
+                                    final FeedFanoutService feedFanoutService,
+                                    final ChangeFeed changeFeed,
                                     final MapManagerFactory mapManagerFactory,
                                     final QueueFig queueFig,
                                     @EventExecutionScheduler
@@ -159,6 +173,8 @@ public class AmazonAsyncEventService implements AsyncEventService {
         this.indexLocationStrategyFactory = indexLocationStrategyFactory;
         this.entityIndexFactory = entityIndexFactory;
         this.eventBuilder = eventBuilder;
+        this.feedFanoutService = feedFanoutService;
+        this.changeFeed = changeFeed;
 
         final MapScope mapScope = new MapScopeImpl( CpNamingUtils.getManagementApplicationId(),  "indexEvents");
 
@@ -166,12 +182,21 @@ public class AmazonAsyncEventService implements AsyncEventService {
 
         this.rxTaskScheduler = rxTaskScheduler;
 
-        QueueScope queueScope = new QueueScopeImpl(QUEUE_NAME, QueueScope.RegionImplementation.ALL);
-        this.queue = queueManagerFactory.getQueueManager(queueScope);
+        for ( final EventLane lane : EventLane.values() ) {
+            QueueScope queueScope = new QueueScopeImpl( lane.getQueueName(), QueueScope.RegionImplementation.ALL );
+            this.queues.put( lane, queueManagerFactory.getQueueManager( queueScope ) );
+        }
 
         this.indexProcessorFig = indexProcessorFig;
         this.queueFig = queueFig;
 
+        final Map<EventLane, Integer> weights = new EnumMap<>( EventLane.class );
+        weights.put( EventLane.INTERACTIVE, indexProcessorFig.getInteractiveLaneWeight() );
+        weights.put( EventLane.BULK, indexProcessorFig.getBulkLaneWeight() );
+        weights.put( EventLane.REPAIR, indexProcessorFig.getRepairLaneWeight() );
+
+        this.laneScheduler = new EventLaneScheduler<>( weights, indexProcessorFig.getFairQuantum() );
+
         this.writeTimer = metricsFactory.getTimer(AmazonAsyncEventService.class, "async_event.write");
         this.readTimer = metricsFactory.getTimer(AmazonAsyncEventService.class, "async_event.read");
         this.ackTimer = metricsFactory.getTimer(AmazonAsyncEventService.class, "async_event.ack");
@@ -187,6 +212,22 @@ public class AmazonAsyncEventService implements AsyncEventService {
             }
         });
 
+        //depth and lag of each lane, the depth includes the messages read but not yet handed to a worker
+        for ( final EventLane lane : EventLane.values() ) {
+            final String laneName = lane.name().toLowerCase();
+
+            laneLag.put( lane,
+                metricsFactory.getHistogram( AmazonAsyncEventService.class, "async_event." + laneName + ".lag" ) );
+
+            metricsFactory.addGauge( AmazonAsyncEventService.class, "async_event." + laneName + ".depth",
+                new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return queues.get( lane ).getQueueDepth() + laneScheduler.size( lane );
+                    }
+                } );
+        }
+
         start();
     }
 
@@ -194,12 +235,12 @@ public class AmazonAsyncEventService implements AsyncEventService {
     /**
      * Offer the EntityIdScope to SQS
      */
-    private void offer(final Serializable operation) {
+    private void offer(final EventLane lane, final Serializable operation) {
         final Timer.Context timer = this.writeTimer.time();
 
         try {
             //signal to SQS
-            this.queue.sendMessage( operation );
+            this.queues.get( lane ).sendMessage( operation );
         } catch (IOException e) {
             throw new RuntimeException("Unable to queue message", e);
         } finally {
@@ -208,12 +249,12 @@ public class AmazonAsyncEventService implements AsyncEventService {
     }
 
 
-    private void offerTopic( final Serializable operation ) {
+    private void offerTopic( final EventLane lane, final Serializable operation ) {
         final Timer.Context timer = this.writeTimer.time();
 
         try {
             //signal to SQS
-            this.queue.sendMessageToTopic( operation );
+            this.queues.get( lane ).sendMessageToTopic( operation );
         }
         catch ( IOException e ) {
             throw new RuntimeException( "Unable to queue message", e );
@@ -223,12 +264,12 @@ public class AmazonAsyncEventService implements AsyncEventService {
         }
     }
 
-    private void offerBatch(final List operations){
+    private void offerBatch(final EventLane lane, final List operations){
         final Timer.Context timer = this.writeTimer.time();
 
         try {
             //signal to SQS
-            this.queue.sendMessages(operations);
+            this.queues.get( lane ).sendMessages(operations);
         } catch (IOException e) {
             throw new RuntimeException("Unable to queue message", e);
         } finally {
@@ -240,12 +281,12 @@ public class AmazonAsyncEventService implements AsyncEventService {
     /**
      * Take message from SQS
      */
-    private List<QueueMessage> take() {
+    private List<QueueMessage> take(final EventLane lane) {
 
         final Timer.Context timer = this.readTimer.time();
 
         try {
-            return queue.getMessages(MAX_TAKE,
+            return queues.get( lane ).getMessages(MAX_TAKE,
                     indexProcessorFig.getIndexQueueVisibilityTimeout(),
                     indexProcessorFig.getIndexQueueTimeout(),
                     AsyncEvent.class);
@@ -261,12 +302,12 @@ public class AmazonAsyncEventService implements AsyncEventService {
     /**
      * Ack message in SQS
      */
-    public void ack(final List<QueueMessage> messages) {
+    public void ack(final EventLane lane, final List<QueueMessage> messages) {
 
         final Timer.Context timer = this.ackTimer.time();
 
         try{
-            queue.commitMessages( messages );
+            queues.get( lane ).commitMessages( messages );
 
             //decrement our in-flight counter
             inFlight.decrementAndGet();
@@ -335,6 +376,9 @@ public class AmazonAsyncEventService implements AsyncEventService {
                     handleInitializeApplicationIndex(event, message);
                     indexoperationObservable = Observable.just(new IndexOperationMessage());
                     validateEmptySets = false; //do not check this one for an empty set b/c it will be empty.
+                } else if (event instanceof FeedFanoutEvent) {
+                    indexoperationObservable = handleFeedFanout( message );
+                    validateEmptySets = false; //do not check this one for an empty set b/c authors may have no followers
                 } else if (event instanceof ElasticsearchIndexEvent) {
                     handleIndexOperation((ElasticsearchIndexEvent) event);
                     indexoperationObservable = Observable.just(new IndexOperationMessage());
@@ -354,6 +398,8 @@ public class AmazonAsyncEventService implements AsyncEventService {
                     throw new Exception("Received empty index sequence.");
                 }
 
+                publishChange( thisEvent );
+
                 //return type that can be indexed and ack'd later
                 return new IndexEventResult(Optional.fromNullable(message),
                     Optional.fromNullable(indexOperationMessage), thisEvent.getCreationTime());
@@ -368,11 +414,81 @@ public class AmazonAsyncEventService implements AsyncEventService {
         return indexEventResults.collect(Collectors.toList());
     }
 
+    /**
+     * Publish the change an event made to the change feed, once it's been handled
+     */
+    private void publishChange( final AsyncEvent event ) {
+        final EntityChange change;
+
+        if ( event instanceof EntityIndexEvent ) {
+            final EntityIndexEvent entityIndexEvent = ( EntityIndexEvent ) event;
+
+            if ( !entityIndexEvent.isChanged() ) {
+                return;
+            }
+
+            change = toChange( EntityChange.Action.UPDATE, entityIndexEvent.getEntityIdScope().getApplicationScope(),
+                entityIndexEvent.getEntityIdScope().getId() );
+        }
+        else if ( event instanceof EntityDeleteEvent ) {
+            final EntityIdScope entityIdScope = ( ( EntityDeleteEvent ) event ).getEntityIdScope();
+
+            change = toChange( EntityChange.Action.DELETE, entityIdScope.getApplicationScope(), entityIdScope.getId() );
+        }
+        else if ( event instanceof EdgeIndexEvent ) {
+            final EdgeIndexEvent edgeIndexEvent = ( EdgeIndexEvent ) event;
+            final ApplicationScope applicationScope = edgeIndexEvent.getApplicationScope();
+            final Edge edge = edgeIndexEvent.getEdge();
+
+            //an entity is created by adding it to its collection in the application
+            if ( edge.getSourceNode().equals( applicationScope.getApplication() ) ) {
+                change = toChange( EntityChange.Action.CREATE, applicationScope, edge.getTargetNode() );
+            }
+            else {
+                change = toChange( EntityChange.Action.CONNECT, applicationScope, edge );
+            }
+        }
+        else if ( event instanceof EdgeDeleteEvent ) {
+            final EdgeDeleteEvent edgeDeleteEvent = ( EdgeDeleteEvent ) event;
+            final ApplicationScope applicationScope = edgeDeleteEvent.getApplicationScope();
+            final Edge edge = edgeDeleteEvent.getEdge();
+
+            //removing an entity from its application collection is part of deleting it
+            if ( edge.getSourceNode().equals( applicationScope.getApplication() ) ) {
+                return;
+            }
+
+            change = toChange( EntityChange.Action.DISCONNECT, applicationScope, edge );
+        }
+        else {
+            return;
+        }
+
+        changeFeed.publish( change );
+    }
+
+
+    private EntityChange toChange( final EntityChange.Action action, final ApplicationScope applicationScope,
+                                   final Id entityId ) {
+        return new EntityChange( action, applicationScope.getApplication().getUuid(), entityId.getType(),
+            entityId.getUuid() );
+    }
+
+
+    private EntityChange toChange( final EntityChange.Action action, final ApplicationScope applicationScope,
+                                   final Edge edge ) {
+        return new EntityChange( action, applicationScope.getApplication().getUuid(),
+            edge.getSourceNode().getType(), edge.getSourceNode().getUuid(),
+            CpNamingUtils.getNameFromEdgeType( edge.getType() ), edge.getTargetNode().getType(),
+            edge.getTargetNode().getUuid() );
+    }
+
+
     @Override
     public void queueInitializeApplicationIndex( final ApplicationScope applicationScope) {
         IndexLocationStrategy indexLocationStrategy = indexLocationStrategyFactory.getIndexLocationStrategy(
             applicationScope);
-        offerTopic( new InitializeApplicationIndexEvent( queueFig.getPrimaryRegion(),
+        offerTopic( EventLane.INTERACTIVE, new InitializeApplicationIndexEvent( queueFig.getPrimaryRegion(),
             new ReplicatedIndexLocationStrategy( indexLocationStrategy ) ) );
     }
 
@@ -381,7 +497,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
     public void queueEntityIndexUpdate(final ApplicationScope applicationScope,
                                        final Entity entity) {
 
-        offer(new EntityIndexEvent(queueFig.getPrimaryRegion(),new EntityIdScope(applicationScope, entity.getId()), 0));
+        offer(EventLane.INTERACTIVE, new EntityIndexEvent(queueFig.getPrimaryRegion(),new EntityIdScope(applicationScope, entity.getId()), 0, true));
     }
 
 
@@ -418,7 +534,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
 
         EdgeIndexEvent operation = new EdgeIndexEvent(queueFig.getPrimaryRegion(), applicationScope, entity.getId(), newEdge);
 
-        offer( operation );
+        offer( EventLane.INTERACTIVE, operation );
     }
 
     public Observable<IndexOperationMessage> handleEdgeIndex(final QueueMessage message) {
@@ -444,11 +560,56 @@ public class AmazonAsyncEventService implements AsyncEventService {
         return edgeIndexObservable;
     }
 
+    @Override
+    public void queueFeedFanout( final ApplicationScope applicationScope, final Id authorId, final Id activityId ) {
+
+        //the first page is written now, so the feeds of an author with few followers have the activity when this
+        //returns.  Any pages after it are queued
+        final FeedFanout fanout =
+            feedFanoutService.fanOut( applicationScope, authorId, activityId, Optional.<Edge>absent() ).toBlocking()
+                             .lastOrDefault( null );
+
+        //the author's activities are read with the feed, or the activity is gone
+        if ( fanout == null ) {
+            return;
+        }
+
+        queueIndexOperationMessage( fanout.getIndexOperationMessage(), EventLane.INTERACTIVE );
+
+        if ( fanout.getNext().isPresent() ) {
+            offer( EventLane.BULK, new FeedFanoutEvent( queueFig.getPrimaryRegion(), applicationScope, authorId,
+                activityId, fanout.getNext().get() ) );
+        }
+    }
+
+    public Observable<IndexOperationMessage> handleFeedFanout(final QueueMessage message) {
+
+        Preconditions.checkNotNull( message, "Queue Message cannot be null for handleFeedFanout" );
+
+        final AsyncEvent event = (AsyncEvent) message.getBody();
+
+        Preconditions.checkNotNull( message, "QueueMessage Body cannot be null for handleFeedFanout" );
+        Preconditions.checkArgument(event instanceof FeedFanoutEvent, String.format("Event Type for handleFeedFanout must be FEED_FANOUT, got %s", event.getClass()));
+
+        final FeedFanoutEvent feedFanoutEvent = ( FeedFanoutEvent ) event;
+
+        final ApplicationScope applicationScope = feedFanoutEvent.getApplicationScope();
+
+        //each event writes a page of followers, and queues the next page so no single message runs too long
+        return feedFanoutService.fanOut( applicationScope, feedFanoutEvent.getAuthorId(), feedFanoutEvent.getActivityId(),
+            Optional.fromNullable( feedFanoutEvent.getLast() ) ).doOnNext( fanout -> {
+                if ( fanout.getNext().isPresent() ) {
+                    offer( EventLane.BULK, new FeedFanoutEvent( queueFig.getPrimaryRegion(), applicationScope,
+                        feedFanoutEvent.getAuthorId(), feedFanoutEvent.getActivityId(), fanout.getNext().get() ) );
+                }
+            } ).map( fanout -> fanout.getIndexOperationMessage() );
+    }
+
     @Override
     public void queueDeleteEdge(final ApplicationScope applicationScope,
                                 final Edge edge) {
 
-        offer( new EdgeDeleteEvent( queueFig.getPrimaryRegion(), applicationScope, edge ) );
+        offer( EventLane.INTERACTIVE, new EdgeDeleteEvent( queueFig.getPrimaryRegion(), applicationScope, edge ) );
     }
 
     public Observable<IndexOperationMessage> handleEdgeDelete(final QueueMessage message) {
@@ -477,15 +638,25 @@ public class AmazonAsyncEventService implements AsyncEventService {
     @Override
     public void queueEntityDelete(final ApplicationScope applicationScope, final Id entityId) {
 
-        offer( new EntityDeleteEvent(queueFig.getPrimaryRegion(), new EntityIdScope( applicationScope, entityId ) ) );
+        offer( EventLane.INTERACTIVE, new EntityDeleteEvent(queueFig.getPrimaryRegion(), new EntityIdScope( applicationScope, entityId ) ) );
     }
 
 
     /**
-     * Queue up an indexOperationMessage for multi region execution
+     * Queue up an indexOperationMessage for multi region execution.  These come from read repair, so go on the repair
+     * lane
      * @param indexOperationMessage
      */
     public void queueIndexOperationMessage( final IndexOperationMessage indexOperationMessage ) {
+        queueIndexOperationMessage( indexOperationMessage, EventLane.REPAIR );
+    }
+
+
+    /**
+     * Queue up an indexOperationMessage for multi region execution on the lane
+     */
+    private void queueIndexOperationMessage( final IndexOperationMessage indexOperationMessage,
+                                             final EventLane lane ) {
 
         // don't try to produce something with nothing
         if(indexOperationMessage.isEmpty()){
@@ -511,7 +682,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
 
         //send to the topic so all regions index the batch
 
-        offerTopic( elasticsearchIndexEvent );
+        offerTopic( lane, elasticsearchIndexEvent );
     }
 
     public void handleIndexOperation(final ElasticsearchIndexEvent elasticsearchIndexEvent){
@@ -596,7 +767,13 @@ public class AmazonAsyncEventService implements AsyncEventService {
 
     @Override
     public long getQueueDepth() {
-        return queue.getQueueDepth();
+        long depth = 0;
+
+        for ( final QueueManager queue : queues.values() ) {
+            depth += queue.getQueueDepth();
+        }
+
+        return depth;
     }
 
     public Observable<IndexOperationMessage> handleEntityDelete(final QueueMessage message) {
@@ -642,11 +819,17 @@ public class AmazonAsyncEventService implements AsyncEventService {
     }
 
     /**
-     * Loop through and start the workers
+     * Loop through and start the lane readers and the workers
      */
     public void start() {
         final int count = indexProcessorFig.getWorkerCount();
 
+        for ( final EventLane lane : EventLane.values() ) {
+            for ( int i = 0; i < count; i++ ) {
+                startReader( lane );
+            }
+        }
+
         for (int i = 0; i < count; i++) {
             startWorker();
         }
@@ -663,39 +846,169 @@ public class AmazonAsyncEventService implements AsyncEventService {
             for (final Subscription subscription : subscriptions) {
                 subscription.unsubscribe();
             }
+
+            for ( final Thread reader : readers ) {
+                reader.interrupt();
+            }
         }
     }
 
 
+    /**
+     * Start a thread that reads messages from the lane into the lane scheduler while the lane has room.  The room is
+     * kept to what the workers can take in a round, so read messages don't sit out their visibility timeout
+     */
+    private void startReader( final EventLane lane ) {
+        synchronized ( mutex ) {
+
+            final Thread reader = new Thread( () -> {
+                List<QueueMessage> messages;
+
+                while ( !Thread.currentThread().isInterrupted() ) {
+                    try {
+                        final int capacity = MAX_TAKE * indexProcessorFig.getWorkerCount();
+
+                        if ( !laneScheduler.awaitCapacity( lane, capacity, indexProcessorFig.getIndexQueueTimeout() ) ) {
+                            continue;
+                        }
+
+                        messages = take( lane );
+
+                        for ( final QueueMessage message : messages ) {
+                            laneScheduler.add( lane, getApplicationId( message ), message );
+                        }
+                    }
+                    catch ( InterruptedException ie ) {
+                        return;
+                    }
+                    catch ( Throwable t ) {
+                        final long sleepTime = indexProcessorFig.getFailureRetryTime();
+
+                        logger.error( "Failed to dequeue from lane " + lane + ".  Sleeping for " + sleepTime
+                            + " milliseconds", t );
+
+                        indexErrorCounter.inc();
+
+                        try {
+                            Thread.sleep( sleepTime );
+                        }
+                        catch ( InterruptedException ie ) {
+                            return;
+                        }
+                    }
+                }
+            }, "QueueReader_" + lane.name().toLowerCase() + "_" + counter.incrementAndGet() );
+
+            reader.setDaemon( true );
+            reader.start();
+
+            readers.add( reader );
+        }
+    }
+
+
+    /**
+     * Get the application the message's event is for, so the lane can be shared fairly between applications.  Events
+     * that aren't for a single application share the management application's turn
+     */
+    private UUID getApplicationId( final QueueMessage message ) {
+        final Object event = message.getBody();
+
+        final ApplicationScope applicationScope;
+
+        if ( event instanceof EntityIndexEvent ) {
+            applicationScope = ( ( EntityIndexEvent ) event ).getEntityIdScope().getApplicationScope();
+        }
+        else if ( event instanceof EntityDeleteEvent ) {
+            applicationScope = ( ( EntityDeleteEvent ) event ).getEntityIdScope().getApplicationScope();
+        }
+        else if ( event instanceof EdgeIndexEvent ) {
+            applicationScope = ( ( EdgeIndexEvent ) event ).getApplicationScope();
+        }
+        else if ( event instanceof EdgeDeleteEvent ) {
+            applicationScope = ( ( EdgeDeleteEvent ) event ).getApplicationScope();
+        }
+        else if ( event instanceof FeedFanoutEvent ) {
+            applicationScope = ( ( FeedFanoutEvent ) event ).getApplicationScope();
+        }
+        else {
+            applicationScope = null;
+        }
+
+        if ( applicationScope == null ) {
+            return CpNamingUtils.getManagementApplicationId().getUuid();
+        }
+
+        return applicationScope.getApplication().getUuid();
+    }
+
+
     private void startWorker() {
         synchronized (mutex) {
 
+            //only take a batch when there's room to process it, so the lane scheduler picks what runs next
+            final Semaphore permits = new Semaphore( indexProcessorFig.getEventConcurrencyFactor() );
+
             Observable<List<QueueMessage>> consumer =
-                    Observable.create( new Observable.OnSubscribe<List<QueueMessage>>() {
+                    Observable.create( new Observable.OnSubscribe<EventLaneScheduler.LaneBatch<QueueMessage>>() {
                         @Override
-                        public void call( final Subscriber<? super List<QueueMessage>> subscriber ) {
+                        public void call( final Subscriber<? super EventLaneScheduler.LaneBatch<QueueMessage>> subscriber ) {
 
                             //name our thread so it's easy to see
                             Thread.currentThread().setName( "QueueConsumer_" + counter.incrementAndGet() );
 
-                            List<QueueMessage> drainList = null;
-
                             do {
+                                EventLaneScheduler.LaneBatch<QueueMessage> drainList = null;
+
+                                //a permit we've acquired and not yet handed off with a batch
+                                boolean holdingPermit = false;
+
                                 try {
-                                    drainList = take();
-                                    //emit our list in it's entity to hand off to a worker pool
-                                        subscriber.onNext(drainList);
+                                    //slow our takes while elasticsearch is rejecting operations
+                                    final long backPressureDelay = indexProducer.getBackPressureDelay();
+
+                                    if ( backPressureDelay > 0 ) {
+                                        Thread.sleep( backPressureDelay );
+                                    }
+
+                                    permits.acquire();
+                                    holdingPermit = true;
+
+                                    drainList = laneScheduler.take( MAX_TAKE,
+                                        indexProcessorFig.getIndexQueueTimeout() );
+
+                                    if ( drainList == null ) {
+                                        holdingPermit = false;
+                                        permits.release();
+                                        continue;
+                                    }
 
                                     //take since  we're in flight
-                                    inFlight.addAndGet( drainList.size() );
+                                    inFlight.addAndGet( drainList.getValues().size() );
+
+                                    //emit our list in it's entity to hand off to a worker pool, which releases the
+                                    //permit once the batch is processed
+                                    subscriber.onNext( drainList );
+                                    holdingPermit = false;
+                                }
+                                catch ( InterruptedException ie ) {
+                                    if ( holdingPermit ) {
+                                        permits.release();
+                                    }
+                                    return;
                                 }
                                 catch ( Throwable t ) {
                                     final long sleepTime = indexProcessorFig.getFailureRetryTime();
 
                                     logger.error( "Failed to dequeue.  Sleeping for {} milliseconds", sleepTime, t );
 
-                                    if ( drainList != null ) {
-                                        inFlight.addAndGet( -1 * drainList.size() );
+                                    //the batch never reached a worker, give back its permit and in flight count
+                                    if ( holdingPermit ) {
+                                        permits.release();
+
+                                        if ( drainList != null ) {
+                                            inFlight.addAndGet( -1 * drainList.getValues().size() );
+                                        }
                                     }
 
 
@@ -709,16 +1022,19 @@ public class AmazonAsyncEventService implements AsyncEventService {
                                     indexErrorCounter.inc();
                                 }
                             }
-                            while ( true );
+                            while ( !subscriber.isUnsubscribed() );
                         }
                     } )        //this won't block our read loop, just reads and proceeds
-                        .flatMap( sqsMessages -> {
+                        .flatMap( batch -> {
 
                             //do this on a different schedule, and introduce concurrency with flatmap for faster processing
-                            return Observable.just( sqsMessages )
+                            return Observable.just( batch )
 
-                                             .map( messages -> {
-                                                 if ( messages == null || messages.size() == 0 ) {
+                                             .map( laneBatch -> {
+                                                 final List<QueueMessage> messages = laneBatch.getValues();
+
+                                                 if ( messages.size() == 0 ) {
+                                                     permits.release();
                                                      return null;
                                                  }
 
@@ -726,7 +1042,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
                                                      List<IndexEventResult> indexEventResults =
                                                          callEventHandlers( messages );
                                                      List<QueueMessage> messagesToAck =
-                                                         submitToIndex( indexEventResults );
+                                                         submitToIndex( laneBatch.getLane(), indexEventResults );
                                                      if ( messagesToAck == null || messagesToAck.size() == 0 ) {
                                                          logger.error(
                                                              "No messages came back from the queue operation should "
@@ -739,7 +1055,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
                                                              messages, messagesToAck );
                                                      }
                                                      //ack each message, but only if we didn't error.
-                                                     ack( messagesToAck );
+                                                     ack( laneBatch.getLane(), messagesToAck );
                                                      return messagesToAck;
                                                  }
                                                  catch ( Exception e ) {
@@ -747,6 +1063,9 @@ public class AmazonAsyncEventService implements AsyncEventService {
                                                      return null;
                                                      //do not rethrow so we can process all of them
                                                  }
+                                                 finally {
+                                                     permits.release();
+                                                 }
                                              } ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() );
                             //end flatMap
                         }, indexProcessorFig.getEventConcurrencyFactor() );
@@ -764,7 +1083,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
      * @param indexEventResults
      * @return
      */
-    private List<QueueMessage> submitToIndex( List<IndexEventResult> indexEventResults) {
+    private List<QueueMessage> submitToIndex( final EventLane lane, List<IndexEventResult> indexEventResults) {
         //if nothing came back then return null
         if(indexEventResults==null){
             return null;
@@ -772,6 +1091,8 @@ public class AmazonAsyncEventService implements AsyncEventService {
 
         final IndexOperationMessage combined = new IndexOperationMessage();
 
+        final Histogram lag = laneLag.get( lane );
+
         //stream and filer the messages
         List<QueueMessage> messagesToAck = indexEventResults.stream()
             .map(indexEventResult -> {
@@ -785,21 +1106,24 @@ public class AmazonAsyncEventService implements AsyncEventService {
             .filter(indexEventResult -> indexEventResult.getQueueMessage().isPresent())
             .map(indexEventResult -> {
                 //record the cycle time
-                messageCycle.update(System.currentTimeMillis() - indexEventResult.getCreationTime());
+                final long cycle = System.currentTimeMillis() - indexEventResult.getCreationTime();
+                messageCycle.update( cycle );
+                lag.update( cycle );
                 return indexEventResult;
             })
                 //ack after successful completion of the operation.
             .map(result -> result.getQueueMessage().get())
             .collect(Collectors.toList());
 
-            queueIndexOperationMessage( combined );
+            //the index batch stays on the lane of its events
+            queueIndexOperationMessage( combined, lane );
 
         return messagesToAck;
     }
 
     public void index(final ApplicationScope applicationScope, final Id id, final long updatedSince) {
         //change to id scope to avoid serialization issues
-        offer( new EntityIndexEvent(queueFig.getPrimaryRegion(), new EntityIdScope( applicationScope, id ), updatedSince ) );
+        offer( EventLane.BULK, new EntityIndexEvent(queueFig.getPrimaryRegion(), new EntityIdScope( applicationScope, id ), updatedSince ) );
     }
 
     public void indexBatch(final List<EdgeScope> edges, final long updatedSince) {
@@ -809,7 +1133,7 @@ public class AmazonAsyncEventService implements AsyncEventService {
             //change to id scope to avoid serialization issues
             batch.add(new EntityIndexEvent(queueFig.getPrimaryRegion(), new EntityIdScope(e.getApplicationScope(), e.getEdge().getTargetNode()), updatedSince));
         }
-        offerBatch( batch );
+        offerBatch( EventLane.BULK, batch );
     }
 
 
@@ -63,6 +63,15 @@ public interface AsyncEventService extends ReIndexAction {
      */
     void queueNewEdge(final ApplicationScope applicationScope, final Entity entity, final Edge newEdge);
 
+    /**
+     * Fan the activity out to the feeds of the author's followers.  The first page of followers is written before
+     * returning, the pages after it are queued
+     * @param applicationScope
+     * @param authorId
+     * @param activityId
+     */
+    void queueFeedFanout(final ApplicationScope applicationScope, final Id authorId, final Id activityId);
+
     /**
      * Queue the deletion of an edge
      * @param applicationScope
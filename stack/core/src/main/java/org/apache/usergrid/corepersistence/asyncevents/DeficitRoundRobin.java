@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Deficit round robin over values grouped by key.  Each key with pending values gets a turn of up to quantum values
+ * in the order it became pending, so a key with a large backlog can't hold back the others.  A turn that's cut short
+ * by the take limit carries on with the next take.
+ *
+ * This class is not thread safe.
+ */
+public class DeficitRoundRobin<K, V> {
+
+    private final int quantum;
+
+    private final Map<K, Deque<V>> pending = new HashMap<>();
+
+    private final Map<K, Integer> deficits = new HashMap<>();
+
+    /**
+     * The keys with pending values, the key at the head is having its turn
+     */
+    private final Deque<K> round = new ArrayDeque<>();
+
+    private int size;
+
+
+    public DeficitRoundRobin( final int quantum ) {
+        Preconditions.checkArgument( quantum > 0, "quantum must be greater than 0" );
+
+        this.quantum = quantum;
+    }
+
+
+    /**
+     * Add the value to the end of the values pending for the key
+     */
+    public void add( final K key, final V value ) {
+        Deque<V> values = pending.get( key );
+
+        if ( values == null ) {
+            values = new ArrayDeque<>();
+            pending.put( key, values );
+            deficits.put( key, 0 );
+            round.addLast( key );
+        }
+
+        values.addLast( value );
+        size++;
+    }
+
+
+    /**
+     * Take up to max values, in round robin order over their keys
+     */
+    public List<V> take( final int max ) {
+        final List<V> taken = new ArrayList<>( Math.min( max, size ) );
+
+        while ( taken.size() < max && !round.isEmpty() ) {
+            final K key = round.peekFirst();
+            final Deque<V> values = pending.get( key );
+
+            int deficit = deficits.get( key );
+
+            //start of the key's turn
+            if ( deficit == 0 ) {
+                deficit = quantum;
+            }
+
+            while ( deficit > 0 && !values.isEmpty() && taken.size() < max ) {
+                taken.add( values.pollFirst() );
+                deficit--;
+                size--;
+            }
+
+            //nothing left, the key leaves the round until it has values again
+            if ( values.isEmpty() ) {
+                round.pollFirst();
+                pending.remove( key );
+                deficits.remove( key );
+            }
+            //turn is over, go to the back of the round
+            else if ( deficit == 0 ) {
+                round.pollFirst();
+                round.addLast( key );
+                deficits.put( key, 0 );
+            }
+            //out of room, keep the rest of the turn for the next take
+            else {
+                deficits.put( key, deficit );
+            }
+        }
+
+        return taken;
+    }
+
+
+    /**
+     * The number of values pending over all keys
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+/**
+ * The lanes of the async event queue.  Each lane is its own queue, so a reindex or a burst of read repair can't
+ * delay the index updates of interactive writes.
+ */
+public enum EventLane {
+
+    /**
+     * Events from entity and connection writes, these are what users wait on to see their writes in queries
+     */
+    INTERACTIVE( "index" ),
+
+    /**
+     * Reindex and activity fan out, large volumes that can tolerate lag
+     */
+    BULK( "index_bulk" ),
+
+    /**
+     * Index repairs found while reading the graph
+     */
+    REPAIR( "index_repair" );
+
+
+    private final String queueName;
+
+
+    EventLane( final String queueName ) {
+        this.queueName = queueName;
+    }
+
+
+    /**
+     * The name of the queue for this lane.  Keep this short as AWS limits queue name size to 80 chars
+     */
+    public String getQueueName() {
+        return queueName;
+    }
+}
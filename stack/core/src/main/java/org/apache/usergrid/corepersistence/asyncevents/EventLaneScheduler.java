@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Buffers the messages read from each lane of the async event queue and hands them to the workers.  The lane of
+ * each batch is picked by smooth weighted round robin over the lanes with buffered messages, so a busy lane gets no
+ * more than its share of the workers while the other lanes have work.  Within a lane the messages are taken by deficit
+ * round robin over their key, so one application's backlog can't starve the others.  That fairness only covers the
+ * messages already buffered here.  The queue behind a lane is still first in first out, so a large backlog from one
+ * application is read ahead of the messages queued after it.
+ */
+public class EventLaneScheduler<K, V> {
+
+    private final Map<EventLane, DeficitRoundRobin<K, V>> buffers = new EnumMap<>( EventLane.class );
+
+    private final Map<EventLane, Integer> weights;
+
+    private final Map<EventLane, Integer> currentWeights = new EnumMap<>( EventLane.class );
+
+
+    /**
+     * @param weights The relative share of batches each lane gets when all lanes have messages
+     * @param quantum The number of messages a key gets in each turn within its lane
+     */
+    public EventLaneScheduler( final Map<EventLane, Integer> weights, final int quantum ) {
+        for ( final EventLane lane : EventLane.values() ) {
+            Preconditions.checkArgument( weights.containsKey( lane ) && weights.get( lane ) > 0,
+                "lane %s must have a weight greater than 0", lane );
+
+            buffers.put( lane, new DeficitRoundRobin<>( quantum ) );
+            currentWeights.put( lane, 0 );
+        }
+
+        this.weights = new EnumMap<>( weights );
+    }
+
+
+    /**
+     * Buffer a message read from the lane
+     */
+    public synchronized void add( final EventLane lane, final K key, final V value ) {
+        buffers.get( lane ).add( key, value );
+
+        notifyAll();
+    }
+
+
+    /**
+     * The number of messages buffered for the lane
+     */
+    public synchronized int size( final EventLane lane ) {
+        return buffers.get( lane ).size();
+    }
+
+
+    /**
+     * Wait up to timeout milliseconds for the lane to have fewer than capacity messages buffered
+     *
+     * @return True if the lane has room
+     */
+    public synchronized boolean awaitCapacity( final EventLane lane, final int capacity, final long timeout )
+        throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + timeout;
+
+        long remaining = timeout;
+
+        while ( buffers.get( lane ).size() >= capacity && remaining > 0 ) {
+            wait( remaining );
+            remaining = deadline - System.currentTimeMillis();
+        }
+
+        return buffers.get( lane ).size() < capacity;
+    }
+
+
+    /**
+     * Wait up to timeout milliseconds for a batch of up to max messages, all from the same lane
+     *
+     * @return The batch, or null if no lane had messages before the timeout
+     */
+    public synchronized LaneBatch<V> take( final int max, final long timeout ) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + timeout;
+
+        long remaining = timeout;
+
+        EventLane lane = nextLane();
+
+        while ( lane == null && remaining > 0 ) {
+            wait( remaining );
+            remaining = deadline - System.currentTimeMillis();
+            lane = nextLane();
+        }
+
+        if ( lane == null ) {
+            return null;
+        }
+
+        final List<V> values = buffers.get( lane ).take( max );
+
+        //wake the readers waiting for room in the lane
+        notifyAll();
+
+        return new LaneBatch<>( lane, values );
+    }
+
+
+    /**
+     * Smooth weighted round robin over the lanes with buffered messages
+     */
+    private EventLane nextLane() {
+        EventLane selected = null;
+        int total = 0;
+
+        for ( final EventLane lane : EventLane.values() ) {
+            if ( buffers.get( lane ).size() == 0 ) {
+                continue;
+            }
+
+            final int weight = weights.get( lane );
+            final int current = currentWeights.get( lane ) + weight;
+
+            currentWeights.put( lane, current );
+            total += weight;
+
+            if ( selected == null || current > currentWeights.get( selected ) ) {
+                selected = lane;
+            }
+        }
+
+        if ( selected != null ) {
+            currentWeights.put( selected, currentWeights.get( selected ) - total );
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * Messages taken from a single lane
+     */
+    public static class LaneBatch<V> {
+        private final EventLane lane;
+        private final List<V> values;
+
+
+        public LaneBatch( final EventLane lane, final List<V> values ) {
+            this.lane = lane;
+            this.values = Collections.unmodifiableList( values );
+        }
+
+
+        public EventLane getLane() {
+            return lane;
+        }
+
+
+        public List<V> getValues() {
+            return values;
+        }
+    }
+}
@@ -44,7 +44,8 @@ import org.apache.usergrid.persistence.queue.QueueFig;
     @JsonSubTypes.Type( value = EntityDeleteEvent.class, name = "entityDeleteEvent" ),
     @JsonSubTypes.Type( value = EntityIndexEvent.class, name = "entityIndexEvent" ),
     @JsonSubTypes.Type( value = InitializeApplicationIndexEvent.class, name = "initializeApplicationIndexEvent" ),
-    @JsonSubTypes.Type( value = ElasticsearchIndexEvent.class, name = "elasticsearchIndexEvent" )
+    @JsonSubTypes.Type( value = ElasticsearchIndexEvent.class, name = "elasticsearchIndexEvent" ),
+    @JsonSubTypes.Type( value = FeedFanoutEvent.class, name = "feedFanoutEvent" )
 } )
 
 public abstract class AsyncEvent implements Serializable {
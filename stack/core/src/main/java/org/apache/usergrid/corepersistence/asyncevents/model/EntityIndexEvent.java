@@ -32,14 +32,31 @@ public final class EntityIndexEvent extends AsyncEvent {
     @JsonProperty
     private long updatedAfter;
 
+    /**
+     * True when the entity was written, false when it's only being re-indexed
+     */
+    @JsonProperty
+    private boolean changed;
+
     public EntityIndexEvent() {
         super();
     }
 
     public EntityIndexEvent(String sourceRegion, EntityIdScope entityIdScope, final long updatedAfter ) {
+        this( sourceRegion, entityIdScope, updatedAfter, false );
+    }
+
+    public EntityIndexEvent(String sourceRegion, EntityIdScope entityIdScope, final long updatedAfter,
+                            final boolean changed ) {
         super(sourceRegion);
         this.entityIdScope = entityIdScope;
         this.updatedAfter = updatedAfter;
+        this.changed = changed;
+    }
+
+
+    public boolean isChanged() {
+        return changed;
     }
 
 
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents.model;
+
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+
+/**
+ * Fan an activity out to the feeds of the author's followers.  When last is set, the followers after it are written
+ */
+public final class FeedFanoutEvent
+    extends AsyncEvent {
+
+
+    @JsonProperty
+    protected ApplicationScope applicationScope;
+
+    @JsonProperty
+    protected Id authorId;
+
+    @JsonProperty
+    protected Id activityId;
+
+    @JsonProperty
+    protected Edge last;
+
+    /**
+     * Needed by jackson
+     */
+    public FeedFanoutEvent() {
+        super();
+    }
+
+    public FeedFanoutEvent(String sourceRegion, ApplicationScope applicationScope, Id authorId, Id activityId,
+                           Edge last) {
+        super(sourceRegion);
+        this.applicationScope = applicationScope;
+        this.authorId = authorId;
+        this.activityId = activityId;
+        this.last = last;
+    }
+
+
+    public ApplicationScope getApplicationScope() {
+        return applicationScope;
+    }
+
+
+    public Id getAuthorId() {
+        return authorId;
+    }
+
+
+    public Id getActivityId() {
+        return activityId;
+    }
+
+
+    public Edge getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * The changes a node published in one flush of the change feed
+ */
+public class ChangeBatch {
+
+    private final UUID nodeId;
+    private final List<EntityChange> changes;
+
+
+    public ChangeBatch( final UUID nodeId, final List<EntityChange> changes ) {
+        this.nodeId = nodeId;
+        this.changes = changes;
+    }
+
+
+    /**
+     * The node that published them
+     */
+    public UUID getNodeId() {
+        return nodeId;
+    }
+
+
+    public List<EntityChange> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+/**
+ * A stream of the entity and connection changes in every application.  Changes are published by the async event
+ * processing once they're indexed, and delivered to the listeners on every node.  Bursts of changes to the same entity
+ * are coalesced, so listeners may not see every intermediate change.
+ */
+public interface ChangeFeed {
+
+    /**
+     * Publish the change to the listeners on every node
+     */
+    void publish( final EntityChange change );
+
+    /**
+     * Deliver changes on this node to the listener
+     */
+    void subscribe( final ChangeListener listener );
+
+    /**
+     * Stop delivering changes to the listener
+     */
+    void unsubscribe( final ChangeListener listener );
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration of the change feed
+ */
+@FigSingleton
+public interface ChangeFeedFig extends GuicyFig {
+
+    String ENABLED = "usergrid.change_feed.enabled";
+
+    String COALESCE_MS = "usergrid.change_feed.coalesce_ms";
+
+    String MAX_PENDING = "usergrid.change_feed.max_pending";
+
+    String POLL_INTERVAL = "usergrid.change_feed.poll.interval";
+
+    String BUCKET_SIZE = "usergrid.change_feed.bucket.size";
+
+    String SHARDS = "usergrid.change_feed.shards";
+
+
+    /**
+     * Publish changes, off unless something like the websocket server subscribes to them
+     */
+    @Key( ENABLED )
+    @Default( "false" )
+    boolean isEnabled();
+
+    /**
+     * The time in milliseconds changes to the same entity are coalesced for before they're published
+     */
+    @Key( COALESCE_MS )
+    @Default( "100" )
+    long getCoalesceMs();
+
+    /**
+     * The maximum changes waiting to be published, changes over it are dropped
+     */
+    @Key( MAX_PENDING )
+    @Default( "10000" )
+    int getMaxPending();
+
+    /**
+     * The time in milliseconds between reads of the changes published by other nodes
+     */
+    @Key( POLL_INTERVAL )
+    @Default( "500" )
+    long getPollInterval();
+
+    /**
+     * The time in milliseconds of the changes kept in a row.  The clocks of the nodes must be closer than this
+     */
+    @Key( BUCKET_SIZE )
+    @Default( "10000" )
+    long getBucketSize();
+
+    /**
+     * The rows each bucket of changes is spread over.  Every node reads all of them on each poll
+     */
+    @Key( SHARDS )
+    @Default( "8" )
+    int getShards();
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import com.codahale.metrics.Meter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Publishes changes to the other nodes through Cassandra.  Changes are held for the coalesce time so a burst of
+ * updates to one entity is published once, then each flush writes the pending changes as a single batch.  Batches go
+ * to a row per shard of a bucket of time, each poll reads every shard of the current and previous buckets and delivers
+ * the batches of the other nodes it hasn't seen.
+ */
+@Singleton
+public class ChangeFeedImpl implements ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger( ChangeFeedImpl.class );
+
+    /**
+     * The most changes written in a single batch
+     */
+    private static final int MAX_BATCH = 1000;
+
+    private final ChangeFeedFig changeFeedFig;
+    private final ChangeFeedSerialization changeFeedSerialization;
+
+    private final UUID nodeId = UUID.randomUUID();
+
+    /**
+     * When this node started reading, older batches were published before it was listening
+     */
+    private final long started = System.currentTimeMillis();
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The changes waiting to be published by their coalesce key, guarded by itself
+     */
+    private final Map<String, EntityChange> pending = new LinkedHashMap<>();
+
+    /**
+     * The batches read from each bucket, so they're only delivered once
+     */
+    private final Map<Long, Set<UUID>> seen = new ConcurrentHashMap<>();
+
+    /**
+     * The shard of the next batch, batches are written round robin so a busy node doesn't load a single row
+     */
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    private final Meter publishedMeter;
+    private final Meter coalescedMeter;
+    private final Meter droppedMeter;
+    private final Meter receivedMeter;
+
+    private volatile boolean failing = false;
+
+
+    @Inject
+    public ChangeFeedImpl( final ChangeFeedFig changeFeedFig, final ChangeFeedSerialization changeFeedSerialization,
+                           final MetricsFactory metricsFactory ) {
+        this.changeFeedFig = changeFeedFig;
+        this.changeFeedSerialization = changeFeedSerialization;
+
+        this.publishedMeter = metricsFactory.getMeter( ChangeFeedImpl.class, "change_feed.published" );
+        this.coalescedMeter = metricsFactory.getMeter( ChangeFeedImpl.class, "change_feed.coalesced" );
+        this.droppedMeter = metricsFactory.getMeter( ChangeFeedImpl.class, "change_feed.dropped" );
+        this.receivedMeter = metricsFactory.getMeter( ChangeFeedImpl.class, "change_feed.received" );
+
+        if ( !changeFeedFig.isEnabled() ) {
+            return;
+        }
+
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool( 2,
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "Usergrid-Change-Feed-%d" ).build() );
+
+        final long coalesceMs = Math.max( 1, changeFeedFig.getCoalesceMs() );
+        final long pollInterval = Math.max( 1, changeFeedFig.getPollInterval() );
+
+        executor.scheduleWithFixedDelay( () -> flush(), coalesceMs, coalesceMs, TimeUnit.MILLISECONDS );
+        executor.scheduleWithFixedDelay( () -> poll(), pollInterval, pollInterval, TimeUnit.MILLISECONDS );
+    }
+
+
+    @Override
+    public void publish( final EntityChange change ) {
+        if ( !changeFeedFig.isEnabled() ) {
+            return;
+        }
+
+        final String key = change.getCoalesceKey();
+
+        synchronized ( pending ) {
+            final EntityChange existing = pending.get( key );
+
+            if ( existing != null ) {
+                pending.put( key, existing.coalesce( change ) );
+                coalescedMeter.mark();
+                return;
+            }
+
+            if ( pending.size() >= changeFeedFig.getMaxPending() ) {
+                droppedMeter.mark();
+                return;
+            }
+
+            pending.put( key, change );
+        }
+    }
+
+
+    @Override
+    public void subscribe( final ChangeListener listener ) {
+        listeners.add( listener );
+    }
+
+
+    @Override
+    public void unsubscribe( final ChangeListener listener ) {
+        listeners.remove( listener );
+    }
+
+
+    /**
+     * Deliver the pending changes on this node and write them for the others
+     */
+    protected void flush() {
+        final List<EntityChange> changes;
+
+        synchronized ( pending ) {
+            if ( pending.isEmpty() ) {
+                return;
+            }
+
+            changes = new ArrayList<>( pending.values() );
+            pending.clear();
+        }
+
+        for ( EntityChange change : changes ) {
+            deliver( change );
+        }
+
+        final long bucket = getBucket( System.currentTimeMillis() );
+        final int shards = Math.max( 1, changeFeedFig.getShards() );
+
+        //keep them long enough for every node to poll both of the buckets they could be in
+        final int ttl = ( int ) Math.max( 1, TimeUnit.MILLISECONDS.toSeconds( changeFeedFig.getBucketSize() * 3 ) );
+
+        for ( int start = 0; start < changes.size(); start += MAX_BATCH ) {
+            final List<EntityChange> batch = changes.subList( start, Math.min( changes.size(), start + MAX_BATCH ) );
+            final int shard = Math.floorMod( nextShard.getAndIncrement(), shards );
+
+            try {
+                changeFeedSerialization.write( bucket, shard, new ChangeBatch( nodeId, batch ), ttl );
+                publishedMeter.mark( batch.size() );
+            }
+            catch ( Throwable t ) {
+                droppedMeter.mark( batch.size() );
+                logger.error( "Unable to publish " + batch.size() + " changes to the other nodes", t );
+            }
+        }
+    }
+
+
+    /**
+     * Deliver the changes from the other nodes in the current and previous buckets we haven't seen
+     */
+    protected void poll() {
+        final long current = getBucket( System.currentTimeMillis() );
+        final int shards = Math.max( 1, changeFeedFig.getShards() );
+
+        try {
+            for ( long bucket = current - 1; bucket <= current; bucket++ ) {
+                final Set<UUID> bucketSeen = seen.computeIfAbsent( bucket, b -> ConcurrentHashMap.newKeySet() );
+
+                for ( int shard = 0; shard < shards; shard++ ) {
+                    for ( Map.Entry<UUID, ChangeBatch> entry : changeFeedSerialization.read( bucket, shard )
+                                                                                      .entrySet() ) {
+                        if ( !bucketSeen.add( entry.getKey() ) ) {
+                            continue;
+                        }
+
+                        final ChangeBatch batch = entry.getValue();
+
+                        //we delivered our own when flushing
+                        if ( nodeId.equals( batch.getNodeId() )
+                            || UUIDUtils.getTimestampInMillis( entry.getKey() ) < started ) {
+                            continue;
+                        }
+
+                        for ( EntityChange change : batch.getChanges() ) {
+                            deliver( change );
+                        }
+
+                        receivedMeter.mark( batch.getChanges().size() );
+                    }
+                }
+            }
+
+            seen.keySet().removeIf( bucket -> bucket < current - 1 );
+
+            failing = false;
+        }
+        catch ( Throwable t ) {
+            //the column family may not exist until setup, only log once per outage
+            if ( !failing ) {
+                logger.warn( "Unable to read entity changes from the other nodes", t );
+                failing = true;
+            }
+        }
+    }
+
+
+    private void deliver( final EntityChange change ) {
+        for ( ChangeListener listener : listeners ) {
+            try {
+                listener.onChange( change );
+            }
+            catch ( Throwable t ) {
+                logger.error( "Change listener failed for " + change, t );
+            }
+        }
+    }
+
+
+    private long getBucket( final long timestamp ) {
+        return timestamp / Math.max( 1, changeFeedFig.getBucketSize() );
+    }
+}
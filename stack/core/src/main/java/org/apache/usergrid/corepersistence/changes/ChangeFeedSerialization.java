@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
+
+
+/**
+ * Stores the batches of changes published by each node for the others to read.  Batches are kept in a row per shard
+ * of each bucket of time, and expire
+ */
+public interface ChangeFeedSerialization extends Migration {
+
+    /**
+     * Write the batch to the shard of the bucket, to expire after the ttl in seconds
+     */
+    void write( final long bucket, final int shard, final ChangeBatch batch, final int ttl );
+
+    /**
+     * Read the batches of the shard of the bucket by the time uuid they were written with, in the order they were
+     * written
+     */
+    Map<UUID, ChangeBatch> read( final long bucket, final int shard );
+}
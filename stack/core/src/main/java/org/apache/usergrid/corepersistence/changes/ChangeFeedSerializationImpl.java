@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+
+import org.apache.usergrid.persistence.core.astyanax.CassandraCluster;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.astyanax.StringRowCompositeSerializer;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.model.ColumnList;
+import com.netflix.astyanax.serializers.TimeUUIDSerializer;
+import com.netflix.astyanax.util.RangeBuilder;
+
+
+@Singleton
+public class ChangeFeedSerializationImpl implements ChangeFeedSerialization {
+
+    /**
+     * Just a hard coded scope, the feed isn't per application
+     */
+    private static final Id STATIC_ID =
+            new SimpleId( UUID.fromString( "00000000-0000-1000-8000-000000000000" ), "entityChanges" );
+
+    private static final ScopedRowKeySerializer<String> ROW_KEY_SER =
+            new ScopedRowKeySerializer<String>( StringRowCompositeSerializer.get() );
+
+    public static final MultiTenantColumnFamily<ScopedRowKey<String>, UUID> CF_ENTITY_CHANGES =
+            new MultiTenantColumnFamily<>( "Entity_Changes", ROW_KEY_SER, TimeUUIDSerializer.get() );
+
+    /**
+     * The most batches read from a shard in a single query, the row is read a page at a time
+     */
+    private static final int PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "\n";
+
+    private final Keyspace keyspace;
+
+
+    @Inject
+    public ChangeFeedSerializationImpl( final CassandraCluster cassandraCluster ) {
+        this.keyspace = cassandraCluster.getApplicationKeyspace();
+    }
+
+
+    @Override
+    public void write( final long bucket, final int shard, final ChangeBatch batch, final int ttl ) {
+
+        final StringBuilder value = new StringBuilder( batch.getNodeId().toString() );
+
+        for ( EntityChange change : batch.getChanges() ) {
+            value.append( SEPARATOR ).append( change.toKey() );
+        }
+
+        try {
+            keyspace.prepareColumnMutation( CF_ENTITY_CHANGES, getRowKey( bucket, shard ), UUIDGenerator.newTimeUUID() )
+                    .putValue( value.toString(), ttl ).execute();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to write entity changes", e );
+        }
+    }
+
+
+    @Override
+    public Map<UUID, ChangeBatch> read( final long bucket, final int shard ) {
+
+        final ScopedRowKey<String> rowKey = getRowKey( bucket, shard );
+        final Map<UUID, ChangeBatch> batches = new LinkedHashMap<>();
+
+        UUID start = null;
+
+        while ( true ) {
+            final RangeBuilder range = new RangeBuilder().setLimit( PAGE_SIZE );
+
+            //the start is inclusive, so each page after the first begins with the last column of the one before
+            if ( start != null ) {
+                range.setStart( start, TimeUUIDSerializer.get() );
+            }
+
+            final ColumnList<UUID> columns;
+
+            try {
+                columns = keyspace.prepareQuery( CF_ENTITY_CHANGES ).getKey( rowKey ).withColumnRange( range.build() )
+                                  .execute().getResult();
+            }
+            catch ( ConnectionException e ) {
+                throw new RuntimeException( "Unable to read entity changes", e );
+            }
+
+            for ( Column<UUID> column : columns ) {
+                start = column.getName();
+
+                if ( batches.containsKey( start ) ) {
+                    continue;
+                }
+
+                final String[] parts = column.getStringValue().split( SEPARATOR );
+                final List<EntityChange> changes = new ArrayList<>( parts.length - 1 );
+
+                for ( int i = 1; i < parts.length; i++ ) {
+                    changes.add( EntityChange.fromKey( parts[i] ) );
+                }
+
+                batches.put( start, new ChangeBatch( UUID.fromString( parts[0] ), changes ) );
+            }
+
+            if ( columns.size() < PAGE_SIZE ) {
+                return batches;
+            }
+        }
+    }
+
+
+    @Override
+    public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+        return Collections.singletonList(
+                new MultiTenantColumnFamilyDefinition( CF_ENTITY_CHANGES, BytesType.class.getSimpleName(),
+                        TimeUUIDType.class.getSimpleName(), UTF8Type.class.getSimpleName(),
+                        MultiTenantColumnFamilyDefinition.CacheOption.KEYS ) );
+    }
+
+
+    private ScopedRowKey<String> getRowKey( final long bucket, final int shard ) {
+        return ScopedRowKey.fromKey( STATIC_ID, bucket + ":" + shard );
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import java.util.UUID;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A change to an entity, or to a connection from an entity to a target.  Changes only identify what changed,
+ * subscribers read the entity if they need it.
+ */
+public class EntityChange {
+
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE,
+        CONNECT,
+        DISCONNECT
+    }
+
+
+    private static final String SEPARATOR = "/";
+
+    private final Action action;
+    private final UUID applicationId;
+    private final String entityType;
+    private final UUID entityId;
+    private final String edgeName;
+    private final String targetType;
+    private final UUID targetId;
+
+
+    public EntityChange( final Action action, final UUID applicationId, final String entityType,
+                         final UUID entityId ) {
+        this( action, applicationId, entityType, entityId, null, null, null );
+    }
+
+
+    public EntityChange( final Action action, final UUID applicationId, final String entityType, final UUID entityId,
+                         final String edgeName, final String targetType, final UUID targetId ) {
+        this.action = Preconditions.checkNotNull( action );
+        this.applicationId = Preconditions.checkNotNull( applicationId );
+        this.entityType = Preconditions.checkNotNull( entityType );
+        this.entityId = Preconditions.checkNotNull( entityId );
+        this.edgeName = edgeName;
+        this.targetType = targetType;
+        this.targetId = targetId;
+    }
+
+
+    public Action getAction() {
+        return action;
+    }
+
+
+    public UUID getApplicationId() {
+        return applicationId;
+    }
+
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+
+    public UUID getEntityId() {
+        return entityId;
+    }
+
+
+    /**
+     * The connection type of a connect or disconnect, null otherwise
+     */
+    public String getEdgeName() {
+        return edgeName;
+    }
+
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+
+    public UUID getTargetId() {
+        return targetId;
+    }
+
+
+    public boolean isConnection() {
+        return action == Action.CONNECT || action == Action.DISCONNECT;
+    }
+
+
+    /**
+     * Changes with the same key can be coalesced, the entity for entity changes and the connection for connection
+     * changes
+     */
+    public String getCoalesceKey() {
+        final String key = applicationId + SEPARATOR + entityType + SEPARATOR + entityId;
+
+        return isConnection() ? key + SEPARATOR + edgeName + SEPARATOR + targetType + SEPARATOR + targetId : key;
+    }
+
+
+    /**
+     * Coalesce a later change with the same key into this one.  A create followed by updates is still a create, and
+     * anything followed by a delete is a delete
+     */
+    public EntityChange coalesce( final EntityChange later ) {
+        if ( action == Action.CREATE && later.action == Action.UPDATE ) {
+            return this;
+        }
+
+        return later;
+    }
+
+
+    /**
+     * Encode the change as a single string
+     */
+    public String toKey() {
+        return action + SEPARATOR + getCoalesceKey();
+    }
+
+
+    /**
+     * Decode a change encoded with {@link #toKey()}
+     */
+    public static EntityChange fromKey( final String key ) {
+        final String[] parts = key.split( SEPARATOR );
+
+        Preconditions.checkArgument( parts.length == 4 || parts.length == 7, "Invalid change " + key );
+
+        final Action action = Action.valueOf( parts[0] );
+        final UUID applicationId = UUID.fromString( parts[1] );
+        final UUID entityId = UUID.fromString( parts[3] );
+
+        if ( parts.length == 4 ) {
+            return new EntityChange( action, applicationId, parts[2], entityId );
+        }
+
+        return new EntityChange( action, applicationId, parts[2], entityId, parts[4], parts[5],
+            UUID.fromString( parts[6] ) );
+    }
+
+
+    @Override
+    public boolean equals( final Object o ) {
+        if ( this == o ) {
+            return true;
+        }
+        if ( !( o instanceof EntityChange ) ) {
+            return false;
+        }
+
+        final EntityChange that = ( EntityChange ) o;
+
+        return action == that.action && toKey().equals( that.toKey() );
+    }
+
+
+    @Override
+    public int hashCode() {
+        return toKey().hashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return "EntityChange{" + toKey() + "}";
+    }
+}
@@ -46,6 +46,14 @@ public interface IndexProcessorFig extends GuicyFig {
 
     String REINDEX_BUFFER_SIZE = "elasticsearch.reindex.buffer_size";
 
+    String INDEX_QUEUE_INTERACTIVE_WEIGHT = "elasticsearch.queue.interactive.weight";
+
+    String INDEX_QUEUE_BULK_WEIGHT = "elasticsearch.queue.bulk.weight";
+
+    String INDEX_QUEUE_REPAIR_WEIGHT = "elasticsearch.queue.repair.weight";
+
+    String INDEX_QUEUE_FAIR_QUANTUM = "elasticsearch.queue.fair_quantum";
+
 
     /**
      * Set the amount of time to wait when Elasticsearch rejects a requests before
@@ -100,6 +108,35 @@ public interface IndexProcessorFig extends GuicyFig {
     @Key(REINDEX_BUFFER_SIZE)
     int getReindexBufferSize();
 
+    /**
+     * The relative share of worker batches for events from interactive writes, when the other lanes have work.
+     */
+    @Default("8")
+    @Key(INDEX_QUEUE_INTERACTIVE_WEIGHT)
+    int getInteractiveLaneWeight();
+
+    /**
+     * The relative share of worker batches for reindex and activity fan out events, when the other lanes have work.
+     */
+    @Default("2")
+    @Key(INDEX_QUEUE_BULK_WEIGHT)
+    int getBulkLaneWeight();
+
+    /**
+     * The relative share of worker batches for read repair events, when the other lanes have work.
+     */
+    @Default("1")
+    @Key(INDEX_QUEUE_REPAIR_WEIGHT)
+    int getRepairLaneWeight();
+
+    /**
+     * The number of events an application gets in each turn within a lane, before the next application's events
+     * are taken.
+     */
+    @Default("10")
+    @Key(INDEX_QUEUE_FAIR_QUANTUM)
+    int getFairQuantum();
+
     /**
      * Flag to resolve the LOCAL queue implementation service synchronously.
      */
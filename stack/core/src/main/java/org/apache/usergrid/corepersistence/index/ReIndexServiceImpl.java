@@ -34,6 +34,8 @@ import org.apache.usergrid.corepersistence.rx.impl.AllApplicationsObservable;
 import org.apache.usergrid.corepersistence.rx.impl.AllEntityIdsObservable;
 import org.apache.usergrid.corepersistence.rx.impl.EdgeScope;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.util.StringUtils;
 import org.apache.usergrid.persistence.graph.Edge;
@@ -50,7 +52,6 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 
 @Singleton
@@ -77,6 +78,7 @@ public class ReIndexServiceImpl implements ReIndexService {
     private final MapManager mapManager;
     private final AsyncEventService indexService;
     private final EntityIndexFactory entityIndexFactory;
+    private final RxTaskScheduler rxTaskScheduler;
 
 
     @Inject
@@ -86,13 +88,15 @@ public class ReIndexServiceImpl implements ReIndexService {
                                final MapManagerFactory mapManagerFactory,
                                final AllApplicationsObservable allApplicationsObservable,
                                final IndexProcessorFig indexProcessorFig,
-                               final AsyncEventService indexService ) {
+                               final AsyncEventService indexService,
+                               @BackgroundScheduler final RxTaskScheduler rxTaskScheduler ) {
         this.entityIndexFactory = entityIndexFactory;
         this.indexLocationStrategyFactory = indexLocationStrategyFactory;
         this.allEntityIdsObservable = allEntityIdsObservable;
         this.allApplicationsObservable = allApplicationsObservable;
         this.indexProcessorFig = indexProcessorFig;
         this.indexService = indexService;
+        this.rxTaskScheduler = rxTaskScheduler;
 
         this.mapManager = mapManagerFactory.createMapManager( RESUME_MAP_SCOPE );
     }
@@ -141,7 +145,7 @@ public class ReIndexServiceImpl implements ReIndexService {
         runningReIndex.collect(() -> new FlushingCollector(jobId),
             ((flushingCollector, edgeScopes) -> flushingCollector.flushBuffer(edgeScopes))).doOnNext( flushingCollector-> flushingCollector.complete() )
                 //subscribe on our I/O scheduler and run the task
-            .subscribeOn( Schedulers.io() ).subscribe(); //want reindex to continually run so leave subscribe.
+            .subscribeOn( rxTaskScheduler.getAsyncIOScheduler() ).subscribe(); //want reindex to continually run so leave subscribe.
 
 
         return new ReIndexStatus( jobId, Status.STARTED, 0, 0 );
@@ -23,6 +23,7 @@ package org.apache.usergrid.corepersistence.pipeline;
 import org.apache.usergrid.corepersistence.pipeline.cursor.RequestCursor;
 import org.apache.usergrid.corepersistence.pipeline.read.FilterResult;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.trace.Tracer;
 import org.apache.usergrid.persistence.core.util.ValidationUtils;
 import org.apache.usergrid.persistence.model.entity.Id;
 
@@ -90,8 +91,9 @@ public class Pipeline<InputType> {
 
         filter.setContext( context );
 
-        //update the observable
-        this.currentObservable = currentObservable.compose( filter );
+        //update the observable, the span of each filter includes the filters before it
+        this.currentObservable =
+            Tracer.trace( currentObservable.compose( filter ), "pipeline." + filter.getClass().getSimpleName() );
 
         //done for clarity
         idCount++;
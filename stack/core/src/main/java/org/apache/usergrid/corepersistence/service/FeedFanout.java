@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.service;
+
+
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.index.impl.IndexOperationMessage;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * A page of followers an activity was written to
+ */
+public class FeedFanout {
+
+    private final IndexOperationMessage indexOperationMessage;
+    private final Optional<Edge> next;
+
+
+    public FeedFanout( final IndexOperationMessage indexOperationMessage, final Optional<Edge> next ) {
+        this.indexOperationMessage = indexOperationMessage;
+        this.next = next;
+    }
+
+
+    /**
+     * The index operations of the written feed edges
+     */
+    public IndexOperationMessage getIndexOperationMessage() {
+        return indexOperationMessage;
+    }
+
+
+    /**
+     * The last follower edge of the page when there may be more followers, to continue from
+     */
+    public Optional<Edge> getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.service;
+
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.google.common.base.Optional;
+
+import rx.Observable;
+
+
+/**
+ * Distributes activities to the feeds of their author's followers.  Activities of authors with few followers are
+ * written to each follower's feed.  Activities of authors with many followers are read with the feed instead.
+ */
+public interface FeedFanoutService {
+
+
+    /**
+     * Write the activity to the feeds of a page of the author's followers.  On the first page, authors with too many
+     * followers are switched to having their activities read from this activity on, and nothing is written.
+     *
+     * @param applicationScope The application scope
+     * @param author The author of the activity
+     * @param activity The activity
+     * @param last The last follower edge of the previous page, absent for the first page
+     */
+    Observable<FeedFanout> fanOut( final ApplicationScope applicationScope, final Id author, final Id activity,
+                                   final Optional<Edge> last );
+
+
+    /**
+     * Get the authors the reader follows whose activities are read with the feed
+     */
+    Observable<Id> getPullAuthors( final ApplicationScope applicationScope, final Id reader );
+
+
+    /**
+     * Read the feed edges of the reader merged with the activity edges of the authors, newest first and by
+     * descending target uuid within a timestamp.  Only the authors' activities created since they were switched are
+     * read, the ones before are in the reader's feed, so paging never returns an activity twice
+     *
+     * @param applicationScope The application scope
+     * @param reader The owner of the feed
+     * @param authors The authors whose activities are read, from {@link #getPullAuthors(ApplicationScope, Id)}
+     * @param maxTimestamp The newest edge timestamp to read
+     * @param lastTarget The target of the last edge of the previous page, which had maxTimestamp.  Edges of that
+     * timestamp up to and including it are skipped
+     */
+    Observable<MarkedEdge> loadFeed( final ApplicationScope applicationScope, final Id reader,
+                                     final Collection<Id> authors, final long maxTimestamp,
+                                     final Optional<UUID> lastTarget );
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.service;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.corepersistence.asyncevents.EventBuilder;
+import org.apache.usergrid.corepersistence.rx.impl.ResponseImportTasks;
+import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
+import org.apache.usergrid.persistence.core.rx.OrderedMerge;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.entities.User;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.GraphManager;
+import org.apache.usergrid.persistence.graph.GraphManagerFactory;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.graph.impl.SimpleSearchByEdgeType;
+import org.apache.usergrid.persistence.index.impl.IndexOperationMessage;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.impl.MapScopeImpl;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import rx.Observable;
+
+import static org.apache.usergrid.corepersistence.util.CpNamingUtils.createCollectionEdge;
+import static org.apache.usergrid.corepersistence.util.CpNamingUtils.getEdgeTypeFromCollectionName;
+import static org.apache.usergrid.corepersistence.util.CpNamingUtils.getEdgeTypeFromConnectionType;
+
+
+/**
+ * Fans activities out to the feed collection of followers, the users with a "following" connection to the author.
+ * Authors found with too many followers are kept in a map of the application, with the time they were switched, and
+ * their "activities" collection created since is merged into their followers' feeds when they're read.
+ */
+@Singleton
+public class FeedFanoutServiceImpl implements FeedFanoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger( FeedFanoutServiceImpl.class );
+
+    public static final String FEED_COLLECTION = "feed";
+
+    public static final String ACTIVITIES_COLLECTION = "activities";
+
+    public static final String FOLLOWING_CONNECTION = "following";
+
+    /**
+     * The map of authors whose activities are read with the feed, to the uuid timestamp of the first activity that
+     * isn't written to the feeds
+     */
+    private static final String PULL_AUTHORS_MAP = "feedPullAuthors";
+
+    /**
+     * The number of authors checked against the map at once
+     */
+    private static final int PULL_AUTHORS_BATCH = 100;
+
+    /**
+     * The most edges the merge can buffer from a single feed
+     */
+    private static final int MERGE_BUFFER_SIZE = 10000;
+
+    /**
+     * Newest edge first, edges of the same timestamp by descending target uuid so a page can end between them
+     */
+    private static final Comparator<MarkedEdge> NEWEST_FIRST = ( first, second ) -> {
+        final int compare = Long.compare( second.getTimestamp(), first.getTimestamp() );
+
+        return compare != 0 ? compare : second.getTargetNode().getUuid().compareTo( first.getTargetNode().getUuid() );
+    };
+
+    private final GraphManagerFactory graphManagerFactory;
+    private final EntityCollectionManagerFactory entityCollectionManagerFactory;
+    private final EventBuilder eventBuilder;
+    private final MapManagerFactory mapManagerFactory;
+    private final FeedFig feedFig;
+    private final RxTaskScheduler rxTaskScheduler;
+
+
+    @Inject
+    public FeedFanoutServiceImpl( final GraphManagerFactory graphManagerFactory,
+                                  final EntityCollectionManagerFactory entityCollectionManagerFactory,
+                                  final EventBuilder eventBuilder, final MapManagerFactory mapManagerFactory,
+                                  final FeedFig feedFig,
+                                  @ResponseImportTasks final RxTaskScheduler rxTaskScheduler ) {
+        this.graphManagerFactory = graphManagerFactory;
+        this.entityCollectionManagerFactory = entityCollectionManagerFactory;
+        this.eventBuilder = eventBuilder;
+        this.mapManagerFactory = mapManagerFactory;
+        this.feedFig = feedFig;
+        this.rxTaskScheduler = rxTaskScheduler;
+    }
+
+
+    @Override
+    public Observable<FeedFanout> fanOut( final ApplicationScope applicationScope, final Id author,
+                                          final Id activity, final Optional<Edge> last ) {
+
+        final GraphManager gm = graphManagerFactory.createEdgeManager( applicationScope );
+
+        //the first page decides whether the followers are written to.  Once an author's activities are read, they
+        //always are
+        if ( !last.isPresent() && isPullAuthor( applicationScope, author, activity, gm ) ) {
+            return Observable.empty();
+        }
+
+        final int pageSize = feedFig.getFanoutPageSize();
+
+        return entityCollectionManagerFactory.createCollectionManager( applicationScope ).load( activity )
+            .filter( entity -> entity != null ).flatMap( entity -> loadFollowers( gm, author, last ).take( pageSize )
+                .toList().flatMap( followers -> {
+
+                    final Observable<IndexOperationMessage> written =
+                        Observable.from( followers ).flatMap( follower -> {
+                            final Edge feedEdge =
+                                createCollectionEdge( follower.getSourceNode(), FEED_COLLECTION, activity );
+
+                            return gm.writeEdge( feedEdge )
+                                     .flatMap( edge -> eventBuilder.buildNewEdge( applicationScope, entity, edge ) );
+                        } ).collect( () -> new IndexOperationMessage(),
+                            ( collector, single ) -> collector.ingest( single ) );
+
+                    //a full page may have followers after it
+                    final Optional<Edge> next = followers.size() == pageSize ?
+                                                Optional.<Edge>of( followers.get( pageSize - 1 ) ) :
+                                                Optional.<Edge>absent();
+
+                    return written.map( message -> new FeedFanout( message, next ) );
+                } ) );
+    }
+
+
+    @Override
+    public Observable<Id> getPullAuthors( final ApplicationScope applicationScope, final Id reader ) {
+
+        final GraphManager gm = graphManagerFactory.createEdgeManager( applicationScope );
+        final MapManager pullAuthors = getPullAuthorsMap( applicationScope );
+
+        final SearchByEdgeType search =
+            new SimpleSearchByEdgeType( reader, getEdgeTypeFromConnectionType( FOLLOWING_CONNECTION ), Long.MAX_VALUE,
+                SearchByEdgeType.Order.DESCENDING, Optional.absent() );
+
+        return gm.loadEdgesFromSource( search ).map( edge -> edge.getTargetNode() )
+                 .buffer( PULL_AUTHORS_BATCH ).flatMap( followed -> {
+
+                final List<String> keys = new ArrayList<>( followed.size() );
+
+                for ( Id id : followed ) {
+                    keys.add( id.getUuid().toString() );
+                }
+
+                final Map<String, String> found = pullAuthors.getStrings( keys );
+
+                return Observable.from( followed ).filter( id -> found.get( id.getUuid().toString() ) != null );
+            } ).take( feedFig.getPullMaxAuthors() );
+    }
+
+
+    @Override
+    public Observable<MarkedEdge> loadFeed( final ApplicationScope applicationScope, final Id reader,
+                                            final Collection<Id> authors, final long maxTimestamp,
+                                            final Optional<UUID> lastTarget ) {
+
+        final GraphManager gm = graphManagerFactory.createEdgeManager( applicationScope );
+
+        final List<Observable<MarkedEdge>> feeds = new ArrayList<>( authors.size() + 1 );
+
+        feeds.add( loadCollection( gm, reader, FEED_COLLECTION, maxTimestamp ) );
+
+        final List<String> keys = new ArrayList<>( authors.size() );
+
+        for ( Id author : authors ) {
+            keys.add( author.getUuid().toString() );
+        }
+
+        final Map<String, String> switched = getPullAuthorsMap( applicationScope ).getStrings( keys );
+
+        //activities created before the author was switched were written to the feed, only the ones after are read
+        //from the author, so no activity is in both
+        for ( Id author : authors ) {
+            final String since = switched.get( author.getUuid().toString() );
+
+            if ( since == null ) {
+                continue;
+            }
+
+            final long pulledSince = Long.parseLong( since );
+
+            feeds.add( loadCollection( gm, author, ACTIVITIES_COLLECTION, maxTimestamp )
+                .filter( edge -> getCreated( edge.getTargetNode() ) >= pulledSince ) );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        final Observable<MarkedEdge>[] sources = feeds.toArray( new Observable[feeds.size()] );
+
+        Observable<MarkedEdge> merged = OrderedMerge.orderedMerge( NEWEST_FIRST, MERGE_BUFFER_SIZE, sources )
+                                                    .distinct( edge -> edge.getTargetNode() );
+
+        //skip the edges at the cursor's timestamp the previous page already returned
+        if ( lastTarget.isPresent() ) {
+            final UUID last = lastTarget.get();
+            merged = merged.filter( edge -> edge.getTimestamp() != maxTimestamp
+                || edge.getTargetNode().getUuid().compareTo( last ) < 0 );
+        }
+
+        return merged;
+    }
+
+
+    /**
+     * Check if the activity is read with the feed rather than written to it.  Switch the author to that, from this
+     * activity on, when they have too many followers
+     */
+    private boolean isPullAuthor( final ApplicationScope applicationScope, final Id author, final Id activity,
+                                  final GraphManager gm ) {
+
+        final MapManager pullAuthors = getPullAuthorsMap( applicationScope );
+        final String key = author.getUuid().toString();
+
+        //activities created before the switch but fanned out after it are still written, the feed doesn't read them
+        final String since = pullAuthors.getString( key );
+
+        if ( since != null ) {
+            return getCreated( activity ) >= Long.parseLong( since );
+        }
+
+        final int threshold = feedFig.getPullThreshold();
+
+        final int followers =
+            loadFollowers( gm, author, Optional.absent() ).take( threshold + 1 ).count().toBlocking().last();
+
+        if ( followers <= threshold ) {
+            return false;
+        }
+
+        logger.info( "Author {} has more than {} followers, reading their activities with feeds", author, threshold );
+
+        //an activity without a time uuid switches the author as of now
+        final long pulledSince = UUIDUtils.isTimeBased( activity.getUuid() ) ? getCreated( activity ) :
+                                 UUIDUtils.newTimeUUID().timestamp();
+
+        pullAuthors.putString( key, Long.toString( pulledSince ) );
+
+        return true;
+    }
+
+
+    /**
+     * The timestamp of the activity's uuid, which no other activity shares.  Activities without a time uuid are taken
+     * as created after any switch
+     */
+    private static long getCreated( final Id activity ) {
+        final UUID uuid = activity.getUuid();
+
+        return UUIDUtils.isTimeBased( uuid ) ? uuid.timestamp() : Long.MAX_VALUE;
+    }
+
+
+    private Observable<MarkedEdge> loadFollowers( final GraphManager gm, final Id author,
+                                                  final Optional<Edge> last ) {
+
+        final SearchByEdgeType search =
+            new SimpleSearchByEdgeType( author, getEdgeTypeFromConnectionType( FOLLOWING_CONNECTION ), Long.MAX_VALUE,
+                SearchByEdgeType.Order.DESCENDING, last );
+
+        return gm.loadEdgesToTarget( search )
+                 .filter( edge -> User.ENTITY_TYPE.equals( edge.getSourceNode().getType() ) );
+    }
+
+
+    /**
+     * Load the collection edges newest first.  Each is subscribed on its own thread, as the merge requires
+     */
+    private Observable<MarkedEdge> loadCollection( final GraphManager gm, final Id owner, final String collection,
+                                                   final long maxTimestamp ) {
+
+        final SearchByEdgeType search =
+            new SimpleSearchByEdgeType( owner, getEdgeTypeFromCollectionName( collection ), maxTimestamp,
+                SearchByEdgeType.Order.DESCENDING, Optional.absent() );
+
+        return gm.loadEdgesFromSource( search ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() );
+    }
+
+
+    private MapManager getPullAuthorsMap( final ApplicationScope applicationScope ) {
+        return mapManagerFactory.createMapManager( new MapScopeImpl( applicationScope.getApplication(),
+            PULL_AUTHORS_MAP ) );
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.service;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration of activity feeds
+ */
+@FigSingleton
+public interface FeedFig extends GuicyFig {
+
+    /**
+     * Authors with more followers than this aren't written to their followers' feeds, their activities are read
+     * when the feeds are read
+     */
+    String FEED_PULL_THRESHOLD = "usergrid.feed.pull.threshold";
+
+    /**
+     * The most authors read with a feed
+     */
+    String FEED_PULL_MAX_AUTHORS = "usergrid.feed.pull.max.authors";
+
+    /**
+     * The number of followers written to in a single queued event
+     */
+    String FEED_FANOUT_PAGE_SIZE = "usergrid.feed.fanout.page.size";
+
+
+    @Default( "10000" )
+    @Key( FEED_PULL_THRESHOLD )
+    int getPullThreshold();
+
+    @Default( "100" )
+    @Key( FEED_PULL_MAX_AUTHORS )
+    int getPullMaxAuthors();
+
+    @Default( "1000" )
+    @Key( FEED_FANOUT_PAGE_SIZE )
+    int getFanoutPageSize();
+}
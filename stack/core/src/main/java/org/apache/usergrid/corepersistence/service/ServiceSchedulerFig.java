@@ -41,6 +41,11 @@ public interface ServiceSchedulerFig extends GuicyFig {
 
     String SERVICE_IMPORT_CONCURRENCY = "service.import.concurrency";
 
+    /**
+     * What to do with a task when all the import threads are busy, ABORT or CALLERRUNS
+     */
+    String SERVICE_IMPORT_REJECTION = "service.import.rejectionAction";
+
 
 
 
@@ -61,6 +66,11 @@ public interface ServiceSchedulerFig extends GuicyFig {
     int getImportConcurrency();
 
 
+    @Default("CALLERRUNS")
+    @Key( SERVICE_IMPORT_REJECTION)
+    String getImportRejectionAction();
+
+
 
 
 }
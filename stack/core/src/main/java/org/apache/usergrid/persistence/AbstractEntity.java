@@ -66,6 +66,8 @@ public abstract class AbstractEntity implements Entity {
     protected Map<String, Set<Object>> dynamic_sets = new TreeMap<String, Set<Object>>( String.CASE_INSENSITIVE_ORDER );
     protected long size;
 
+    protected UUID version;
+
 
     @Override
     @EntityProperty(required = true, mutable = false, basic = true, indexed = false)
@@ -109,6 +111,19 @@ public abstract class AbstractEntity implements Entity {
         return size != null && size instanceof Long ? (Long) size : 0;
     }
 
+    @JsonIgnore
+    @Override
+    public UUID getVersion() {
+        return version;
+    }
+
+
+    @Override
+    public void setVersion( UUID version ) {
+        this.version = version;
+    }
+
+
     @Override
     @EntityProperty(indexed = true, required = true, mutable = false)
     @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
@@ -187,6 +202,7 @@ public abstract class AbstractEntity implements Entity {
     public void setProperties(org.apache.usergrid.persistence.model.entity.Entity cpEntity){
         setProperties( CpEntityMapUtils.toMap(cpEntity) );
         this.setSize(cpEntity.getSize());
+        this.setVersion(cpEntity.getVersion());
     }
 
 
@@ -339,6 +355,7 @@ public abstract class AbstractEntity implements Entity {
     public Entity toTypedEntity() {
         Entity entity = EntityFactory.newEntity( getUuid(), getType() );
         entity.setProperties( getProperties() );
+        entity.setVersion( getVersion() );
         return entity;
     }
 
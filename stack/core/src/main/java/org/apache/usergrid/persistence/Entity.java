@@ -109,4 +109,11 @@ public interface Entity extends EntityRef, Comparable<Entity> {
     long getSize();
     void setSize(long size);
 
+    /**
+     * The version the entity was loaded at, null if it wasn't loaded from storage
+     */
+    @JsonIgnore
+    UUID getVersion();
+    void setVersion(UUID version);
+
 }
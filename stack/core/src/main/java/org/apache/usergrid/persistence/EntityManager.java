@@ -145,6 +145,16 @@ public interface EntityManager {
 
     public <A extends Entity> A get( UUID entityId, Class<A> entityClass ) throws Exception;
 
+    /**
+     * Gets the latest version of each entity without loading the entities.  Entities that don't exist or are deleted
+     * are left out of the map.
+     *
+     * @param entityRefs the entity references
+     *
+     * @return the latest version of each entity keyed by the entity uuid.
+     */
+    public Map<UUID, UUID> getLatestVersions( Collection<EntityRef> entityRefs ) throws Exception;
+
     /**
      * Retrieves a set of Entitues cast to the specified class type.
      *
@@ -0,0 +1,634 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.corepersistence.util.CpNamingUtils;
+import org.apache.usergrid.locking.Lock;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.hector.CountingMutator;
+import org.apache.usergrid.persistence.index.query.CounterResolution;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.impl.MapScopeImpl;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Injector;
+
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.beans.CounterRow;
+import me.prettyprint.hector.api.beans.HColumn;
+import me.prettyprint.hector.api.beans.HCounterColumn;
+import me.prettyprint.hector.api.beans.Row;
+import me.prettyprint.hector.api.mutation.Mutator;
+import me.prettyprint.hector.api.query.MultigetSliceCounterQuery;
+import me.prettyprint.hector.api.query.MultigetSliceQuery;
+import me.prettyprint.hector.api.query.SliceQuery;
+
+import static me.prettyprint.hector.api.factory.HFactory.createColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createMultigetSliceCounterQuery;
+import static me.prettyprint.hector.api.factory.HFactory.createMultigetSliceQuery;
+import static me.prettyprint.hector.api.factory.HFactory.createMutator;
+import static me.prettyprint.hector.api.factory.HFactory.createSliceQuery;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTERS;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTER_PENDING;
+import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTER_ROLLUPS;
+import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.batchExecute;
+import static org.apache.usergrid.persistence.cassandra.CassandraService.ALL_COUNT;
+import static org.apache.usergrid.persistence.cassandra.Serializers.be;
+import static org.apache.usergrid.persistence.cassandra.Serializers.le;
+import static org.apache.usergrid.persistence.cassandra.Serializers.se;
+import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
+
+
+/**
+ * Rolls the minute counts of aggregate counters up into the coarser resolutions in the background.
+ *
+ * Recent increments are only written to the minute rollup row of a counter and to ALL.  Once a bucket of a coarser
+ * resolution has ended, and the delay has passed so no recent increment can still land in it, it's summed from the
+ * next finer resolution and written as a plain column of {@link ApplicationCF#APPLICATION_AGGREGATE_COUNTER_ROLLUPS}.
+ * Writing a bucket again overwrites it, so a rollup that fails before its watermark is saved is simply redone.  How
+ * far each resolution of a counter has been rolled up is kept in a map of the application, reads use a rollup up to
+ * that point and the finer ones after it.
+ *
+ * A counter with minutes that may not be rolled up yet is marked in
+ * {@link ApplicationCF#APPLICATION_AGGREGATE_COUNTER_PENDING} before its first increment of the minute is written.
+ * Every node scans the marks, and whichever takes the counter's lock rolls it up, so counters written by a node that
+ * goes away are still rolled up.
+ *
+ * Increments older than half the delay could land in buckets that are already rolled up, so they're written to the
+ * original rows of every resolution instead, as are all increments when rollups are disabled.
+ */
+public class AggregateCounterRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger( AggregateCounterRollups.class );
+
+    public static final String ROLLUP_SUFFIX = ":ROLLUP";
+
+    private static final String ROLLUP_MAP = "counterRollups";
+
+    /**
+     * The rows of the pending marks, marks are spread over the shards by counter
+     */
+    private static final String PENDING_ROW = "counterRollupsPending:";
+
+    private static final int PENDING_SHARDS = 16;
+
+    /**
+     * The most source columns summed at once.  No bucket spans more than 30 of them
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * The finer resolution each resolution is summed from, its buckets divide evenly into them
+     */
+    private static final Map<CounterResolution, CounterResolution> SOURCES = new EnumMap<>( CounterResolution.class );
+
+    static {
+        SOURCES.put( CounterResolution.FIVE_MINUTES, CounterResolution.MINUTE );
+        SOURCES.put( CounterResolution.HALF_HOUR, CounterResolution.FIVE_MINUTES );
+        SOURCES.put( CounterResolution.HOUR, CounterResolution.HALF_HOUR );
+        SOURCES.put( CounterResolution.SIX_HOUR, CounterResolution.HOUR );
+        SOURCES.put( CounterResolution.HALF_DAY, CounterResolution.SIX_HOUR );
+        SOURCES.put( CounterResolution.DAY, CounterResolution.HALF_DAY );
+        SOURCES.put( CounterResolution.WEEK, CounterResolution.DAY );
+        SOURCES.put( CounterResolution.MONTH, CounterResolution.DAY );
+    }
+
+    private final CassandraService cass;
+    private final MapManagerFactory mapManagerFactory;
+    private final boolean enabled;
+    private final long delay;
+
+    /**
+     * The last minute this node marked each counter pending for, so a counter is marked once a minute.  The marks
+     * themselves are what gets rolled up
+     */
+    private final Map<PendingRollup, Long> marked = new ConcurrentHashMap<>();
+
+    /**
+     * When the next bucket of a pending counter ends, there's nothing to roll up before then
+     */
+    private final Map<PendingRollup, Long> nextRollups = new ConcurrentHashMap<>();
+
+    private final Timer rollupTimer;
+    private final Meter rollupMeter;
+
+
+    public AggregateCounterRollups( final CassandraService cass, final Injector injector, final boolean enabled,
+                                    final long delay, final long interval ) {
+        this.cass = cass;
+        this.mapManagerFactory = injector.getInstance( MapManagerFactory.class );
+        this.enabled = enabled;
+        this.delay = delay;
+
+        final MetricsFactory metricsFactory = injector.getInstance( MetricsFactory.class );
+        this.rollupTimer = metricsFactory.getTimer( AggregateCounterRollups.class, "counter.rollup" );
+        this.rollupMeter = metricsFactory.getMeter( AggregateCounterRollups.class, "counter.rollup.buckets" );
+
+        if ( enabled ) {
+            final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "Usergrid-Counter-Rollup-%d" ).build() );
+
+            scheduler.scheduleWithFixedDelay( () -> rollupPending(), interval, interval, TimeUnit.MILLISECONDS );
+        }
+    }
+
+
+    /**
+     * True if an increment at this time is only written to the minute rollup row
+     */
+    public boolean isRollup( final long counterTimestamp ) {
+        return enabled && counterTimestamp > System.currentTimeMillis() - delay / 2;
+    }
+
+
+    /**
+     * Mark the counter of the minute row pending if this is its first increment of the minute here, and return the
+     * rollup row to write it to
+     */
+    public String touch( final UUID applicationId, final String minuteRow, final long minute ) {
+        final PendingRollup rollup = new PendingRollup( applicationId, getBase( minuteRow ) );
+
+        final Long last = marked.get( rollup );
+
+        if ( last == null || last < minute ) {
+            markPending( rollup, minute );
+            marked.merge( rollup, minute, Math::max );
+        }
+
+        return getRollupRow( minuteRow );
+    }
+
+
+    /**
+     * Add the rolled up counts of each counter row between the start and finish buckets, by bucket.  The rows are
+     * read together, with one query for each resolution any of them is read from
+     */
+    public void addCounts( final Keyspace ko, final UUID applicationId, final Map<String, SortedMap<Long, Long>> counts,
+                           final CounterResolution resolution, final long start, final long finish ) {
+
+        if ( resolution == CounterResolution.ALL || counts.isEmpty() ) {
+            return;
+        }
+
+        final long end = resolution.next( finish );
+
+        //walk down from the resolution itself, each one covers up to its watermark
+        final List<CounterResolution> chain = new ArrayList<>();
+
+        for ( CounterResolution current = resolution; current != null; current = SOURCES.get( current ) ) {
+            chain.add( current );
+        }
+
+        //minutes aren't rolled up, they're read up to the end
+        final List<String> keys = new ArrayList<>();
+
+        for ( String row : counts.keySet() ) {
+            for ( CounterResolution current : chain.subList( 0, chain.size() - 1 ) ) {
+                keys.add( getRollupRow( getBase( row ), current ) );
+            }
+        }
+
+        final Map<String, String> watermarks =
+            keys.isEmpty() ? Collections.<String, String>emptyMap() : getWatermarks( applicationId ).getStrings( keys );
+
+        //where the next resolution of each row starts
+        final Map<String, Long> froms = new HashMap<>();
+
+        for ( String row : counts.keySet() ) {
+            froms.put( row, start );
+        }
+
+        for ( CounterResolution current : chain ) {
+
+            //the rollup rows read at this resolution, and the rows they belong to
+            final Map<String, String> rollupRows = new HashMap<>();
+            final Map<String, Long> tos = new HashMap<>();
+
+            long from = end;
+            long to = start;
+
+            for ( String row : counts.keySet() ) {
+                final String rollupRow = getRollupRow( getBase( row ), current );
+
+                final long rowTo;
+
+                if ( current == CounterResolution.MINUTE ) {
+                    rowTo = end;
+                }
+                else {
+                    final String watermark = watermarks.get( rollupRow );
+                    rowTo = Math.min( end, watermark != null ? Long.parseLong( watermark ) : 0 );
+                }
+
+                if ( rowTo > froms.get( row ) ) {
+                    rollupRows.put( rollupRow, row );
+                    tos.put( row, rowTo );
+
+                    from = Math.min( from, froms.get( row ) );
+                    to = Math.max( to, rowTo );
+                }
+            }
+
+            if ( rollupRows.isEmpty() ) {
+                continue;
+            }
+
+            final Map<String, SortedMap<Long, Long>> columns =
+                getColumns( ko, rollupRows.keySet(), from, to, ALL_COUNT );
+
+            for ( Map.Entry<String, String> rollupRow : rollupRows.entrySet() ) {
+                final String row = rollupRow.getValue();
+                final long rowTo = tos.get( row );
+
+                //the range read covers every row, each only uses its own
+                for ( Map.Entry<Long, Long> column : columns.get( rollupRow.getKey() )
+                                                            .subMap( froms.get( row ), rowTo ).entrySet() ) {
+                    counts.get( row ).merge( resolution.round( column.getKey() ), column.getValue(), Long::sum );
+                }
+
+                froms.put( row, rowTo );
+            }
+        }
+    }
+
+
+    /**
+     * Roll up every counter marked pending, by any node
+     */
+    private void rollupPending() {
+        final Keyspace ko = getPendingKeyspace();
+
+        for ( int shard = 0; shard < PENDING_SHARDS; shard++ ) {
+            try {
+                for ( HColumn<String, Long> mark : getPending( ko, shard ) ) {
+                    rollupPending( ko, shard, mark );
+                }
+            }
+            catch ( Throwable t ) {
+                logger.error( "Unable to read the pending counter rollups of shard " + shard, t );
+            }
+        }
+
+        //the minutes marked long ago can't be written to anymore
+        final long expired = System.currentTimeMillis() - 2 * delay;
+        marked.values().removeIf( minute -> minute < expired );
+    }
+
+
+    private void rollupPending( final Keyspace ko, final int shard, final HColumn<String, Long> mark ) {
+        final PendingRollup rollup = PendingRollup.parse( mark.getName() );
+        final long lastMinute = mark.getValue();
+
+        final Long nextRollup = nextRollups.get( rollup );
+
+        if ( nextRollup != null && nextRollup > System.currentTimeMillis() ) {
+            return;
+        }
+
+        try {
+            final long next = rollup( rollup.applicationId, rollup.base, lastMinute );
+
+            if ( next == Long.MAX_VALUE ) {
+                //deleted as of the mark we read, so a mark written for a later minute since is kept
+                final Mutator<ByteBuffer> m = createMutator( ko, be );
+                m.addDeletion( bytebuffer( PENDING_ROW + shard ), APPLICATION_AGGREGATE_COUNTER_PENDING.toString(),
+                    mark.getName(), se, mark.getClock() );
+                batchExecute( m, CassandraService.RETRY_COUNT );
+
+                nextRollups.remove( rollup );
+            }
+            else {
+                nextRollups.put( rollup, next );
+            }
+        }
+        catch ( Throwable t ) {
+            logger.error( "Unable to roll up counter " + rollup.base + " in application " + rollup.applicationId, t );
+        }
+    }
+
+
+    /**
+     * Write the mark before any increment of the minute, so the counter is rolled up even if this node goes away
+     */
+    private void markPending( final PendingRollup rollup, final long minute ) {
+        final String name = rollup.toString();
+
+        final Mutator<ByteBuffer> m = createMutator( getPendingKeyspace(), be );
+        m.addInsertion( bytebuffer( PENDING_ROW + getShard( name ) ), APPLICATION_AGGREGATE_COUNTER_PENDING.toString(),
+            createColumn( name, minute, cass.createTimestamp(), se, le ) );
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
+
+
+    private List<HColumn<String, Long>> getPending( final Keyspace ko, final int shard ) {
+        final List<HColumn<String, Long>> marks = new ArrayList<>();
+
+        String start = null;
+
+        while ( true ) {
+            final SliceQuery<ByteBuffer, String, Long> q = createSliceQuery( ko, be, se, le );
+            q.setColumnFamily( APPLICATION_AGGREGATE_COUNTER_PENDING.toString() );
+            q.setKey( bytebuffer( PENDING_ROW + shard ) );
+            q.setRange( start, null, false, PAGE_SIZE );
+
+            final List<HColumn<String, Long>> page = q.execute().get().getColumns();
+
+            //every page after the first starts with the last column of the one before
+            marks.addAll( start == null ? page : page.subList( Math.min( 1, page.size() ), page.size() ) );
+
+            if ( page.size() < PAGE_SIZE ) {
+                return marks;
+            }
+
+            start = page.get( page.size() - 1 ).getName();
+        }
+    }
+
+
+    /**
+     * The marks are rows of the application keyspace shared by every application
+     */
+    private Keyspace getPendingKeyspace() {
+        return cass.getKeyspace( CassandraService.getApplicationKeyspace(), null );
+    }
+
+
+    private static int getShard( final String name ) {
+        return ( name.hashCode() & Integer.MAX_VALUE ) % PENDING_SHARDS;
+    }
+
+
+    /**
+     * Roll each resolution of the counter up from its source, as far as it's complete.  Returns when the next bucket
+     * can be rolled up, or Long.MAX_VALUE when every resolution is rolled up past the last minute.
+     *
+     * A failure after a rollup is written but before its watermark is saved writes the same buckets again next time.
+     */
+    long rollup( final UUID applicationId, final String base, final long lastMinute ) throws Exception {
+
+        //another node is rolling this counter up, try again next time
+        final Lock lock = cass.getLockManager().createLock( applicationId, ROLLUP_MAP, base );
+
+        if ( !lock.tryLock( 0, TimeUnit.MILLISECONDS ) ) {
+            return 0;
+        }
+
+        final Timer.Context timer = rollupTimer.time();
+
+        try {
+            final Keyspace ko = cass.getApplicationKeyspace( applicationId );
+            final MapManager watermarks = getWatermarks( applicationId );
+            final long cutoff = System.currentTimeMillis() - delay;
+
+            final Map<CounterResolution, Long> ends = new EnumMap<>( CounterResolution.class );
+            ends.put( CounterResolution.MINUTE, cutoff );
+
+            long next = Long.MAX_VALUE;
+
+            for ( Map.Entry<CounterResolution, CounterResolution> source : SOURCES.entrySet() ) {
+                final CounterResolution resolution = source.getKey();
+                final String rollupRow = getRollupRow( base, resolution );
+
+                final String watermark = watermarks.getString( rollupRow );
+                long rolledUp = watermark != null ? Long.parseLong( watermark ) : 0;
+
+                //only buckets that have ended, and that the source is rolled up through
+                final long end = resolution.round( Math.min( cutoff, ends.get( source.getValue() ) ) );
+
+                if ( end > rolledUp ) {
+                    final long written =
+                        rollup( ko, getRollupRow( base, source.getValue() ), rollupRow, resolution, rolledUp, end );
+
+                    if ( written > rolledUp ) {
+                        watermarks.putString( rollupRow, Long.toString( written ) );
+                        rolledUp = written;
+                    }
+                }
+
+                ends.put( resolution, rolledUp );
+
+                //the bucket after the watermark can be rolled up once it ends and the delay passes
+                if ( rolledUp <= lastMinute ) {
+                    next = Math.min( next, rolledUp + resolution.interval() + delay );
+                }
+            }
+
+            return next;
+        }
+        finally {
+            timer.stop();
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Sum the source columns from the start up to the end into buckets of the resolution, and write them.  Returns
+     * the end of the buckets written, which is short of the end when there were more columns than a page
+     */
+    private long rollup( final Keyspace ko, final String sourceRow, final String rollupRow,
+                         final CounterResolution resolution, final long start, final long end ) {
+
+        final SortedMap<Long, Long> columns =
+            getColumns( ko, Collections.singletonList( sourceRow ), start, end, PAGE_SIZE ).get( sourceRow );
+
+        //the bucket of the last column may have more columns after the page
+        final long rolledUp = columns.size() == PAGE_SIZE ? resolution.round( columns.lastKey() ) : end;
+
+        final SortedMap<Long, Long> sums = new TreeMap<>();
+
+        for ( Map.Entry<Long, Long> column : columns.entrySet() ) {
+            if ( column.getKey() < rolledUp ) {
+                sums.merge( resolution.round( column.getKey() ), column.getValue(), Long::sum );
+            }
+        }
+
+        if ( sums.isEmpty() ) {
+            return rolledUp;
+        }
+
+        putColumns( ko, rollupRow, sums );
+
+        rollupMeter.mark( sums.size() );
+
+        return rolledUp;
+    }
+
+
+    /**
+     * Write the buckets of the rollup row, over whatever was written for them before
+     */
+    void putColumns( final Keyspace ko, final String rollupRow, final SortedMap<Long, Long> sums ) {
+        final Mutator<ByteBuffer> m = CountingMutator.createFlushingMutator( ko, be );
+        final long timestamp = cass.createTimestamp();
+
+        for ( Map.Entry<Long, Long> sum : sums.entrySet() ) {
+            m.addInsertion( bytebuffer( rollupRow ), APPLICATION_AGGREGATE_COUNTER_ROLLUPS.toString(),
+                createColumn( sum.getKey(), sum.getValue(), timestamp, le, le ) );
+        }
+
+        batchExecute( m, CassandraService.RETRY_COUNT );
+    }
+
+
+    /**
+     * Get the columns of each rollup row from the start up to, but not including, the end, at most count of them a
+     * row.  Every row has an entry, the rows of a resolution are read with one query.  Minutes are counters, the
+     * coarser rollups are plain columns
+     */
+    Map<String, SortedMap<Long, Long>> getColumns( final Keyspace ko, final Collection<String> rows, final long start,
+                                                   final long end, final int count ) {
+
+        final Map<String, SortedMap<Long, Long>> columns = new HashMap<>();
+        final List<String> minuteRows = new ArrayList<>();
+        final List<String> rollupRows = new ArrayList<>();
+
+        for ( String row : rows ) {
+            columns.put( row, new TreeMap<>() );
+            ( row.endsWith( CounterResolution.MINUTE.name() + ROLLUP_SUFFIX ) ? minuteRows : rollupRows ).add( row );
+        }
+
+        if ( end <= start ) {
+            return columns;
+        }
+
+        if ( !minuteRows.isEmpty() ) {
+            final MultigetSliceCounterQuery<String, Long> q = createMultigetSliceCounterQuery( ko, se, le );
+            q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
+            q.setRange( start, end - 1, false, count );
+
+            for ( CounterRow<String, Long> row : q.setKeys( minuteRows ).execute().get() ) {
+                for ( HCounterColumn<Long> column : row.getColumnSlice().getColumns() ) {
+                    columns.get( row.getKey() ).put( column.getName(), column.getValue() );
+                }
+            }
+        }
+
+        if ( !rollupRows.isEmpty() ) {
+            final MultigetSliceQuery<String, Long, Long> q = createMultigetSliceQuery( ko, se, le, le );
+            q.setColumnFamily( APPLICATION_AGGREGATE_COUNTER_ROLLUPS.toString() );
+            q.setRange( start, end - 1, false, count );
+
+            for ( Row<String, Long, Long> row : q.setKeys( rollupRows ).execute().get() ) {
+                for ( HColumn<Long, Long> column : row.getColumnSlice().getColumns() ) {
+                    columns.get( row.getKey() ).put( column.getName(), column.getValue() );
+                }
+            }
+        }
+
+        return columns;
+    }
+
+
+    private MapManager getWatermarks( final UUID applicationId ) {
+        return mapManagerFactory.createMapManager(
+            new MapScopeImpl( CpNamingUtils.generateApplicationId( applicationId ), ROLLUP_MAP ) );
+    }
+
+
+    /**
+     * The row of the counter without its resolution
+     */
+    private static String getBase( final String row ) {
+        return row.substring( 0, row.lastIndexOf( CounterUtils.AggregateCounterSelection.COLON ) + 1 );
+    }
+
+
+    public static String getRollupRow( final String row ) {
+        return row + ROLLUP_SUFFIX;
+    }
+
+
+    private static String getRollupRow( final String base, final CounterResolution resolution ) {
+        return base + resolution.name() + ROLLUP_SUFFIX;
+    }
+
+
+    /**
+     * A counter of an application, without its resolution
+     */
+    private static final class PendingRollup {
+
+        private final UUID applicationId;
+        private final String base;
+
+
+        private PendingRollup( final UUID applicationId, final String base ) {
+            this.applicationId = applicationId;
+            this.base = base;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !( o instanceof PendingRollup ) ) {
+                return false;
+            }
+
+            final PendingRollup that = ( PendingRollup ) o;
+
+            return applicationId.equals( that.applicationId ) && base.equals( that.base );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return 31 * applicationId.hashCode() + base.hashCode();
+        }
+
+
+        /**
+         * The name of the pending mark
+         */
+        @Override
+        public String toString() {
+            return applicationId + base;
+        }
+
+
+        private static PendingRollup parse( final String name ) {
+            //a uuid string is always 36 characters
+            return new PendingRollup( UUID.fromString( name.substring( 0, 36 ) ), name.substring( 36 ) );
+        }
+    }
+}
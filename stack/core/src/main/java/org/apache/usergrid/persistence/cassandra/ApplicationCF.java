@@ -43,6 +43,12 @@ public enum ApplicationCF implements CFEnum {
     /** Application counters */
     APPLICATION_AGGREGATE_COUNTERS( "Application_Aggregate_Counters", "LongType", COUNTERTYPE.getClassName() ),
 
+    /** Application counters rolled up from minutes, each bucket is written once it has ended */
+    APPLICATION_AGGREGATE_COUNTER_ROLLUPS( "Application_Aggregate_Counter_Rollups", "LongType" ),
+
+    /** Application counters with minutes that may not be rolled up yet */
+    APPLICATION_AGGREGATE_COUNTER_PENDING( "Application_Aggregate_Counter_Pending", "UTF8Type" ),
+
     /** Entity counters */
     ENTITY_COUNTERS( "Entity_Counters", "BytesType", COUNTERTYPE.getClassName() ),;
 
@@ -19,16 +19,22 @@ package org.apache.usergrid.persistence.cassandra;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.mq.Message;
 import org.apache.usergrid.mq.cassandra.QueuesCF;
+import org.apache.usergrid.persistence.AggregateCounter;
 import org.apache.usergrid.persistence.entities.Event;
 
 import org.apache.commons.lang.StringUtils;
@@ -37,17 +43,24 @@ import org.apache.usergrid.count.Batcher;
 import org.apache.usergrid.count.common.Count;
 
 import me.prettyprint.cassandra.serializers.PrefixedSerializer;
+import me.prettyprint.hector.api.Keyspace;
+import me.prettyprint.hector.api.beans.CounterRow;
+import me.prettyprint.hector.api.beans.CounterRows;
 import me.prettyprint.hector.api.beans.HCounterColumn;
 import me.prettyprint.hector.api.mutation.Mutator;
+import me.prettyprint.hector.api.query.MultigetSliceCounterQuery;
+import me.prettyprint.hector.api.query.QueryResult;
 
 import static me.prettyprint.hector.api.factory.HFactory.createColumn;
 import static me.prettyprint.hector.api.factory.HFactory.createCounterColumn;
+import static me.prettyprint.hector.api.factory.HFactory.createMultigetSliceCounterQuery;
 import static org.apache.usergrid.persistence.Schema.DICTIONARY_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.APPLICATION_AGGREGATE_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_COUNTERS;
 import static org.apache.usergrid.persistence.cassandra.ApplicationCF.ENTITY_DICTIONARIES;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.addInsertToMutator;
 import static org.apache.usergrid.persistence.cassandra.CassandraPersistenceUtils.key;
+import static org.apache.usergrid.persistence.cassandra.CassandraService.ALL_COUNT;
 import static org.apache.usergrid.utils.ConversionUtils.bytebuffer;
 import static org.apache.usergrid.persistence.cassandra.Serializers.*;
 import org.apache.usergrid.persistence.index.query.CounterResolution;
@@ -61,12 +74,19 @@ public class CounterUtils {
 
     private Batcher batcher;
 
+    private AggregateCounterRollups rollups;
+
 
     public void setBatcher( Batcher batcher ) {
         this.batcher = batcher;
     }
 
 
+    public void setRollups( AggregateCounterRollups rollups ) {
+        this.rollups = rollups;
+    }
+
+
     /** Set the type to 'new' ("n"), 'parallel' ("p"), 'old' ("o" - the default) If not one of the above, do nothing */
     public void setCounterType( String counterType ) {
         if ( counterType == null ) {
@@ -223,13 +243,20 @@ public class CounterUtils {
     public void batchIncrementAggregateCounters( Mutator<ByteBuffer> m, UUID applicationId, UUID userId, UUID groupId,
                                                  UUID queueId, String category, String name, long value,
                                                  long counterTimestamp, long cassandraTimestamp ) {
+        // recent increments are only written by the minute, the coarser resolutions are rolled up from them
+        boolean rollup = rollups != null && rollups.isRollup( counterTimestamp );
+
         for ( CounterResolution resolution : CounterResolution.values() ) {
+            if ( rollup && resolution != CounterResolution.ALL && resolution != CounterResolution.MINUTE ) {
+                continue;
+            }
+
             if (logger.isDebugEnabled()) {
                 logger.debug("BIAC for resolution {}", resolution);
             }
 
             batchIncrementAggregateCounters( m, userId, groupId, queueId, category, resolution, name, value,
-                    counterTimestamp, applicationId );
+                    counterTimestamp, applicationId, rollup && resolution == CounterResolution.MINUTE );
 
             if (logger.isDebugEnabled()) {
                 logger.debug("DONE BIAC for resolution {}", resolution);
@@ -247,7 +274,8 @@ public class CounterUtils {
 
     private void batchIncrementAggregateCounters( Mutator<ByteBuffer> m, UUID userId, UUID groupId, UUID queueId,
                                                   String category, CounterResolution resolution, String name,
-                                                  long value, long counterTimestamp, UUID applicationId ) {
+                                                  long value, long counterTimestamp, UUID applicationId,
+                                                  boolean rollup ) {
 
         String[] segments = StringUtils.split( name, '.' );
         for ( int j = 0; j < segments.length; j++ ) {
@@ -260,7 +288,7 @@ public class CounterUtils {
             // *:*:*:*
             handleAggregateCounterRow( m,
                     AggregateCounterSelection.rowBuilder( name, null, null, null, null, resolution ),
-                    resolution.round( counterTimestamp ), value, applicationId );
+                    resolution.round( counterTimestamp ), value, applicationId, rollup );
             String currentRow = null;
             HashSet<String> rowSet = new HashSet<String>( 16 );
             for ( int i = 0; i < 16; i++ ) {
@@ -287,7 +315,7 @@ public class CounterUtils {
                 if ( non_null > 0 && !rowSet.contains( currentRow ) ) {
                     rowSet.add( currentRow );
                     handleAggregateCounterRow( m, currentRow, resolution.round( counterTimestamp ), value,
-                            applicationId );
+                            applicationId, rollup );
                 }
             }
         }
@@ -295,7 +323,10 @@ public class CounterUtils {
 
 
     private void handleAggregateCounterRow( Mutator<ByteBuffer> m, String key, long column, long value,
-                                            UUID applicationId ) {
+                                            UUID applicationId, boolean rollup ) {
+        if ( rollup ) {
+            key = rollups.touch( applicationId, key, column );
+        }
         if ( logger.isDebugEnabled() ) {
             logger.info( "HACR: aggregateRow for app {} with key {} column {} and value {}",
                     new Object[] { applicationId, key, column, value } );
@@ -328,6 +359,77 @@ public class CounterUtils {
     }
 
 
+    /**
+     * Read the counts of the counter row between the start and finish buckets, from the row itself and its rollups.
+     * When padding, buckets without a count are returned as 0
+     */
+    public List<AggregateCounter> getAggregateCounters( Keyspace ko, UUID applicationId, String row,
+                                                        CounterResolution resolution, long start, long finish,
+                                                        boolean pad ) {
+        return getAggregateCounters( ko, applicationId, Collections.singletonList( row ), resolution, start, finish,
+                pad ).get( row );
+    }
+
+
+    /**
+     * Read the counts of each counter row between the start and finish buckets, by row.  The rows are read with one
+     * query, and their rollups with one more for each resolution
+     */
+    public Map<String, List<AggregateCounter>> getAggregateCounters( Keyspace ko, UUID applicationId,
+                                                                     Collection<String> rows,
+                                                                     CounterResolution resolution, long start,
+                                                                     long finish, boolean pad ) {
+        Map<String, SortedMap<Long, Long>> counts = new HashMap<String, SortedMap<Long, Long>>();
+        for ( String row : rows ) {
+            counts.put( row, new TreeMap<Long, Long>() );
+        }
+
+        MultigetSliceCounterQuery<String, Long> q = createMultigetSliceCounterQuery( ko, se, le );
+        q.setColumnFamily( APPLICATION_AGGREGATE_COUNTERS.toString() );
+        q.setRange( start, finish, false, ALL_COUNT );
+        QueryResult<CounterRows<String, Long>> results = q.setKeys( rows ).execute();
+
+        for ( CounterRow<String, Long> r : results.get() ) {
+            SortedMap<Long, Long> rowCounts = counts.get( r.getKey() );
+            for ( HCounterColumn<Long> column : r.getColumnSlice().getColumns() ) {
+                rowCounts.put( column.getName(), column.getValue() );
+            }
+        }
+
+        if ( rollups != null ) {
+            rollups.addCounts( ko, applicationId, counts, resolution, start, finish );
+        }
+
+        Map<String, List<AggregateCounter>> counters = new HashMap<String, List<AggregateCounter>>();
+        for ( Entry<String, SortedMap<Long, Long>> rowCounts : counts.entrySet() ) {
+            counters.put( rowCounts.getKey(), toCounters( rowCounts.getValue(), resolution, start, finish, pad ) );
+        }
+        return counters;
+    }
+
+
+    /**
+     * The counts of a row as counters.  When padding, every bucket between the start and finish is returned, those
+     * without a count as 0
+     */
+    static List<AggregateCounter> toCounters( SortedMap<Long, Long> counts, CounterResolution resolution, long start,
+                                              long finish, boolean pad ) {
+        List<AggregateCounter> counters = new ArrayList<AggregateCounter>();
+        if ( pad && !( resolution == CounterResolution.ALL ) ) {
+            for ( long time = start; time <= finish; time = resolution.next( time ) ) {
+                Long count = counts.get( time );
+                counters.add( new AggregateCounter( time, count != null ? count : 0 ) );
+            }
+        }
+        else {
+            for ( Entry<Long, Long> count : counts.entrySet() ) {
+                counters.add( new AggregateCounter( count.getKey(), count.getValue() ) );
+            }
+        }
+        return counters;
+    }
+
+
     public List<String> getAggregateCounterRows( List<AggregateCounterSelection> selections,
                                                  CounterResolution resolution ) {
         List<String> keys = new ArrayList<String>();
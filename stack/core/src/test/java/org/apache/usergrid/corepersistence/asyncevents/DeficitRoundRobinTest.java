@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class DeficitRoundRobinTest {
+
+    @Test
+    public void keysTakeTurns() {
+        final DeficitRoundRobin<String, String> drr = new DeficitRoundRobin<>( 2 );
+
+        for ( int i = 0; i < 5; i++ ) {
+            drr.add( "busy", "b" + i );
+        }
+
+        drr.add( "quiet", "q0" );
+
+        assertEquals( 6, drr.size() );
+        assertEquals( Arrays.asList( "b0", "b1", "q0", "b2", "b3", "b4" ), drr.take( 10 ) );
+        assertEquals( 0, drr.size() );
+    }
+
+
+    @Test
+    public void turnCarriesOverTakes() {
+        final DeficitRoundRobin<String, String> drr = new DeficitRoundRobin<>( 3 );
+
+        for ( int i = 0; i < 4; i++ ) {
+            drr.add( "a", "a" + i );
+            drr.add( "b", "b" + i );
+        }
+
+        assertEquals( Arrays.asList( "a0", "a1" ), drr.take( 2 ) );
+        assertEquals( Arrays.asList( "a2", "b0", "b1", "b2" ), drr.take( 4 ) );
+        assertEquals( Arrays.asList( "a3", "b3" ), drr.take( 4 ) );
+    }
+
+
+    @Test
+    public void emptyKeyRejoinsAtTheBack() {
+        final DeficitRoundRobin<String, String> drr = new DeficitRoundRobin<>( 1 );
+
+        drr.add( "a", "a0" );
+        drr.add( "b", "b0" );
+        drr.add( "b", "b1" );
+
+        assertEquals( Arrays.asList( "a0", "b0" ), drr.take( 2 ) );
+
+        drr.add( "a", "a1" );
+
+        assertEquals( Arrays.asList( "b1", "a1" ), drr.take( 2 ) );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.asyncevents;
+
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class EventLaneSchedulerTest {
+
+    private EventLaneScheduler<String, String> scheduler;
+
+
+    @Before
+    public void setup() {
+        final Map<EventLane, Integer> weights = new EnumMap<>( EventLane.class );
+        weights.put( EventLane.INTERACTIVE, 3 );
+        weights.put( EventLane.BULK, 1 );
+        weights.put( EventLane.REPAIR, 1 );
+
+        scheduler = new EventLaneScheduler<>( weights, 10 );
+    }
+
+
+    @Test
+    public void lanesShareByWeight() throws InterruptedException {
+        for ( int i = 0; i < 10; i++ ) {
+            scheduler.add( EventLane.INTERACTIVE, "app", "i" + i );
+            scheduler.add( EventLane.BULK, "app", "b" + i );
+        }
+
+        int interactive = 0;
+
+        for ( int i = 0; i < 8; i++ ) {
+            if ( scheduler.take( 1, 0 ).getLane() == EventLane.INTERACTIVE ) {
+                interactive++;
+            }
+        }
+
+        assertEquals( 6, interactive );
+    }
+
+
+    @Test
+    public void idleLanesDontHoldBack() throws InterruptedException {
+        scheduler.add( EventLane.BULK, "app", "b0" );
+        scheduler.add( EventLane.BULK, "app", "b1" );
+
+        EventLaneScheduler.LaneBatch<String> batch = scheduler.take( 10, 0 );
+
+        assertEquals( EventLane.BULK, batch.getLane() );
+        assertEquals( Arrays.asList( "b0", "b1" ), batch.getValues() );
+        assertNull( scheduler.take( 10, 10 ) );
+    }
+
+
+    @Test
+    public void batchesAreFairWithinALane() throws InterruptedException {
+        for ( int i = 0; i < 20; i++ ) {
+            scheduler.add( EventLane.BULK, "import", "import" + i );
+        }
+
+        scheduler.add( EventLane.BULK, "other", "other0" );
+
+        //the other application's event is taken after the importing application's first turn
+        assertEquals( "other0", scheduler.take( 11, 0 ).getValues().get( 10 ) );
+    }
+
+
+    @Test
+    public void capacity() throws InterruptedException {
+        scheduler.add( EventLane.REPAIR, "app", "r0" );
+        scheduler.add( EventLane.REPAIR, "app", "r1" );
+
+        assertFalse( scheduler.awaitCapacity( EventLane.REPAIR, 2, 10 ) );
+        assertTrue( scheduler.awaitCapacity( EventLane.INTERACTIVE, 2, 10 ) );
+
+        scheduler.take( 1, 0 );
+
+        assertTrue( scheduler.awaitCapacity( EventLane.REPAIR, 2, 10 ) );
+        assertEquals( 1, scheduler.size( EventLane.REPAIR ) );
+    }
+}
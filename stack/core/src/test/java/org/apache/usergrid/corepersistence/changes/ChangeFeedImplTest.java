@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.corepersistence.changes;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import com.codahale.metrics.Meter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class ChangeFeedImplTest {
+
+    private final UUID applicationId = UUIDUtils.newTimeUUID();
+
+    private ChangeFeedFig changeFeedFig;
+    private MetricsFactory metricsFactory;
+    private MemorySerialization serialization;
+
+
+    @Before
+    public void setup() {
+        changeFeedFig = mock( ChangeFeedFig.class );
+        when( changeFeedFig.isEnabled() ).thenReturn( true );
+        when( changeFeedFig.getCoalesceMs() ).thenReturn( 60000L );
+        when( changeFeedFig.getMaxPending() ).thenReturn( 2 );
+        when( changeFeedFig.getPollInterval() ).thenReturn( 60000L );
+        when( changeFeedFig.getBucketSize() ).thenReturn( 10000L );
+        when( changeFeedFig.getShards() ).thenReturn( 2 );
+
+        serialization = new MemorySerialization();
+
+        metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+    }
+
+
+    @Test
+    public void burstsCoalesced() {
+        final ChangeFeedImpl changeFeed = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+
+        final List<EntityChange> received = new ArrayList<>();
+        changeFeed.subscribe( received::add );
+
+        final UUID entityId = UUIDUtils.newTimeUUID();
+
+        changeFeed.publish( new EntityChange( EntityChange.Action.CREATE, applicationId, "thing", entityId ) );
+        changeFeed.publish( new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", entityId ) );
+        changeFeed.publish( new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", entityId ) );
+
+        assertTrue( received.isEmpty() );
+
+        changeFeed.flush();
+
+        assertEquals( 1, received.size() );
+        assertEquals( EntityChange.Action.CREATE, received.get( 0 ).getAction() );
+
+        changeFeed.publish( new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", entityId ) );
+        changeFeed.publish( new EntityChange( EntityChange.Action.DELETE, applicationId, "thing", entityId ) );
+        changeFeed.flush();
+
+        assertEquals( 2, received.size() );
+        assertEquals( EntityChange.Action.DELETE, received.get( 1 ).getAction() );
+    }
+
+
+    @Test
+    public void pendingBounded() {
+        final ChangeFeedImpl changeFeed = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+
+        final List<EntityChange> received = new ArrayList<>();
+        changeFeed.subscribe( received::add );
+
+        for ( int i = 0; i < 5; i++ ) {
+            changeFeed.publish(
+                new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() ) );
+        }
+
+        changeFeed.flush();
+
+        assertEquals( 2, received.size() );
+    }
+
+
+    @Test
+    public void disabled() {
+        when( changeFeedFig.isEnabled() ).thenReturn( false );
+
+        final ChangeFeedImpl changeFeed = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+
+        final List<EntityChange> received = new ArrayList<>();
+        changeFeed.subscribe( received::add );
+
+        changeFeed.publish(
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() ) );
+        changeFeed.flush();
+
+        assertTrue( received.isEmpty() );
+    }
+
+
+    @Test
+    public void flushWritesOneBatchPerShard() {
+        final ChangeFeedImpl changeFeed = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+
+        changeFeed.publish(
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() ) );
+        changeFeed.publish(
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() ) );
+        changeFeed.flush();
+
+        changeFeed.publish(
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() ) );
+        changeFeed.flush();
+
+        assertEquals( 2, serialization.rows.size() );
+
+        for ( Map<UUID, ChangeBatch> row : serialization.rows.values() ) {
+            assertEquals( 1, row.size() );
+        }
+    }
+
+
+    @Test
+    public void pollDeliversOtherNodesOnce() {
+        final ChangeFeedImpl publisher = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+        final ChangeFeedImpl subscriber = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+
+        final List<EntityChange> published = new ArrayList<>();
+        publisher.subscribe( published::add );
+
+        final List<EntityChange> received = new ArrayList<>();
+        subscriber.subscribe( received::add );
+
+        final EntityChange change =
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() );
+
+        publisher.publish( change );
+        publisher.flush();
+
+        publisher.poll();
+        subscriber.poll();
+        subscriber.poll();
+
+        assertEquals( 1, published.size() );
+        assertEquals( 1, received.size() );
+        assertEquals( change, received.get( 0 ) );
+    }
+
+
+    @Test
+    public void deliveredLocallyWhenWriteFails() {
+        serialization.failing = true;
+
+        final ChangeFeedImpl changeFeed = new ChangeFeedImpl( changeFeedFig, serialization, metricsFactory );
+
+        final List<EntityChange> received = new ArrayList<>();
+        changeFeed.subscribe( received::add );
+
+        changeFeed.publish(
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() ) );
+        changeFeed.flush();
+        changeFeed.poll();
+
+        assertEquals( 1, received.size() );
+    }
+
+
+    @Test
+    public void keyRoundTrip() {
+        final EntityChange update =
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "thing", UUIDUtils.newTimeUUID() );
+
+        final EntityChange connect =
+            new EntityChange( EntityChange.Action.CONNECT, applicationId, "user", UUIDUtils.newTimeUUID(), "likes",
+                "thing", UUIDUtils.newTimeUUID() );
+
+        assertEquals( update, EntityChange.fromKey( update.toKey() ) );
+        assertEquals( connect, EntityChange.fromKey( connect.toKey() ) );
+        assertEquals( "likes", EntityChange.fromKey( connect.toKey() ).getEdgeName() );
+    }
+
+
+    /**
+     * Keeps the batches in memory instead of Cassandra
+     */
+    private static class MemorySerialization implements ChangeFeedSerialization {
+
+        private final Map<String, Map<UUID, ChangeBatch>> rows = new HashMap<>();
+
+        private boolean failing = false;
+
+
+        @Override
+        public synchronized void write( final long bucket, final int shard, final ChangeBatch batch, final int ttl ) {
+            if ( failing ) {
+                throw new RuntimeException( "Unable to write entity changes" );
+            }
+
+            final ChangeBatch copy = new ChangeBatch( batch.getNodeId(), new ArrayList<>( batch.getChanges() ) );
+
+            rows.computeIfAbsent( bucket + ":" + shard, key -> new LinkedHashMap<>() )
+                .put( UUIDUtils.newTimeUUID(), copy );
+        }
+
+
+        @Override
+        public synchronized Map<UUID, ChangeBatch> read( final long bucket, final int shard ) {
+            if ( failing ) {
+                throw new RuntimeException( "Unable to read entity changes" );
+            }
+
+            final Map<UUID, ChangeBatch> row = rows.get( bucket + ":" + shard );
+
+            return row == null ? new LinkedHashMap<>() : new LinkedHashMap<>( row );
+        }
+
+
+        @Override
+        public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+            return Collections.emptyList();
+        }
+    }
+}
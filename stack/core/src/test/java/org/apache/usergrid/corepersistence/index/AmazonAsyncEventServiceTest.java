@@ -21,6 +21,8 @@ package org.apache.usergrid.corepersistence.index;
 
 
 import org.apache.usergrid.corepersistence.asyncevents.EventBuilder;
+import org.apache.usergrid.corepersistence.changes.ChangeFeed;
+import org.apache.usergrid.corepersistence.service.FeedFanoutService;
 import org.apache.usergrid.persistence.index.EntityIndexFactory;
 import org.apache.usergrid.persistence.index.impl.IndexProducer;
 import org.apache.usergrid.persistence.queue.QueueFig;
@@ -78,6 +80,12 @@ public class AmazonAsyncEventServiceTest extends AsyncIndexServiceTest {
     @Inject
     public EventBuilder eventBuilder;
 
+    @Inject
+    public FeedFanoutService feedFanoutService;
+
+    @Inject
+    public ChangeFeed changeFeed;
+
     @Inject
     public IndexProducer indexProducer;
 
@@ -93,7 +101,7 @@ public class AmazonAsyncEventServiceTest extends AsyncIndexServiceTest {
 
     @Override
     protected AsyncEventService getAsyncEventService() {
-        return  new AmazonAsyncEventService( queueManagerFactory, indexProcessorFig, indexProducer, metricsFactory,  entityCollectionManagerFactory, indexLocationStrategyFactory, entityIndexFactory, eventBuilder, mapManagerFactory, queueFig,  rxTaskScheduler );
+        return  new AmazonAsyncEventService( queueManagerFactory, indexProcessorFig, indexProducer, metricsFactory,  entityCollectionManagerFactory, indexLocationStrategyFactory, entityIndexFactory, eventBuilder, feedFanoutService, changeFeed, mapManagerFactory, queueFig,  rxTaskScheduler );
     }
 
 
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.service;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.corepersistence.asyncevents.EventBuilder;
+import org.apache.usergrid.persistence.collection.EntityCollectionManager;
+import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.GraphManager;
+import org.apache.usergrid.persistence.graph.GraphManagerFactory;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.graph.impl.SimpleMarkedEdge;
+import org.apache.usergrid.persistence.index.impl.IndexOperationMessage;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.MapScope;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import com.google.common.base.Optional;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import static org.apache.usergrid.corepersistence.util.CpNamingUtils.getEdgeTypeFromCollectionName;
+import static org.apache.usergrid.corepersistence.util.CpNamingUtils.getEdgeTypeFromConnectionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class FeedFanoutServiceImplTest {
+
+    private static final String FEED = getEdgeTypeFromCollectionName( FeedFanoutServiceImpl.FEED_COLLECTION );
+
+    private static final String ACTIVITIES =
+        getEdgeTypeFromCollectionName( FeedFanoutServiceImpl.ACTIVITIES_COLLECTION );
+
+    private static final String FOLLOWING = getEdgeTypeFromConnectionType( FeedFanoutServiceImpl.FOLLOWING_CONNECTION );
+
+    private final ApplicationScope applicationScope =
+        new ApplicationScopeImpl( new SimpleId( UUIDUtils.newTimeUUID(), "application" ) );
+
+    private final Id author = new SimpleId( UUIDUtils.newTimeUUID(), "user" );
+
+    private final Id reader = new SimpleId( UUIDUtils.newTimeUUID(), "user" );
+
+    private List<MarkedEdge> edges;
+
+    private Map<String, String> pullAuthors;
+
+    private FeedFig feedFig;
+
+    private FeedFanoutService feedFanoutService;
+
+
+    @Before
+    public void setup() {
+        edges = new CopyOnWriteArrayList<>();
+        pullAuthors = new ConcurrentHashMap<>();
+
+        final GraphManager gm = mock( GraphManager.class );
+        when( gm.loadEdgesFromSource( any( SearchByEdgeType.class ) ) ).thenAnswer(
+            invocation -> search( ( SearchByEdgeType ) invocation.getArguments()[0], true ) );
+        when( gm.loadEdgesToTarget( any( SearchByEdgeType.class ) ) ).thenAnswer(
+            invocation -> search( ( SearchByEdgeType ) invocation.getArguments()[0], false ) );
+        when( gm.writeEdge( any( Edge.class ) ) ).thenAnswer( invocation -> {
+            final MarkedEdge written = new SimpleMarkedEdge( ( Edge ) invocation.getArguments()[0], false );
+            edges.add( written );
+            return Observable.just( written );
+        } );
+
+        final GraphManagerFactory graphManagerFactory = mock( GraphManagerFactory.class );
+        when( graphManagerFactory.createEdgeManager( applicationScope ) ).thenReturn( gm );
+
+        final EntityCollectionManager ecm = mock( EntityCollectionManager.class );
+        when( ecm.load( any( Id.class ) ) )
+            .thenAnswer( invocation -> Observable.just( new Entity( ( Id ) invocation.getArguments()[0] ) ) );
+
+        final EntityCollectionManagerFactory entityCollectionManagerFactory =
+            mock( EntityCollectionManagerFactory.class );
+        when( entityCollectionManagerFactory.createCollectionManager( applicationScope ) ).thenReturn( ecm );
+
+        final EventBuilder eventBuilder = mock( EventBuilder.class );
+        when( eventBuilder.buildNewEdge( any( ApplicationScope.class ), any( Entity.class ), any( Edge.class ) ) )
+            .thenAnswer( invocation -> Observable.just( new IndexOperationMessage() ) );
+
+        final MapManager mapManager = mock( MapManager.class );
+        when( mapManager.getString( anyString() ) )
+            .thenAnswer( invocation -> pullAuthors.get( invocation.getArguments()[0] ) );
+        when( mapManager.getStrings( anyCollectionOf( String.class ) ) ).thenAnswer( invocation -> {
+            final Map<String, String> values = new HashMap<>();
+            for ( Object key : ( Collection<?> ) invocation.getArguments()[0] ) {
+                if ( pullAuthors.containsKey( key ) ) {
+                    values.put( ( String ) key, pullAuthors.get( key ) );
+                }
+            }
+            return values;
+        } );
+        doAnswer( invocation -> pullAuthors
+            .put( ( String ) invocation.getArguments()[0], ( String ) invocation.getArguments()[1] ) )
+            .when( mapManager ).putString( anyString(), anyString() );
+
+        final MapManagerFactory mapManagerFactory = mock( MapManagerFactory.class );
+        when( mapManagerFactory.createMapManager( any( MapScope.class ) ) ).thenReturn( mapManager );
+
+        feedFig = mock( FeedFig.class );
+        when( feedFig.getFanoutPageSize() ).thenReturn( 2 );
+        when( feedFig.getPullThreshold() ).thenReturn( 3 );
+        when( feedFig.getPullMaxAuthors() ).thenReturn( 100 );
+
+        final RxTaskScheduler rxTaskScheduler = mock( RxTaskScheduler.class );
+        when( rxTaskScheduler.getAsyncIOScheduler() ).thenReturn( Schedulers.io() );
+
+        feedFanoutService =
+            new FeedFanoutServiceImpl( graphManagerFactory, entityCollectionManagerFactory, eventBuilder,
+                mapManagerFactory, feedFig, rxTaskScheduler );
+    }
+
+
+    @Test
+    public void fanOutPagesThroughFollowers() {
+        when( feedFig.getPullThreshold() ).thenReturn( 10 );
+
+        final List<Id> followers = follow( author, 5 );
+        final Id activity = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+
+        Optional<Edge> last = Optional.absent();
+        int pages = 0;
+
+        do {
+            final FeedFanout fanout = feedFanoutService.fanOut( applicationScope, author, activity, last ).toBlocking()
+                                                       .single();
+            last = fanout.getNext();
+            pages++;
+        }
+        while ( last.isPresent() );
+
+        assertEquals( 3, pages );
+        assertEquals( new HashSet<>( followers ), feedOwners( activity ) );
+        assertEquals( followers.size(), edges( FEED ).size() );
+        assertTrue( pullAuthors.isEmpty() );
+    }
+
+
+    @Test
+    public void fanOutWritesAuthorsAtTheThreshold() {
+        final List<Id> followers = follow( author, 3 );
+        final Id activity = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+
+        final FeedFanout first =
+            feedFanoutService.fanOut( applicationScope, author, activity, Optional.absent() ).toBlocking().single();
+        feedFanoutService.fanOut( applicationScope, author, activity, first.getNext() ).toBlocking().single();
+
+        assertEquals( new HashSet<>( followers ), feedOwners( activity ) );
+        assertTrue( pullAuthors.isEmpty() );
+    }
+
+
+    @Test
+    public void fanOutSwitchesAuthorsOverTheThreshold() {
+        follow( author, 4 );
+
+        final Id before = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id switching = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id after = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+
+        assertTrue( feedFanoutService.fanOut( applicationScope, author, switching, Optional.absent() ).isEmpty()
+                                     .toBlocking().single() );
+        assertEquals( Long.toString( switching.getUuid().timestamp() ),
+            pullAuthors.get( author.getUuid().toString() ) );
+
+        assertTrue( feedFanoutService.fanOut( applicationScope, author, after, Optional.absent() ).isEmpty()
+                                     .toBlocking().single() );
+        assertTrue( edges( FEED ).isEmpty() );
+
+        //created before the switch, so the feeds don't read it from the author
+        assertNotNull(
+            feedFanoutService.fanOut( applicationScope, author, before, Optional.absent() ).toBlocking().single() );
+        assertEquals( 2, feedOwners( before ).size() );
+    }
+
+
+    @Test
+    public void getPullAuthorsOnlyReturnsSwitchedAuthors() {
+        final Id pushed = new SimpleId( UUIDUtils.newTimeUUID(), "user" );
+
+        follow( reader, author );
+        follow( reader, pushed );
+        pullAuthors.put( author.getUuid().toString(), "0" );
+
+        assertEquals( Collections.singletonList( author ),
+            feedFanoutService.getPullAuthors( applicationScope, reader ).toList().toBlocking().single() );
+    }
+
+
+    @Test
+    public void loadFeedMergesPushedAndPulledActivitiesNewestFirst() {
+        final Id old = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        switchAuthor();
+
+        final Id pushed1 = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id pulled2 = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id pushed3 = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id pulled4 = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+
+        //the old activity was written to the feed before the switch, and is also in the author's activities
+        edge( author, ACTIVITIES, old, 5 );
+        edge( reader, FEED, old, 6 );
+        edge( reader, FEED, pushed1, 10 );
+        edge( author, ACTIVITIES, pulled2, 20 );
+        edge( reader, FEED, pushed3, 30 );
+        edge( author, ACTIVITIES, pulled4, 40 );
+
+        assertEquals( Arrays.asList( pulled4, pushed3, pulled2, pushed1, old ),
+            targets( feedFanoutService.loadFeed( applicationScope, reader, Collections.singletonList( author ),
+                Long.MAX_VALUE, Optional.absent() ) ) );
+    }
+
+
+    @Test
+    public void loadFeedResumesAfterTheCursor() {
+        switchAuthor();
+
+        final Id pushed = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id pulled = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id older = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id newer = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+
+        edge( reader, FEED, older, 10 );
+        edge( reader, FEED, pushed, 30 );
+        edge( author, ACTIVITIES, pulled, 30 );
+        edge( author, ACTIVITIES, newer, 40 );
+
+        final List<Id> all = targets(
+            feedFanoutService.loadFeed( applicationScope, reader, Collections.singletonList( author ), Long.MAX_VALUE,
+                Optional.absent() ) );
+
+        //edges of the same timestamp are ordered by descending target
+        final boolean pulledFirst = pulled.getUuid().compareTo( pushed.getUuid() ) > 0;
+        final Id firstTied = pulledFirst ? pulled : pushed;
+        final Id secondTied = pulledFirst ? pushed : pulled;
+
+        assertEquals( Arrays.asList( newer, firstTied, secondTied, older ), all );
+
+        //a page that ended between the tied edges resumes at the second
+        assertEquals( Arrays.asList( secondTied, older ), targets(
+            feedFanoutService.loadFeed( applicationScope, reader, Collections.singletonList( author ), 30,
+                Optional.of( firstTied.getUuid() ) ) ) );
+
+        //and one that ended after them at the older edge
+        assertEquals( Collections.singletonList( older ), targets(
+            feedFanoutService.loadFeed( applicationScope, reader, Collections.singletonList( author ), 30,
+                Optional.of( secondTied.getUuid() ) ) ) );
+    }
+
+
+    @Test
+    public void loadFeedSkipsAuthorsNotSwitched() {
+        final Id pushed = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+        final Id notPulled = new SimpleId( UUIDUtils.newTimeUUID(), "activity" );
+
+        edge( reader, FEED, pushed, 10 );
+        edge( author, ACTIVITIES, notPulled, 20 );
+
+        assertNull( pullAuthors.get( author.getUuid().toString() ) );
+        assertEquals( Collections.singletonList( pushed ), targets(
+            feedFanoutService.loadFeed( applicationScope, reader, Collections.singletonList( author ), Long.MAX_VALUE,
+                Optional.absent() ) ) );
+    }
+
+
+    /**
+     * Switch the author as of now
+     */
+    private void switchAuthor() {
+        pullAuthors.put( author.getUuid().toString(), Long.toString( UUIDUtils.newTimeUUID().timestamp() ) );
+    }
+
+
+    private List<Id> follow( final Id followed, final int count ) {
+        final List<Id> followers = new ArrayList<>();
+
+        for ( int i = 0; i < count; i++ ) {
+            final Id follower = new SimpleId( UUIDUtils.newTimeUUID(), "user" );
+            follow( follower, followed );
+            followers.add( follower );
+        }
+
+        return followers;
+    }
+
+
+    private void follow( final Id follower, final Id followed ) {
+        edges.add( new SimpleMarkedEdge( follower, FOLLOWING, followed, edges.size() + 1, false ) );
+    }
+
+
+    private void edge( final Id source, final String type, final Id target, final long timestamp ) {
+        edges.add( new SimpleMarkedEdge( source, type, target, timestamp, false ) );
+    }
+
+
+    private List<MarkedEdge> edges( final String type ) {
+        final List<MarkedEdge> found = new ArrayList<>();
+
+        for ( MarkedEdge edge : edges ) {
+            if ( edge.getType().equals( type ) ) {
+                found.add( edge );
+            }
+        }
+
+        return found;
+    }
+
+
+    private Set<Id> feedOwners( final Id activity ) {
+        final Set<Id> owners = new HashSet<>();
+
+        for ( MarkedEdge edge : edges( FEED ) ) {
+            if ( edge.getTargetNode().equals( activity ) ) {
+                owners.add( edge.getSourceNode() );
+            }
+        }
+
+        return owners;
+    }
+
+
+    private static List<Id> targets( final Observable<MarkedEdge> feed ) {
+        final List<Id> targets = new ArrayList<>();
+
+        for ( MarkedEdge edge : feed.toList().toBlocking().single() ) {
+            targets.add( edge.getTargetNode() );
+        }
+
+        return targets;
+    }
+
+
+    /**
+     * Search the edges newest first, by descending target within a timestamp, after the last edge if there is one
+     */
+    private Observable<MarkedEdge> search( final SearchByEdgeType search, final boolean fromSource ) {
+        final List<MarkedEdge> found = new ArrayList<>();
+
+        for ( MarkedEdge edge : edges ) {
+            final Id node = fromSource ? edge.getSourceNode() : edge.getTargetNode();
+
+            if ( node.equals( search.getNode() ) && edge.getType().equals( search.getType() )
+                && edge.getTimestamp() <= search.getMaxTimestamp() ) {
+                found.add( edge );
+            }
+        }
+
+        found.sort( ( first, second ) -> {
+            final int compare = Long.compare( second.getTimestamp(), first.getTimestamp() );
+            return compare != 0 ? compare :
+                   second.getTargetNode().getUuid().compareTo( first.getTargetNode().getUuid() );
+        } );
+
+        if ( search.last().isPresent() ) {
+            final int last = found.indexOf( search.last().get() );
+            return Observable.from( new ArrayList<>( found.subList( last + 1, found.size() ) ) );
+        }
+
+        return Observable.from( found );
+    }
+}
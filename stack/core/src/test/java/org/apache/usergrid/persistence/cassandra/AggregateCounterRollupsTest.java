@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.locking.noop.NoOpLockManagerImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.index.query.CounterResolution;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.MapScope;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.inject.Injector;
+
+import me.prettyprint.hector.api.Keyspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class AggregateCounterRollupsTest {
+
+    private static final UUID APPLICATION_ID = UUID.randomUUID();
+
+    private static final String VISITS = "visits:*:*:*:*:";
+
+    private static final String CLICKS = "clicks:*:*:*:*:";
+
+    private static final long MINUTE = CounterResolution.MINUTE.interval();
+
+    private static final long HOUR = CounterResolution.HOUR.interval();
+
+    /**
+     * A day that's long over, so every bucket in it can be rolled up
+     */
+    private static final long DAY =
+        CounterResolution.DAY.round( System.currentTimeMillis() ) - 2 * CounterResolution.DAY.interval();
+
+    private Map<String, SortedMap<Long, Long>> rows;
+
+    private Map<String, String> watermarks;
+
+    private List<Collection<String>> reads;
+
+    private AggregateCounterRollups rollups;
+
+
+    @Before
+    public void setup() {
+        rows = new HashMap<>();
+        watermarks = new HashMap<>();
+        reads = new ArrayList<>();
+
+        final MapManager mapManager = mock( MapManager.class );
+        when( mapManager.getString( anyString() ) )
+            .thenAnswer( invocation -> watermarks.get( invocation.getArguments()[0] ) );
+        when( mapManager.getStrings( anyCollectionOf( String.class ) ) ).thenAnswer( invocation -> {
+            final Map<String, String> values = new HashMap<>();
+            for ( Object key : ( Collection<?> ) invocation.getArguments()[0] ) {
+                if ( watermarks.containsKey( key ) ) {
+                    values.put( ( String ) key, watermarks.get( key ) );
+                }
+            }
+            return values;
+        } );
+        doAnswer( invocation -> watermarks
+            .put( ( String ) invocation.getArguments()[0], ( String ) invocation.getArguments()[1] ) )
+            .when( mapManager ).putString( anyString(), anyString() );
+
+        final MapManagerFactory mapManagerFactory = mock( MapManagerFactory.class );
+        when( mapManagerFactory.createMapManager( any( MapScope.class ) ) ).thenReturn( mapManager );
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+
+        final Injector injector = mock( Injector.class );
+        when( injector.getInstance( MapManagerFactory.class ) ).thenReturn( mapManagerFactory );
+        when( injector.getInstance( MetricsFactory.class ) ).thenReturn( metricsFactory );
+
+        final CassandraService cass = mock( CassandraService.class );
+        when( cass.getLockManager() ).thenReturn( new NoOpLockManagerImpl() );
+
+        rollups = new InMemoryRollups( cass, injector );
+    }
+
+
+    @Test
+    public void rollupAlignsBucketsAtEveryResolution() throws Exception {
+        final SortedMap<Long, Long> minutes = row( VISITS, CounterResolution.MINUTE );
+        minutes.put( DAY, 1L );
+        minutes.put( DAY + 3 * MINUTE, 2L );
+        minutes.put( DAY + 7 * MINUTE, 4L );
+        minutes.put( DAY + 31 * MINUTE, 8L );
+        minutes.put( DAY + 7 * HOUR + 59 * MINUTE, 16L );
+
+        rollups.rollup( APPLICATION_ID, VISITS, DAY + 7 * HOUR + 59 * MINUTE );
+
+        assertEquals( counts( DAY, 3, DAY + 5 * MINUTE, 4, DAY + 30 * MINUTE, 8, DAY + 7 * HOUR + 55 * MINUTE, 16 ),
+            row( VISITS, CounterResolution.FIVE_MINUTES ) );
+        assertEquals( counts( DAY, 7, DAY + 30 * MINUTE, 8, DAY + 7 * HOUR + 30 * MINUTE, 16 ),
+            row( VISITS, CounterResolution.HALF_HOUR ) );
+        assertEquals( counts( DAY, 15, DAY + 7 * HOUR, 16 ), row( VISITS, CounterResolution.HOUR ) );
+        assertEquals( counts( DAY, 15, DAY + 6 * HOUR, 16 ), row( VISITS, CounterResolution.SIX_HOUR ) );
+        assertEquals( counts( DAY, 31 ), row( VISITS, CounterResolution.HALF_DAY ) );
+        assertEquals( counts( DAY, 31 ), row( VISITS, CounterResolution.DAY ) );
+
+        //every resolution that ends before now is rolled up past the counts
+        for ( CounterResolution resolution : Arrays.asList( CounterResolution.FIVE_MINUTES,
+            CounterResolution.HALF_HOUR, CounterResolution.HOUR, CounterResolution.SIX_HOUR,
+            CounterResolution.HALF_DAY, CounterResolution.DAY ) ) {
+
+            final long watermark = Long.parseLong( watermarks.get( rollupRow( VISITS, resolution ) ) );
+            assertTrue( resolution.name(), watermark > DAY + 7 * HOUR + 59 * MINUTE );
+            assertEquals( resolution.name(), resolution.round( watermark ), watermark );
+        }
+    }
+
+
+    @Test
+    public void rollupTwiceWritesTheSameBuckets() throws Exception {
+        row( VISITS, CounterResolution.MINUTE ).put( DAY + 3 * MINUTE, 2L );
+
+        rollups.rollup( APPLICATION_ID, VISITS, DAY + 3 * MINUTE );
+
+        //rolling up from the start again overwrites rather than adds
+        watermarks.clear();
+        rollups.rollup( APPLICATION_ID, VISITS, DAY + 3 * MINUTE );
+
+        assertEquals( counts( DAY, 2 ), row( VISITS, CounterResolution.HOUR ) );
+        assertEquals( counts( DAY, 2 ), row( VISITS, CounterResolution.DAY ) );
+    }
+
+
+    @Test
+    public void addCountsReadsRollupsUpToTheirWatermarks() {
+        row( VISITS, CounterResolution.HOUR ).putAll( counts( DAY, 10, DAY + HOUR, 20, DAY + 2 * HOUR, 999 ) );
+        watermarks.put( rollupRow( VISITS, CounterResolution.HOUR ), Long.toString( DAY + 2 * HOUR ) );
+
+        //the half hours before the hours' watermark are already counted in them
+        row( VISITS, CounterResolution.HALF_HOUR ).putAll( counts( DAY, 999, DAY + 2 * HOUR, 5 ) );
+        watermarks.put( rollupRow( VISITS, CounterResolution.HALF_HOUR ),
+            Long.toString( DAY + 2 * HOUR + 30 * MINUTE ) );
+        watermarks.put( rollupRow( VISITS, CounterResolution.FIVE_MINUTES ),
+            Long.toString( DAY + 2 * HOUR + 30 * MINUTE ) );
+
+        row( VISITS, CounterResolution.MINUTE ).putAll(
+            counts( DAY + 2 * HOUR + 10 * MINUTE, 999, DAY + 2 * HOUR + 40 * MINUTE, 7,
+                DAY + 3 * HOUR + 59 * MINUTE, 1 ) );
+
+        final SortedMap<Long, Long> visits = new TreeMap<>();
+        final Map<String, SortedMap<Long, Long>> counts = new HashMap<>();
+        counts.put( VISITS + CounterResolution.HOUR.name(), visits );
+
+        rollups.addCounts( null, APPLICATION_ID, counts, CounterResolution.HOUR, DAY, DAY + 3 * HOUR );
+
+        assertEquals( counts( DAY, 10, DAY + HOUR, 20, DAY + 2 * HOUR, 12, DAY + 3 * HOUR, 1 ), visits );
+    }
+
+
+    @Test
+    public void addCountsReadsEveryRowOfAResolutionAtOnce() {
+        row( VISITS, CounterResolution.HOUR ).put( DAY, 10L );
+        watermarks.put( rollupRow( VISITS, CounterResolution.HOUR ), Long.toString( DAY + HOUR ) );
+
+        row( VISITS, CounterResolution.MINUTE ).put( DAY + HOUR + MINUTE, 1L );
+        row( CLICKS, CounterResolution.MINUTE ).putAll( counts( DAY + MINUTE, 2, DAY + HOUR + MINUTE, 4 ) );
+
+        final SortedMap<Long, Long> visits = new TreeMap<>();
+        final SortedMap<Long, Long> clicks = new TreeMap<>();
+        final Map<String, SortedMap<Long, Long>> counts = new HashMap<>();
+        counts.put( VISITS + CounterResolution.HOUR.name(), visits );
+        counts.put( CLICKS + CounterResolution.HOUR.name(), clicks );
+
+        rollups.addCounts( null, APPLICATION_ID, counts, CounterResolution.HOUR, DAY, DAY + HOUR );
+
+        assertEquals( counts( DAY, 10, DAY + HOUR, 1 ), visits );
+        assertEquals( counts( DAY, 2, DAY + HOUR, 4 ), clicks );
+
+        //the hours of visits, then the minutes of both, the resolutions without a watermark aren't read
+        assertEquals( 2, reads.size() );
+        assertEquals( new HashSet<>( Arrays.asList( rollupRow( VISITS, CounterResolution.HOUR ) ) ),
+            new HashSet<>( reads.get( 0 ) ) );
+        assertEquals( new HashSet<>( Arrays.asList( rollupRow( VISITS, CounterResolution.MINUTE ),
+            rollupRow( CLICKS, CounterResolution.MINUTE ) ) ), new HashSet<>( reads.get( 1 ) ) );
+    }
+
+
+    @Test
+    public void addCountsIncludesTheFinishBucketOnly() {
+        row( VISITS, CounterResolution.MINUTE ).putAll(
+            counts( DAY - 1, 1, DAY, 2, DAY + 2 * MINUTE + 59999, 4, DAY + 3 * MINUTE, 8 ) );
+
+        final SortedMap<Long, Long> visits = new TreeMap<>();
+        final Map<String, SortedMap<Long, Long>> counts = new HashMap<>();
+        counts.put( VISITS + CounterResolution.MINUTE.name(), visits );
+
+        rollups.addCounts( null, APPLICATION_ID, counts, CounterResolution.MINUTE, DAY, DAY + 2 * MINUTE );
+
+        assertEquals( counts( DAY, 2, DAY + 2 * MINUTE, 4 ), visits );
+    }
+
+
+    @Test
+    public void addCountsSkipsAll() {
+        row( VISITS, CounterResolution.MINUTE ).put( DAY, 1L );
+
+        final SortedMap<Long, Long> visits = new TreeMap<>();
+        final Map<String, SortedMap<Long, Long>> counts = new HashMap<>();
+        counts.put( VISITS + CounterResolution.ALL.name(), visits );
+
+        rollups.addCounts( null, APPLICATION_ID, counts, CounterResolution.ALL, 0, 0 );
+
+        assertTrue( visits.isEmpty() );
+        assertTrue( reads.isEmpty() );
+    }
+
+
+    private SortedMap<Long, Long> row( final String base, final CounterResolution resolution ) {
+        return rows.computeIfAbsent( rollupRow( base, resolution ), row -> new TreeMap<>() );
+    }
+
+
+    private static String rollupRow( final String base, final CounterResolution resolution ) {
+        return AggregateCounterRollups.getRollupRow( base + resolution.name() );
+    }
+
+
+    private static SortedMap<Long, Long> counts( final long... bucketsAndCounts ) {
+        final SortedMap<Long, Long> counts = new TreeMap<>();
+
+        for ( int i = 0; i < bucketsAndCounts.length; i += 2 ) {
+            counts.put( bucketsAndCounts[i], bucketsAndCounts[i + 1] );
+        }
+
+        return counts;
+    }
+
+
+    /**
+     * Reads and writes the rows in memory
+     */
+    private class InMemoryRollups extends AggregateCounterRollups {
+
+        private InMemoryRollups( final CassandraService cass, final Injector injector ) {
+            super( cass, injector, false, 0, 0 );
+        }
+
+
+        @Override
+        Map<String, SortedMap<Long, Long>> getColumns( final Keyspace ko, final Collection<String> keys,
+                                                       final long start, final long end, final int count ) {
+            reads.add( new ArrayList<>( keys ) );
+
+            final Map<String, SortedMap<Long, Long>> columns = new HashMap<>();
+
+            for ( String key : keys ) {
+                final SortedMap<Long, Long> page = new TreeMap<>();
+
+                if ( end > start && rows.containsKey( key ) ) {
+                    for ( Map.Entry<Long, Long> column : rows.get( key ).subMap( start, end ).entrySet() ) {
+                        if ( page.size() < count ) {
+                            page.put( column.getKey(), column.getValue() );
+                        }
+                    }
+                }
+
+                columns.put( key, page );
+            }
+
+            return columns;
+        }
+
+
+        @Override
+        void putColumns( final Keyspace ko, final String rollupRow, final SortedMap<Long, Long> sums ) {
+            rows.computeIfAbsent( rollupRow, row -> new TreeMap<>() ).putAll( sums );
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cassandra;
+
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.usergrid.persistence.AggregateCounter;
+import org.apache.usergrid.persistence.index.query.CounterResolution;
+
+import me.prettyprint.hector.api.beans.HCounterColumn;
+import me.prettyprint.hector.api.mutation.Mutator;
+
+import static org.apache.usergrid.utils.ConversionUtils.string;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class CounterUtilsTest {
+
+    private static final UUID APPLICATION_ID = UUID.randomUUID();
+
+    private CounterUtils counterUtils;
+
+    private AggregateCounterRollups rollups;
+
+
+    @Before
+    public void setup() {
+        rollups = mock( AggregateCounterRollups.class );
+        when( rollups.touch( eq( APPLICATION_ID ), anyString(), anyLong() ) )
+            .thenAnswer( invocation -> AggregateCounterRollups.getRollupRow( ( String ) invocation.getArguments()[1] ) );
+
+        counterUtils = new CounterUtils();
+        counterUtils.setCounterType( "o" );
+        counterUtils.setRollups( rollups );
+    }
+
+
+    @Test
+    public void recentIncrementWrittenByMinute() {
+        final long now = System.currentTimeMillis();
+        when( rollups.isRollup( now ) ).thenReturn( true );
+
+        final Set<String> rows = increment( now );
+
+        assertTrue( rows.contains( "visits:*:*:*:*:ALL" ) );
+        assertTrue( rows.contains( "visits:*:*:*:*:MINUTE:ROLLUP" ) );
+
+        for ( String row : rows ) {
+            assertTrue( row, row.endsWith( ":ALL" ) || row.endsWith( ":MINUTE:ROLLUP" ) );
+        }
+
+        verify( rollups, atLeastOnce() )
+            .touch( APPLICATION_ID, "visits:*:*:*:*:MINUTE", CounterResolution.MINUTE.round( now ) );
+    }
+
+
+    @Test
+    public void lateIncrementWrittenAtEveryResolution() {
+        final long then = System.currentTimeMillis() - 24 * 60 * 60 * 1000;
+        when( rollups.isRollup( then ) ).thenReturn( false );
+
+        final Set<String> rows = increment( then );
+
+        for ( CounterResolution resolution : CounterResolution.values() ) {
+            assertTrue( rows.contains( "visits:*:*:*:*:" + resolution.name() ) );
+        }
+
+        verify( rollups, never() ).touch( any( UUID.class ), anyString(), anyLong() );
+    }
+
+
+    @Test
+    public void paddedCountersCoverEveryBucketFromStartToFinish() {
+        final long minute = CounterResolution.MINUTE.interval();
+        final long start = CounterResolution.MINUTE.round( System.currentTimeMillis() );
+
+        final SortedMap<Long, Long> counts = new TreeMap<>();
+        counts.put( start + minute, 5L );
+
+        final List<AggregateCounter> counters =
+            CounterUtils.toCounters( counts, CounterResolution.MINUTE, start, start + 3 * minute, true );
+
+        assertEquals( 4, counters.size() );
+
+        for ( int i = 0; i < counters.size(); i++ ) {
+            assertEquals( start + i * minute, counters.get( i ).getTimestamp() );
+            assertEquals( i == 1 ? 5 : 0, counters.get( i ).getValue() );
+        }
+    }
+
+
+    @Test
+    public void unpaddedCountersOnlyHaveCounts() {
+        final long hour = CounterResolution.HOUR.interval();
+        final long start = CounterResolution.HOUR.round( System.currentTimeMillis() );
+
+        final SortedMap<Long, Long> counts = new TreeMap<>();
+        counts.put( start + 2 * hour, 5L );
+
+        final List<AggregateCounter> counters =
+            CounterUtils.toCounters( counts, CounterResolution.HOUR, start, start + 3 * hour, false );
+
+        assertEquals( 1, counters.size() );
+        assertEquals( start + 2 * hour, counters.get( 0 ).getTimestamp() );
+        assertEquals( 5, counters.get( 0 ).getValue() );
+
+        //there are no buckets to pad at ALL
+        assertTrue( CounterUtils.toCounters( new TreeMap<>(), CounterResolution.ALL, 0, 0, true ).isEmpty() );
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private Set<String> increment( final long timestamp ) {
+        final Mutator<ByteBuffer> m = mock( Mutator.class );
+
+        counterUtils.batchIncrementAggregateCounters( m, APPLICATION_ID, null, null, null, null, "visits", 1,
+            timestamp, timestamp * 1000 );
+
+        final ArgumentCaptor<ByteBuffer> keys = ArgumentCaptor.forClass( ByteBuffer.class );
+        verify( m, atLeastOnce() ).addCounter( keys.capture(), eq( "Application_Aggregate_Counters" ),
+            any( HCounterColumn.class ) );
+
+        final Set<String> rows = new HashSet<>();
+
+        for ( ByteBuffer key : keys.getAllValues() ) {
+            rows.add( string( key.duplicate() ) );
+        }
+
+        assertEquals( keys.getAllValues().size(), rows.size() );
+
+        return rows;
+    }
+}
@@ -28,7 +28,6 @@ import com.google.inject.Inject;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.MutationBatch;
 import com.netflix.astyanax.Serializer;
-import com.netflix.astyanax.connectionpool.OperationResult;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.connectionpool.exceptions.NotFoundException;
 import com.netflix.astyanax.model.Column;
@@ -95,14 +94,18 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
     private final Keyspace keyspace;
 
+    private final MutationBatchCoalescer mutationBatchCoalescer;
+
     private final ObjectMapper MAPPER = new ObjectMapper();
 
 
     //------------------------------------------------------------------------------------------
 
     @Inject
-    public ScopedCacheSerializationImpl( final Keyspace keyspace ) {
+    public ScopedCacheSerializationImpl( final Keyspace keyspace,
+                                         final MutationBatchCoalescer mutationBatchCoalescer ) {
         this.keyspace = keyspace;
+        this.mutationBatchCoalescer = mutationBatchCoalescer;
         //MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         MAPPER.enableDefaultTyping();
         MAPPER.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
@@ -246,7 +249,7 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
         batch.withRow(SCOPED_CACHE, keyRowKey).delete();
 
-        final OperationResult<Void> result = executeBatch(batch);
+        executeBatch(batch);
 
         logger.debug("Invalidated scope {}", scope.getApplication().getUuid());
     }
@@ -265,9 +268,9 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
     }
 
 
-    private OperationResult<Void> executeBatch(MutationBatch batch) {
+    private void executeBatch(MutationBatch batch) {
         try {
-            return batch.execute();
+            mutationBatchCoalescer.execute( batch );
 
         } catch (ConnectionException e) {
             throw new RuntimeException("Unable to connect to cassandra", e);
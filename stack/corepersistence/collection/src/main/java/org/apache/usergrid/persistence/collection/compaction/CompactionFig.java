@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.compaction;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration of the {@link CompactionService}
+ */
+@FigSingleton
+public interface CompactionFig extends GuicyFig {
+
+    /**
+     * How long an entity waits for more writes before its versions are compacted.  Unique values never wait
+     */
+    String COMPACTION_DELAY = "collection.compaction.delay";
+
+    /**
+     * The most entities that can wait for version compaction.  Past this, entities are compacted without waiting
+     */
+    String COMPACTION_BACKLOG_MAX = "collection.compaction.backlog.max";
+
+    /**
+     * The number of entities compacted in a single task
+     */
+    String COMPACTION_BATCH_SIZE = "collection.compaction.batch.size";
+
+    /**
+     * Whether to delete the versions older than the committed version as well
+     */
+    String COMPACTION_VERSIONS = "collection.compaction.versions";
+
+
+    @Default( "1000" )
+    @Key( COMPACTION_DELAY )
+    long getDelay();
+
+    @Default( "100000" )
+    @Key( COMPACTION_BACKLOG_MAX )
+    int getMaxBacklog();
+
+    @Default( "100" )
+    @Key( COMPACTION_BATCH_SIZE )
+    int getBatchSize();
+
+    @Default( "false" )
+    @Key( COMPACTION_VERSIONS )
+    boolean isVersionCompactionEnabled();
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.compaction;
+
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
+
+
+/**
+ * Cleans up after committed writes in the background.  Unique values are released after every write.  Version
+ * compaction of writes of the same entity that arrive close together is coalesced, so only the versions older than the
+ * newest one are removed, once for all of them.
+ */
+public interface CompactionService {
+
+    /**
+     * Remove the unique values older than the committed version in the event, and optionally schedule the removal of
+     * the older versions.  An older version of the same entity pending version compaction is replaced
+     */
+    void compact( CollectionIoEvent<MvccEntity> committed );
+
+    /**
+     * Get the number of entities waiting for version compaction
+     */
+    int getBacklog();
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.compaction.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.MvccLogEntry;
+import org.apache.usergrid.persistence.collection.compaction.CompactionFig;
+import org.apache.usergrid.persistence.collection.compaction.CompactionService;
+import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
+import org.apache.usergrid.persistence.collection.mvcc.stage.delete.UniqueCleanup;
+import org.apache.usergrid.persistence.collection.mvcc.stage.delete.VersionCompact;
+import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.collection.serialization.impl.MinMaxLogEntryIterator;
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.metrics.ObservableTimer;
+import org.apache.usergrid.persistence.core.rx.ObservableIterator;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.fasterxml.uuid.UUIDComparator;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import rx.Observable;
+
+
+/**
+ * Removes the unique values of older versions as soon as each write commits, so a value released by a write can be
+ * claimed again right away.  When version compaction is enabled, the newest committed version of each entity is kept
+ * for {@link CompactionFig#getDelay()}, then the older versions of the entities that are due are removed in batches on
+ * the background scheduler.  An entity that keeps being written has its versions compacted at most once per delay,
+ * rather than waiting for the writes to stop.
+ */
+@Singleton
+public class CompactionServiceImpl implements CompactionService {
+
+    private static final Logger logger = LoggerFactory.getLogger( CompactionServiceImpl.class );
+
+    private final ConcurrentHashMap<EntityKey, Pending> backlog = new ConcurrentHashMap<>();
+
+    private final CompactionFig compactionFig;
+    private final SerializationFig serializationFig;
+    private final UniqueCleanup uniqueCleanup;
+    private final VersionCompact versionCompact;
+    private final MvccLogEntrySerializationStrategy logEntrySerializationStrategy;
+    private final RxTaskScheduler rxTaskScheduler;
+
+    private final Meter coalescedMeter;
+    private final Meter overflowMeter;
+    private final Timer compactTimer;
+
+
+    @Inject
+    public CompactionServiceImpl( final CompactionFig compactionFig, final SerializationFig serializationFig,
+                                  final UniqueCleanup uniqueCleanup, final VersionCompact versionCompact,
+                                  final MvccLogEntrySerializationStrategy logEntrySerializationStrategy,
+                                  final MetricsFactory metricsFactory,
+                                  @BackgroundScheduler final RxTaskScheduler rxTaskScheduler ) {
+        this.compactionFig = compactionFig;
+        this.serializationFig = serializationFig;
+        this.uniqueCleanup = uniqueCleanup;
+        this.versionCompact = versionCompact;
+        this.logEntrySerializationStrategy = logEntrySerializationStrategy;
+        this.rxTaskScheduler = rxTaskScheduler;
+
+        this.coalescedMeter = metricsFactory.getMeter( CompactionServiceImpl.class, "compaction.coalesced" );
+        this.overflowMeter = metricsFactory.getMeter( CompactionServiceImpl.class, "compaction.overflow" );
+        this.compactTimer = metricsFactory.getTimer( CompactionServiceImpl.class, "compaction.batch" );
+
+        metricsFactory.addGauge( CompactionServiceImpl.class, "compaction.backlog",
+            ( Gauge<Integer> ) () -> backlog.size() );
+
+        final long delay = compactionFig.getDelay();
+
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor( r -> {
+            final Thread thread = new Thread( r, "Usergrid-Compaction-Timer" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        timer.scheduleWithFixedDelay( () -> {
+            //an exception would cancel the timer, so never let one escape
+            try {
+                flush( System.currentTimeMillis() - delay );
+            }
+            catch ( Throwable t ) {
+                logger.error( "Unable to flush the compaction backlog", t );
+            }
+        }, delay, delay, TimeUnit.MILLISECONDS );
+    }
+
+
+    @Override
+    public void compact( final CollectionIoEvent<MvccEntity> committed ) {
+
+        //fire this in the background so we don't block writes
+        Observable.just( committed ).compose( uniqueCleanup ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() )
+                  .doOnError( t -> logger.error( "Unable to remove unique values", t ) )
+                  .onErrorResumeNext( Observable.empty() ).subscribe();
+
+        if ( !compactionFig.isVersionCompactionEnabled() ) {
+            return;
+        }
+
+        final EntityKey key = new EntityKey( committed.getEntityCollection(), committed.getEvent().getId() );
+
+        //we're too far behind to wait, compact it now.  The background scheduler pushes back when it's saturated
+        if ( backlog.size() >= compactionFig.getMaxBacklog() && !backlog.containsKey( key ) ) {
+            overflowMeter.mark();
+            run( Collections.singletonList( committed ) );
+            return;
+        }
+
+        backlog.merge( key, new Pending( committed, System.currentTimeMillis() ), ( existing, added ) -> {
+            coalescedMeter.mark();
+            return existing.replaceWith( added );
+        } );
+    }
+
+
+    @Override
+    public int getBacklog() {
+        return backlog.size();
+    }
+
+
+    /**
+     * Compact the versions of every entity queued at or before the cutoff time
+     */
+    void flush( final long cutoff ) {
+
+        final List<CollectionIoEvent<MvccEntity>> ready = new ArrayList<>();
+
+        for ( final Map.Entry<EntityKey, Pending> entry : backlog.entrySet() ) {
+            final Pending pending = entry.getValue();
+
+            //if a newer version replaced this one since we read it, the remove fails and it's compacted next time
+            if ( pending.queued <= cutoff && backlog.remove( entry.getKey(), pending ) ) {
+                ready.add( pending.committed );
+            }
+        }
+
+        if ( ready.isEmpty() ) {
+            return;
+        }
+
+        logger.debug( "Compacting {} entities", ready.size() );
+
+        run( ready );
+    }
+
+
+    /**
+     * Compact the versions of the entities in batches, each batch is a single task on the background scheduler
+     */
+    private void run( final List<CollectionIoEvent<MvccEntity>> ready ) {
+
+        Observable.from( ready ).buffer( compactionFig.getBatchSize() ).flatMap(
+            batch -> ObservableTimer.time( compactBatch( batch ), compactTimer )
+                                    .subscribeOn( rxTaskScheduler.getAsyncIOScheduler() )
+                                    .doOnError( t -> logger.error( "Unable to compact entities", t ) )
+                                    .onErrorResumeNext( Observable.empty() ) ).subscribe();
+    }
+
+
+    private Observable<CollectionIoEvent<MvccEntity>> compactBatch(
+        final List<CollectionIoEvent<MvccEntity>> batch ) {
+
+        return Observable.from( batch )
+                         .flatMap( committed -> compactVersions( committed ).lastOrDefault( null )
+                                                                            .map( last -> committed ) );
+    }
+
+
+    /**
+     * Remove every version in the log that is older than the committed version
+     */
+    private Observable<CollectionIoEvent<MvccLogEntry>> compactVersions(
+        final CollectionIoEvent<MvccEntity> committed ) {
+
+        final ApplicationScope applicationScope = committed.getEntityCollection();
+        final Id entityId = committed.getEvent().getId();
+        final UUID version = committed.getEvent().getVersion();
+
+        return Observable.create( new ObservableIterator<MvccLogEntry>( "Compaction log entries" ) {
+            @Override
+            protected Iterator<MvccLogEntry> getIterator() {
+                return new MinMaxLogEntryIterator( logEntrySerializationStrategy, applicationScope, entityId,
+                    serializationFig.getBufferSize() );
+            }
+        } ).filter( logEntry -> UUIDComparator.staticCompare( logEntry.getVersion(), version ) < 0 )
+                         .map( logEntry -> new CollectionIoEvent<>( applicationScope, logEntry ) )
+                         .compose( versionCompact );
+    }
+
+
+    /**
+     * The newest committed version of an entity, and when the entity was first queued
+     */
+    private static final class Pending {
+
+        private final CollectionIoEvent<MvccEntity> committed;
+        private final long queued;
+
+
+        private Pending( final CollectionIoEvent<MvccEntity> committed, final long queued ) {
+            this.committed = committed;
+            this.queued = queued;
+        }
+
+
+        /**
+         * Keep the newer version, but the time this entity was first queued so it can't be starved
+         */
+        private Pending replaceWith( final Pending added ) {
+            final UUID version = committed.getEvent().getVersion();
+            final UUID addedVersion = added.committed.getEvent().getVersion();
+
+            if ( UUIDComparator.staticCompare( addedVersion, version ) > 0 ) {
+                return new Pending( added.committed, queued );
+            }
+
+            return this;
+        }
+    }
+
+
+    private static final class EntityKey {
+
+        private final ApplicationScope applicationScope;
+        private final Id entityId;
+
+
+        private EntityKey( final ApplicationScope applicationScope, final Id entityId ) {
+            this.applicationScope = applicationScope;
+            this.entityId = entityId;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !( o instanceof EntityKey ) ) {
+                return false;
+            }
+
+            final EntityKey that = ( EntityKey ) o;
+
+            return applicationScope.equals( that.applicationScope ) && entityId.equals( that.entityId );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return 31 * applicationScope.hashCode() + entityId.hashCode();
+        }
+    }
+}
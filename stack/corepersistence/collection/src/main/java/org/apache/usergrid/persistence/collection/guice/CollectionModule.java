@@ -24,6 +24,9 @@ import org.safehaus.guicyfig.GuicyFigModule;
 
 import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
 import org.apache.usergrid.persistence.collection.cache.EntityCacheFig;
+import org.apache.usergrid.persistence.collection.compaction.CompactionFig;
+import org.apache.usergrid.persistence.collection.compaction.CompactionService;
+import org.apache.usergrid.persistence.collection.compaction.impl.CompactionServiceImpl;
 import org.apache.usergrid.persistence.collection.impl.EntityCollectionManagerFactoryImpl;
 import org.apache.usergrid.persistence.collection.mvcc.changelog.ChangeLogGenerator;
 import org.apache.usergrid.persistence.collection.mvcc.changelog.ChangeLogGeneratorImpl;
@@ -33,6 +36,7 @@ import org.apache.usergrid.persistence.collection.serialization.SerializationFig
 import org.apache.usergrid.persistence.collection.serialization.impl.SerializationModule;
 import org.apache.usergrid.persistence.collection.service.impl.ServiceModule;
 import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.rx.RxTaskSchedulerImpl;
 
@@ -68,6 +72,9 @@ public abstract class CollectionModule extends AbstractModule {
 
         bind( ChangeLogGenerator.class).to( ChangeLogGeneratorImpl.class);
 
+        install( new GuicyFigModule( CompactionFig.class ) );
+        bind( CompactionService.class ).to( CompactionServiceImpl.class );
+
         configureMigrationProvider();
 
     }
@@ -79,14 +86,17 @@ public abstract class CollectionModule extends AbstractModule {
     @Inject
     @CollectionExecutorScheduler
     @Singleton
-    public RxTaskScheduler getRxTaskScheduler( final CollectionSchedulerFig collectionSchedulerFig ){
+    public RxTaskScheduler getRxTaskScheduler( final CollectionSchedulerFig collectionSchedulerFig,
+                                               final MetricsFactory metricsFactory ){
 
         final String poolName = collectionSchedulerFig.getIoSchedulerName();
         final int threadCount = collectionSchedulerFig.getMaxIoThreads();
+        final TaskExecutorFactory.RejectionAction rejectionAction =
+            TaskExecutorFactory.RejectionAction.valueOf( collectionSchedulerFig.getRejectionAction() );
 
 
         final ThreadPoolExecutor executor = TaskExecutorFactory.createTaskExecutor( poolName, threadCount, 0,
-            TaskExecutorFactory.RejectionAction.CALLERRUNS );
+            rejectionAction, metricsFactory );
 
         final RxTaskScheduler taskScheduler = new RxTaskSchedulerImpl(executor  );
 
@@ -25,6 +25,7 @@ import java.util.concurrent.ExecutionException;
 
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
+import org.apache.usergrid.persistence.collection.compaction.CompactionService;
 import org.apache.usergrid.persistence.collection.cache.EntityCacheFig;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkCommit;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkStart;
@@ -40,6 +41,7 @@ import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerial
 import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValueSerializationStrategy;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
@@ -76,7 +78,9 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
     private final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy;
     private final Keyspace keyspace;
     private final MetricsFactory metricsFactory;
+    private final ApplicationMetrics applicationMetrics;
     private final RxTaskScheduler rxTaskScheduler;
+    private final CompactionService compactionService;
 
     private LoadingCache<ApplicationScope, EntityCollectionManager> ecmCache =
         CacheBuilder.newBuilder().maximumSize( 1000 )
@@ -88,8 +92,8 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
                                 writeOptimisticVerify, writeCommit, rollback, markStart, markCommit,  uniqueCleanup, versionCompact,
                                 entitySerializationStrategy, uniqueValueSerializationStrategy,
                                 mvccLogEntrySerializationStrategy, keyspace,
-                                metricsFactory, serializationFig,
-                                rxTaskScheduler, scope );
+                                metricsFactory, applicationMetrics, serializationFig,
+                                rxTaskScheduler, compactionService, scope );
 
                             return target;
                         }
@@ -107,7 +111,10 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
                                                final UniqueValueSerializationStrategy uniqueValueSerializationStrategy,
                                                final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy,
                                                final Keyspace keyspace, final EntityCacheFig entityCacheFig,
-                                               final MetricsFactory metricsFactory, @CollectionExecutorScheduler  final RxTaskScheduler rxTaskScheduler ) {
+                                               final MetricsFactory metricsFactory,
+                                               final ApplicationMetrics applicationMetrics,
+                                               @CollectionExecutorScheduler  final RxTaskScheduler rxTaskScheduler,
+                                               final CompactionService compactionService ) {
 
         this.writeStart = writeStart;
         this.writeVerifyUnique = writeVerifyUnique;
@@ -124,7 +131,9 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
         this.mvccLogEntrySerializationStrategy = mvccLogEntrySerializationStrategy;
         this.keyspace = keyspace;
         this.metricsFactory = metricsFactory;
+        this.applicationMetrics = applicationMetrics;
         this.rxTaskScheduler = rxTaskScheduler;
+        this.compactionService = compactionService;
     }
     @Override
     public EntityCollectionManager createCollectionManager(ApplicationScope applicationScope) {
@@ -35,6 +35,7 @@ import org.apache.usergrid.persistence.collection.FieldSet;
 import org.apache.usergrid.persistence.collection.MvccEntity;
 import org.apache.usergrid.persistence.collection.MvccLogEntry;
 import org.apache.usergrid.persistence.collection.VersionSet;
+import org.apache.usergrid.persistence.collection.compaction.CompactionService;
 import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkCommit;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkStart;
@@ -54,6 +55,7 @@ import org.apache.usergrid.persistence.collection.serialization.UniqueValueSet;
 import org.apache.usergrid.persistence.collection.serialization.impl.MinMaxLogEntryIterator;
 import org.apache.usergrid.persistence.collection.serialization.impl.MutableFieldSet;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.ObservableTimer;
 import org.apache.usergrid.persistence.core.rx.ObservableIterator;
 import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
@@ -120,8 +122,11 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
     private final Timer loadTimer;
     private final Timer getLatestTimer;
 
+    private final ApplicationMetrics applicationMetrics;
+
     private final ApplicationScope applicationScope;
     private final RxTaskScheduler rxTaskScheduler;
+    private final CompactionService compactionService;
 
 
     @Inject
@@ -134,7 +139,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
                                         final UniqueValueSerializationStrategy uniqueValueSerializationStrategy,
                                         final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy,
                                         final Keyspace keyspace, final MetricsFactory metricsFactory,
+                                        final ApplicationMetrics applicationMetrics,
                                         final SerializationFig serializationFig, final RxTaskScheduler rxTaskScheduler,
+                                        final CompactionService compactionService,
                                         @Assisted final ApplicationScope applicationScope ) {
         this.uniqueValueSerializationStrategy = uniqueValueSerializationStrategy;
         this.entitySerializationStrategy = entitySerializationStrategy;
@@ -142,6 +149,7 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         this.versionCompact = versionCompact;
         this.serializationFig = serializationFig;
         this.rxTaskScheduler = rxTaskScheduler;
+        this.compactionService = compactionService;
 
         ValidationUtils.validateApplicationScope( applicationScope );
 
@@ -159,6 +167,7 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
 
         this.applicationScope = applicationScope;
+        this.applicationMetrics = applicationMetrics;
         this.mvccLogEntrySerializationStrategy = mvccLogEntrySerializationStrategy;
         this.writeTimer = metricsFactory.getTimer(EntityCollectionManagerImpl.class, "base.write");
         this.deleteTimer = metricsFactory.getTimer(EntityCollectionManagerImpl.class, "base.delete");
@@ -188,15 +197,16 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
         final Observable<Entity> write = observable.map( writeCommit )
                                                    .map(ioEvent -> {
-                //fire this in the background so we don't block writes
-                Observable.just( ioEvent ).compose( uniqueCleanup ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() ).subscribe();
+                //clean up in the background so we don't block writes, version compaction of repeated writes is coalesced
+                compactionService.compact( ioEvent );
                 return ioEvent;
             }
          )
                                                                               //now extract the ioEvent we need to return and update the version
                                                                               .map( ioEvent -> ioEvent.getEvent().getEntity().get() );
 
-        return ObservableTimer.time( write, writeTimer );
+        return applicationMetrics.time( ObservableTimer.time( write, writeTimer ),
+            applicationScope.getApplication().getUuid(), ApplicationMetrics.ENTITY_WRITE );
     }
 
 
@@ -261,7 +271,8 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         } );
 
 
-        return ObservableTimer.time( entitySetObservable, loadTimer );
+        return applicationMetrics.time( ObservableTimer.time( entitySetObservable, loadTimer ),
+            applicationScope.getApplication().getUuid(), ApplicationMetrics.ENTITY_LOAD );
     }
 
 
@@ -35,6 +35,7 @@ import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySeri
 import org.apache.usergrid.persistence.collection.serialization.UniqueValue;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValueSerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.impl.UniqueValueImpl;
+import org.apache.usergrid.persistence.core.astyanax.MutationBatchCoalescer;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.util.ValidationUtils;
 import org.apache.usergrid.persistence.model.entity.Entity;
@@ -67,19 +68,24 @@ public class WriteCommit implements Func1<CollectionIoEvent<MvccEntity>, Collect
 
     private final MvccEntitySerializationStrategy entityStrat;
 
+    private final MutationBatchCoalescer mutationBatchCoalescer;
+
 
     @Inject
     public WriteCommit( final MvccLogEntrySerializationStrategy logStrat,
                         final MvccEntitySerializationStrategy entryStrat,
-                        final UniqueValueSerializationStrategy uniqueValueStrat) {
+                        final UniqueValueSerializationStrategy uniqueValueStrat,
+                        final MutationBatchCoalescer mutationBatchCoalescer ) {
 
         Preconditions.checkNotNull( logStrat, "MvccLogEntrySerializationStrategy is required" );
         Preconditions.checkNotNull( entryStrat, "MvccEntitySerializationStrategy is required" );
         Preconditions.checkNotNull( uniqueValueStrat, "UniqueValueSerializationStrategy is required");
+        Preconditions.checkNotNull( mutationBatchCoalescer, "MutationBatchCoalescer is required" );
 
         this.logEntryStrat = logStrat;
         this.entityStrat = entryStrat;
         this.uniqueValueStrat = uniqueValueStrat;
+        this.mutationBatchCoalescer = mutationBatchCoalescer;
     }
 
 
@@ -126,7 +132,7 @@ public class WriteCommit implements Func1<CollectionIoEvent<MvccEntity>, Collect
         }
 
         try {
-            logMutation.execute();
+            mutationBatchCoalescer.execute( logMutation );
         }
         catch ( ConnectionException e ) {
             LOG.error( "Failed to execute write asynchronously ", e );
@@ -14,6 +14,7 @@ import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImp
 import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccLogEntryImpl;
 import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
 import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
+import org.apache.usergrid.persistence.core.astyanax.MutationBatchCoalescer;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
@@ -39,6 +40,7 @@ public class WriteStart implements Func1<CollectionIoEvent<Entity>, CollectionIo
     private static final Logger LOG = LoggerFactory.getLogger( WriteStart.class );
 
     private final MvccLogEntrySerializationStrategy logStrategy;
+    private final MutationBatchCoalescer mutationBatchCoalescer;
 
 
 
@@ -47,8 +49,10 @@ public class WriteStart implements Func1<CollectionIoEvent<Entity>, CollectionIo
      */
 
     @Inject
-    public WriteStart ( final MvccLogEntrySerializationStrategy logStrategy) {
+    public WriteStart ( final MvccLogEntrySerializationStrategy logStrategy,
+                        final MutationBatchCoalescer mutationBatchCoalescer ) {
         this.logStrategy = logStrategy;
+        this.mutationBatchCoalescer = mutationBatchCoalescer;
 
     }
 
@@ -73,7 +77,7 @@ public class WriteStart implements Func1<CollectionIoEvent<Entity>, CollectionIo
             final MvccEntityImpl nextStage = new MvccEntityImpl( entityId, newVersion, MvccEntity.Status.COMPLETE, entity );
             if(ioEvent.getEvent().hasVersion()) {
                 try {
-                    write.execute();
+                    mutationBatchCoalescer.execute( write );
                 } catch (ConnectionException e) {
                     LOG.error("Failed to execute write ", e);
                     throw new WriteStartException(nextStage, applicationScope,
@@ -42,6 +42,11 @@ public interface CollectionSchedulerFig extends GuicyFig {
      */
     String COLLECTION_SCHEDULER_NAME = "scheduler.collection.poolName";
 
+    /**
+     * What to do with a task when all the threads are busy, ABORT or CALLERRUNS
+     */
+    String COLLECTION_SCHEDULER_REJECTION = "scheduler.collection.rejectionAction";
+
 
     @Default( "20" )
     @Key( COLLECTION_SCHEDULER_THREADS )
@@ -50,4 +55,8 @@ public interface CollectionSchedulerFig extends GuicyFig {
     @Default( "Usergrid-Collection-Pool" )
     @Key( COLLECTION_SCHEDULER_NAME )
     String getIoSchedulerName();
+
+    @Default( "CALLERRUNS" )
+    @Key( COLLECTION_SCHEDULER_REJECTION )
+    String getRejectionAction();
 }
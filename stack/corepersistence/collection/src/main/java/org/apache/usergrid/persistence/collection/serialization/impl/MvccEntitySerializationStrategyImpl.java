@@ -46,6 +46,7 @@ import org.apache.usergrid.persistence.core.astyanax.ColumnParser;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
 import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
@@ -81,15 +82,18 @@ public abstract class MvccEntitySerializationStrategyImpl implements MvccEntityS
     protected final Keyspace keyspace;
     protected final SerializationFig serializationFig;
     protected final CassandraFig cassandraFig;
+    protected final RxTaskScheduler rxTaskScheduler;
     private final MultiTenantColumnFamily<ScopedRowKey<CollectionPrefixedKey<Id>>, UUID> columnFamily;
 
 
     @Inject
     public MvccEntitySerializationStrategyImpl( final Keyspace keyspace, final SerializationFig serializationFig,
-                                                final CassandraFig cassandraFig ) {
+                                                final CassandraFig cassandraFig,
+                                                final RxTaskScheduler rxTaskScheduler ) {
         this.keyspace = keyspace;
         this.serializationFig = serializationFig;
         this.cassandraFig = cassandraFig;
+        this.rxTaskScheduler = rxTaskScheduler;
          this.columnFamily = getColumnFamily();
     }
 
@@ -169,9 +173,9 @@ public abstract class MvccEntitySerializationStrategyImpl implements MvccEntityS
         if(numberRequests == 1){
             scheduler = Schedulers.immediate();
         }
-        //if it's more than 1 request, run them on the I/O scheduler
+        //if it's more than 1 request, run them on the bounded collection scheduler
         else{
-            scheduler = Schedulers.io();
+            scheduler = rxTaskScheduler.getAsyncIOScheduler();
         }
 
 
@@ -29,6 +29,7 @@ import org.apache.usergrid.persistence.collection.exception.CollectionRuntimeExc
 import org.apache.usergrid.persistence.collection.exception.DataCorruptionException;
 import org.apache.usergrid.persistence.collection.exception.EntityTooLargeException;
 import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.collection.scheduler.CollectionExecutorScheduler;
 import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
 import org.apache.usergrid.persistence.core.astyanax.CassandraFig;
@@ -38,9 +39,11 @@ import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
 import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
 import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.core.trace.Tracer;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.util.EntityUtils;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
@@ -90,14 +93,17 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
     protected final Keyspace keyspace;
     protected final SerializationFig serializationFig;
     protected final CassandraFig cassandraFig;
+    protected final RxTaskScheduler rxTaskScheduler;
 
 
     @Inject
     public MvccEntitySerializationStrategyV3Impl( final Keyspace keyspace, final SerializationFig serializationFig,
-                                                  final CassandraFig cassandraFig, final MetricsFactory metricsFactory ) {
+                                                  final CassandraFig cassandraFig, final MetricsFactory metricsFactory,
+                                                  @CollectionExecutorScheduler final RxTaskScheduler rxTaskScheduler ) {
         this.keyspace = keyspace;
         this.serializationFig = serializationFig;
         this.cassandraFig = cassandraFig;
+        this.rxTaskScheduler = rxTaskScheduler;
         this.entitySerializer = new EntitySerializer( serializationFig, metricsFactory );
     }
 
@@ -138,6 +144,8 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
         }
 
 
+        final long traceStart = Tracer.start();
+
         final Id applicationId = applicationScope.getApplication();
 
         final List<ScopedRowKey<Id>> rowKeys = new ArrayList<>( entityIds.size() );
@@ -173,9 +181,9 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
         if ( numberRequests == 1 ) {
             scheduler = Schedulers.immediate();
         }
-        //if it's more than 1 request, run them on the I/O scheduler
+        //if it's more than 1 request, run them on the bounded collection scheduler
         else {
-            scheduler = Schedulers.io();
+            scheduler = rxTaskScheduler.getAsyncIOScheduler();
         }
 
 
@@ -189,6 +197,8 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
                 return Observable.just( listObservable ).map( scopedRowKeys -> {
 
 
+                    final long readStart = Tracer.start();
+
                     try {
                         return keyspace.prepareQuery( CF_ENTITY_DATA ).getKeySlice( scopedRowKeys )
                             .withColumnSlice( COL_VALUE ).execute().getResult();
@@ -197,6 +207,9 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
                         throw new CollectionRuntimeException( null, applicationScope,
                             "An error occurred connecting to cassandra", e );
                     }
+                    finally {
+                        Tracer.end( "entity.read", readStart );
+                    }
                 } ).subscribeOn( scheduler );
             }, 10 ).collect( () -> new EntitySetImpl( entityIds.size() ), ( ( entitySet, rows ) -> {
                 final Iterator<Row<ScopedRowKey<Id>, Boolean>> latestEntityColumns = rows.iterator();
@@ -222,7 +235,7 @@ public class MvccEntitySerializationStrategyV3Impl implements MvccEntitySerializ
                 }
                } ) ).toBlocking().last();
 
-
+        Tracer.end( "entity.load", traceStart );
 
         return entitySetResults;
     }
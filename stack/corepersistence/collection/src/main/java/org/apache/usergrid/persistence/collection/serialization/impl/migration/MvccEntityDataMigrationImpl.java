@@ -37,12 +37,14 @@ import org.apache.usergrid.persistence.collection.serialization.UniqueValue;
 import org.apache.usergrid.persistence.collection.serialization.UniqueValueSerializationStrategy;
 import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
 import org.apache.usergrid.persistence.collection.serialization.impl.UniqueValueImpl;
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
 import org.apache.usergrid.persistence.core.migration.data.DataMigration;
 import org.apache.usergrid.persistence.core.migration.data.DataMigrationException;
 import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
 import org.apache.usergrid.persistence.core.migration.data.MigrationRelationship;
 import org.apache.usergrid.persistence.core.migration.data.ProgressObserver;
 import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
@@ -58,7 +60,6 @@ import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 
 import rx.Observable;
 import rx.Subscriber;
-import rx.schedulers.Schedulers;
 
 
 /**
@@ -76,6 +77,7 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
     private final UniqueValueSerializationStrategy uniqueValueSerializationStrategy;
     private final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy;
     private final MigrationDataProvider<EntityIdScope> migrationDataProvider;
+    private final RxTaskScheduler rxTaskScheduler;
 
 
     @Inject
@@ -84,13 +86,15 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
                                         final MvccEntitySerializationStrategyV3Impl mvccEntitySerializationStrategyV3,
                                         final UniqueValueSerializationStrategy uniqueValueSerializationStrategy,
                                         final MvccLogEntrySerializationStrategy mvccLogEntrySerializationStrategy,
-                                        final MigrationDataProvider<EntityIdScope> migrationDataProvider ) {
+                                        final MigrationDataProvider<EntityIdScope> migrationDataProvider,
+                                        @BackgroundScheduler final RxTaskScheduler rxTaskScheduler ) {
         this.keyspace = keyspace;
         this.allVersions = allVersions;
         this.mvccEntitySerializationStrategyV3 = mvccEntitySerializationStrategyV3;
         this.uniqueValueSerializationStrategy = uniqueValueSerializationStrategy;
         this.mvccLogEntrySerializationStrategy = mvccLogEntrySerializationStrategy;
         this.migrationDataProvider = migrationDataProvider;
+        this.rxTaskScheduler = rxTaskScheduler;
     }
 
 
@@ -121,7 +125,7 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
 
 
         final Observable<List<EntityToSaveMessage>> migrated =
-            migrationDataProvider.getData().subscribeOn( Schedulers.io() ).flatMap( entityToSaveList -> Observable.just( entityToSaveList ).flatMap( entityIdScope -> {
+            migrationDataProvider.getData().subscribeOn( rxTaskScheduler.getAsyncIOScheduler() ).flatMap( entityToSaveList -> Observable.just( entityToSaveList ).flatMap( entityIdScope -> {
 
                 //load the entity
                 final ApplicationScope currentScope = entityIdScope.getApplicationScope();
@@ -242,7 +246,7 @@ public class MvccEntityDataMigrationImpl implements DataMigration{
 
 
                         }
-                    } ).subscribeOn(Schedulers.io());
+                    } ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() );
 
             }, 10) );
 
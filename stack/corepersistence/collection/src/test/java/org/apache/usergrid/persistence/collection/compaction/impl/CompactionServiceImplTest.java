@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.compaction.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.MvccLogEntry;
+import org.apache.usergrid.persistence.collection.compaction.CompactionFig;
+import org.apache.usergrid.persistence.collection.mvcc.entity.Stage;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccLogEntryImpl;
+import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
+import org.apache.usergrid.persistence.collection.mvcc.stage.delete.UniqueCleanup;
+import org.apache.usergrid.persistence.collection.mvcc.stage.delete.VersionCompact;
+import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class CompactionServiceImplTest {
+
+    private final ApplicationScope scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+
+    private final List<CollectionIoEvent<MvccEntity>> cleaned = Collections.synchronizedList( new ArrayList<>() );
+
+    private final List<UUID> compacted = Collections.synchronizedList( new ArrayList<>() );
+
+    /**
+     * The versions in the log of each entity, oldest first
+     */
+    private final Map<Id, List<MvccLogEntry>> log = new HashMap<>();
+
+    private CompactionFig compactionFig;
+
+    private CompactionServiceImpl compactionService;
+
+
+    @Before
+    public void setup() throws Exception {
+        compactionFig = mock( CompactionFig.class );
+
+        //never let the timer fire during the test, we flush by hand
+        when( compactionFig.getDelay() ).thenReturn( 3600000L );
+        when( compactionFig.getMaxBacklog() ).thenReturn( 100 );
+        when( compactionFig.getBatchSize() ).thenReturn( 10 );
+        when( compactionFig.isVersionCompactionEnabled() ).thenReturn( true );
+
+        final SerializationFig serializationFig = mock( SerializationFig.class );
+
+        when( serializationFig.getBufferSize() ).thenReturn( 10 );
+
+        final UniqueCleanup uniqueCleanup = mock( UniqueCleanup.class );
+
+        when( uniqueCleanup.call( any( Observable.class ) ) ).thenAnswer(
+            invocation -> ( ( Observable<CollectionIoEvent<MvccEntity>> ) invocation.getArguments()[0] )
+                .doOnNext( cleaned::add ) );
+
+        final VersionCompact versionCompact = mock( VersionCompact.class );
+
+        when( versionCompact.call( any( Observable.class ) ) ).thenAnswer(
+            invocation -> ( ( Observable<CollectionIoEvent<MvccLogEntry>> ) invocation.getArguments()[0] )
+                .doOnNext( logEntry -> compacted.add( logEntry.getEvent().getVersion() ) ) );
+
+        final MvccLogEntrySerializationStrategy logEntrySerializationStrategy =
+            mock( MvccLogEntrySerializationStrategy.class );
+
+        when( logEntrySerializationStrategy.loadReversed( eq( scope ), any( Id.class ), any( UUID.class ), anyInt() ) )
+            .thenAnswer( invocation -> new ArrayList<>( log.get( invocation.getArguments()[1] ) ) );
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+
+        when( metricsFactory.getMeter( eq( CompactionServiceImpl.class ), anyString() ) ).thenReturn( new Meter() );
+        when( metricsFactory.getTimer( eq( CompactionServiceImpl.class ), anyString() ) ).thenReturn( new Timer() );
+
+        final RxTaskScheduler rxTaskScheduler = mock( RxTaskScheduler.class );
+
+        when( rxTaskScheduler.getAsyncIOScheduler() ).thenReturn( Schedulers.immediate() );
+
+        compactionService =
+            new CompactionServiceImpl( compactionFig, serializationFig, uniqueCleanup, versionCompact,
+                logEntrySerializationStrategy, metricsFactory, rxTaskScheduler );
+    }
+
+
+    @Test
+    public void uniqueValuesCleanedOnEveryWrite() {
+        final Id entityId = new SimpleId( "device" );
+
+        final CollectionIoEvent<MvccEntity> v1 = committed( entityId );
+        final CollectionIoEvent<MvccEntity> v2 = committed( entityId );
+
+        compactionService.compact( v1 );
+        compactionService.compact( v2 );
+
+        //released before any flush, so a unique value changed by v1 can be claimed again before v2 is written
+        assertEquals( 2, cleaned.size() );
+        assertSame( v1, cleaned.get( 0 ) );
+        assertSame( v2, cleaned.get( 1 ) );
+    }
+
+
+    @Test
+    public void nothingWaitsWithoutVersionCompaction() {
+        when( compactionFig.isVersionCompactionEnabled() ).thenReturn( false );
+
+        compactionService.compact( committed( new SimpleId( "device" ) ) );
+
+        assertEquals( 0, compactionService.getBacklog() );
+        assertEquals( 1, cleaned.size() );
+    }
+
+
+    @Test
+    public void versionCompactionCoalesced() {
+        final Id first = new SimpleId( "device" );
+        final Id second = new SimpleId( "device" );
+
+        final CollectionIoEvent<MvccEntity> firstV1 = committed( first );
+        final CollectionIoEvent<MvccEntity> secondV1 = committed( second );
+        final CollectionIoEvent<MvccEntity> firstV2 = committed( first );
+        final CollectionIoEvent<MvccEntity> firstV3 = committed( first );
+
+        compactionService.compact( firstV1 );
+        compactionService.compact( secondV1 );
+        compactionService.compact( firstV3 );
+        //arrives after a newer version, must not replace it
+        compactionService.compact( firstV2 );
+
+        assertEquals( 2, compactionService.getBacklog() );
+        assertEquals( 0, compacted.size() );
+
+        compactionService.flush( Long.MAX_VALUE );
+
+        assertEquals( 0, compactionService.getBacklog() );
+
+        //only the versions older than the newest one of each entity
+        assertEquals( 2, compacted.size() );
+        assertEquals( version( firstV1 ), compacted.get( 0 ) );
+        assertEquals( version( firstV2 ), compacted.get( 1 ) );
+    }
+
+
+    @Test
+    public void notDueNotFlushed() {
+        compactionService.compact( committed( new SimpleId( "device" ) ) );
+
+        compactionService.flush( System.currentTimeMillis() - 60000 );
+
+        assertEquals( 1, compactionService.getBacklog() );
+    }
+
+
+    @Test
+    public void fullBacklogCompactsNow() {
+        when( compactionFig.getMaxBacklog() ).thenReturn( 1 );
+
+        final Id first = new SimpleId( "device" );
+        final Id second = new SimpleId( "device" );
+
+        compactionService.compact( committed( first ) );
+        compactionService.compact( committed( second ) );
+
+        final CollectionIoEvent<MvccEntity> secondV2 = committed( second );
+
+        compactionService.compact( secondV2 );
+
+        //the queued entity still coalesces
+        compactionService.compact( committed( first ) );
+
+        assertEquals( 1, compactionService.getBacklog() );
+        assertEquals( Collections.singletonList( log.get( second ).get( 0 ).getVersion() ), compacted );
+    }
+
+
+    /**
+     * Create the next committed version of the entity and add it to the log
+     */
+    private CollectionIoEvent<MvccEntity> committed( final Id entityId ) {
+        final UUID version = UUIDGenerator.newTimeUUID();
+
+        log.computeIfAbsent( entityId, id -> new ArrayList<>() )
+           .add( new MvccLogEntryImpl( entityId, version, Stage.COMMITTED, MvccLogEntry.State.COMPLETE ) );
+
+        return new CollectionIoEvent<>( scope,
+            new MvccEntityImpl( entityId, version, MvccEntity.Status.COMPLETE, new Entity( entityId ) ) );
+    }
+
+
+    private UUID version( final CollectionIoEvent<MvccEntity> committed ) {
+        return committed.getEvent().getVersion();
+    }
+}
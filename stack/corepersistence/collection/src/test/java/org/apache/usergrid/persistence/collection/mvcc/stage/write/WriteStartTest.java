@@ -31,6 +31,7 @@ import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
 import org.apache.usergrid.persistence.collection.mvcc.stage.TestEntityGenerator;
 import org.apache.usergrid.persistence.collection.serialization.MvccLogEntrySerializationStrategy;
 import org.apache.usergrid.persistence.collection.service.UUIDService;
+import org.apache.usergrid.persistence.core.astyanax.MutationBatchCoalescer;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
@@ -72,7 +73,7 @@ public class WriteStartTest extends AbstractEntityStageTest {
         final Entity entity = TestEntityGenerator.generateEntity();
 
         //run the stage
-        WriteStart newStage = new WriteStart( logStrategy);
+        WriteStart newStage = new WriteStart( logStrategy, mock( MutationBatchCoalescer.class ) );
 
 
         //verify the observable is correct
@@ -117,12 +118,15 @@ public class WriteStartTest extends AbstractEntityStageTest {
         //set up the mock to return the entity from the start phase
         final Entity entity = TestEntityGenerator.generateEntity(new SimpleId(UUID.randomUUID(),"test"),null);
         //run the stage
-        WriteStart newStage = new WriteStart( logStrategy );
+        final MutationBatchCoalescer mutationBatchCoalescer = mock( MutationBatchCoalescer.class );
+
+        WriteStart newStage = new WriteStart( logStrategy, mutationBatchCoalescer );
 
         //verify the observable is correct
         CollectionIoEvent<MvccEntity> result = newStage.call( new CollectionIoEvent<Entity>( context, entity ) );
 
         verify(mutation,times(0)).execute();
+        verify(mutationBatchCoalescer,times(0)).execute( mutation );
 
         //verify the log entry is correct
         MvccLogEntry entry = logEntry.getValue();
@@ -144,7 +148,7 @@ public class WriteStartTest extends AbstractEntityStageTest {
     protected void validateStage( final CollectionIoEvent<Entity> event ) {
         final MvccLogEntrySerializationStrategy logStrategy = mock( MvccLogEntrySerializationStrategy.class );
 
-        new WriteStart( logStrategy ).call( event );
+        new WriteStart( logStrategy, mock( MutationBatchCoalescer.class ) ).call( event );
     }
 }
 
@@ -36,8 +36,8 @@ import org.apache.usergrid.persistence.core.rx.OrderedMerge;
 import com.amazonaws.services.redshift.model.UnsupportedOptionException;
 
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
-import rx.schedulers.Schedulers;
 
 
 /**
@@ -56,8 +56,13 @@ public class MultiKeyColumnNameIterator<C, T> implements Iterable<T>, Iterator<T
     private Iterator<T> iterator;
 
 
+    /**
+     * @param scheduler The scheduler each row is read on when there is more than one row.  The rows block when the
+     * buffer is full, so this must not run tasks on the calling thread
+     */
     public MultiKeyColumnNameIterator( final Collection<ColumnNameIterator<C, T>> columnNameIterators,
-                                       final Comparator<T> comparator, final int bufferSize ) {
+                                       final Comparator<T> comparator, final int bufferSize,
+                                       final Scheduler scheduler ) {
 
 
         //optimization for single use case
@@ -79,7 +84,7 @@ public class MultiKeyColumnNameIterator<C, T> implements Iterable<T>, Iterator<T
 
 
 
-            observables[i] = Observable.from( columnNameIterator ).subscribeOn( Schedulers.io() );
+            observables[i] = Observable.from( columnNameIterator ).subscribeOn( scheduler );
 
             i++;
         }
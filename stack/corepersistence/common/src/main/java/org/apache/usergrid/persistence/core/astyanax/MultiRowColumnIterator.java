@@ -33,6 +33,8 @@ import java.util.NoSuchElementException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.usergrid.persistence.core.trace.Tracer;
+
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.model.Column;
@@ -185,6 +187,8 @@ public class MultiRowColumnIterator<R, C, T> implements Iterator<T> {
                 keyspace.prepareQuery( cf ).setConsistencyLevel( consistencyLevel ).getKeySlice( rowKeys )
                         .withColumnRange( rangeBuilder.build() );
 
+        final long traceStart = Tracer.start();
+
         final Rows<R, C> result;
         try {
             result = query.execute().getResult();
@@ -192,6 +196,9 @@ public class MultiRowColumnIterator<R, C, T> implements Iterator<T> {
         catch ( ConnectionException e ) {
             throw new RuntimeException( "Unable to connect to casandra", e );
         }
+        finally {
+            Tracer.end( "shard.read", traceStart );
+        }
 
 
         //now aggregate them together
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.astyanax;
+
+
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+
+/**
+ * Executes mutation batches, optionally merging batches from concurrent callers into a single round trip to
+ * cassandra.  Batches are only merged with batches of the same consistency level, atomic batch setting and retry
+ * policy, and the merged batch is written with those options.  The mutations keep their own timestamps.  Batches
+ * pinned to a host or written through a write ahead log are never merged, they're executed as they are.
+ */
+public interface MutationBatchCoalescer {
+
+    /**
+     * Execute the batch, blocking until it has been written
+     *
+     * @throws ConnectionException if the batch could not be written
+     */
+    void execute( MutationBatch batch ) throws ConnectionException;
+}
@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.astyanax;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cassandra.thrift.Mutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ConsistencyLevel;
+import com.netflix.astyanax.retry.RetryPolicy;
+import com.netflix.astyanax.thrift.AbstractThriftMutationBatchImpl;
+
+
+/**
+ * Merges batches the way Nagle's algorithm merges packets.  When nothing is being written a batch is written right
+ * away.  While earlier batches are still being written, batches with the same write options wait up to
+ * {@link MutationCoalescerFig#getWaitMicros()} for others, up to {@link MutationCoalescerFig#getMaxRows()} rows, and
+ * are written together.
+ *
+ * The merged batch is built from copies of the callers' row maps, so each caller's batch is left as it was and can be
+ * written on its own if the merged one fails.  Column timestamps are set when a row mutation is created, so the merged
+ * mutations keep the timestamps of the batches they came from.
+ */
+@Singleton
+public class MutationBatchCoalescerImpl implements MutationBatchCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger( MutationBatchCoalescerImpl.class );
+
+    private final ConcurrentHashMap<Options, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final Keyspace keyspace;
+    private final MutationCoalescerFig mutationCoalescerFig;
+    private final ThreadPoolExecutor writers;
+
+    private final Histogram mergedHistogram;
+    private final Meter retryMeter;
+    private final Timer writeTimer;
+
+
+    @Inject
+    public MutationBatchCoalescerImpl( final Keyspace keyspace, final MutationCoalescerFig mutationCoalescerFig,
+                                       final MetricsFactory metricsFactory ) {
+        this.keyspace = keyspace;
+        this.mutationCoalescerFig = mutationCoalescerFig;
+
+        //when every writer is busy the lane writes the batch itself, and the batches queued meanwhile merge
+        this.writers = TaskExecutorFactory
+            .createTaskExecutor( "Usergrid-Mutation-Coalescer", mutationCoalescerFig.getThreads(), 0,
+                TaskExecutorFactory.RejectionAction.CALLERRUNS, metricsFactory );
+
+        this.mergedHistogram = metricsFactory.getHistogram( MutationBatchCoalescerImpl.class, "coalesce.merged" );
+        this.retryMeter = metricsFactory.getMeter( MutationBatchCoalescerImpl.class, "coalesce.retry" );
+        this.writeTimer = metricsFactory.getTimer( MutationBatchCoalescerImpl.class, "coalesce.write" );
+    }
+
+
+    @Override
+    public void execute( final MutationBatch batch ) throws ConnectionException {
+
+        //we can only merge batches we know the options of
+        if ( !mutationCoalescerFig.isEnabled() || !( batch instanceof AbstractThriftMutationBatchImpl )
+            || batch.getRowCount() >= mutationCoalescerFig.getMaxRows() ) {
+            batch.execute();
+            return;
+        }
+
+        final Options options = Options.of( ( AbstractThriftMutationBatchImpl ) batch );
+
+        if ( options == null ) {
+            batch.execute();
+            return;
+        }
+
+        final Pending pending = new Pending( ( AbstractThriftMutationBatchImpl ) batch );
+
+        lanes.computeIfAbsent( options, Lane::new ).queue.offerLast( pending );
+
+        pending.await();
+    }
+
+
+    /**
+     * Write the batches as one, or each on its own if the merged batch fails.  Every batch is completed.
+     */
+    private void write( final Options options, final List<Pending> group ) {
+
+        if ( group.size() == 1 ) {
+            group.get( 0 ).write();
+            return;
+        }
+
+        mergedHistogram.update( group.size() );
+
+        final Timer.Context timer = writeTimer.time();
+
+        try {
+            //the keyspace is thrift, so are its batches
+            final AbstractThriftMutationBatchImpl merged =
+                ( AbstractThriftMutationBatchImpl ) options.apply( keyspace.prepareMutationBatch() );
+
+            //mergeShallow would share the callers' row maps and column lists with the merged batch
+            final Map<ByteBuffer, Map<String, List<Mutation>>> rows = merged.getMutationMap();
+
+            for ( Pending pending : group ) {
+                for ( Map.Entry<ByteBuffer, Map<String, List<Mutation>>> row : pending.batch.getMutationMap()
+                                                                                             .entrySet() ) {
+                    final Map<String, List<Mutation>> columnFamilies =
+                        rows.computeIfAbsent( row.getKey(), key -> new HashMap<>() );
+
+                    for ( Map.Entry<String, List<Mutation>> columnFamily : row.getValue().entrySet() ) {
+                        columnFamilies.computeIfAbsent( columnFamily.getKey(), key -> new ArrayList<>() )
+                                      .addAll( columnFamily.getValue() );
+                    }
+                }
+            }
+
+            merged.execute();
+
+            for ( Pending pending : group ) {
+                pending.future.set( null );
+            }
+        }
+        catch ( Throwable t ) {
+            //don't fail every caller for one bad batch.  The mutations keep their timestamps, so writing them again
+            //is idempotent
+            logger.warn( "Unable to write merged batches, writing them individually", t );
+
+            retryMeter.mark();
+
+            for ( Pending pending : group ) {
+                pending.write();
+            }
+        }
+        finally {
+            timer.stop();
+        }
+    }
+
+
+    /**
+     * The batches of a single set of options, grouped and handed to the writers by their own thread
+     */
+    private final class Lane implements Runnable {
+
+        private final Options options;
+        private final BlockingDeque<Pending> queue = new LinkedBlockingDeque<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+
+        private Lane( final Options options ) {
+            this.options = options;
+
+            final Thread thread = new Thread( this, "Usergrid-Mutation-Coalescer-" + options );
+            thread.setDaemon( true );
+            thread.start();
+        }
+
+
+        @Override
+        public void run() {
+            while ( true ) {
+                final List<Pending> group;
+
+                try {
+                    group = nextGroup();
+                }
+                catch ( InterruptedException e ) {
+                    logger.warn( "Mutation coalescer for {} interrupted, no longer merging", options );
+                    return;
+                }
+
+                inFlight.incrementAndGet();
+
+                writers.execute( () -> {
+                    try {
+                        write( options, group );
+                    }
+                    finally {
+                        inFlight.decrementAndGet();
+                    }
+                } );
+            }
+        }
+
+
+        private List<Pending> nextGroup() throws InterruptedException {
+            final Pending first = queue.takeFirst();
+
+            final List<Pending> group = new ArrayList<>();
+            group.add( first );
+
+            final int maxRows = mutationCoalescerFig.getMaxRows();
+            int rows = first.rows;
+
+            //nothing is being written, so there's nothing to wait for.  Only take what's already queued
+            final long wait =
+                inFlight.get() == 0 ? 0 : TimeUnit.MICROSECONDS.toNanos( mutationCoalescerFig.getWaitMicros() );
+
+            final long deadline = System.nanoTime() + wait;
+
+            while ( rows < maxRows ) {
+                final Pending next = queue.pollFirst( deadline - System.nanoTime(), TimeUnit.NANOSECONDS );
+
+                if ( next == null ) {
+                    break;
+                }
+
+                //too big to fit, it starts the next group
+                if ( rows + next.rows > maxRows ) {
+                    queue.offerFirst( next );
+                    break;
+                }
+
+                group.add( next );
+                rows += next.rows;
+            }
+
+            return group;
+        }
+    }
+
+
+    /**
+     * The options a batch is written with.  Only batches with equal options are merged, and the merged batch is
+     * written with them
+     */
+    private static final class Options {
+
+        private final ConsistencyLevel consistencyLevel;
+        private final boolean atomicBatch;
+        private final RetryPolicy retryPolicy;
+
+
+        private Options( final ConsistencyLevel consistencyLevel, final boolean atomicBatch,
+                         final RetryPolicy retryPolicy ) {
+            this.consistencyLevel = consistencyLevel;
+            this.atomicBatch = atomicBatch;
+            this.retryPolicy = retryPolicy;
+        }
+
+
+        /**
+         * The options of the batch, or null if it can't be merged
+         */
+        private static Options of( final AbstractThriftMutationBatchImpl batch ) {
+            //a batch pinned to a host or logged ahead has to be written as it is
+            if ( batch.getConsistencyLevel() == null || batch.getPinnedHost() != null
+                || batch.getWriteAheadLog() != null ) {
+                return null;
+            }
+
+            return new Options( batch.getConsistencyLevel(), batch.useAtomicBatch(), batch.getRetryPolicy() );
+        }
+
+
+        private MutationBatch apply( final MutationBatch batch ) {
+            batch.withConsistencyLevel( consistencyLevel );
+            batch.withAtomicBatch( atomicBatch );
+
+            if ( retryPolicy != null ) {
+                batch.withRetryPolicy( retryPolicy.duplicate() );
+            }
+
+            return batch;
+        }
+
+
+        /**
+         * Retry policies are duplicated per batch, so they're compared by type and settings
+         */
+        private Object retryKey() {
+            return retryPolicy == null ? null : retryPolicy.toString();
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !( o instanceof Options ) ) {
+                return false;
+            }
+
+            final Options options = ( Options ) o;
+
+            return atomicBatch == options.atomicBatch && consistencyLevel == options.consistencyLevel && Objects
+                .equals( retryKey(), options.retryKey() );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash( consistencyLevel, atomicBatch, retryKey() );
+        }
+
+
+        @Override
+        public String toString() {
+            return consistencyLevel + ( atomicBatch ? "-atomic" : "" );
+        }
+    }
+
+
+    /**
+     * A caller's batch and the future the caller waits on
+     */
+    private static final class Pending {
+
+        private final AbstractThriftMutationBatchImpl batch;
+        private final int rows;
+        private final SettableFuture<Void> future = SettableFuture.create();
+
+
+        private Pending( final AbstractThriftMutationBatchImpl batch ) {
+            this.batch = batch;
+            this.rows = batch.getRowCount();
+        }
+
+
+        /**
+         * Write the batch on its own
+         */
+        private void write() {
+            try {
+                batch.execute();
+                future.set( null );
+            }
+            catch ( Throwable t ) {
+                future.setException( t );
+            }
+        }
+
+
+        private void await() throws ConnectionException {
+            try {
+                future.get();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted waiting for the batch to be written", e );
+            }
+            catch ( ExecutionException e ) {
+                final Throwable cause = e.getCause();
+
+                if ( cause instanceof ConnectionException ) {
+                    throw ( ConnectionException ) cause;
+                }
+
+                throw Throwables.propagate( cause );
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.astyanax;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration of the {@link MutationBatchCoalescer}
+ */
+@FigSingleton
+public interface MutationCoalescerFig extends GuicyFig {
+
+    /**
+     * Whether concurrent batches are merged
+     */
+    String COALESCE_ENABLED = "cassandra.coalesce.enabled";
+
+    /**
+     * The longest a batch waits for others to merge with while an earlier batch is still being written
+     */
+    String COALESCE_WAIT_MICROS = "cassandra.coalesce.wait.micros";
+
+    /**
+     * The most rows merged into a single batch
+     */
+    String COALESCE_MAX_ROWS = "cassandra.coalesce.max.rows";
+
+    /**
+     * The number of merged batches that can be written at once
+     */
+    String COALESCE_THREADS = "cassandra.coalesce.threads";
+
+
+    @Default( "false" )
+    @Key( COALESCE_ENABLED )
+    boolean isEnabled();
+
+    @Default( "500" )
+    @Key( COALESCE_WAIT_MICROS )
+    long getWaitMicros();
+
+    @Default( "200" )
+    @Key( COALESCE_MAX_ROWS )
+    int getMaxRows();
+
+    @Default( "20" )
+    @Key( COALESCE_THREADS )
+    int getThreads();
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.cache;
+
+
+import com.google.common.base.Optional;
+
+
+/**
+ * A node local cache of lookups that rarely change.  Entries past their refresh interval are served while a single
+ * background reload runs, concurrent misses of a key wait on a single load, and missing values are cached as well.
+ */
+public interface LookupCache<K, V> {
+
+    /**
+     * Get the value for the key, loading it if it isn't cached
+     */
+    Optional<V> get( K key );
+
+    /**
+     * Evict the key from this node's cache
+     */
+    void invalidate( K key );
+
+    /**
+     * Evict every key from this node's cache
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.cache;
+
+
+/**
+ * Creates lookup caches that share a pool of refresh threads
+ */
+public interface LookupCacheFactory {
+
+    /**
+     * Create a cache with the default size and timeouts
+     *
+     * @param name The name of the cache for metrics
+     * @param loader The loader of missing and refreshed entries
+     */
+    <K, V> LookupCache<K, V> create( String name, LookupLoader<K, V> loader );
+
+    /**
+     * Create a cache
+     *
+     * @param name The name of the cache for metrics
+     * @param loader The loader of missing and refreshed entries
+     * @param maxSize The most entries to keep
+     * @param refreshMs The time after which a read of an entry reloads it in the background
+     * @param negativeTimeoutMs The time after which a read of a missing entry reloads it in the background
+     */
+    <K, V> LookupCache<K, V> create( String name, LookupLoader<K, V> loader, int maxSize, long refreshMs,
+                                     long negativeTimeoutMs );
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.cache;
+
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+@Singleton
+public class LookupCacheFactoryImpl implements LookupCacheFactory {
+
+    private final LookupCacheFig lookupCacheFig;
+    private final MetricsFactory metricsFactory;
+
+    private final ThreadPoolExecutor refreshExecutor;
+
+
+    @Inject
+    public LookupCacheFactoryImpl( final LookupCacheFig lookupCacheFig, final MetricsFactory metricsFactory ) {
+        this.lookupCacheFig = lookupCacheFig;
+        this.metricsFactory = metricsFactory;
+
+        //a rejected refresh fails, which keeps the stale value until the next read refreshes it again
+        this.refreshExecutor = TaskExecutorFactory
+            .createTaskExecutor( "LookupCacheRefresh", lookupCacheFig.getRefreshWorkers(),
+                lookupCacheFig.getRefreshWorkers() * 100, TaskExecutorFactory.RejectionAction.ABORT, metricsFactory );
+    }
+
+
+    @Override
+    public <K, V> LookupCache<K, V> create( final String name, final LookupLoader<K, V> loader ) {
+        return create( name, loader, lookupCacheFig.getCacheSize(), lookupCacheFig.getCacheRefresh(),
+            lookupCacheFig.getCacheNegativeTimeout() );
+    }
+
+
+    @Override
+    public <K, V> LookupCache<K, V> create( final String name, final LookupLoader<K, V> loader, final int maxSize,
+                                            final long refreshMs, final long negativeTimeoutMs ) {
+        return new LookupCacheImpl<>( name, loader, maxSize, refreshMs, negativeTimeoutMs,
+            lookupCacheFig.getStaleFactor(), refreshExecutor, metricsFactory );
+    }
+}
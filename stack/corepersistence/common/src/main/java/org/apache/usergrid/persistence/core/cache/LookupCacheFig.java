@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.cache;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration for the refresh ahead lookup caches
+ */
+@FigSingleton
+public interface LookupCacheFig extends GuicyFig {
+
+    String REFRESH_WORKERS = "usergrid.lookup_cache.refresh_workers";
+
+    String CACHE_SIZE = "usergrid.lookup_cache.size";
+
+    String CACHE_REFRESH = "usergrid.lookup_cache.refresh_ms";
+
+    String CACHE_NEGATIVE_TIMEOUT = "usergrid.lookup_cache.negative_timeout_ms";
+
+    String CACHE_STALE_FACTOR = "usergrid.lookup_cache.stale_factor";
+
+
+    /**
+     * The number of threads reloading entries in the background, shared by every lookup cache
+     */
+    @Key( REFRESH_WORKERS )
+    @Default( "10" )
+    int getRefreshWorkers();
+
+    /**
+     * The default most entries in a lookup cache
+     */
+    @Key( CACHE_SIZE )
+    @Default( "10000" )
+    int getCacheSize();
+
+    /**
+     * The default time after which a read of an entry reloads it in the background
+     */
+    @Key( CACHE_REFRESH )
+    @Default( "60000" )
+    long getCacheRefresh();
+
+    /**
+     * The time after which a read of a missing entry looks it up again in the background
+     */
+    @Key( CACHE_NEGATIVE_TIMEOUT )
+    @Default( "10000" )
+    long getCacheNegativeTimeout();
+
+    /**
+     * Entries not read for this many refresh intervals are evicted rather than served stale
+     */
+    @Key( CACHE_STALE_FACTOR )
+    @Default( "5" )
+    int getStaleFactor();
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.cache;
+
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+
+/**
+ * A lookup cache backed by a guava loading cache.  Guava loads a missing key once for every waiting caller, and
+ * refreshes an entry once no matter how many callers read it, so only the callers that miss ever wait on a load.
+ */
+public class LookupCacheImpl<K, V> implements LookupCache<K, V> {
+
+    private final LoadingCache<K, CachedValue<V>> cache;
+    private final long negativeTimeoutMs;
+
+    private final Timer loadTimer;
+    private final Meter refreshMeter;
+
+
+    public LookupCacheImpl( final String name, final LookupLoader<K, V> loader, final int maxSize,
+                            final long refreshMs, final long negativeTimeoutMs, final int staleFactor,
+                            final Executor refreshExecutor, final MetricsFactory metricsFactory ) {
+
+        this.negativeTimeoutMs = negativeTimeoutMs;
+
+        this.loadTimer = metricsFactory.getTimer( LookupCache.class, name + ".load" );
+        this.refreshMeter = metricsFactory.getMeter( LookupCache.class, name + ".refresh" );
+
+        this.cache = CacheBuilder.newBuilder().maximumSize( maxSize )
+            //serve entries past their refresh while they reload
+            .refreshAfterWrite( refreshMs, TimeUnit.MILLISECONDS )
+            //but don't serve entries nobody has read in a long time
+            .expireAfterWrite( refreshMs * staleFactor, TimeUnit.MILLISECONDS )
+            .build( new CacheLoader<K, CachedValue<V>>() {
+
+                @Override
+                public CachedValue<V> load( final K key ) throws Exception {
+                    final Timer.Context timer = loadTimer.time();
+
+                    try {
+                        return new CachedValue<>( loader.load( key ) );
+                    }
+                    finally {
+                        timer.stop();
+                    }
+                }
+
+
+                @Override
+                public ListenableFuture<CachedValue<V>> reload( final K key, final CachedValue<V> oldValue ) {
+                    refreshMeter.mark();
+
+                    final ListenableFutureTask<CachedValue<V>> task = ListenableFutureTask.create( () -> load( key ) );
+                    refreshExecutor.execute( task );
+                    return task;
+                }
+            } );
+    }
+
+
+    @Override
+    public Optional<V> get( final K key ) {
+        final CachedValue<V> cached;
+
+        try {
+            cached = cache.get( key );
+        }
+        catch ( ExecutionException | UncheckedExecutionException e ) {
+            throw new RuntimeException( "Unable to load key " + key, e.getCause() );
+        }
+
+        //missing values are refreshed sooner, so new values are found quickly
+        if ( !cached.value.isPresent() && System.currentTimeMillis() - cached.loadedAt > negativeTimeoutMs ) {
+            cache.refresh( key );
+        }
+
+        return cached.value;
+    }
+
+
+    @Override
+    public void invalidate( final K key ) {
+        cache.invalidate( key );
+    }
+
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+
+    /**
+     * A loaded value and the time it was loaded
+     */
+    private static final class CachedValue<V> {
+        private final Optional<V> value;
+        private final long loadedAt;
+
+
+        private CachedValue( final Optional<V> value ) {
+            this.value = value;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+}
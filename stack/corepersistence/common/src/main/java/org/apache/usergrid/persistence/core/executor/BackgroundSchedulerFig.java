@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.core.executor;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration of the {@link BackgroundScheduler} pool
+ */
+@FigSingleton
+public interface BackgroundSchedulerFig extends GuicyFig {
+
+
+    /**
+     * Amount of threads to use for background work
+     */
+    String BACKGROUND_SCHEDULER_THREADS = "scheduler.background.threads";
+
+    /**
+     * Amount of tasks that can wait for a thread before the rejection action is applied
+     */
+    String BACKGROUND_SCHEDULER_QUEUE_SIZE = "scheduler.background.queueSize";
+
+    /**
+     * What to do with a task when the threads and the queue are full, ABORT or CALLERRUNS
+     */
+    String BACKGROUND_SCHEDULER_REJECTION = "scheduler.background.rejectionAction";
+
+    /**
+     * Name of pool to use when performing scheduling
+     */
+    String BACKGROUND_SCHEDULER_NAME = "scheduler.background.poolName";
+
+
+    @Default( "20" )
+    @Key( BACKGROUND_SCHEDULER_THREADS )
+    int getMaxIoThreads();
+
+    @Default( "100" )
+    @Key( BACKGROUND_SCHEDULER_QUEUE_SIZE )
+    int getQueueSize();
+
+    @Default( "CALLERRUNS" )
+    @Key( BACKGROUND_SCHEDULER_REJECTION )
+    String getRejectionAction();
+
+    @Default( "Usergrid-Background-Pool" )
+    @Key( BACKGROUND_SCHEDULER_NAME )
+    String getIoSchedulerName();
+}
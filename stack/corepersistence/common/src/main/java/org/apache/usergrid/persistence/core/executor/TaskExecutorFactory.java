@@ -32,6 +32,12 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.trace.Tracer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+
 
 /**
  * A task executor that allows you to submit tasks
@@ -90,13 +96,58 @@ public class TaskExecutorFactory {
     }
 
 
+    /**
+     * Create a task executor that reports how saturated it is.  The busy threads and the queued tasks are gauged as
+     * "{schedulerName}.active" and "{schedulerName}.queued", and rejected tasks are metered as
+     * "{schedulerName}.rejected".  A gauge can only be registered once, so only call this from singletons.
+     */
+    public static ThreadPoolExecutor createTaskExecutor( final String schedulerName, final int maxThreadCount,
+                                                         final int maxQueueSize, RejectionAction rejectionAction,
+                                                         final MetricsFactory metricsFactory ) {
+
+        final ThreadPoolExecutor executor =
+            createTaskExecutor( schedulerName, maxThreadCount, maxQueueSize, rejectionAction );
+
+        final Meter rejected = metricsFactory.getMeter( TaskExecutorFactory.class, schedulerName + ".rejected" );
+
+        executor.setRejectedExecutionHandler(
+            new MeteredRejectionHandler( rejected, executor.getRejectedExecutionHandler() ) );
+
+        metricsFactory.addGauge( TaskExecutorFactory.class, schedulerName + ".active",
+            ( Gauge<Integer> ) () -> executor.getActiveCount() );
+
+        metricsFactory.addGauge( TaskExecutorFactory.class, schedulerName + ".queued",
+            ( Gauge<Integer> ) () -> executor.getQueue().size() );
+
+        return executor;
+    }
+
+
+    /**
+     * A fixed size thread pool that runs tasks with the trace of the thread that submitted them
+     */
+    private static abstract class TracingThreadPool extends ThreadPoolExecutor {
+
+        private TracingThreadPool( final int maxPoolSize, final BlockingQueue<Runnable> queue,
+                                   final ThreadFactory threadFactory, final RejectedExecutionHandler handler ) {
+            super( maxPoolSize, maxPoolSize, 30, TimeUnit.SECONDS, queue, threadFactory, handler );
+        }
+
+
+        @Override
+        public void execute( final Runnable command ) {
+            super.execute( Tracer.wrap( command ) );
+        }
+    }
+
+
     /**
      * Create a thread pool that will reject work if our audit tasks become overwhelmed
      */
-    private static final class MaxSizeThreadPool extends ThreadPoolExecutor {
+    private static final class MaxSizeThreadPool extends TracingThreadPool {
 
         public MaxSizeThreadPool( final BlockingQueue<Runnable> queue, final String poolName, final int maxPoolSize ) {
-            super( maxPoolSize, maxPoolSize, 30, TimeUnit.SECONDS, queue, new CountingThreadFactory( poolName ) );
+            super( maxPoolSize, queue, new CountingThreadFactory( poolName ), new AbortPolicy() );
         }
     }
 
@@ -104,12 +155,11 @@ public class TaskExecutorFactory {
     /**
      * Create a thread pool that will implement CallerRunsPolicy if our tasks become overwhelmed
      */
-    private static final class MaxSizeThreadPoolCallerRuns extends ThreadPoolExecutor {
+    private static final class MaxSizeThreadPoolCallerRuns extends TracingThreadPool {
 
         public MaxSizeThreadPoolCallerRuns( final BlockingQueue<Runnable> queue, final String poolName,
                                             final int maxPoolSize ) {
-            super( maxPoolSize, maxPoolSize, 30, TimeUnit.SECONDS, queue, new CountingThreadFactory( poolName ),
-                new CallerRunsHandler( poolName ) );
+            super( maxPoolSize, queue, new CountingThreadFactory( poolName ), new CallerRunsHandler( poolName ) );
         }
     }
 
@@ -117,12 +167,11 @@ public class TaskExecutorFactory {
     /**
      * Create a thread pool that will implement CallerRunsPolicy if our tasks become overwhelmed
      */
-    private static final class MaxSizeThreadPoolDrops extends ThreadPoolExecutor {
+    private static final class MaxSizeThreadPoolDrops extends TracingThreadPool {
 
         public MaxSizeThreadPoolDrops( final BlockingQueue<Runnable> queue, final String poolName,
                                        final int maxPoolSize ) {
-            super( maxPoolSize, maxPoolSize, 30, TimeUnit.SECONDS, queue, new CountingThreadFactory( poolName ),
-                new DropHandler( poolName ) );
+            super( maxPoolSize, queue, new CountingThreadFactory( poolName ), new DropHandler( poolName ) );
         }
     }
 
@@ -194,4 +243,28 @@ public class TaskExecutorFactory {
             log.warn( "{} task queue full, dropping task {}", poolName, r );
         }
     }
+
+
+    /**
+     * Marks every rejected task before handing it to the rejection policy of the pool
+     */
+    private static final class MeteredRejectionHandler implements RejectedExecutionHandler {
+
+        private final Meter rejected;
+        private final RejectedExecutionHandler delegate;
+
+
+        private MeteredRejectionHandler( final Meter rejected, final RejectedExecutionHandler delegate ) {
+            this.rejected = rejected;
+            this.delegate = delegate;
+        }
+
+
+        @Override
+        public void rejectedExecution( final Runnable r, final ThreadPoolExecutor executor ) {
+            rejected.mark();
+
+            delegate.rejectedExecution( r, executor );
+        }
+    }
 }
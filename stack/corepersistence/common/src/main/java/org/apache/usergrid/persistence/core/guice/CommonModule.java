@@ -19,13 +19,28 @@
 package org.apache.usergrid.persistence.core.guice;
 
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import com.netflix.astyanax.Keyspace;
 import org.apache.usergrid.persistence.core.astyanax.*;
 import org.safehaus.guicyfig.GuicyFigModule;
 
+import org.apache.usergrid.persistence.core.cache.LookupCacheFactory;
+import org.apache.usergrid.persistence.core.cache.LookupCacheFactoryImpl;
+import org.apache.usergrid.persistence.core.cache.LookupCacheFig;
 import org.apache.usergrid.persistence.core.consistency.TimeService;
 import org.apache.usergrid.persistence.core.consistency.TimeServiceImpl;
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
+import org.apache.usergrid.persistence.core.executor.BackgroundSchedulerFig;
+import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
 import org.apache.usergrid.persistence.core.guicyfig.ClusterFig;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBusProvider;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationFig;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationSerialization;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationSerializationImpl;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetricsImpl;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactoryImpl;
 import org.apache.usergrid.persistence.core.metrics.MetricsFig;
@@ -40,9 +55,17 @@ import org.apache.usergrid.persistence.core.migration.schema.Migration;
 import org.apache.usergrid.persistence.core.migration.schema.MigrationManager;
 import org.apache.usergrid.persistence.core.migration.schema.MigrationManagerFig;
 import org.apache.usergrid.persistence.core.migration.schema.MigrationManagerImpl;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
+import org.apache.usergrid.persistence.core.rx.RxTaskSchedulerImpl;
+import org.apache.usergrid.persistence.core.trace.TraceFig;
+import org.apache.usergrid.persistence.core.trace.TraceService;
+import org.apache.usergrid.persistence.core.trace.TraceServiceImpl;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
 import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.Multibinder;
 
 
@@ -71,6 +94,7 @@ public class CommonModule extends AbstractModule {
         //do multibindings for migrations
         Multibinder<Migration> migrationBinding = Multibinder.newSetBinder(binder(), Migration.class);
         migrationBinding.addBinding().to(Key.get(MigrationInfoSerialization.class));
+        migrationBinding.addBinding().to(Key.get(InvalidationSerialization.class));
 
         bind(TimeService.class).to(TimeServiceImpl.class);
 
@@ -85,9 +109,27 @@ public class CommonModule extends AbstractModule {
 
         bind(MetricsFactory.class).to(MetricsFactoryImpl.class);
 
+        bind(ApplicationMetrics.class).to(ApplicationMetricsImpl.class);
+
         bind(MigrationInfoCache.class).to(MigrationInfoCacheImpl.class);
         install(new GuicyFigModule(MetricsFig.class));
 
+        //eager so the rx schedulers hook is registered before the schedulers are used
+        bind(TraceService.class).to(TraceServiceImpl.class).asEagerSingleton();
+        install(new GuicyFigModule(TraceFig.class));
+
+        install(new GuicyFigModule(BackgroundSchedulerFig.class));
+
+        bind(MutationBatchCoalescer.class).to(MutationBatchCoalescerImpl.class);
+        install(new GuicyFigModule(MutationCoalescerFig.class));
+
+        bind(InvalidationSerialization.class).to(InvalidationSerializationImpl.class);
+        bind(InvalidationBus.class).toProvider(InvalidationBusProvider.class);
+        install(new GuicyFigModule(InvalidationFig.class));
+
+        bind(LookupCacheFactory.class).to(LookupCacheFactoryImpl.class);
+        install(new GuicyFigModule(LookupCacheFig.class));
+
 
         //do multibindings for migrations
         //create the empty multibinder so other plugins can use it
@@ -102,4 +144,25 @@ public class CommonModule extends AbstractModule {
     }
 
 
+    @Provides
+    @Inject
+    @BackgroundScheduler
+    @Singleton
+    public RxTaskScheduler getBackgroundScheduler( final BackgroundSchedulerFig backgroundSchedulerFig,
+                                                   final MetricsFactory metricsFactory ) {
+
+        final String poolName = backgroundSchedulerFig.getIoSchedulerName();
+        final int threadCount = backgroundSchedulerFig.getMaxIoThreads();
+        final int queueSize = backgroundSchedulerFig.getQueueSize();
+        final TaskExecutorFactory.RejectionAction rejectionAction =
+            TaskExecutorFactory.RejectionAction.valueOf( backgroundSchedulerFig.getRejectionAction() );
+
+
+        final ThreadPoolExecutor executor =
+            TaskExecutorFactory.createTaskExecutor( poolName, threadCount, queueSize, rejectionAction, metricsFactory );
+
+        return new RxTaskSchedulerImpl( executor );
+    }
+
+
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * Publishes invalidations to Cassandra, and polls for the ones published by the other nodes.  Invalidations are
+ * written to a row per bucket of time, each poll reads the current and previous buckets and delivers the ones it
+ * hasn't seen.  Delivering an invalidation twice only evicts an entry twice, so missing one is the only concern.
+ */
+public class CassandraInvalidationBus extends LocalInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger( CassandraInvalidationBus.class );
+
+    private final InvalidationSerialization invalidationSerialization;
+    private final long bucketSize;
+    private final int ttl;
+
+    private final UUID nodeId = UUID.randomUUID();
+
+    /**
+     * The invalidations read from each bucket, so they're only delivered once
+     */
+    private final Map<Long, Set<UUID>> seen = new ConcurrentHashMap<>();
+
+    private final Meter publishedMeter;
+    private final Meter receivedMeter;
+
+    private volatile boolean failing = false;
+
+
+    public CassandraInvalidationBus( final InvalidationSerialization invalidationSerialization,
+                                     final InvalidationFig invalidationFig, final MetricsFactory metricsFactory ) {
+        this.invalidationSerialization = invalidationSerialization;
+        this.bucketSize = invalidationFig.getBucketSize();
+
+        //keep them long enough for every node to poll both of the buckets they could be in
+        this.ttl = ( int ) Math.max( 1, TimeUnit.MILLISECONDS.toSeconds( bucketSize * 3 ) );
+
+        this.publishedMeter = metricsFactory.getMeter( CassandraInvalidationBus.class, "cache.invalidation.published" );
+        this.receivedMeter = metricsFactory.getMeter( CassandraInvalidationBus.class, "cache.invalidation.received" );
+
+        final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "Usergrid-Cache-Invalidation-%d" ).build() );
+
+        final long pollInterval = invalidationFig.getPollInterval();
+
+        poller.scheduleWithFixedDelay( () -> poll(), pollInterval, pollInterval, TimeUnit.MILLISECONDS );
+    }
+
+
+    @Override
+    protected void publish( final String cacheName, final Optional<String> key ) {
+        deliver( cacheName, key );
+
+        try {
+            invalidationSerialization
+                .write( getBucket( System.currentTimeMillis() ), new Invalidation( nodeId, cacheName, key ), ttl );
+
+            publishedMeter.mark();
+        }
+        catch ( Throwable t ) {
+            logger.error( "Unable to publish invalidation of cache " + cacheName + ", other nodes may be stale until "
+                + "their timeout", t );
+        }
+    }
+
+
+    /**
+     * Deliver the invalidations from the other nodes in the current and previous buckets we haven't seen
+     */
+    void poll() {
+        final long current = getBucket( System.currentTimeMillis() );
+
+        try {
+            for ( long bucket = current - 1; bucket <= current; bucket++ ) {
+                final Set<UUID> bucketSeen = seen.computeIfAbsent( bucket, b -> ConcurrentHashMap.newKeySet() );
+
+                for ( Map.Entry<UUID, Invalidation> entry : invalidationSerialization.read( bucket ).entrySet() ) {
+                    if ( !bucketSeen.add( entry.getKey() ) ) {
+                        continue;
+                    }
+
+                    final Invalidation invalidation = entry.getValue();
+
+                    //we delivered our own when publishing
+                    if ( nodeId.equals( invalidation.getNodeId() ) ) {
+                        continue;
+                    }
+
+                    deliver( invalidation.getCacheName(), invalidation.getKey() );
+                    receivedMeter.mark();
+                }
+            }
+
+            seen.keySet().removeIf( bucket -> bucket < current - 1 );
+
+            failing = false;
+        }
+        catch ( Throwable t ) {
+            //the column family may not exist until setup, only log once per outage
+            if ( !failing ) {
+                logger.warn( "Unable to read cache invalidations, caches may be stale until their timeout", t );
+                failing = true;
+            }
+        }
+    }
+
+
+    private long getBucket( final long timestamp ) {
+        return timestamp / bucketSize;
+    }
+}
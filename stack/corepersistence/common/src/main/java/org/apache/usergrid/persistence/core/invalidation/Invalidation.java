@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.UUID;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * An invalidation published by a node
+ */
+public class Invalidation {
+
+    private final UUID nodeId;
+    private final String cacheName;
+    private final Optional<String> key;
+
+
+    public Invalidation( final UUID nodeId, final String cacheName, final Optional<String> key ) {
+        this.nodeId = nodeId;
+        this.cacheName = cacheName;
+        this.key = key;
+    }
+
+
+    /**
+     * The node that published it
+     */
+    public UUID getNodeId() {
+        return nodeId;
+    }
+
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+
+    /**
+     * The key invalidated, absent when the whole cache is
+     */
+    public Optional<String> getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+/**
+ * Invalidates the entries of local caches on every node.  Caches subscribe by name, and a mutation publishes the key
+ * it changed, or that the whole cache is stale.  Subscribers on this node are invalidated before publishing returns,
+ * the other nodes shortly after.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Invalidate the cache with the name when an invalidation is published for it
+     */
+    void subscribe( final String cacheName, final InvalidationListener listener );
+
+    /**
+     * Invalidate the key in the caches with the name on every node
+     */
+    void invalidate( final String cacheName, final String key );
+
+    /**
+     * Invalidate every key in the caches with the name on every node
+     */
+    void invalidateAll( final String cacheName );
+}
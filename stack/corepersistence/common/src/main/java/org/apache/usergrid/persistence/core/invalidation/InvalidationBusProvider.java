@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+
+/**
+ * A provider to allow users to configure the invalidation transport via properties
+ */
+@Singleton
+public class InvalidationBusProvider implements Provider<InvalidationBus> {
+
+    private final InvalidationFig invalidationFig;
+    private final InvalidationSerialization invalidationSerialization;
+    private final MetricsFactory metricsFactory;
+
+    private InvalidationBus invalidationBus;
+
+
+    @Inject
+    public InvalidationBusProvider( final InvalidationFig invalidationFig,
+                                    final InvalidationSerialization invalidationSerialization,
+                                    final MetricsFactory metricsFactory ) {
+        this.invalidationFig = invalidationFig;
+        this.invalidationSerialization = invalidationSerialization;
+        this.metricsFactory = metricsFactory;
+    }
+
+
+    @Override
+    public synchronized InvalidationBus get() {
+        if ( invalidationBus == null ) {
+            invalidationBus = getInvalidationBus();
+        }
+
+        return invalidationBus;
+    }
+
+
+    private InvalidationBus getInvalidationBus() {
+        final Transport transport = Transport.valueOf( invalidationFig.getTransport() );
+
+        switch ( transport ) {
+            case LOCAL:
+                return new LocalInvalidationBus();
+            case CASSANDRA:
+                return new CassandraInvalidationBus( invalidationSerialization, invalidationFig, metricsFactory );
+            default:
+                throw new IllegalArgumentException( "Configuration value of " + transport + " is not supported" );
+        }
+    }
+
+
+    /**
+     * Different transports
+     */
+    public enum Transport {
+        LOCAL,
+        CASSANDRA
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration for the cache invalidation bus
+ */
+@FigSingleton
+public interface InvalidationFig extends GuicyFig {
+
+    String TRANSPORT = "usergrid.cache.invalidation.transport";
+
+    String POLL_INTERVAL = "usergrid.cache.invalidation.poll.interval";
+
+    String BUCKET_SIZE = "usergrid.cache.invalidation.bucket.size";
+
+
+    /**
+     * How invalidations reach the other nodes, LOCAL keeps them on this node
+     */
+    @Key( TRANSPORT )
+    @Default( "LOCAL" )
+    String getTransport();
+
+    /**
+     * The time in milliseconds between reads of the invalidations published by other nodes
+     */
+    @Key( POLL_INTERVAL )
+    @Default( "1000" )
+    long getPollInterval();
+
+    /**
+     * The time in milliseconds of the invalidations kept in a single row.  The clocks of the nodes must be closer than
+     * this
+     */
+    @Key( BUCKET_SIZE )
+    @Default( "10000" )
+    long getBucketSize();
+}
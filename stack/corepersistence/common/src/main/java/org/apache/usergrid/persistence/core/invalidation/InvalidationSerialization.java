@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
+
+
+/**
+ * Stores the invalidations published by each node for the others to read.  Invalidations are kept in buckets of
+ * time, and expire
+ */
+public interface InvalidationSerialization extends Migration {
+
+    /**
+     * Write the invalidation to the bucket, to expire after the ttl in seconds
+     */
+    void write( final long bucket, final Invalidation invalidation, final int ttl );
+
+    /**
+     * Read the invalidations of the bucket by the time uuid they were written with, in the order they were written
+     */
+    Map<UUID, Invalidation> read( final long bucket );
+}
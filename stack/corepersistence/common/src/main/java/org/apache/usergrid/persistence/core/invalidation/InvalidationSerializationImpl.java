@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+
+import org.apache.usergrid.persistence.core.astyanax.CassandraCluster;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.astyanax.StringRowCompositeSerializer;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.model.ColumnList;
+import com.netflix.astyanax.serializers.TimeUUIDSerializer;
+import com.netflix.astyanax.util.RangeBuilder;
+
+
+@Singleton
+public class InvalidationSerializationImpl implements InvalidationSerialization {
+
+    /**
+     * Just a hard coded scope, invalidations aren't per application
+     */
+    private static final Id STATIC_ID =
+            new SimpleId( UUID.fromString( "00000000-0000-1000-8000-000000000000" ), "cacheInvalidations" );
+
+    private static final ScopedRowKeySerializer<String> ROW_KEY_SER =
+            new ScopedRowKeySerializer<String>( StringRowCompositeSerializer.get() );
+
+    public static final MultiTenantColumnFamily<ScopedRowKey<String>, UUID> CF_CACHE_INVALIDATIONS =
+            new MultiTenantColumnFamily<>( "Cache_Invalidations", ROW_KEY_SER, TimeUUIDSerializer.get() );
+
+    /**
+     * The most invalidations read from a bucket in a single query, the row is read a page at a time
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private static final String SEPARATOR = "\n";
+
+    private final Keyspace keyspace;
+
+
+    @Inject
+    public InvalidationSerializationImpl( final CassandraCluster cassandraCluster ) {
+        this.keyspace = cassandraCluster.getApplicationKeyspace();
+    }
+
+
+    @Override
+    public void write( final long bucket, final Invalidation invalidation, final int ttl ) {
+
+        final StringBuilder value = new StringBuilder();
+        value.append( invalidation.getNodeId() ).append( SEPARATOR ).append( invalidation.getCacheName() );
+
+        if ( invalidation.getKey().isPresent() ) {
+            value.append( SEPARATOR ).append( invalidation.getKey().get() );
+        }
+
+        try {
+            keyspace.prepareColumnMutation( CF_CACHE_INVALIDATIONS, getRowKey( bucket ), UUIDGenerator.newTimeUUID() )
+                    .putValue( value.toString(), ttl ).execute();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to write cache invalidation", e );
+        }
+    }
+
+
+    @Override
+    public Map<UUID, Invalidation> read( final long bucket ) {
+
+        final ScopedRowKey<String> rowKey = getRowKey( bucket );
+        final Map<UUID, Invalidation> invalidations = new LinkedHashMap<>();
+
+        UUID start = null;
+
+        while ( true ) {
+            final RangeBuilder range = new RangeBuilder().setLimit( PAGE_SIZE );
+
+            //the start is inclusive, so each page after the first begins with the last column of the one before
+            if ( start != null ) {
+                range.setStart( start, TimeUUIDSerializer.get() );
+            }
+
+            final ColumnList<UUID> columns;
+
+            try {
+                columns = keyspace.prepareQuery( CF_CACHE_INVALIDATIONS ).getKey( rowKey )
+                                  .withColumnRange( range.build() ).execute().getResult();
+            }
+            catch ( ConnectionException e ) {
+                throw new RuntimeException( "Unable to read cache invalidations", e );
+            }
+
+            for ( Column<UUID> column : columns ) {
+                final String[] parts = column.getStringValue().split( SEPARATOR, 3 );
+
+                invalidations.put( column.getName(), new Invalidation( UUID.fromString( parts[0] ), parts[1],
+                    parts.length > 2 ? Optional.of( parts[2] ) : Optional.<String>absent() ) );
+
+                start = column.getName();
+            }
+
+            if ( columns.size() < PAGE_SIZE ) {
+                return invalidations;
+            }
+        }
+    }
+
+
+    @Override
+    public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+        return Collections.singletonList(
+                new MultiTenantColumnFamilyDefinition( CF_CACHE_INVALIDATIONS, BytesType.class.getSimpleName(),
+                        TimeUUIDType.class.getSimpleName(), UTF8Type.class.getSimpleName(),
+                        MultiTenantColumnFamilyDefinition.CacheOption.KEYS ) );
+    }
+
+
+    private ScopedRowKey<String> getRowKey( final long bucket ) {
+        return ScopedRowKey.fromKey( STATIC_ID, Long.toString( bucket ) );
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * Invalidates the subscribers on this node only.  Used for tests and single node deployments
+ */
+public class LocalInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger( LocalInvalidationBus.class );
+
+    private final ConcurrentHashMap<String, List<InvalidationListener>> listeners = new ConcurrentHashMap<>();
+
+
+    @Override
+    public void subscribe( final String cacheName, final InvalidationListener listener ) {
+        listeners.computeIfAbsent( cacheName, name -> new CopyOnWriteArrayList<>() ).add( listener );
+    }
+
+
+    @Override
+    public void invalidate( final String cacheName, final String key ) {
+        publish( cacheName, Optional.of( key ) );
+    }
+
+
+    @Override
+    public void invalidateAll( final String cacheName ) {
+        publish( cacheName, Optional.<String>absent() );
+    }
+
+
+    /**
+     * Publish the invalidation to the other nodes, after this one is invalidated
+     */
+    protected void publish( final String cacheName, final Optional<String> key ) {
+        deliver( cacheName, key );
+    }
+
+
+    /**
+     * Invalidate the subscribers on this node
+     */
+    protected void deliver( final String cacheName, final Optional<String> key ) {
+        final List<InvalidationListener> subscribed = listeners.get( cacheName );
+
+        if ( subscribed == null ) {
+            return;
+        }
+
+        for ( InvalidationListener listener : subscribed ) {
+            try {
+                listener.invalidate( key );
+            }
+            catch ( Exception e ) {
+                logger.error( "Unable to invalidate cache " + cacheName, e );
+            }
+        }
+    }
+}
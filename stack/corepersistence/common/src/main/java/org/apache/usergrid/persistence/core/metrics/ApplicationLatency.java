@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.metrics;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * The latencies of one application's operations.  The total time includes the time of the application it replaced in
+ * the tracked applications, it overstates the real time by at most the error.
+ */
+public class ApplicationLatency {
+
+    private final UUID applicationId;
+    private final double totalTime;
+    private final double error;
+    private final Map<String, LatencySnapshot> operations;
+
+
+    public ApplicationLatency( final UUID applicationId, final double totalTime, final double error,
+                               final Map<String, LatencySnapshot> operations ) {
+        this.applicationId = applicationId;
+        this.totalTime = totalTime;
+        this.error = error;
+        this.operations = operations;
+    }
+
+
+    public UUID getApplicationId() {
+        return applicationId;
+    }
+
+
+    /**
+     * The total time in milliseconds
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+
+    /**
+     * The most the total time is overstated by, in milliseconds
+     */
+    public double getError() {
+        return error;
+    }
+
+
+    public Map<String, LatencySnapshot> getOperations() {
+        return operations;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.metrics;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import rx.Observable;
+
+
+/**
+ * Latency and throughput of operations per application.  Every operation is recorded for all applications together,
+ * and for the busiest applications by the time they spend, so one tenant can be told apart from the rest.
+ */
+public interface ApplicationMetrics {
+
+    String ENTITY_LOAD = "entity.load";
+
+    String ENTITY_WRITE = "entity.write";
+
+    String EDGE_READ = "edge.read";
+
+    String INDEX_SEARCH = "index.search";
+
+    String INDEX_FLUSH = "index.flush";
+
+    String TOKEN_CHECK = "token.check";
+
+
+    /**
+     * Record an operation of the application that took the duration
+     */
+    void record( UUID applicationId, String operation, long durationNanos );
+
+    /**
+     * Record the time from subscribing to the observable until it completes
+     */
+    <T> Observable<T> time( Observable<T> observable, UUID applicationId, String operation );
+
+    /**
+     * Get the latencies of each operation for all applications
+     */
+    Map<String, LatencySnapshot> getOperations();
+
+    /**
+     * Get the applications that have spent the most time, the busiest first
+     */
+    List<ApplicationLatency> getTopApplications( int count );
+}
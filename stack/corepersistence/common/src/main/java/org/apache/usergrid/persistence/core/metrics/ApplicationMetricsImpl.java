@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.metrics;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Gauge;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import rx.Observable;
+
+
+/**
+ * Keeps the applications with the most time spent using the Space-Saving algorithm.  At most the configured number of
+ * applications are tracked.  When a new application is recorded and there's no room, the application with the least
+ * time is replaced and the new one starts with its time, so a busy application is never lost to a stream of quiet
+ * ones.  The time an application inherits is its error.
+ *
+ * The latencies of each operation for all applications are also added to the registry as gauges, so they're reported
+ * to graphite and JMX with the rest of the metrics.
+ */
+@Singleton
+public class ApplicationMetricsImpl implements ApplicationMetrics {
+
+    private final MetricsFactory metricsFactory;
+
+    private final boolean enabled;
+
+    private final int tracked;
+
+    private final Map<String, LatencyRecorder> operations = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Application> applications = new ConcurrentHashMap<>();
+
+    /**
+     * Held while adding an application, recording for tracked applications never takes it
+     */
+    private final Object replaceLock = new Object();
+
+
+    @Inject
+    public ApplicationMetricsImpl( final MetricsFig metricsFig, final MetricsFactory metricsFactory ) {
+        this.metricsFactory = metricsFactory;
+        this.enabled = metricsFig.getApplicationMetricsEnabled();
+        this.tracked = Math.max( 1, metricsFig.getApplicationMetricsTracked() );
+    }
+
+
+    @Override
+    public void record( final UUID applicationId, final String operation, final long durationNanos ) {
+        if ( !enabled ) {
+            return;
+        }
+
+        operations.computeIfAbsent( operation, this::createOperation ).record( durationNanos );
+
+        if ( applicationId == null ) {
+            return;
+        }
+
+        final Application application = getApplication( applicationId );
+        application.time.add( durationNanos );
+        application.operations.computeIfAbsent( operation, name -> new LatencyRecorder() ).record( durationNanos );
+    }
+
+
+    @Override
+    public <T> Observable<T> time( final Observable<T> observable, final UUID applicationId,
+                                   final String operation ) {
+        if ( !enabled ) {
+            return observable;
+        }
+
+        return Observable.defer( () -> {
+            final long start = System.nanoTime();
+
+            return observable.doOnCompleted( () -> record( applicationId, operation, System.nanoTime() - start ) );
+        } );
+    }
+
+
+    @Override
+    public Map<String, LatencySnapshot> getOperations() {
+        return getSnapshots( operations );
+    }
+
+
+    @Override
+    public List<ApplicationLatency> getTopApplications( final int count ) {
+        final List<Application> busiest = new ArrayList<>( applications.values() );
+
+        //sum once, the times change while sorting
+        final Map<Application, Long> times = new HashMap<>();
+        busiest.forEach( application -> times.put( application, application.time.sum() ) );
+        busiest.sort( Comparator.comparing( times::get, Comparator.reverseOrder() ) );
+
+        final List<ApplicationLatency> results = new ArrayList<>( Math.min( count, busiest.size() ) );
+
+        for ( int i = 0; i < count && i < busiest.size(); i++ ) {
+            final Application application = busiest.get( i );
+
+            results.add( new ApplicationLatency( application.applicationId, times.get( application ) / 1000000d,
+                application.error / 1000000d, getSnapshots( application.operations ) ) );
+        }
+
+        return results;
+    }
+
+
+    private Application getApplication( final UUID applicationId ) {
+        Application application = applications.get( applicationId );
+
+        if ( application != null ) {
+            return application;
+        }
+
+        synchronized ( replaceLock ) {
+            application = applications.get( applicationId );
+
+            if ( application != null ) {
+                return application;
+            }
+
+            long inherited = 0;
+
+            if ( applications.size() >= tracked ) {
+                Application least = null;
+                long leastTime = Long.MAX_VALUE;
+
+                for ( Application candidate : applications.values() ) {
+                    final long time = candidate.time.sum();
+                    if ( time < leastTime ) {
+                        least = candidate;
+                        leastTime = time;
+                    }
+                }
+
+                applications.remove( least.applicationId );
+                inherited = leastTime;
+            }
+
+            application = new Application( applicationId, inherited );
+            applications.put( applicationId, application );
+
+            return application;
+        }
+    }
+
+
+    /**
+     * Create the recorder for all applications, and report its latencies
+     */
+    private LatencyRecorder createOperation( final String operation ) {
+        final LatencyRecorder recorder = new LatencyRecorder();
+
+        metricsFactory.addGauge( ApplicationMetricsImpl.class, operation + ".p99",
+            ( Gauge<Double> ) () -> recorder.getSnapshot().getP99() );
+        metricsFactory.addGauge( ApplicationMetricsImpl.class, operation + ".p999",
+            ( Gauge<Double> ) () -> recorder.getSnapshot().getP999() );
+        metricsFactory.addGauge( ApplicationMetricsImpl.class, operation + ".rate",
+            ( Gauge<Double> ) () -> recorder.getSnapshot().getRate() );
+
+        return recorder;
+    }
+
+
+    private static Map<String, LatencySnapshot> getSnapshots( final Map<String, LatencyRecorder> recorders ) {
+        final Map<String, LatencySnapshot> snapshots = new TreeMap<>();
+        recorders.forEach( ( operation, recorder ) -> snapshots.put( operation, recorder.getSnapshot() ) );
+        return snapshots;
+    }
+
+
+    private static final class Application {
+
+        private final UUID applicationId;
+
+        /**
+         * The time inherited from the application this replaced, in nanoseconds
+         */
+        private final long error;
+
+        private final LongAdder time = new LongAdder();
+
+        private final Map<String, LatencyRecorder> operations = new ConcurrentHashMap<>();
+
+
+        private Application( final UUID applicationId, final long error ) {
+            this.applicationId = applicationId;
+            this.error = error;
+            this.time.add( error );
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.metrics;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Meter;
+
+
+/**
+ * Records latencies into a fixed set of log-linear buckets, the way HdrHistogram does.  Every power of two is split
+ * into 32 buckets, so any percentile is within about 3% of the real value, from a microsecond up to an hour, in a fixed
+ * 7KB.  Unlike the sampling reservoirs of the default timers nothing is dropped, so the tail percentiles are exact to
+ * the bucket.  Recording is a few atomic increments and never locks.
+ */
+public class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    /**
+     * Anything slower is recorded as an hour
+     */
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros( 1 );
+
+    private final AtomicLongArray counts = new AtomicLongArray( getIndex( MAX_MICROS ) + 1 );
+
+    private final LongAdder totalMicros = new LongAdder();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    private final Meter meter = new Meter();
+
+
+    /**
+     * Record an operation that took the duration
+     */
+    public void record( final long durationNanos ) {
+        final long micros = Math.min( MAX_MICROS, Math.max( 0, TimeUnit.NANOSECONDS.toMicros( durationNanos ) ) );
+
+        counts.incrementAndGet( getIndex( micros ) );
+        totalMicros.add( micros );
+        meter.mark();
+
+        long max = maxMicros.get();
+        while ( micros > max && !maxMicros.compareAndSet( max, micros ) ) {
+            max = maxMicros.get();
+        }
+    }
+
+
+    public long getCount() {
+        return meter.getCount();
+    }
+
+
+    /**
+     * The total time recorded, in microseconds
+     */
+    public long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+
+    /**
+     * Take a snapshot of the recorded latencies.  Operations recorded while the snapshot is taken may be partly
+     * included
+     */
+    public LatencySnapshot getSnapshot() {
+        final long[] snapshot = new long[counts.length()];
+        long count = 0;
+
+        for ( int i = 0; i < snapshot.length; i++ ) {
+            snapshot[i] = counts.get( i );
+            count += snapshot[i];
+        }
+
+        final long max = maxMicros.get();
+
+        return new LatencySnapshot( count, meter.getOneMinuteRate(),
+            count == 0 ? 0 : totalMicros.sum() / ( double ) count / 1000,
+            getPercentile( snapshot, count, max, 0.5 ), getPercentile( snapshot, count, max, 0.9 ),
+            getPercentile( snapshot, count, max, 0.99 ), getPercentile( snapshot, count, max, 0.999 ),
+            max / 1000d );
+    }
+
+
+    /**
+     * Get the percentile in milliseconds.  Reports the highest value of the bucket it falls in, the same as
+     * HdrHistogram, so it never understates the latency
+     */
+    private static double getPercentile( final long[] snapshot, final long count, final long max,
+                                         final double percentile ) {
+        if ( count == 0 ) {
+            return 0;
+        }
+
+        final long target = Math.max( 1, ( long ) Math.ceil( percentile * count ) );
+
+        long seen = 0;
+        for ( int i = 0; i < snapshot.length; i++ ) {
+            seen += snapshot[i];
+            if ( seen >= target ) {
+                return Math.min( getHighestValue( i ), max ) / 1000d;
+            }
+        }
+
+        return max / 1000d;
+    }
+
+
+    /**
+     * Values below the sub bucket count have a bucket each.  Above that, each power of two is split into half the sub
+     * bucket count
+     */
+    static int getIndex( final long value ) {
+        if ( value < SUB_BUCKET_COUNT ) {
+            return ( int ) value;
+        }
+
+        final int magnitude = 64 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+
+        return magnitude * SUB_BUCKET_HALF_COUNT + ( int ) ( value >>> magnitude );
+    }
+
+
+    /**
+     * The highest value recorded in the bucket
+     */
+    static long getHighestValue( final int index ) {
+        if ( index < SUB_BUCKET_COUNT ) {
+            return index;
+        }
+
+        final int magnitude = index / SUB_BUCKET_HALF_COUNT - 1;
+        final long subBucket = index - magnitude * SUB_BUCKET_HALF_COUNT;
+
+        return ( ( subBucket + 1 ) << magnitude ) - 1;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.metrics;
+
+
+/**
+ * The latencies recorded by a {@link LatencyRecorder}.  Times are in milliseconds, the rate is per second over the last
+ * minute
+ */
+public class LatencySnapshot {
+
+    private final long count;
+    private final double rate;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+
+    public LatencySnapshot( final long count, final double rate, final double mean, final double p50,
+                            final double p90, final double p99, final double p999, final double max ) {
+        this.count = count;
+        this.rate = rate;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+
+    public long getCount() {
+        return count;
+    }
+
+
+    public double getRate() {
+        return rate;
+    }
+
+
+    public double getMean() {
+        return mean;
+    }
+
+
+    public double getP50() {
+        return p50;
+    }
+
+
+    public double getP90() {
+        return p90;
+    }
+
+
+    public double getP99() {
+        return p99;
+    }
+
+
+    public double getP999() {
+        return p999;
+    }
+
+
+    public double getMax() {
+        return max;
+    }
+}
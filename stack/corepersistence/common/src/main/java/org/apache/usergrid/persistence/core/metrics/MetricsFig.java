@@ -33,4 +33,18 @@ public interface MetricsFig extends GuicyFig {
     @Default("false")
     @Key( "usergrid.metrics.graphite.host" )
     String getHost();
+
+    /**
+     * Record latencies per application.
+     */
+    @Default("true")
+    @Key( "usergrid.metrics.application.enabled" )
+    boolean getApplicationMetricsEnabled();
+
+    /**
+     * The most applications to keep latencies for.  The busiest are kept.
+     */
+    @Default("100")
+    @Key( "usergrid.metrics.application.tracked" )
+    int getApplicationMetricsTracked();
 }
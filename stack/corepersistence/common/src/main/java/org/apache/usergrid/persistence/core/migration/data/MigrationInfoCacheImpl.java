@@ -27,6 +27,8 @@ package org.apache.usergrid.persistence.core.migration.data;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
+
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -37,6 +39,8 @@ import com.google.inject.Singleton;
 @Singleton
 public class MigrationInfoCacheImpl implements MigrationInfoCache{
 
+    private static final String CACHE_NAME = "migrationVersions";
+
     /**
      * Cache to cache versions temporarily
      */
@@ -51,24 +55,37 @@ public class MigrationInfoCacheImpl implements MigrationInfoCache{
 
 
     private final MigrationInfoSerialization migrationInfoSerialization;
+    private final InvalidationBus invalidationBus;
 
 
     @Inject
-    public MigrationInfoCacheImpl( final MigrationInfoSerialization migrationInfoSerialization ) {
+    public MigrationInfoCacheImpl( final MigrationInfoSerialization migrationInfoSerialization,
+                                   final InvalidationBus invalidationBus ) {
         this.migrationInfoSerialization = migrationInfoSerialization;
+        this.invalidationBus = invalidationBus;
+
+        //a migration run on any node changes the versions on every node
+        invalidationBus.subscribe( CACHE_NAME, key -> {
+            if ( key.isPresent() ) {
+                versionCache.invalidate( key.get() );
+            }
+            else {
+                versionCache.invalidateAll();
+            }
+        } );
     }
 
 
     @Override
     public void invalidateAll() {
-        versionCache.invalidateAll();
+        invalidationBus.invalidateAll( CACHE_NAME );
     }
 
 
     @Override
     public void setVersion( final String pluginName, final int version ) {
         migrationInfoSerialization.setVersion( pluginName, version );
-        versionCache.invalidate( pluginName );
+        invalidationBus.invalidate( CACHE_NAME, pluginName );
     }
 
 
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The spans of a single request.  Spans are kept in arrays allocated with the trace, recording one is a few array
+ * writes.  Spans past the maximum are counted and dropped.  Spans may be recorded from any thread.
+ */
+public class Trace {
+
+    private final String id;
+    private final String name;
+    private final long startTime;
+    private final long startNanos;
+
+    private final String[] spanNames;
+    private final String[] spanThreads;
+    private final long[] spanStarts;
+    private final long[] spanDurations;
+
+    private final AtomicInteger spanCount = new AtomicInteger();
+
+    private volatile long duration = -1;
+
+
+    public Trace( final String id, final String name, final int maxSpans ) {
+        this.id = id;
+        this.name = name;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+
+        this.spanNames = new String[maxSpans];
+        this.spanThreads = new String[maxSpans];
+        this.spanStarts = new long[maxSpans];
+        this.spanDurations = new long[maxSpans];
+    }
+
+
+    /**
+     * Record a span with the start and end from {@link System#nanoTime()}
+     */
+    public void addSpan( final String spanName, final long start, final long end ) {
+        final int index = spanCount.getAndIncrement();
+
+        if ( index >= spanNames.length ) {
+            return;
+        }
+
+        spanStarts[index] = start - startNanos;
+        spanDurations[index] = end - start;
+        spanThreads[index] = Thread.currentThread().getName();
+
+        //written last, a span without a name isn't complete yet
+        spanNames[index] = spanName;
+    }
+
+
+    /**
+     * End the trace
+     */
+    public void end() {
+        duration = System.nanoTime() - startNanos;
+    }
+
+
+    public String getId() {
+        return id;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * The time the trace started, in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+
+    /**
+     * The duration in milliseconds, or -1 if the trace hasn't ended
+     */
+    public double getDuration() {
+        final long nanos = duration;
+        return nanos < 0 ? -1 : nanos / 1000000d;
+    }
+
+
+    /**
+     * The number of spans dropped because the trace was full
+     */
+    public int getDropped() {
+        return Math.max( 0, spanCount.get() - spanNames.length );
+    }
+
+
+    /**
+     * Get the spans, in the order they ended
+     */
+    public List<Span> getSpans() {
+        final int count = Math.min( spanCount.get(), spanNames.length );
+        final List<Span> spans = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ ) {
+            final String spanName = spanNames[i];
+
+            if ( spanName != null ) {
+                spans.add( new Span( spanName, spanThreads[i], spanStarts[i] / 1000000d,
+                    spanDurations[i] / 1000000d ) );
+            }
+        }
+
+        return spans;
+    }
+
+
+    /**
+     * A span of the trace.  Times are in milliseconds, the start is from the start of the trace
+     */
+    public static class Span {
+
+        private final String name;
+        private final String thread;
+        private final double start;
+        private final double duration;
+
+
+        public Span( final String name, final String thread, final double start, final double duration ) {
+            this.name = name;
+            this.thread = thread;
+            this.start = start;
+            this.duration = duration;
+        }
+
+
+        public String getName() {
+            return name;
+        }
+
+
+        public String getThread() {
+            return thread;
+        }
+
+
+        public double getStart() {
+            return start;
+        }
+
+
+        public double getDuration() {
+            return duration;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration for tracing requests
+ */
+@FigSingleton
+public interface TraceFig extends GuicyFig {
+
+    /**
+     * The fraction of requests to trace, from 0 to 1.  Requests with the trace header are always traced
+     */
+    @Default( "0" )
+    @Key( "usergrid.trace.sample.rate" )
+    double getSampleRate();
+
+    /**
+     * The number of finished traces to keep
+     */
+    @Default( "200" )
+    @Key( "usergrid.trace.buffer.size" )
+    int getBufferSize();
+
+    /**
+     * The most spans to record in a trace
+     */
+    @Default( "500" )
+    @Key( "usergrid.trace.spans.max" )
+    int getMaxSpans();
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import java.util.List;
+
+
+/**
+ * Starts traces of sampled requests and keeps the most recent finished traces
+ */
+public interface TraceService {
+
+    /**
+     * Start a trace of the request and attach it to the current thread.  Returns null if the request isn't sampled
+     *
+     * @param name The name of the request
+     * @param force True to trace the request even if it isn't sampled
+     */
+    Trace start( String name, boolean force );
+
+    /**
+     * End the trace, detach it from the current thread and keep it
+     */
+    void stop( Trace trace );
+
+    /**
+     * Get the finished traces, the most recent first
+     */
+    List<Trace> getTraces();
+
+    /**
+     * Get the finished trace with the id, or null if it's no longer kept
+     */
+    Trace getTrace( String id );
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import rx.plugins.RxJavaPlugins;
+
+
+/**
+ * Keeps finished traces in a ring buffer, the oldest is overwritten when it's full
+ */
+@Singleton
+public class TraceServiceImpl implements TraceService {
+
+    private static final Logger logger = LoggerFactory.getLogger( TraceServiceImpl.class );
+
+    private final double sampleRate;
+
+    private final int maxSpans;
+
+    private final AtomicReferenceArray<Trace> traces;
+
+    private final AtomicLong nextTrace = new AtomicLong();
+
+
+    @Inject
+    public TraceServiceImpl( final TraceFig traceFig ) {
+        this.sampleRate = traceFig.getSampleRate();
+        this.maxSpans = traceFig.getMaxSpans();
+        this.traces = new AtomicReferenceArray<>( Math.max( 1, traceFig.getBufferSize() ) );
+
+        registerSchedulersHook();
+    }
+
+
+    @Override
+    public Trace start( final String name, final boolean force ) {
+        if ( !force && ( sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate ) ) {
+            return null;
+        }
+
+        final Trace trace = new Trace( UUIDGenerator.newTimeUUID().toString(), name, maxSpans );
+
+        Tracer.attach( trace );
+
+        return trace;
+    }
+
+
+    @Override
+    public void stop( final Trace trace ) {
+        if ( Tracer.current() == trace ) {
+            Tracer.attach( null );
+        }
+
+        trace.end();
+
+        traces.set( ( int ) ( nextTrace.getAndIncrement() % traces.length() ), trace );
+    }
+
+
+    @Override
+    public List<Trace> getTraces() {
+        final long next = nextTrace.get();
+        final int size = traces.length();
+
+        final List<Trace> results = new ArrayList<>( size );
+
+        for ( long i = next - 1; i >= 0 && i >= next - size; i-- ) {
+            final Trace trace = traces.get( ( int ) ( i % size ) );
+
+            if ( trace != null ) {
+                results.add( trace );
+            }
+        }
+
+        return results;
+    }
+
+
+    @Override
+    public Trace getTrace( final String id ) {
+        for ( int i = 0; i < traces.length(); i++ ) {
+            final Trace trace = traces.get( i );
+
+            if ( trace != null && trace.getId().equals( id ) ) {
+                return trace;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Carry traces across the rx schedulers.  Rx allows a single hook, it may already be set
+     */
+    private static void registerSchedulersHook() {
+        try {
+            RxJavaPlugins.getInstance().registerSchedulersHook( new TracingSchedulersHook() );
+        }
+        catch ( IllegalStateException e ) {
+            if ( !( RxJavaPlugins.getInstance().getSchedulersHook() instanceof TracingSchedulersHook ) ) {
+                logger.warn( "Rx schedulers hook is already set, traces won't follow work onto the rx schedulers" );
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import rx.Observable;
+import rx.functions.Action0;
+
+
+/**
+ * Keeps the trace of the current request on the thread, and records spans into it.  When the request isn't traced,
+ * recording a span is a thread local read.
+ *
+ * <pre>
+ *     final long start = Tracer.start();
+ *     ...
+ *     Tracer.end( "entity.load", start );
+ * </pre>
+ *
+ * The trace follows work scheduled on the Rx schedulers, see {@link TracingSchedulersHook}, and on the task executors.
+ */
+public final class Tracer {
+
+    private static final ThreadLocal<Trace> currentTrace = new ThreadLocal<>();
+
+
+    private Tracer() {}
+
+
+    /**
+     * Get the trace of the current thread, or null if there isn't one
+     */
+    public static Trace current() {
+        return currentTrace.get();
+    }
+
+
+    /**
+     * Set the trace of the current thread, null to remove it.  Returns the trace it replaced
+     */
+    public static Trace attach( final Trace trace ) {
+        final Trace previous = currentTrace.get();
+
+        if ( trace == null ) {
+            currentTrace.remove();
+        }
+        else {
+            currentTrace.set( trace );
+        }
+
+        return previous;
+    }
+
+
+    /**
+     * Start a span.  Returns 0 if there is no trace
+     */
+    public static long start() {
+        return currentTrace.get() == null ? 0 : System.nanoTime();
+    }
+
+
+    /**
+     * End the span started at the time returned from {@link #start()}
+     */
+    public static void end( final String spanName, final long start ) {
+        if ( start == 0 ) {
+            return;
+        }
+
+        final Trace trace = currentTrace.get();
+
+        if ( trace != null ) {
+            trace.addSpan( spanName, start, System.nanoTime() );
+        }
+    }
+
+
+    /**
+     * Record a span from subscribing to the observable until it terminates.  The trace is the one of the subscribing
+     * thread, the observable may complete on any thread
+     */
+    public static <T> Observable<T> trace( final Observable<T> observable, final String spanName ) {
+        return Observable.defer( () -> {
+            final Trace trace = currentTrace.get();
+
+            if ( trace == null ) {
+                return observable;
+            }
+
+            final long start = System.nanoTime();
+
+            return observable.finallyDo( () -> trace.addSpan( spanName, start, System.nanoTime() ) );
+        } );
+    }
+
+
+    /**
+     * Run the runnable with the trace of the current thread
+     */
+    public static Runnable wrap( final Runnable runnable ) {
+        final Trace trace = currentTrace.get();
+
+        if ( trace == null ) {
+            return runnable;
+        }
+
+        return () -> {
+            final Trace previous = attach( trace );
+            try {
+                runnable.run();
+            }
+            finally {
+                attach( previous );
+            }
+        };
+    }
+
+
+    /**
+     * Run the action with the trace of the current thread
+     */
+    public static Action0 wrap( final Action0 action ) {
+        final Trace trace = currentTrace.get();
+
+        if ( trace == null ) {
+            return action;
+        }
+
+        return () -> {
+            final Trace previous = attach( trace );
+            try {
+                action.call();
+            }
+            finally {
+                attach( previous );
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import rx.functions.Action0;
+import rx.plugins.RxJavaSchedulersHook;
+
+
+/**
+ * Carries the trace of the scheduling thread to the thread the action runs on, for the io, computation and new thread
+ * schedulers.  Registered by {@link TraceServiceImpl}.  Rx only takes the first hook registered, if it's used before
+ * the trace service starts, set the system property
+ * {@code rxjava.plugin.RxJavaSchedulersHook.implementation} to this class.
+ */
+public class TracingSchedulersHook extends RxJavaSchedulersHook {
+
+    @Override
+    public Action0 onSchedule( final Action0 action ) {
+        return Tracer.wrap( action );
+    }
+}
@@ -181,7 +181,7 @@ public class MultiKeyColumnNameIteratorTest {
              */
             final MultiKeyColumnNameIterator<Long, Long> ascendingItr =
                 new MultiKeyColumnNameIterator<>( Arrays.asList( row1Iterator, row2Iterator, row3Iterator ),
-                    ascendingComparator, 900 );
+                    ascendingComparator, 900 , Schedulers.io() );
 
 
             //ensure we have to make several trips, purposefully set to a nonsensical value to ensure we make all the
@@ -211,7 +211,7 @@ public class MultiKeyColumnNameIteratorTest {
              */
             final MultiKeyColumnNameIterator<Long, Long> descendingItr =
                 new MultiKeyColumnNameIterator<>( Arrays.asList( row1IteratorDesc, row2IteratorDesc, row3IteratorDesc ),
-                    descendingComparator, 900 );
+                    descendingComparator, 900 , Schedulers.io() );
 
 
             for ( long i = maxValue - 1; i > -1; i-- ) {
@@ -273,7 +273,7 @@ public class MultiKeyColumnNameIteratorTest {
             */
            final MultiKeyColumnNameIterator<Long, Long> ascendingItr =
                    new MultiKeyColumnNameIterator<>( Arrays.asList( row1Iterator ),
-                           ascendingComparator, 900 );
+                           ascendingComparator, 900 , Schedulers.io() );
 
 
            //ensure we have to make several trips, purposefully set to a nonsensical value to ensure we make all the
@@ -302,7 +302,7 @@ public class MultiKeyColumnNameIteratorTest {
             */
            final MultiKeyColumnNameIterator<Long, Long> descendingItr =
                    new MultiKeyColumnNameIterator<>( Arrays.asList( row1IteratorDesc),
-                           descendingComparator, 900 );
+                           descendingComparator, 900 , Schedulers.io() );
 
 
            for ( long i = maxValue - 1; i > -1; i-- ) {
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.astyanax;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.Mutation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
+import com.netflix.astyanax.model.ConsistencyLevel;
+import com.netflix.astyanax.thrift.AbstractThriftMutationBatchImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class MutationBatchCoalescerImplTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private final CountDownLatch started = new CountDownLatch( 1 );
+
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    private Keyspace keyspace;
+
+    private MutationCoalescerFig fig;
+
+    private MetricsFactory metricsFactory;
+
+    private AbstractThriftMutationBatchImpl merged;
+
+    private final Map<ByteBuffer, Map<String, List<Mutation>>> mergedRows = new HashMap<>();
+
+    private int rowKeys;
+
+
+    @Before
+    public void setup() {
+        keyspace = mock( Keyspace.class );
+        merged = mock( AbstractThriftMutationBatchImpl.class );
+
+        when( keyspace.prepareMutationBatch() ).thenReturn( merged );
+        when( merged.withConsistencyLevel( ConsistencyLevel.CL_QUORUM ) ).thenReturn( merged );
+        when( merged.getMutationMap() ).thenReturn( mergedRows );
+
+        fig = mock( MutationCoalescerFig.class );
+        when( fig.isEnabled() ).thenReturn( true );
+        when( fig.getWaitMicros() ).thenReturn( TimeUnit.SECONDS.toMicros( 30 ) );
+        when( fig.getMaxRows() ).thenReturn( 3 );
+        when( fig.getThreads() ).thenReturn( 2 );
+
+        metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getHistogram( any( Class.class ), anyString() ) )
+            .thenReturn( new Histogram( new ExponentiallyDecayingReservoir() ) );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+    }
+
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+
+    @Test
+    public void disabledWritesDirectly() throws ConnectionException {
+        when( fig.isEnabled() ).thenReturn( false );
+
+        final MutationBatch batch = batch();
+
+        new MutationBatchCoalescerImpl( keyspace, fig, metricsFactory ).execute( batch );
+
+        verify( batch ).execute();
+        verify( keyspace, never() ).prepareMutationBatch();
+    }
+
+
+    @Test
+    public void mergedWhileWriting() throws Exception {
+        final MutationBatchCoalescer coalescer = new MutationBatchCoalescerImpl( keyspace, fig, metricsFactory );
+
+        final Future<?> first = writeFirst( coalescer );
+
+        final MutationBatch second = batch();
+        final MutationBatch third = batch();
+        final MutationBatch fourth = batch();
+
+        final Future<?> secondWrite = write( coalescer, second );
+        final Future<?> thirdWrite = write( coalescer, third );
+        final Future<?> fourthWrite = write( coalescer, fourth );
+
+        //written together while the first batch is still being written
+        secondWrite.get( 10, TimeUnit.SECONDS );
+        thirdWrite.get( 10, TimeUnit.SECONDS );
+        fourthWrite.get( 10, TimeUnit.SECONDS );
+
+        assertFalse( first.isDone() );
+
+        release.countDown();
+        first.get( 10, TimeUnit.SECONDS );
+
+        assertEquals( 3, mergedRows.size() );
+        assertUntouched( second );
+        assertUntouched( third );
+        assertUntouched( fourth );
+        verify( merged, never() ).mergeShallow( any( MutationBatch.class ) );
+        verify( merged, times( 1 ) ).execute();
+
+        verify( second, never() ).execute();
+        verify( third, never() ).execute();
+        verify( fourth, never() ).execute();
+    }
+
+
+    @Test
+    public void failedMergeWrittenIndividually() throws Exception {
+        final MutationBatchCoalescer coalescer = new MutationBatchCoalescerImpl( keyspace, fig, metricsFactory );
+
+        when( merged.execute() ).thenThrow( new OperationTimeoutException( "merged" ) );
+
+        final OperationTimeoutException failure = new OperationTimeoutException( "third" );
+
+        final MutationBatch second = batch();
+        final MutationBatch third = batch();
+        final MutationBatch fourth = batch();
+
+        when( third.execute() ).thenThrow( failure );
+
+        writeFirst( coalescer );
+
+        final Future<?> secondWrite = write( coalescer, second );
+        final Future<?> thirdWrite = write( coalescer, third );
+        final Future<?> fourthWrite = write( coalescer, fourth );
+
+        secondWrite.get( 10, TimeUnit.SECONDS );
+        fourthWrite.get( 10, TimeUnit.SECONDS );
+
+        try {
+            thirdWrite.get( 10, TimeUnit.SECONDS );
+            fail( "the failed batch should fail its caller" );
+        }
+        catch ( ExecutionException e ) {
+            assertSame( failure, e.getCause() );
+        }
+
+        verify( second ).execute();
+        verify( third ).execute();
+        verify( fourth ).execute();
+
+        //the retried batches only hold their own mutations
+        assertUntouched( second );
+        assertUntouched( third );
+        assertUntouched( fourth );
+    }
+
+
+    @Test
+    public void differentOptionsNotMerged() throws Exception {
+        final MutationBatchCoalescer coalescer = new MutationBatchCoalescerImpl( keyspace, fig, metricsFactory );
+
+        writeFirst( coalescer );
+
+        final AbstractThriftMutationBatchImpl atomic = ( AbstractThriftMutationBatchImpl ) batch();
+        when( atomic.useAtomicBatch() ).thenReturn( true );
+        final MutationBatch plain = batch();
+
+        final Future<?> atomicWrite = write( coalescer, atomic );
+        atomicWrite.get( 10, TimeUnit.SECONDS );
+        final Future<?> plainWrite = write( coalescer, plain );
+
+        release.countDown();
+        plainWrite.get( 10, TimeUnit.SECONDS );
+
+        verify( atomic ).execute();
+        verify( plain ).execute();
+        verify( merged, never() ).execute();
+    }
+
+
+    @Test
+    public void pinnedBatchWrittenDirectly() throws ConnectionException {
+        final AbstractThriftMutationBatchImpl pinned = ( AbstractThriftMutationBatchImpl ) batch();
+        when( pinned.getPinnedHost() ).thenReturn( mock( Host.class ) );
+
+        new MutationBatchCoalescerImpl( keyspace, fig, metricsFactory ).execute( pinned );
+
+        verify( pinned ).execute();
+        verify( keyspace, never() ).prepareMutationBatch();
+    }
+
+
+    private void assertUntouched( final MutationBatch batch ) {
+        final Map<ByteBuffer, Map<String, List<Mutation>>> rows =
+            ( ( AbstractThriftMutationBatchImpl ) batch ).getMutationMap();
+        assertEquals( 1, rows.size() );
+        for ( Map<String, List<Mutation>> columnFamilies : rows.values() ) {
+            assertEquals( 1, columnFamilies.get( "cf" ).size() );
+        }
+    }
+
+
+    /**
+     * Write a batch that doesn't finish until released, so the batches after it wait to be merged
+     */
+    private Future<?> writeFirst( final MutationBatchCoalescer coalescer ) throws Exception {
+        final MutationBatch first = batch();
+
+        when( first.execute() ).thenAnswer( invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        } );
+
+        final Future<?> write = write( coalescer, first );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        return write;
+    }
+
+
+    private Future<?> write( final MutationBatchCoalescer coalescer, final MutationBatch batch ) {
+        return callers.submit( () -> {
+            coalescer.execute( batch );
+            return null;
+        } );
+    }
+
+
+    private MutationBatch batch() {
+        final AbstractThriftMutationBatchImpl batch = mock( AbstractThriftMutationBatchImpl.class );
+
+        when( batch.getConsistencyLevel() ).thenReturn( ConsistencyLevel.CL_QUORUM );
+        when( batch.getRowCount() ).thenReturn( 1 );
+
+        final Map<String, List<Mutation>> columnFamilies = new HashMap<>();
+        columnFamilies.put( "cf", new ArrayList<>( Collections.singletonList( new Mutation() ) ) );
+        final Map<ByteBuffer, Map<String, List<Mutation>>> rows = new HashMap<>();
+        rows.put( ByteBuffer.wrap( new byte[] { ( byte ) rowKeys++ } ), columnFamilies );
+        when( batch.getMutationMap() ).thenReturn( rows );
+
+        return batch;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.cache;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class LookupCacheImplTest {
+
+    private MetricsFactory metricsFactory;
+
+
+    @Before
+    public void setup() {
+        metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+    }
+
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch( 1 );
+
+        final LookupCache<String, String> cache = new LookupCacheImpl<>( "test", key -> {
+            loads.incrementAndGet();
+            loading.await();
+            return Optional.of( key + "-value" );
+        }, 10, 60000, 60000, 5, MoreExecutors.sameThreadExecutor(), metricsFactory );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 5 );
+        final List<Future<Optional<String>>> gets = new ArrayList<>();
+
+        for ( int i = 0; i < 5; i++ ) {
+            gets.add( executor.submit( () -> cache.get( "key" ) ) );
+        }
+
+        Thread.sleep( 100 );
+        loading.countDown();
+
+        for ( Future<Optional<String>> get : gets ) {
+            assertEquals( "key-value", get.get( 5, TimeUnit.SECONDS ).get() );
+        }
+
+        executor.shutdown();
+
+        assertEquals( 1, loads.get() );
+    }
+
+
+    @Test
+    public void staleValueServedWhileRefreshing() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final List<Runnable> refreshes = new ArrayList<>();
+
+        final LookupCache<String, Integer> cache =
+            new LookupCacheImpl<>( "test", key -> Optional.of( loads.incrementAndGet() ), 10, 10, 10, 1000,
+                command -> refreshes.add( command ), metricsFactory );
+
+        assertEquals( 1, ( int ) cache.get( "key" ).get() );
+
+        Thread.sleep( 20 );
+
+        //the refresh is queued, and the old value served until it runs
+        assertEquals( 1, ( int ) cache.get( "key" ).get() );
+        assertEquals( 1, ( int ) cache.get( "key" ).get() );
+        assertEquals( 1, refreshes.size() );
+
+        refreshes.get( 0 ).run();
+
+        assertEquals( 2, ( int ) cache.get( "key" ).get() );
+    }
+
+
+    @Test
+    public void missingValuesCached() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+
+        final LookupCache<String, String> cache = new LookupCacheImpl<>( "test", key -> {
+            loads.incrementAndGet();
+            return Optional.absent();
+        }, 10, 60000, 10, 5, MoreExecutors.sameThreadExecutor(), metricsFactory );
+
+        assertFalse( cache.get( "key" ).isPresent() );
+        assertFalse( cache.get( "key" ).isPresent() );
+        assertEquals( 1, loads.get() );
+
+        //past the negative timeout the miss is looked up again
+        Thread.sleep( 20 );
+
+        assertFalse( cache.get( "key" ).isPresent() );
+        assertEquals( 2, loads.get() );
+    }
+}
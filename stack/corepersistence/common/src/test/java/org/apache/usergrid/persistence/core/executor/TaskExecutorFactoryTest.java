@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.executor;
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class TaskExecutorFactoryTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    private MetricsFactory metricsFactory;
+
+
+    @Before
+    public void setup() {
+        metricsFactory = mock( MetricsFactory.class );
+
+        when( metricsFactory.getMeter( eq( TaskExecutorFactory.class ), anyString() ) )
+            .thenAnswer( invocation -> registry.meter( ( String ) invocation.getArguments()[1] ) );
+
+        doAnswer( invocation -> registry.register( ( String ) invocation.getArguments()[1],
+            ( Gauge<?> ) invocation.getArguments()[2] ) ).when( metricsFactory )
+                                                         .addGauge( eq( TaskExecutorFactory.class ), anyString(),
+                                                             any( Gauge.class ) );
+    }
+
+
+    @After
+    public void release() {
+        release.countDown();
+    }
+
+
+    @Test
+    public void callerRunsWhenSaturated() throws InterruptedException {
+        final ThreadPoolExecutor executor = TaskExecutorFactory
+            .createTaskExecutor( "test", 1, 0, TaskExecutorFactory.RejectionAction.CALLERRUNS, metricsFactory );
+
+        final CountDownLatch started = new CountDownLatch( 1 );
+
+        executor.execute( () -> {
+            started.countDown();
+            awaitRelease();
+        } );
+
+        started.await();
+
+        final AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        executor.execute( () -> ranOn.set( Thread.currentThread() ) );
+
+        assertSame( Thread.currentThread(), ranOn.get() );
+        assertEquals( 1, registry.meter( "test.rejected" ).getCount() );
+        assertEquals( 1, gauge( "test.active" ) );
+        assertEquals( 0, gauge( "test.queued" ) );
+    }
+
+
+    @Test
+    public void abortWhenSaturated() throws InterruptedException {
+        final ThreadPoolExecutor executor = TaskExecutorFactory
+            .createTaskExecutor( "test", 1, 1, TaskExecutorFactory.RejectionAction.ABORT, metricsFactory );
+
+        final CountDownLatch started = new CountDownLatch( 1 );
+
+        executor.execute( () -> {
+            started.countDown();
+            awaitRelease();
+        } );
+
+        started.await();
+
+        executor.execute( () -> { } );
+
+        try {
+            executor.execute( () -> { } );
+            fail( "The task should be rejected" );
+        }
+        catch ( RejectedExecutionException ree ) {
+            //expected
+        }
+
+        final Meter rejected = registry.meter( "test.rejected" );
+
+        assertEquals( 1, rejected.getCount() );
+        assertEquals( 1, gauge( "test.queued" ) );
+    }
+
+
+    private int gauge( final String name ) {
+        return ( Integer ) registry.getGauges().get( name ).getValue();
+    }
+
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
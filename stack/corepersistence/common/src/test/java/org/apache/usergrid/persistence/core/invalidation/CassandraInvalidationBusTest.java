@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class CassandraInvalidationBusTest {
+
+    private static final long BUCKET_SIZE = 10000;
+
+    private InMemorySerialization serialization;
+    private InvalidationFig invalidationFig;
+    private MetricsFactory metricsFactory;
+
+
+    @Before
+    public void setup() {
+        serialization = new InMemorySerialization();
+
+        invalidationFig = mock( InvalidationFig.class );
+
+        //never let the poller fire during the test, we poll by hand
+        when( invalidationFig.getPollInterval() ).thenReturn( 3600000L );
+        when( invalidationFig.getBucketSize() ).thenReturn( BUCKET_SIZE );
+
+        metricsFactory = mock( MetricsFactory.class );
+
+        when( metricsFactory.getMeter( eq( CassandraInvalidationBus.class ), anyString() ) ).thenReturn( new Meter() );
+    }
+
+
+    @Test
+    public void publishInvalidatesThisNodeAndWrites() {
+        final CassandraInvalidationBus bus = bus();
+        final List<Optional<String>> received = subscribe( bus, "cache" );
+
+        bus.invalidate( "cache", "key" );
+
+        assertEquals( Collections.singletonList( Optional.of( "key" ) ), received );
+        assertEquals( 1, serialization.size() );
+    }
+
+
+    @Test
+    public void otherNodeInvalidatedOnceByPoll() {
+        final CassandraInvalidationBus publisher = bus();
+        final CassandraInvalidationBus other = bus();
+
+        final List<Optional<String>> received = subscribe( other, "cache" );
+        final List<Optional<String>> otherCache = subscribe( other, "other" );
+
+        publisher.invalidate( "cache", "key" );
+        publisher.invalidateAll( "cache" );
+
+        assertEquals( 0, received.size() );
+
+        other.poll();
+        other.poll();
+
+        assertEquals( 2, received.size() );
+        assertEquals( Optional.of( "key" ), received.get( 0 ) );
+        assertEquals( Optional.<String>absent(), received.get( 1 ) );
+        assertEquals( 0, otherCache.size() );
+    }
+
+
+    @Test
+    public void ownInvalidationsNotDeliveredAgain() {
+        final CassandraInvalidationBus bus = bus();
+        final List<Optional<String>> received = subscribe( bus, "cache" );
+
+        bus.invalidate( "cache", "key" );
+        bus.poll();
+
+        assertEquals( 1, received.size() );
+    }
+
+
+    @Test
+    public void previousBucketRead() {
+        final CassandraInvalidationBus bus = bus();
+        final List<Optional<String>> received = subscribe( bus, "cache" );
+
+        //published by another node just before the bucket rolled over
+        final long previous = System.currentTimeMillis() / BUCKET_SIZE - 1;
+        serialization.write( previous, new Invalidation( UUID.randomUUID(), "cache", Optional.of( "key" ) ), 30 );
+
+        bus.poll();
+
+        assertEquals( Collections.singletonList( Optional.of( "key" ) ), received );
+    }
+
+
+    @Test
+    public void failedPublishStillInvalidatesThisNode() {
+        serialization.failing = true;
+
+        final CassandraInvalidationBus bus = bus();
+        final List<Optional<String>> received = subscribe( bus, "cache" );
+
+        bus.invalidate( "cache", "key" );
+
+        assertEquals( 1, received.size() );
+    }
+
+
+    @Test
+    public void failedPollDeliveredOnNextPoll() {
+        final CassandraInvalidationBus publisher = bus();
+        final CassandraInvalidationBus other = bus();
+
+        final List<Optional<String>> received = subscribe( other, "cache" );
+
+        publisher.invalidate( "cache", "key" );
+
+        serialization.failing = true;
+        other.poll();
+
+        assertEquals( 0, received.size() );
+
+        serialization.failing = false;
+        other.poll();
+
+        assertEquals( 1, received.size() );
+    }
+
+
+    private CassandraInvalidationBus bus() {
+        return new CassandraInvalidationBus( serialization, invalidationFig, metricsFactory );
+    }
+
+
+    private List<Optional<String>> subscribe( final InvalidationBus bus, final String cacheName ) {
+        final List<Optional<String>> received = Collections.synchronizedList( new ArrayList<>() );
+
+        bus.subscribe( cacheName, key -> received.add( key ) );
+
+        return received;
+    }
+
+
+    /**
+     * Keeps the buckets in memory, shared by the buses of the test the way the nodes share the column family
+     */
+    private static final class InMemorySerialization implements InvalidationSerialization {
+
+        private final Map<Long, Map<UUID, Invalidation>> buckets = new ConcurrentHashMap<>();
+
+        private volatile boolean failing = false;
+
+
+        @Override
+        public void write( final long bucket, final Invalidation invalidation, final int ttl ) {
+            checkFailing();
+
+            buckets.computeIfAbsent( bucket, b -> Collections.synchronizedMap( new LinkedHashMap<>() ) )
+                   .put( UUIDGenerator.newTimeUUID(), invalidation );
+        }
+
+
+        @Override
+        public Map<UUID, Invalidation> read( final long bucket ) {
+            checkFailing();
+
+            final Map<UUID, Invalidation> invalidations = buckets.get( bucket );
+
+            if ( invalidations == null ) {
+                return Collections.emptyMap();
+            }
+
+            synchronized ( invalidations ) {
+                return new LinkedHashMap<>( invalidations );
+            }
+        }
+
+
+        @Override
+        public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+            return Collections.emptyList();
+        }
+
+
+        private int size() {
+            return buckets.values().stream().mapToInt( Map::size ).sum();
+        }
+
+
+        private void checkFailing() {
+            if ( failing ) {
+                throw new RuntimeException( "test" );
+            }
+        }
+    }
+}
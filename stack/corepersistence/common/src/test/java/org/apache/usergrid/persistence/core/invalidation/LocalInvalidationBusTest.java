@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.invalidation;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class LocalInvalidationBusTest {
+
+    @Test
+    public void invalidatesSubscribersOfCache() {
+        final InvalidationBus bus = new LocalInvalidationBus();
+
+        final List<Optional<String>> received = new ArrayList<>();
+        final List<Optional<String>> other = new ArrayList<>();
+
+        bus.subscribe( "cache", key -> received.add( key ) );
+        bus.subscribe( "other", key -> other.add( key ) );
+
+        bus.invalidate( "cache", "key" );
+        bus.invalidateAll( "cache" );
+
+        assertEquals( 2, received.size() );
+        assertEquals( Optional.of( "key" ), received.get( 0 ) );
+        assertEquals( Optional.<String>absent(), received.get( 1 ) );
+        assertEquals( 0, other.size() );
+    }
+
+
+    @Test
+    public void failingSubscriberDoesNotStopOthers() {
+        final InvalidationBus bus = new LocalInvalidationBus();
+
+        final List<Optional<String>> received = new ArrayList<>();
+
+        bus.subscribe( "cache", key -> {
+            throw new IllegalStateException( "test" );
+        } );
+        bus.subscribe( "cache", key -> received.add( key ) );
+
+        bus.invalidate( "cache", "key" );
+
+        assertEquals( 1, received.size() );
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.metrics;
+
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class ApplicationMetricsImplTest {
+
+    private MetricsFactory metricsFactory;
+
+    private ApplicationMetricsImpl applicationMetrics;
+
+
+    @Before
+    public void setup() {
+        final MetricsFig metricsFig = mock( MetricsFig.class );
+        when( metricsFig.getApplicationMetricsEnabled() ).thenReturn( true );
+        when( metricsFig.getApplicationMetricsTracked() ).thenReturn( 2 );
+
+        metricsFactory = mock( MetricsFactory.class );
+
+        applicationMetrics = new ApplicationMetricsImpl( metricsFig, metricsFactory );
+    }
+
+
+    @Test
+    public void percentiles() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+
+        for ( int i = 1; i <= 1000; i++ ) {
+            recorder.record( TimeUnit.MILLISECONDS.toNanos( i ) );
+        }
+
+        final LatencySnapshot snapshot = recorder.getSnapshot();
+
+        assertEquals( 1000, snapshot.getCount() );
+        assertEquals( 500.5, snapshot.getMean(), 0.01 );
+        assertEquals( 500, snapshot.getP50(), 500 * 0.035 );
+        assertEquals( 990, snapshot.getP99(), 990 * 0.035 );
+        assertEquals( 1000, snapshot.getMax(), 0 );
+
+        //never understated
+        assertTrue( snapshot.getP50() >= 500 );
+    }
+
+
+    @Test
+    public void bucketsCoverValues() {
+        for ( long value = 0; value < 1 << 20; value += 7 ) {
+            final int index = LatencyRecorder.getIndex( value );
+
+            assertTrue( LatencyRecorder.getHighestValue( index ) >= value );
+            assertTrue( index == 0 || LatencyRecorder.getHighestValue( index - 1 ) < value );
+        }
+    }
+
+
+    @Test
+    public void operationsForAllApplications() {
+        applicationMetrics.record( UUID.randomUUID(), ApplicationMetrics.ENTITY_LOAD, 1000 );
+        applicationMetrics.record( UUID.randomUUID(), ApplicationMetrics.ENTITY_LOAD, 1000 );
+        applicationMetrics.record( null, ApplicationMetrics.INDEX_FLUSH, 1000 );
+
+        assertEquals( 2, applicationMetrics.getOperations().get( ApplicationMetrics.ENTITY_LOAD ).getCount() );
+        assertEquals( 1, applicationMetrics.getOperations().get( ApplicationMetrics.INDEX_FLUSH ).getCount() );
+
+        //gauges are only added once per operation
+        verify( metricsFactory, times( 6 ) ).addGauge( eq( ApplicationMetricsImpl.class ), anyString(), any() );
+    }
+
+
+    @Test
+    public void busiestApplicationKept() {
+        final UUID busy = UUID.randomUUID();
+
+        applicationMetrics.record( busy, ApplicationMetrics.INDEX_SEARCH, 1000000 );
+
+        for ( int i = 0; i < 100; i++ ) {
+            applicationMetrics.record( UUID.randomUUID(), ApplicationMetrics.INDEX_SEARCH, 1000 );
+        }
+
+        final List<ApplicationLatency> top = applicationMetrics.getTopApplications( 10 );
+
+        assertEquals( 2, top.size() );
+        assertEquals( busy, top.get( 0 ).getApplicationId() );
+        assertEquals( 1, top.get( 0 ).getTotalTime(), 0 );
+        assertEquals( 0, top.get( 0 ).getError(), 0 );
+
+        //the quiet applications replace each other, and inherit each other's time
+        assertEquals( 0.1, top.get( 1 ).getTotalTime(), 0.0001 );
+        assertEquals( 0.099, top.get( 1 ).getError(), 0.0001 );
+    }
+
+
+    @Test
+    public void timeObservable() {
+        final UUID applicationId = UUID.randomUUID();
+
+        final Observable<Integer> observable =
+            applicationMetrics.time( Observable.just( 1, 2, 3 ), applicationId, ApplicationMetrics.EDGE_READ );
+
+        observable.toBlocking().last();
+        observable.toBlocking().last();
+
+        assertEquals( 2, applicationMetrics.getTopApplications( 1 ).get( 0 ).getOperations()
+                                           .get( ApplicationMetrics.EDGE_READ ).getCount() );
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.core.trace;
+
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class TraceServiceImplTest {
+
+    private TraceService traceService;
+
+
+    @Before
+    public void setup() {
+        final TraceFig traceFig = mock( TraceFig.class );
+        when( traceFig.getSampleRate() ).thenReturn( 0d );
+        when( traceFig.getBufferSize() ).thenReturn( 2 );
+        when( traceFig.getMaxSpans() ).thenReturn( 3 );
+
+        traceService = new TraceServiceImpl( traceFig );
+    }
+
+
+    @After
+    public void detach() {
+        Tracer.attach( null );
+    }
+
+
+    @Test
+    public void notSampled() {
+        assertNull( traceService.start( "GET /test", false ) );
+        assertNull( Tracer.current() );
+        assertEquals( 0, Tracer.start() );
+    }
+
+
+    @Test
+    public void spansRecorded() {
+        final Trace trace = traceService.start( "GET /test", true );
+
+        assertSame( trace, Tracer.current() );
+
+        final long start = Tracer.start();
+        Tracer.end( "entity.load", start );
+
+        Observable.just( 1 ).compose( observable -> Tracer.trace( observable, "pipeline" ) ).toBlocking().last();
+
+        traceService.stop( trace );
+
+        assertNull( Tracer.current() );
+
+        final List<Trace.Span> spans = traceService.getTrace( trace.getId() ).getSpans();
+
+        assertEquals( 2, spans.size() );
+        assertEquals( "entity.load", spans.get( 0 ).getName() );
+        assertEquals( "pipeline", spans.get( 1 ).getName() );
+    }
+
+
+    @Test
+    public void spansDroppedWhenFull() {
+        final Trace trace = traceService.start( "GET /test", true );
+
+        for ( int i = 0; i < 5; i++ ) {
+            Tracer.end( "span", Tracer.start() );
+        }
+
+        traceService.stop( trace );
+
+        assertEquals( 3, trace.getSpans().size() );
+        assertEquals( 2, trace.getDropped() );
+    }
+
+
+    @Test
+    public void traceFollowsRxSchedulers() {
+        final Trace trace = traceService.start( "GET /test", true );
+
+        final Trace onScheduler = Observable.just( 1 ).map( i -> Tracer.current() ).subscribeOn( Schedulers.io() )
+                                            .toBlocking().last();
+
+        traceService.stop( trace );
+
+        assertSame( trace, onScheduler );
+    }
+
+
+    @Test
+    public void oldestTraceReplaced() {
+        final Trace first = traceService.start( "GET /first", true );
+        traceService.stop( first );
+
+        final Trace second = traceService.start( "GET /second", true );
+        traceService.stop( second );
+
+        final Trace third = traceService.start( "GET /third", true );
+        traceService.stop( third );
+
+        final List<Trace> traces = traceService.getTraces();
+
+        assertEquals( 2, traces.size() );
+        assertSame( third, traces.get( 0 ) );
+        assertSame( second, traces.get( 1 ) );
+        assertNull( traceService.getTrace( first.getId() ) );
+    }
+}
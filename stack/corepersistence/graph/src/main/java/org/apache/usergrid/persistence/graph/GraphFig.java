@@ -91,6 +91,26 @@ public interface GraphFig extends GuicyFig {
 
     String COUNTER_WRITE_FLUSH_QUEUE_SIZE = "usergrid.graph.shard.counter.queue.size";
 
+    /**
+     * Whether the edges of a node with a type are cached
+     */
+    String ADJACENCY_CACHE_ENABLED = "usergrid.graph.adjacency.cache.enabled";
+
+    /**
+     * The most edges cached across all nodes
+     */
+    String ADJACENCY_CACHE_SIZE = "usergrid.graph.adjacency.cache.size";
+
+    /**
+     * Nodes with more edges of a type than this always read them from cassandra
+     */
+    String ADJACENCY_CACHE_MAX_EDGES = "usergrid.graph.adjacency.cache.max.edges";
+
+    /**
+     * How long (in millis) cached edges are kept.  Edges written by other nodes are missed for at most this long
+     */
+    String ADJACENCY_CACHE_TIMEOUT = "usergrid.graph.adjacency.cache.timeout";
+
 
 
 
@@ -154,5 +174,20 @@ public interface GraphFig extends GuicyFig {
     @Default("1000")
     @Key(COUNTER_WRITE_FLUSH_QUEUE_SIZE)
     int getCounterFlushQueueSize();
-}
 
+    @Default("true")
+    @Key(ADJACENCY_CACHE_ENABLED)
+    boolean getAdjacencyCacheEnabled();
+
+    @Default("1000000")
+    @Key(ADJACENCY_CACHE_SIZE)
+    long getAdjacencyCacheSize();
+
+    @Default("100")
+    @Key(ADJACENCY_CACHE_MAX_EDGES)
+    int getAdjacencyCacheMaxEdges();
+
+    @Default("5000")
+    @Key(ADJACENCY_CACHE_TIMEOUT)
+    long getAdjacencyCacheTimeout();
+}
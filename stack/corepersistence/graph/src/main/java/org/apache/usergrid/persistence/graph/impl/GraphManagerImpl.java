@@ -28,6 +28,8 @@ import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.usergrid.persistence.core.astyanax.MutationBatchCoalescer;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.metrics.ObservableTimer;
 import org.apache.usergrid.persistence.core.rx.ObservableIterator;
@@ -44,6 +46,7 @@ import org.apache.usergrid.persistence.graph.SearchEdgeType;
 import org.apache.usergrid.persistence.graph.SearchIdType;
 import org.apache.usergrid.persistence.graph.impl.stage.EdgeDeleteListener;
 import org.apache.usergrid.persistence.graph.impl.stage.NodeDeleteListener;
+import org.apache.usergrid.persistence.graph.serialization.AdjacencyCache;
 import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataSerialization;
 import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.NodeSerialization;
@@ -97,13 +100,22 @@ public class GraphManagerImpl implements GraphManager {
 
     private final GraphFig graphFig;
 
+    private final ApplicationMetrics applicationMetrics;
+
+    private final MutationBatchCoalescer mutationBatchCoalescer;
+
+    private final AdjacencyCache adjacencyCache;
+
 
     @Inject
     public GraphManagerImpl( final EdgeMetadataSerialization edgeMetadataSerialization,
                              final EdgeSerialization storageEdgeSerialization,
                              final NodeSerialization nodeSerialization, final GraphFig graphFig,
                              final EdgeDeleteListener edgeDeleteListener, final NodeDeleteListener nodeDeleteListener,
-                             final ApplicationScope scope, MetricsFactory metricsFactory ) {
+                             final ApplicationScope scope, MetricsFactory metricsFactory,
+                             final ApplicationMetrics applicationMetrics,
+                             final MutationBatchCoalescer mutationBatchCoalescer,
+                             final AdjacencyCache adjacencyCache ) {
 
 
         ValidationUtils.validateApplicationScope( scope );
@@ -121,6 +133,9 @@ public class GraphManagerImpl implements GraphManager {
         this.graphFig = graphFig;
         this.edgeDeleteListener = edgeDeleteListener;
         this.nodeDeleteListener = nodeDeleteListener;
+        this.applicationMetrics = applicationMetrics;
+        this.mutationBatchCoalescer = mutationBatchCoalescer;
+        this.adjacencyCache = adjacencyCache;
 
         this.markNodeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "node.mark" );
         this.deleteNodeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "node.delete" );
@@ -161,12 +176,14 @@ public class GraphManagerImpl implements GraphManager {
             mutation.mergeShallow( edgeMutation );
 
             try {
-                mutation.execute();
+                mutationBatchCoalescer.execute( mutation );
             }
             catch ( ConnectionException e ) {
                 throw new RuntimeException( "Unable to execute mutation", e );
             }
 
+            adjacencyCache.invalidate( scope, edge1 );
+
             return edge1;
         } );
 
@@ -190,12 +207,14 @@ public class GraphManagerImpl implements GraphManager {
 
             LOG.debug( "Marking edge {} as deleted to commit log", edge1 );
             try {
-                edgeMutation.execute();
+                mutationBatchCoalescer.execute( edgeMutation );
             }
             catch ( ConnectionException e ) {
                 throw new RuntimeException( "Unable to execute mutation", e );
             }
 
+            adjacencyCache.invalidate( scope, edge1 );
+
 
             return edge1;
         } );
@@ -224,6 +243,8 @@ public class GraphManagerImpl implements GraphManager {
                 edgeDeleteListener.receive( scope, marked, startTimestamp ).doOnNext(
                     //log them
                     count -> LOG.debug( "removed {} types for edge {} ", count, edge ) )
+                    //our cached edges may still have the removed versions
+                    .doOnNext( count -> adjacencyCache.invalidate( scope, marked ) )
                     //return the marked edge
                     .map( count -> marked ) );
 
@@ -243,7 +264,7 @@ public class GraphManagerImpl implements GraphManager {
 
             LOG.debug( "Marking node {} as deleted to node mark", node );
             try {
-                nodeMutation.execute();
+                mutationBatchCoalescer.execute( nodeMutation );
             }
             catch ( ConnectionException e ) {
                 throw new RuntimeException( "Unable to execute mutation", e );
@@ -274,6 +295,8 @@ public class GraphManagerImpl implements GraphManager {
                 .lastOrDefault( 0 )
                     //log for posterity
                 .doOnNext( count -> LOG.debug( "Removed {} edges from node {}", count, inputNode ) )
+                    //our cached edges may still have the removed ones
+                .doOnNext( count -> adjacencyCache.invalidate( scope, inputNode ) )
                     //return our id
                 .map( count -> inputNode );
 
@@ -293,7 +316,7 @@ public class GraphManagerImpl implements GraphManager {
             } ).buffer( graphFig.getScanPageSize() )
                       .compose( new EdgeBufferFilter( searchByEdge.filterMarked() ) );
 
-        return ObservableTimer.time( edges, loadEdgesVersionsTimer );
+        return timeEdgeRead( edges, loadEdgesVersionsTimer );
     }
 
 
@@ -303,12 +326,12 @@ public class GraphManagerImpl implements GraphManager {
             Observable.create( new ObservableIterator<MarkedEdge>( "loadEdgesFromSource" ) {
                 @Override
                 protected Iterator<MarkedEdge> getIterator() {
-                    return storageEdgeSerialization.getEdgesFromSource( scope, search );
+                    return adjacencyCache.getEdgesFromSource( scope, search );
                 }
             } ).buffer( graphFig.getScanPageSize() )
                       .compose( new EdgeBufferFilter( search.filterMarked() ) );
 
-        return ObservableTimer.time( edges, loadEdgesFromSourceTimer );
+        return timeEdgeRead( edges, loadEdgesFromSourceTimer );
     }
 
 
@@ -318,13 +341,13 @@ public class GraphManagerImpl implements GraphManager {
             Observable.create( new ObservableIterator<MarkedEdge>( "loadEdgesToTarget" ) {
                 @Override
                 protected Iterator<MarkedEdge> getIterator() {
-                    return storageEdgeSerialization.getEdgesToTarget( scope, search );
+                    return adjacencyCache.getEdgesToTarget( scope, search );
                 }
             } ).buffer( graphFig.getScanPageSize() )
                       .compose( new EdgeBufferFilter( search.filterMarked() ) );
 
 
-        return ObservableTimer.time( edges, loadEdgesToTargetTimer );
+        return timeEdgeRead( edges, loadEdgesToTargetTimer );
     }
 
 
@@ -339,7 +362,7 @@ public class GraphManagerImpl implements GraphManager {
             } ).buffer( graphFig.getScanPageSize() )
                       .compose( new EdgeBufferFilter( search.filterMarked() ) );
 
-        return ObservableTimer.time( edges, loadEdgesFromSourceByTypeTimer );
+        return timeEdgeRead( edges, loadEdgesFromSourceByTypeTimer );
     }
 
 
@@ -354,7 +377,16 @@ public class GraphManagerImpl implements GraphManager {
             } ).buffer( graphFig.getScanPageSize() )
                       .compose( new EdgeBufferFilter(  search.filterMarked() ) );
 
-        return ObservableTimer.time( edges, loadEdgesToTargetByTypeTimer );
+        return timeEdgeRead( edges, loadEdgesToTargetByTypeTimer );
+    }
+
+
+    /**
+     * Time reading edges, for all applications and for this one
+     */
+    private Observable<MarkedEdge> timeEdgeRead( final Observable<MarkedEdge> edges, final Timer timer ) {
+        return applicationMetrics
+            .time( ObservableTimer.time( edges, timer ), scope.getApplication().getUuid(), ApplicationMetrics.EDGE_READ );
     }
 
 
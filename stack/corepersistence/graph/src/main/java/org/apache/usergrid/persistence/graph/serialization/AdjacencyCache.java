@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization;
+
+
+import java.util.Iterator;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+
+/**
+ * Keeps the edges of a node with a type in memory when the node has few of them, so reading them again doesn't read
+ * from cassandra.  Edges written through this node invalidate the cache, edges written by other nodes are seen once
+ * the entry times out.
+ */
+public interface AdjacencyCache {
+
+    /**
+     * Search the edges from the source node.  Read from memory when the node has few enough edges of the type
+     *
+     * @param scope The application scope
+     * @param search The search.  Marked edges are returned, filtering them is left to the caller
+     */
+    Iterator<MarkedEdge> getEdgesFromSource( ApplicationScope scope, SearchByEdgeType search );
+
+    /**
+     * Search the edges to the target node.  Read from memory when the node has few enough edges of the type
+     *
+     * @param scope The application scope
+     * @param search The search.  Marked edges are returned, filtering them is left to the caller
+     */
+    Iterator<MarkedEdge> getEdgesToTarget( ApplicationScope scope, SearchByEdgeType search );
+
+    /**
+     * Invalidate the edges of the source and target of this edge with its type.  Invoke after the edge is written
+     */
+    void invalidate( ApplicationScope scope, Edge edge );
+
+    /**
+     * Invalidate all edges of the node
+     */
+    void invalidate( ApplicationScope scope, Id node );
+}
@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.graph.impl.SimpleMarkedEdge;
+import org.apache.usergrid.persistence.graph.impl.SimpleSearchByEdgeType;
+import org.apache.usergrid.persistence.graph.serialization.AdjacencyCache;
+import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeType;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators
+    .SourceDirectedEdgeDescendingComparator;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators
+    .TargetDirectedEdgeDescendingComparator;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterators;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Caches the edges of a node with a type, newest first as they're stored, when there are no more than {@link
+ * GraphFig#getAdjacencyCacheMaxEdges()}.  Descending searches, the only ones we make on hot paths, are served from
+ * memory including their cursors.  Ascending searches always read from cassandra.
+ */
+@Singleton
+public class AdjacencyCacheImpl implements AdjacencyCache {
+
+    /**
+     * Number of stripes of invalidation counts.  A load isn't cached if its stripe was invalidated while loading
+     */
+    private static final int STRIPES = 1024;
+
+    /**
+     * Cached for nodes with too many edges of a type, so we don't load them again on every read
+     */
+    private static final Adjacency TOO_LARGE = new Adjacency( null );
+
+    private final EdgeSerialization edgeSerialization;
+    private final GraphFig graphFig;
+    private final Cache<CacheKey, Adjacency> adjacencies;
+    private final AtomicLongArray invalidations = new AtomicLongArray( STRIPES );
+
+    private final Meter hitMeter;
+    private final Meter missMeter;
+
+
+    @Inject
+    public AdjacencyCacheImpl( final EdgeSerialization edgeSerialization, final GraphFig graphFig,
+                               final MetricsFactory metricsFactory ) {
+        this.edgeSerialization = edgeSerialization;
+        this.graphFig = graphFig;
+
+        this.adjacencies = CacheBuilder.newBuilder()
+
+            //edges written by other nodes aren't invalidated here, this bounds how long we miss them
+            .expireAfterWrite( graphFig.getAdjacencyCacheTimeout(), TimeUnit.MILLISECONDS )
+
+            //weighed by edge, so a few large lists can't crowd out many small ones
+            .maximumWeight( graphFig.getAdjacencyCacheSize() )
+            .weigher( ( CacheKey key, Adjacency adjacency ) -> adjacency.weight() )
+
+            .build();
+
+        this.hitMeter = metricsFactory.getMeter( AdjacencyCacheImpl.class, "adjacency.cache.hit" );
+        this.missMeter = metricsFactory.getMeter( AdjacencyCacheImpl.class, "adjacency.cache.miss" );
+    }
+
+
+    @Override
+    public Iterator<MarkedEdge> getEdgesFromSource( final ApplicationScope scope, final SearchByEdgeType search ) {
+        if ( !isCacheable( search ) ) {
+            return edgeSerialization.getEdgesFromSource( scope, search );
+        }
+
+        final CacheKey key = new CacheKey( scope, DirectedEdgeMeta.fromSourceNode( search.getNode(), search.getType() ) );
+
+        final Adjacency adjacency = get( key );
+
+        if ( adjacency == TOO_LARGE ) {
+            return edgeSerialization.getEdgesFromSource( scope, search );
+        }
+
+        return adjacency.search( search, TargetDirectedEdgeDescendingComparator.INSTANCE );
+    }
+
+
+    @Override
+    public Iterator<MarkedEdge> getEdgesToTarget( final ApplicationScope scope, final SearchByEdgeType search ) {
+        if ( !isCacheable( search ) ) {
+            return edgeSerialization.getEdgesToTarget( scope, search );
+        }
+
+        final CacheKey key = new CacheKey( scope, DirectedEdgeMeta.fromTargetNode( search.getNode(), search.getType() ) );
+
+        final Adjacency adjacency = get( key );
+
+        if ( adjacency == TOO_LARGE ) {
+            return edgeSerialization.getEdgesToTarget( scope, search );
+        }
+
+        return adjacency.search( search, SourceDirectedEdgeDescendingComparator.INSTANCE );
+    }
+
+
+    @Override
+    public void invalidate( final ApplicationScope scope, final Edge edge ) {
+        invalidate( new CacheKey( scope, DirectedEdgeMeta.fromSourceNode( edge.getSourceNode(), edge.getType() ) ) );
+        invalidate( new CacheKey( scope, DirectedEdgeMeta.fromTargetNode( edge.getTargetNode(), edge.getType() ) ) );
+    }
+
+
+    @Override
+    public void invalidate( final ApplicationScope scope, final Id node ) {
+
+        //we don't know the types of the node's edges, so any load in flight may be stale
+        for ( int i = 0; i < STRIPES; i++ ) {
+            invalidations.incrementAndGet( i );
+        }
+
+        adjacencies.asMap().keySet().removeIf( key -> key.scope.equals( scope ) && key.hasNode( node ) );
+    }
+
+
+    private boolean isCacheable( final SearchByEdgeType search ) {
+        return graphFig.getAdjacencyCacheEnabled() && search.getOrder() == SearchByEdgeType.Order.DESCENDING;
+    }
+
+
+    private void invalidate( final CacheKey key ) {
+        invalidations.incrementAndGet( key.stripe() );
+        adjacencies.invalidate( key );
+    }
+
+
+    /**
+     * Get the adjacency from the cache, or load it.  A load isn't cached if the key was invalidated while loading,
+     * since it may have missed the write that invalidated it
+     */
+    private Adjacency get( final CacheKey key ) {
+        final Adjacency cached = adjacencies.getIfPresent( key );
+
+        if ( cached != null ) {
+            hitMeter.mark();
+            return cached;
+        }
+
+        missMeter.mark();
+
+        final long invalidation = invalidations.get( key.stripe() );
+
+        final Adjacency loaded = load( key );
+
+        if ( invalidations.get( key.stripe() ) == invalidation ) {
+            adjacencies.put( key, loaded );
+        }
+
+        return loaded;
+    }
+
+
+    /**
+     * Read all edges of the node with the type, newest first, or {@link #TOO_LARGE} if there are too many to cache
+     */
+    private Adjacency load( final CacheKey key ) {
+        final DirectedEdgeMeta.NodeMeta node = key.directedEdgeMeta.getNodes()[0];
+        final String type = key.directedEdgeMeta.getTypes()[0];
+
+        final SearchByEdgeType search =
+            new SimpleSearchByEdgeType( node.getId(), type, Long.MAX_VALUE, SearchByEdgeType.Order.DESCENDING,
+                Optional.absent(), false );
+
+        final Iterator<MarkedEdge> edges = node.getNodeType() == NodeType.SOURCE ?
+                                           edgeSerialization.getEdgesFromSource( key.scope, search ) :
+                                           edgeSerialization.getEdgesToTarget( key.scope, search );
+
+        final int maxEdges = graphFig.getAdjacencyCacheMaxEdges();
+
+        final List<MarkedEdge> loaded = new ArrayList<>();
+
+        while ( edges.hasNext() ) {
+            if ( loaded.size() == maxEdges ) {
+                return TOO_LARGE;
+            }
+
+            loaded.add( edges.next() );
+        }
+
+        return new Adjacency( Collections.unmodifiableList( loaded ) );
+    }
+
+
+    /**
+     * The edges of a node with a type, in descending order
+     */
+    private static final class Adjacency {
+
+        private final List<MarkedEdge> edges;
+
+
+        private Adjacency( final List<MarkedEdge> edges ) {
+            this.edges = edges;
+        }
+
+
+        private int weight() {
+            return edges == null ? 1 : edges.size() + 1;
+        }
+
+
+        /**
+         * Return the edges the search would read from cassandra.  With a cursor, the edges after it.  Without one,
+         * the edges no newer than the max timestamp
+         */
+        private Iterator<MarkedEdge> search( final SearchByEdgeType search,
+                                             final Comparator<MarkedEdge> comparator ) {
+
+            if ( search.last().isPresent() ) {
+                final MarkedEdge last = new SimpleMarkedEdge( search.last().get(), false );
+
+                return Iterators.filter( edges.iterator(), edge -> comparator.compare( edge, last ) > 0 );
+            }
+
+            final long maxTimestamp = search.getMaxTimestamp();
+
+            return Iterators.filter( edges.iterator(), edge -> edge.getTimestamp() <= maxTimestamp );
+        }
+    }
+
+
+    private static final class CacheKey {
+        private final ApplicationScope scope;
+        private final DirectedEdgeMeta directedEdgeMeta;
+
+
+        private CacheKey( final ApplicationScope scope, final DirectedEdgeMeta directedEdgeMeta ) {
+            this.scope = scope;
+            this.directedEdgeMeta = directedEdgeMeta;
+        }
+
+
+        private boolean hasNode( final Id node ) {
+            return directedEdgeMeta.getNodes()[0].getId().equals( node );
+        }
+
+
+        private int stripe() {
+            return ( hashCode() & Integer.MAX_VALUE ) % STRIPES;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() ) {
+                return false;
+            }
+
+            final CacheKey cacheKey = ( CacheKey ) o;
+
+            if ( !scope.equals( cacheKey.scope ) ) {
+                return false;
+            }
+
+            if ( !directedEdgeMeta.equals( cacheKey.directedEdgeMeta ) ) {
+                return false;
+            }
+
+            return true;
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = scope.hashCode();
+            result = 31 * result + directedEdgeMeta.hashCode();
+            return result;
+        }
+    }
+}
@@ -27,6 +27,8 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.assistedinject.Assisted;
 
+import org.apache.usergrid.persistence.core.astyanax.MutationBatchCoalescer;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.graph.GraphFig;
@@ -35,6 +37,7 @@ import org.apache.usergrid.persistence.graph.GraphManagerFactory;
 import org.apache.usergrid.persistence.graph.impl.GraphManagerImpl;
 import org.apache.usergrid.persistence.graph.impl.stage.EdgeDeleteListener;
 import org.apache.usergrid.persistence.graph.impl.stage.NodeDeleteListener;
+import org.apache.usergrid.persistence.graph.serialization.AdjacencyCache;
 import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataSerialization;
 import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.NodeSerialization;
@@ -54,12 +57,15 @@ public class GraphManagerFactoryImpl implements GraphManagerFactory {
     private final EdgeDeleteListener edgeDeleteListener;
     private final NodeDeleteListener nodeDeleteListener;
     private final MetricsFactory metricsFactory;
+    private final ApplicationMetrics applicationMetrics;
+    private final MutationBatchCoalescer mutationBatchCoalescer;
+    private final AdjacencyCache adjacencyCache;
 
     private LoadingCache<ApplicationScope, GraphManager> gmCache =
         CacheBuilder.newBuilder().maximumSize( 1000 ).build( new CacheLoader<ApplicationScope, GraphManager>() {
             public GraphManager load(
                 ApplicationScope scope ) {
-                return new GraphManagerImpl(edgeMetadataSerialization,edgeSerialization,nodeSerialization,graphFig,edgeDeleteListener,nodeDeleteListener,scope, metricsFactory);
+                return new GraphManagerImpl(edgeMetadataSerialization,edgeSerialization,nodeSerialization,graphFig,edgeDeleteListener,nodeDeleteListener,scope, metricsFactory, applicationMetrics, mutationBatchCoalescer, adjacencyCache);
             }
         } );
 
@@ -67,7 +73,10 @@ public class GraphManagerFactoryImpl implements GraphManagerFactory {
     public GraphManagerFactoryImpl( final EdgeMetadataSerialization edgeMetadataSerialization, final
     EdgeSerialization edgeSerialization,
                                     final NodeSerialization nodeSerialization, final GraphFig graphFig, final EdgeDeleteListener edgeDeleteListener,
-                                    final NodeDeleteListener nodeDeleteListener, final MetricsFactory metricsFactory ){
+                                    final NodeDeleteListener nodeDeleteListener, final MetricsFactory metricsFactory,
+                                    final ApplicationMetrics applicationMetrics,
+                                    final MutationBatchCoalescer mutationBatchCoalescer,
+                                    final AdjacencyCache adjacencyCache ){
         this.edgeMetadataSerialization = edgeMetadataSerialization;
         this.edgeSerialization = edgeSerialization;
         this.nodeSerialization = nodeSerialization;
@@ -75,6 +84,9 @@ public class GraphManagerFactoryImpl implements GraphManagerFactory {
         this.edgeDeleteListener = edgeDeleteListener;
         this.nodeDeleteListener = nodeDeleteListener;
         this.metricsFactory = metricsFactory;
+        this.mutationBatchCoalescer = mutationBatchCoalescer;
+        this.adjacencyCache = adjacencyCache;
+        this.applicationMetrics = applicationMetrics;
     }
 
     @Override
@@ -23,11 +23,13 @@ import com.google.inject.Inject;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.MutationBatch;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
 import org.apache.usergrid.persistence.core.migration.data.DataMigration;
 import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
 import org.apache.usergrid.persistence.core.migration.data.MigrationRelationship;
 import org.apache.usergrid.persistence.core.migration.data.ProgressObserver;
 import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.graph.Edge;
 import org.apache.usergrid.persistence.graph.GraphManager;
 import org.apache.usergrid.persistence.graph.GraphManagerFactory;
@@ -38,7 +40,6 @@ import org.apache.usergrid.persistence.graph.serialization.impl.EdgeMetadataSeri
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
@@ -59,13 +60,15 @@ public class EdgeDataMigrationImpl implements DataMigration {
     private final VersionedMigrationSet<EdgeMetadataSerialization> allVersions;
     private final EdgeMetadataSerializationV2Impl edgeMetadataSerializationV2;
     private final MigrationDataProvider<GraphNode> migrationDataProvider;
+    private final RxTaskScheduler rxTaskScheduler;
 
     @Inject
     public EdgeDataMigrationImpl( final Keyspace keyspace, final GraphManagerFactory graphManagerFactory,
                                   final EdgesObservable edgesFromSourceObservable,
                                   final VersionedMigrationSet<EdgeMetadataSerialization> allVersions,
                                   final EdgeMetadataSerializationV2Impl edgeMetadataSerializationV2,
-                                  final MigrationDataProvider<GraphNode> migrationDataProvider ) {
+                                  final MigrationDataProvider<GraphNode> migrationDataProvider,
+                                  @BackgroundScheduler final RxTaskScheduler rxTaskScheduler ) {
 
         this.keyspace = keyspace;
         this.graphManagerFactory = graphManagerFactory;
@@ -73,6 +76,7 @@ public class EdgeDataMigrationImpl implements DataMigration {
         this.allVersions = allVersions;
         this.edgeMetadataSerializationV2 = edgeMetadataSerializationV2;
         this.migrationDataProvider = migrationDataProvider;
+        this.rxTaskScheduler = rxTaskScheduler;
     }
 
 
@@ -113,7 +117,7 @@ public class EdgeDataMigrationImpl implements DataMigration {
                                                     observer.update( migration.to.getImplementationVersion(), String
                                                         .format( "Currently running.  Rewritten %d edge types",
                                                             newCount ) );
-                                                } ).subscribeOn( Schedulers.io() );
+                                                } ).subscribeOn( rxTaskScheduler.getAsyncIOScheduler() );
         }, 10 );
 
         observable.countLong().toBlocking().last();
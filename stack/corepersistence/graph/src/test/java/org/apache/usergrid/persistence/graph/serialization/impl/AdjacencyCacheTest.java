@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.graph.serialization.impl;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.graph.impl.SimpleMarkedEdge;
+import org.apache.usergrid.persistence.graph.impl.SimpleSearchByEdgeType;
+import org.apache.usergrid.persistence.graph.serialization.AdjacencyCache;
+import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import static org.apache.usergrid.persistence.core.util.IdGenerator.createId;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Test for the adjacency cache that mocks responses from the serialization
+ */
+public class AdjacencyCacheTest {
+
+    private final ApplicationScope scope = new ApplicationScopeImpl( createId( "application" ) );
+
+    private final Id source = createId( "user" );
+
+    private final MarkedEdge newest = new SimpleMarkedEdge( source, "roles", createId( "role" ), 3, false );
+    private final MarkedEdge middle = new SimpleMarkedEdge( source, "roles", createId( "role" ), 2, false );
+    private final MarkedEdge oldest = new SimpleMarkedEdge( source, "roles", createId( "role" ), 1, false );
+
+    private EdgeSerialization edgeSerialization;
+
+    private GraphFig graphFig;
+
+    private AdjacencyCache adjacencyCache;
+
+
+    @Before
+    public void setup() {
+        edgeSerialization = mock( EdgeSerialization.class );
+
+        when( edgeSerialization.getEdgesFromSource( eq( scope ), any( SearchByEdgeType.class ) ) )
+            .thenAnswer( invocation -> Arrays.asList( newest, middle, oldest ).iterator() );
+
+        graphFig = mock( GraphFig.class );
+        when( graphFig.getAdjacencyCacheEnabled() ).thenReturn( true );
+        when( graphFig.getAdjacencyCacheSize() ).thenReturn( 1000l );
+        when( graphFig.getAdjacencyCacheMaxEdges() ).thenReturn( 10 );
+        when( graphFig.getAdjacencyCacheTimeout() ).thenReturn( 60000l );
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+
+        adjacencyCache = new AdjacencyCacheImpl( edgeSerialization, graphFig, metricsFactory );
+    }
+
+
+    @Test
+    public void readFromMemory() {
+        assertEquals( Arrays.asList( newest, middle, oldest ), read( Long.MAX_VALUE, null ) );
+        assertEquals( Arrays.asList( newest, middle, oldest ), read( Long.MAX_VALUE, null ) );
+
+        verify( edgeSerialization, times( 1 ) ).getEdgesFromSource( eq( scope ), any( SearchByEdgeType.class ) );
+    }
+
+
+    @Test
+    public void pagedFromMemory() {
+        assertEquals( Arrays.asList( middle, oldest ), read( Long.MAX_VALUE, newest ) );
+        assertEquals( Arrays.asList( oldest ), read( Long.MAX_VALUE, middle ) );
+        assertEquals( Arrays.asList( middle, oldest ), read( 2, null ) );
+
+        verify( edgeSerialization, times( 1 ) ).getEdgesFromSource( eq( scope ), any( SearchByEdgeType.class ) );
+    }
+
+
+    @Test
+    public void invalidatedByWrite() {
+        read( Long.MAX_VALUE, null );
+
+        adjacencyCache.invalidate( scope, newest );
+
+        read( Long.MAX_VALUE, null );
+
+        verify( edgeSerialization, times( 2 ) ).getEdgesFromSource( eq( scope ), any( SearchByEdgeType.class ) );
+    }
+
+
+    @Test
+    public void tooLargeReadFromCassandra() {
+        when( graphFig.getAdjacencyCacheMaxEdges() ).thenReturn( 2 );
+
+        assertEquals( Arrays.asList( newest, middle, oldest ), read( Long.MAX_VALUE, null ) );
+        assertEquals( Arrays.asList( newest, middle, oldest ), read( Long.MAX_VALUE, null ) );
+
+        //one load that found too many edges, then each search
+        verify( edgeSerialization, times( 3 ) ).getEdgesFromSource( eq( scope ), any( SearchByEdgeType.class ) );
+    }
+
+
+    private List<MarkedEdge> read( final long maxTimestamp, final MarkedEdge last ) {
+        final SearchByEdgeType search =
+            new SimpleSearchByEdgeType( source, "roles", maxTimestamp, SearchByEdgeType.Order.DESCENDING,
+                Optional.<Edge>fromNullable( last ) );
+
+        return Lists.newArrayList( adjacencyCache.getEdgesFromSource( scope, search ) );
+    }
+}
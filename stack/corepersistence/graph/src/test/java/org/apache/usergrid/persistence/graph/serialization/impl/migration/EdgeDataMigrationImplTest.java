@@ -26,11 +26,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
 import org.apache.usergrid.persistence.core.guice.DataMigrationResetRule;
 import org.apache.usergrid.persistence.core.migration.data.DataMigrationManager;
 import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
 import org.apache.usergrid.persistence.core.migration.data.TestProgressObserver;
 import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
 import org.apache.usergrid.persistence.core.test.ITRunner;
@@ -85,6 +87,10 @@ public class EdgeDataMigrationImplTest implements DataMigrationResetRule.DataMig
     @Inject
     public EdgeMetadataSerializationV2Impl edgeMetadataSerializationV2;
 
+    @Inject
+    @BackgroundScheduler
+    public RxTaskScheduler rxTaskScheduler;
+
 
     /**
      * Rule to do the resets we need
@@ -147,7 +153,7 @@ public class EdgeDataMigrationImplTest implements DataMigrationResetRule.DataMig
 
         EdgeDataMigrationImpl edgeDataMigrationImpl =
             new EdgeDataMigrationImpl( keyspace, graphManagerFactory, edgesFromSourceObservable, allVersions,
-                edgeMetadataSerializationV2, testMigrationProvider );
+                edgeMetadataSerializationV2, testMigrationProvider, rxTaskScheduler );
 
 
         final int returned = edgeDataMigrationImpl.migrate( GraphDataVersions.INITIAL.getVersion(), progressObserver );
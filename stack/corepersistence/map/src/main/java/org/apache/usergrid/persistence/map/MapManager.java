@@ -63,6 +63,15 @@ public interface MapManager {
      */
     void putString( final String key, final String value, final int ttl );
 
+    /**
+     * Write all the strings in a single batch.  Use this when writing many small values at once instead of calling
+     * putString for each one
+     *
+     * @param values The keys and values to write
+     * @param ttl The time to live (in seconds) of each value.  A value <= 0 means the values never expire
+     */
+    void putStrings( final Map<String, String> values, final int ttl );
+
 
     /**
      * Return the uuid, null if not found
@@ -76,6 +76,12 @@ public class MapManagerImpl implements MapManager {
     }
 
 
+    @Override
+    public void putStrings( final Map<String, String> values, final int ttl ) {
+        mapSerialization.putStrings( scope, values, ttl );
+    }
+
+
     @Override
     public UUID getUuid( final String key ) {
         return mapSerialization.getUuid(scope,key);
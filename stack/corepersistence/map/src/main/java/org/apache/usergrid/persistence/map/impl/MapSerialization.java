@@ -60,6 +60,11 @@ public interface MapSerialization extends Migration {
      */
     void putString( final MapScope scope, final String key, final String value, final int ttl );
 
+    /**
+     * Write all the strings in a single batch.  A ttl <= 0 means the values never expire
+     */
+    void putStrings( final MapScope scope, final Map<String, String> values, final int ttl );
+
 
     /**
      * Return the uuid, null if not found
@@ -37,6 +37,7 @@ import org.apache.usergrid.persistence.core.astyanax.CassandraConfig;
 import org.apache.usergrid.persistence.core.astyanax.CompositeFieldSerializer;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.MutationBatchCoalescer;
 import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
 import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
 import org.apache.usergrid.persistence.core.shard.ExpandingShardLocator;
@@ -116,12 +117,15 @@ public class MapSerializationImpl implements MapSerialization {
 
     private final Keyspace keyspace;
     private final CassandraConfig cassandraConfig;
+    private final MutationBatchCoalescer mutationBatchCoalescer;
 
 
     @Inject
-    public MapSerializationImpl( final Keyspace keyspace, final CassandraConfig cassandraConfig ) {
+    public MapSerializationImpl( final Keyspace keyspace, final CassandraConfig cassandraConfig,
+                                 final MutationBatchCoalescer mutationBatchCoalescer ) {
         this.keyspace = keyspace;
         this.cassandraConfig = cassandraConfig;
+        this.mutationBatchCoalescer = mutationBatchCoalescer;
     }
 
 
@@ -187,6 +191,45 @@ public class MapSerializationImpl implements MapSerialization {
     }
 
 
+    @Override
+    public void putStrings( final MapScope scope, final Map<String, String> values, final int ttl ) {
+
+        Preconditions.checkNotNull( scope, "mapscope is required" );
+        Preconditions.checkNotNull( values, "values are required" );
+
+        if ( values.isEmpty() ) {
+            return;
+        }
+
+        //astyanax treats a null ttl as no expiration
+        final Integer columnTtl = ttl > 0 ? ttl : null;
+
+        final MutationBatch batch = keyspace.prepareMutationBatch();
+
+        for ( final Map.Entry<String, String> entry : values.entrySet() ) {
+
+            final String key = entry.getKey();
+            final String value = entry.getValue();
+
+            Preconditions.checkNotNull( key, "key is required" );
+            Preconditions.checkNotNull( value, "value is required" );
+
+            final ScopedRowKey<MapEntryKey> entryRowKey = MapEntryKey.fromKey( scope, key );
+
+            batch.withRow( MAP_ENTRIES, entryRowKey ).putColumn( true, value, columnTtl );
+
+            final int bucket = BUCKET_LOCATOR.getCurrentBucket( key );
+
+            final BucketScopedRowKey<String> keyRowKey =
+                BucketScopedRowKey.fromKey( scope.getApplication(), key, bucket );
+
+            batch.withRow( MAP_KEYS, keyRowKey ).putColumn( key, true, columnTtl );
+        }
+
+        executeBatch( batch );
+    }
+
+
     /**
      * Write our string index with the specified row op
      */
@@ -413,7 +456,7 @@ public class MapSerializationImpl implements MapSerialization {
 
     private void executeBatch( MutationBatch batch ) {
         try {
-            batch.execute();
+            mutationBatchCoalescer.execute( batch );
         }
         catch ( ConnectionException e ) {
             throw new RuntimeException( "Unable to connect to cassandra", e );
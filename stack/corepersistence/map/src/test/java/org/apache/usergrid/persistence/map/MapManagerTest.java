@@ -22,6 +22,7 @@ package org.apache.usergrid.persistence.map;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -124,6 +125,22 @@ public class MapManagerTest {
     }
 
 
+    @Test
+    public void multiWriteReadString() {
+        MapManager mm = mmf.createMapManager( this.scope );
+
+        final Map<String, String> values = new HashMap<>();
+        values.put( "multiKey1", "value1" );
+        values.put( "multiKey2", "value2" );
+
+        mm.putStrings( values, 0 );
+
+        final Map<String, String> returned = mm.getStrings( values.keySet() );
+
+        assertEquals( values, returned );
+    }
+
+
     @Test
     public void writeReadStringTTL() throws InterruptedException {
 
@@ -62,6 +62,18 @@ public interface IndexFig extends GuicyFig {
 
     String ELASTICSEARCH_VERSION_QUERY_LIMIT = "elasticsearch.version_query_limit";
 
+    String ELASTICSEARCH_BULK_MIN_SIZE = "elasticsearch.bulk.min_size";
+
+    String ELASTICSEARCH_BULK_SIZE_INCREMENT = "elasticsearch.bulk.size_increment";
+
+    String ELASTICSEARCH_BULK_TARGET_LATENCY = "elasticsearch.bulk.target_latency";
+
+    String ELASTICSEARCH_BULK_MAX_RETRIES = "elasticsearch.bulk.max_retries";
+
+    String QUERY_PLAN_CACHE_SIZE = "elasticsearch.query_plan_cache_size";
+
+    String ELASTICSEARCH_EDGE_ROUTING = "elasticsearch.edge_routing";
+
 
     /**
      * Comma-separated list of Elasticsearch hosts.
@@ -154,20 +166,49 @@ public interface IndexFig extends GuicyFig {
 
 
     /**
-     * The number of worker threads used for flushing batches of index write requests
-     * in the buffer for Elasticsearch.
+     * The maximum number of bulk index write requests in flight to Elasticsearch.  Fewer are
+     * allowed while Elasticsearch is rejecting or slow.
      */
     @Default("10")
     @Key(INDEX_FLUSH_WORKER_COUNT)
     int getIndexFlushWorkerCount();
 
     /**
-     * The batch size to use when sending batched index write requests to Elasticsearch.
+     * The maximum batch size to use when sending batched index write requests to Elasticsearch.
+     * Smaller batches are sent while Elasticsearch is rejecting or slow.
      */
     @Default( "1000" )
     @Key( INDEX_BATCH_SIZE )
     int getIndexBatchSize();
 
+    /**
+     * The smallest batch size to shrink to when Elasticsearch is rejecting or slow.
+     */
+    @Default( "50" )
+    @Key( ELASTICSEARCH_BULK_MIN_SIZE )
+    int getBulkMinSize();
+
+    /**
+     * The number of operations to grow the batch size by after each fast bulk request without rejections.
+     */
+    @Default( "50" )
+    @Key( ELASTICSEARCH_BULK_SIZE_INCREMENT )
+    int getBulkSizeIncrement();
+
+    /**
+     * Bulk requests taking longer than this shrink the batch size and the requests in flight. (in milliseconds)
+     */
+    @Default( "2000" )
+    @Key( ELASTICSEARCH_BULK_TARGET_LATENCY )
+    long getBulkTargetLatency();
+
+    /**
+     * The number of times to retry the operations Elasticsearch rejects before failing the batch.
+     */
+    @Default( "5" )
+    @Key( ELASTICSEARCH_BULK_MAX_RETRIES )
+    int getBulkMaxRetries();
+
     /**
      * The write consistency level for writing into the Elasticsearch index.  The
      * default value is 'one', and you can configure 'all' and 'quorum'.
@@ -205,4 +246,19 @@ public interface IndexFig extends GuicyFig {
     @Default("1000")
     @Key( ELASTICSEARCH_VERSION_QUERY_LIMIT )
     int getVersionQueryLimit();
+
+    /**
+     * The number of query shapes to keep parsed.  Queries that only differ in their literals share a shape.
+     */
+    @Default( "1000" )
+    @Key( QUERY_PLAN_CACHE_SIZE )
+    int getQueryPlanCacheSize();
+
+    /**
+     * Route documents to a shard by the node id and edge name of their search edge, so a search of an edge only hits
+     * one shard.  Existing documents must be moved with the index migration after this is enabled.
+     */
+    @Default( "false" )
+    @Key( ELASTICSEARCH_EDGE_ROUTING )
+    boolean isEdgeRouting();
 }
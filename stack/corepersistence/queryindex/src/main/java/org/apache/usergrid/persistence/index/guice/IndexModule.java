@@ -28,6 +28,7 @@ import org.apache.usergrid.persistence.index.*;
 import com.google.inject.AbstractModule;
 
 import org.apache.usergrid.persistence.index.impl.*;
+import org.apache.usergrid.persistence.index.migration.EsEdgeRoutingMigration;
 import org.apache.usergrid.persistence.index.migration.EsIndexMappingMigrationPlugin;
 import org.apache.usergrid.persistence.index.migration.EsIndexMigrationPlugin;
 import org.apache.usergrid.persistence.index.migration.IndexMigration;
@@ -50,14 +51,17 @@ public abstract class IndexModule extends AbstractModule {
 
         bind( EntityIndexFactory.class ).to( EsEntityIndexFactoryImpl.class );
         bind(IndexCache.class).to(EsIndexCacheImpl.class);
+        bind(QueryPlanCache.class).to(QueryPlanCacheImpl.class);
 
         bind(IndexProducer.class).to(EsIndexProducerImpl.class).asEagerSingleton();
 
 
-        //wire up the edg migration. A no-op ATM, but retained for future development
+        //wire up the index data migrations
         Multibinder<DataMigration> dataMigrationMultibinder =
                 Multibinder.newSetBinder( binder(), new TypeLiteral<DataMigration>() {}, IndexMigration.class );
 
+        dataMigrationMultibinder.addBinding().to( EsEdgeRoutingMigration.class );
+
 
 
         //wire up the collection migration plugin
@@ -0,0 +1,169 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.usergrid.persistence.index.impl;
+
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.index.IndexFig;
+
+
+/**
+ * Sizes the bulk requests sent to Elasticsearch, and how many are in flight at once, from the latency and rejections
+ * of the responses.  Sizing is additive increase, multiplicative decrease: while responses are fast and nothing is
+ * rejected the batch size grows toward its maximum and then the concurrency does, and a rejection or a slow response
+ * halves both.  At most one decrease happens per target latency, so the responses of requests that were already in
+ * flight don't shrink the sizes again.
+ */
+public class AdaptiveBulkController {
+
+    private static final Logger logger = LoggerFactory.getLogger( AdaptiveBulkController.class );
+
+    /**
+     * The retry delay stops doubling after this many attempts
+     */
+    private static final int MAX_BACKOFF_DOUBLINGS = 5;
+
+    private final IndexFig indexFig;
+
+    private int batchSize;
+    private int concurrency;
+    private int inFlight;
+
+    private long lastDecrease;
+    private long backoffUntil;
+
+
+    public AdaptiveBulkController( final IndexFig indexFig ) {
+        this.indexFig = indexFig;
+
+        this.batchSize = indexFig.getIndexBatchSize();
+        this.concurrency = indexFig.getIndexFlushWorkerCount();
+    }
+
+
+    /**
+     * The number of operations to send in a bulk request
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+
+    /**
+     * The number of bulk requests allowed in flight
+     */
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+
+    /**
+     * Wait for room to send a bulk request.  Every acquire must be followed by a release
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while ( inFlight >= concurrency ) {
+            wait();
+        }
+
+        inFlight++;
+    }
+
+
+    /**
+     * The bulk request is no longer in flight
+     */
+    public synchronized void release() {
+        inFlight--;
+
+        notifyAll();
+    }
+
+
+    /**
+     * Adjust the sizes from the response to a bulk request
+     *
+     * @param rejected The number of operations Elasticsearch rejected because its queues were full
+     * @param latency The time the request took in milliseconds
+     */
+    public synchronized void onResponse( final int rejected, final long latency ) {
+        final long now = System.currentTimeMillis();
+        final long targetLatency = indexFig.getBulkTargetLatency();
+
+        if ( rejected > 0 || latency > targetLatency ) {
+
+            if ( rejected > 0 ) {
+                backoffUntil = Math.max( backoffUntil, now + indexFig.getSleepTimeForQueueError() );
+            }
+
+            if ( now - lastDecrease < targetLatency ) {
+                return;
+            }
+
+            lastDecrease = now;
+
+            batchSize = Math.max( indexFig.getBulkMinSize(), batchSize / 2 );
+            concurrency = Math.max( 1, concurrency / 2 );
+
+            logger.warn( "Bulk request took {} ms with {} rejected operations, reducing bulk size to {} with {} "
+                + "in flight",
+                new Object[] { latency, rejected, batchSize, concurrency } );
+
+            return;
+        }
+
+        final int maxBatchSize = indexFig.getIndexBatchSize();
+
+        if ( batchSize < maxBatchSize ) {
+            batchSize = Math.min( maxBatchSize, batchSize + indexFig.getBulkSizeIncrement() );
+        }
+        else if ( concurrency < indexFig.getIndexFlushWorkerCount() ) {
+            concurrency++;
+
+            //let a waiting request use the new room
+            notifyAll();
+        }
+    }
+
+
+    /**
+     * The time to wait before retrying rejected operations.  The delay doubles with each attempt and is jittered, so
+     * the requests that were rejected together don't retry together
+     */
+    public long getRetryDelay( final int attempt ) {
+        final long ceiling =
+            indexFig.getSleepTimeForQueueError() << Math.min( Math.max( attempt, 0 ), MAX_BACKOFF_DOUBLINGS );
+
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong( ceiling / 2 + 1 );
+    }
+
+
+    /**
+     * The time those feeding the index should wait before taking more work, non zero after Elasticsearch has rejected
+     * operations
+     */
+    public synchronized long getBackPressureDelay() {
+        return Math.max( 0, backoffUntil - System.currentTimeMillis() );
+    }
+}
@@ -34,7 +34,9 @@ import org.apache.usergrid.persistence.model.entity.Id;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
+import static org.apache.usergrid.persistence.index.impl.IndexingUtils.createEdgeRouting;
 import static org.apache.usergrid.persistence.index.impl.IndexingUtils.createIndexDocId;
+import static org.apache.usergrid.persistence.index.impl.IndexingUtils.parseEdgeRoutingFromIndexDocId;
 
 
 /**
@@ -49,6 +51,12 @@ public class DeIndexOperation implements BatchOperation {
     @JsonProperty
     public String documentId;
 
+    /**
+     * The shard routing, null to route by the document id
+     */
+    @JsonProperty
+    public String routing;
+
 
     public DeIndexOperation() {
 
@@ -56,14 +64,23 @@ public class DeIndexOperation implements BatchOperation {
 
 
     public DeIndexOperation( String[] indexes, ApplicationScope applicationScope, SearchEdge searchEdge, Id id,
-                             UUID version ) {
+                             UUID version, boolean edgeRouting ) {
         this.indexes = indexes;
         this.documentId = createIndexDocId( applicationScope, id, version, searchEdge );
+
+        if ( edgeRouting ) {
+            this.routing = createEdgeRouting( searchEdge );
+        }
     }
 
-    public DeIndexOperation( String[] indexes, String docId) {
+    public DeIndexOperation( String[] indexes, String docId, boolean edgeRouting ) {
         this.indexes = indexes;
         this.documentId = docId;
+
+        //the search edge is part of the document id
+        if ( edgeRouting ) {
+            this.routing = parseEdgeRoutingFromIndexDocId( docId );
+        }
     }
 
 
@@ -74,6 +91,15 @@ public class DeIndexOperation implements BatchOperation {
         for ( final String index : indexes ) {
             final DeleteRequestBuilder builder =
                     client.prepareDelete( index, IndexingUtils.ES_ENTITY_TYPE, documentId );
+
+            if ( routing != null ) {
+                builder.setRouting( routing );
+
+                //a copy routed by id may still be there until EsEdgeRoutingMigration has moved it, remove it too so
+                //the migration doesn't bring the document back.  Once the index is migrated this finds nothing
+                bulkRequest.add( client.prepareDelete( index, IndexingUtils.ES_ENTITY_TYPE, documentId ) );
+            }
+
             bulkRequest.add( builder );
         }
     }
@@ -100,6 +126,10 @@ public class DeIndexOperation implements BatchOperation {
             return false;
         }
 
+        if ( routing != null ? !routing.equals( that.routing ) : that.routing != null ) {
+            return false;
+        }
+
         return true;
     }
 
@@ -108,6 +138,7 @@ public class DeIndexOperation implements BatchOperation {
     public int hashCode() {
         int result = Arrays.hashCode( indexes );
         result = 31 * result + documentId.hashCode();
+        result = 31 * result + ( routing != null ? routing.hashCode() : 0 );
         return result;
     }
 }
@@ -45,13 +45,16 @@ public class EsEntityIndexBatchImpl implements EntityIndexBatch {
 
     private final EntityIndex entityIndex;
     private final ApplicationScope applicationScope;
+    private final boolean edgeRouting;
     private IndexOperationMessage container;
 
 
     public EsEntityIndexBatchImpl( final IndexLocationStrategy locationStrategy,
-                                   final EntityIndex entityIndex
+                                   final EntityIndex entityIndex,
+                                   final IndexFig indexFig
     ) {
         this.indexLocationStrategy = locationStrategy;
+        this.edgeRouting = indexFig.isEdgeRouting();
 
         this.entityIndex = entityIndex;
         this.applicationScope = indexLocationStrategy.getApplicationScope();
@@ -76,7 +79,7 @@ public class EsEntityIndexBatchImpl implements EntityIndexBatch {
         }
 
         //add app id for indexing
-        container.addIndexRequest(new IndexOperation(writeAlias, applicationScope, indexEdge, entity));
+        container.addIndexRequest(new IndexOperation(writeAlias, applicationScope, indexEdge, entity, edgeRouting));
         return this;
     }
 
@@ -100,7 +103,7 @@ public class EsEntityIndexBatchImpl implements EntityIndexBatch {
         }
 
 
-        container.addDeIndexRequest(new DeIndexOperation(indexes, applicationScope, searchEdge, id, version));
+        container.addDeIndexRequest(new DeIndexOperation(indexes, applicationScope, searchEdge, id, version, edgeRouting));
 
         return this;
     }
@@ -119,7 +122,7 @@ public class EsEntityIndexBatchImpl implements EntityIndexBatch {
         }
 
 
-        container.addDeIndexRequest( new DeIndexOperation( indexes, docId ) );
+        container.addDeIndexRequest( new DeIndexOperation( indexes, docId, edgeRouting ) );
 
         return this;
     }
@@ -21,6 +21,7 @@ package org.apache.usergrid.persistence.index.impl;
 
 import java.util.concurrent.ExecutionException;
 
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.index.*;
 
@@ -38,6 +39,8 @@ public class EsEntityIndexFactoryImpl implements EntityIndexFactory{
     private final IndexCache indexCache;
     private final EsProvider provider;
     private final MetricsFactory metricsFactory;
+    private final ApplicationMetrics applicationMetrics;
+    private final QueryPlanCache queryPlanCache;
 
     private LoadingCache<IndexLocationStrategy, EntityIndex> eiCache =
         CacheBuilder.newBuilder().maximumSize( 1000 ).build( new CacheLoader<IndexLocationStrategy, EntityIndex>() {
@@ -47,6 +50,8 @@ public class EsEntityIndexFactoryImpl implements EntityIndexFactory{
                     indexCache,
                     config,
                     metricsFactory,
+                    applicationMetrics,
+                    queryPlanCache,
                     locationStrategy
                 );
                 index.initialize();
@@ -58,13 +63,17 @@ public class EsEntityIndexFactoryImpl implements EntityIndexFactory{
     public EsEntityIndexFactoryImpl( final IndexFig indexFig,
                                      final IndexCache indexCache,
                                      final EsProvider provider,
-                                     final MetricsFactory metricsFactory
+                                     final MetricsFactory metricsFactory,
+                                     final ApplicationMetrics applicationMetrics,
+                                     final QueryPlanCache queryPlanCache
 
     ){
         this.config = indexFig;
         this.indexCache = indexCache;
         this.provider = provider;
         this.metricsFactory = metricsFactory;
+        this.applicationMetrics = applicationMetrics;
+        this.queryPlanCache = queryPlanCache;
     }
 
 
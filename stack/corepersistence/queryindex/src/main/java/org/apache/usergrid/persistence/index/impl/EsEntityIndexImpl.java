@@ -26,10 +26,12 @@ import com.google.common.io.Resources;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.core.metrics.ObservableTimer;
 import org.apache.usergrid.persistence.core.migration.data.VersionedData;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.trace.Tracer;
 import org.apache.usergrid.persistence.core.util.Health;
 import org.apache.usergrid.persistence.core.util.StringUtils;
 import org.apache.usergrid.persistence.core.util.ValidationUtils;
@@ -38,7 +40,6 @@ import org.apache.usergrid.persistence.index.ElasticSearchQueryBuilder.SearchReq
 import org.apache.usergrid.persistence.index.exceptions.IndexException;
 import org.apache.usergrid.persistence.index.migration.IndexDataVersions;
 import org.apache.usergrid.persistence.index.query.ParsedQuery;
-import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
 import org.apache.usergrid.persistence.index.utils.IndexValidationUtils;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
@@ -92,6 +93,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
 
     private final IndexAlias alias;
     private final IndexFig indexFig;
+    private final QueryPlanCache queryPlanCache;
     private final IndexLocationStrategy indexLocationStrategy;
     private final Timer addTimer;
     private final Timer updateAliasTimer;
@@ -121,6 +123,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
     private final FailureMonitorImpl failureMonitor;
     private final Timer aggregationTimer;
     private final Timer refreshTimer;
+    private final ApplicationMetrics applicationMetrics;
 
     private IndexCache aliasCache;
     private Timer mappingTimer;
@@ -132,10 +135,14 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
                               final IndexCache indexCache,
                               final IndexFig indexFig,
                               final MetricsFactory metricsFactory,
+                              final ApplicationMetrics applicationMetrics,
+                              final QueryPlanCache queryPlanCache,
                               final IndexLocationStrategy indexLocationStrategy
     ) {
 
         this.indexFig = indexFig;
+        this.queryPlanCache = queryPlanCache;
+        this.applicationMetrics = applicationMetrics;
         this.indexLocationStrategy = indexLocationStrategy;
         this.failureMonitor = new FailureMonitorImpl( indexFig, provider );
         this.esProvider = provider;
@@ -145,7 +152,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
         this.cursorTimeout = indexFig.getQueryCursorTimeout();
         this.queryTimeout = indexFig.getWriteTimeout();
         this.searchRequest
-            = new SearchRequestBuilderStrategy(esProvider, applicationScope, alias, cursorTimeout );
+            = new SearchRequestBuilderStrategy(esProvider, applicationScope, alias, cursorTimeout, indexFig.isEdgeRouting() );
         this.searchRequestBuilderStrategyV2 = new SearchRequestBuilderStrategyV2( esProvider, applicationScope, alias, cursorTimeout  );
 
         this.addTimer = metricsFactory.getTimer(EsEntityIndexImpl.class, "index.add");
@@ -396,7 +403,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
     @Override
     public EntityIndexBatch createBatch() {
         EntityIndexBatch batch =
-            new EsEntityIndexBatchImpl(indexLocationStrategy, this );
+            new EsEntityIndexBatchImpl(indexLocationStrategy, this, indexFig );
         return batch;
     }
 
@@ -411,7 +418,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
 
         SearchResponse searchResponse;
 
-        final ParsedQuery parsedQuery = ParsedQueryBuilder.build(query);
+        final ParsedQuery parsedQuery = queryPlanCache.getParsedQuery( query );
 
         final SearchRequestBuilder srb = searchRequest.getBuilder( searchEdge, searchTypes, parsedQuery, limit, offset )
             .setTimeout(TimeValue.timeValueMillis(queryTimeout));
@@ -424,6 +431,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
 
          //Added For Graphite Metrics
         final Timer.Context timerContext = searchTimer.time();
+        final long traceStart = Tracer.start();
 
         try {
 
@@ -435,7 +443,9 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
             throw t;
         }
         finally{
-            timerContext.stop();
+            applicationMetrics.record( applicationScope.getApplication().getUuid(), ApplicationMetrics.INDEX_SEARCH,
+                timerContext.stop() );
+            Tracer.end( "es.search", traceStart );
         }
 
         failureMonitor.success();
@@ -811,6 +821,9 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
         //"term":{"edgeName":"zzzcollzzz|roles"}
         SearchRequestBuilder builder = searchRequestBuilderStrategyV2.getBuilder();
         builder.setQuery(new TermQueryBuilder("edgeSearch",IndexingUtils.createContextName(applicationScope,edge)));
+        if ( indexFig.isEdgeRouting() ) {
+            builder.setRouting( IndexingUtils.createEdgeRouting( edge ) );
+        }
         return  getEntitySizeAggregation(builder);
     }
 
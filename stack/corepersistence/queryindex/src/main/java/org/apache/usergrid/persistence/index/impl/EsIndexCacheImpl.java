@@ -26,6 +26,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
 import org.apache.usergrid.persistence.index.*;
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.client.AdminClient;
@@ -52,14 +53,19 @@ import com.google.inject.Singleton;
 public class EsIndexCacheImpl implements IndexCache {
 
     private static final Logger logger = LoggerFactory.getLogger( EsEntityIndexImpl.class );
+
+    private static final String CACHE_NAME = "indexAliases";
+
     private final ListeningScheduledExecutorService refreshExecutors;
 
     private LoadingCache<String, String[]> aliasIndexCache;
     private EsProvider provider;
+    private final InvalidationBus invalidationBus;
 
 
     @Inject
-    public EsIndexCacheImpl( final EsProvider provider, final IndexFig indexFig ) {
+    public EsIndexCacheImpl( final EsProvider provider, final IndexFig indexFig,
+                             final InvalidationBus invalidationBus ) {
 
         this.refreshExecutors =
             MoreExecutors.listeningDecorator( Executors.newScheduledThreadPool( indexFig.getIndexCacheMaxWorkers() ) );
@@ -88,6 +94,18 @@ public class EsIndexCacheImpl implements IndexCache {
                                              return getIndexesFromEs(aliasName);
                                           }
                                       } );
+
+        this.invalidationBus = invalidationBus;
+
+        //aliases are moved by whichever node adds the index, so every node evicts them
+        invalidationBus.subscribe( CACHE_NAME, key -> {
+            if ( key.isPresent() ) {
+                aliasIndexCache.invalidate( key.get() );
+            }
+            else {
+                aliasIndexCache.invalidateAll();
+            }
+        } );
     }
 
 
@@ -134,7 +152,7 @@ public class EsIndexCacheImpl implements IndexCache {
      */
     @Override
     public void invalidate(IndexAlias alias) {
-        aliasIndexCache.invalidate( alias.getWriteAlias() );
-        aliasIndexCache.invalidate( alias.getReadAlias() );
+        invalidationBus.invalidate( CACHE_NAME, alias.getWriteAlias() );
+        invalidationBus.invalidate( CACHE_NAME, alias.getReadAlias() );
     }
 }
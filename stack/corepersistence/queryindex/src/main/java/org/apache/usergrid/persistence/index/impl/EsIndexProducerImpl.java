@@ -18,13 +18,18 @@
 package org.apache.usergrid.persistence.index.impl;
 
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.codahale.metrics.Histogram;
 
 
 import org.apache.usergrid.persistence.index.EntityIndexBatch;
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.WriteConsistencyLevel;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
@@ -34,7 +39,9 @@ import org.elasticsearch.rest.RestStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.trace.Tracer;
 import org.apache.usergrid.persistence.index.IndexFig;
 
 import com.codahale.metrics.Counter;
@@ -59,8 +66,11 @@ public class EsIndexProducerImpl implements IndexProducer {
     private final Timer flushTimer;
     private final IndexFig indexFig;
     private final Counter indexSizeCounter;
+    private final Counter rejectedCounter;
     private final Histogram roundtripTimer;
     private final Timer indexTimer;
+    private final ApplicationMetrics applicationMetrics;
+    private final AdaptiveBulkController bulkController;
 
 
     private AtomicLong inFlight = new AtomicLong();
@@ -68,10 +78,12 @@ public class EsIndexProducerImpl implements IndexProducer {
 
     @Inject
     public EsIndexProducerImpl(final IndexFig config, final EsProvider provider,
-                               final MetricsFactory metricsFactory, final IndexFig indexFig) {
+                               final MetricsFactory metricsFactory, final ApplicationMetrics applicationMetrics,
+                               final IndexFig indexFig) {
         this.flushTimer = metricsFactory.getTimer(EsIndexProducerImpl.class, "index_buffer.flush");
         this.indexSizeCounter = metricsFactory.getCounter(EsIndexProducerImpl.class, "index_buffer.size");
         this.roundtripTimer = metricsFactory.getHistogram(EsIndexProducerImpl.class, "index_buffer.message_cycle");
+        this.rejectedCounter = metricsFactory.getCounter(EsIndexProducerImpl.class, "index_buffer.rejected");
 
         //wire up the gauge of inflight messages
         metricsFactory.addGauge(EsIndexProducerImpl.class, "index_buffer.inflight", () -> inFlight.longValue());
@@ -83,6 +95,14 @@ public class EsIndexProducerImpl implements IndexProducer {
         this.failureMonitor = new FailureMonitorImpl(config, provider);
         this.client = provider.getClient();
         this.indexFig = indexFig;
+        this.applicationMetrics = applicationMetrics;
+        this.bulkController = new AdaptiveBulkController(config);
+
+        //wire up the gauges of the adaptive bulk sizes
+        metricsFactory.addGauge(EsIndexProducerImpl.class, "index_buffer.batch_size",
+            () -> bulkController.getBatchSize());
+        metricsFactory.addGauge(EsIndexProducerImpl.class, "index_buffer.concurrency",
+            () -> bulkController.getConcurrency());
 
 
         //batch up sets of some size and send them in batch
@@ -102,6 +122,12 @@ public class EsIndexProducerImpl implements IndexProducer {
     }
 
 
+    @Override
+    public long getBackPressureDelay() {
+        return bulkController.getBackPressureDelay();
+    }
+
+
     /**
      * Process the buffer of batches
      * @param batch
@@ -128,7 +154,7 @@ public class EsIndexProducerImpl implements IndexProducer {
         final Observable<BatchOperation> batchOps = Observable.merge(index, deIndex);
 
         //buffer into the max size we can send ES and fire them all off until we're completed
-        final Observable<BulkRequestBuilder> requests = batchOps.buffer(indexFig.getIndexBatchSize())
+        final Observable<BulkRequestBuilder> requests = batchOps.buffer(bulkController.getBatchSize())
             //flatten the buffer into a single batch execution
             .flatMap(individualOps -> Observable.from(individualOps)
                 //collect them
@@ -158,7 +184,26 @@ public class EsIndexProducerImpl implements IndexProducer {
     }
 
 
-    /*
+    /**
+     * Record the time of the flush for each application with documents in it
+     */
+    private void recordFlush( final BulkResponse responses, final long duration ) {
+        final Set<UUID> applicationIds = new HashSet<>();
+
+        for ( BulkItemResponse response : responses ) {
+            try {
+                applicationIds.add( IndexingUtils.parseAppIdPrefixFromIndexDocId( response.getId() ) );
+            }
+            catch ( IllegalArgumentException e ) {
+                //not an entity document, still count it for all applications
+                applicationIds.add( null );
+            }
+        }
+
+        applicationIds.forEach( applicationId ->
+            applicationMetrics.record( applicationId, ApplicationMetrics.INDEX_FLUSH, duration ) );
+    }
+
 
     /**
      * initialize request
@@ -172,7 +217,7 @@ public class EsIndexProducerImpl implements IndexProducer {
 
 
     /**
-     * send bulk request
+     * send bulk request, retrying only the operations Elasticsearch rejects because its queues are full
      */
     private void sendRequest( BulkRequestBuilder bulkRequest ) {
         //nothing to do, we haven't added anything to the index
@@ -180,54 +225,101 @@ public class EsIndexProducerImpl implements IndexProducer {
             return;
         }
 
-        final BulkResponse responses;
+        boolean error = false;
 
+        final StringBuilder errorString = new StringBuilder(  );
 
-        final Timer.Context timer = indexTimer.time();
+        for ( int attempt = 0; ; attempt++ ) {
 
-        try {
-            responses = bulkRequest.execute().actionGet( );
-        } catch ( Throwable t ) {
-            log.error( "Unable to communicate with elasticsearch", t );
-            failureMonitor.fail( "Unable to execute batch", t );
-            throw t;
-        }finally{
-            timer.stop();
-        }
+            final List<ActionRequest> requests = bulkRequest.request().requests();
+            final BulkResponse responses;
+            final long duration;
 
-        failureMonitor.success();
+            try {
+                bulkController.acquire();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted waiting to send bulk index operations", e );
+            }
 
-        boolean error = false;
+            final Timer.Context timer = indexTimer.time();
+            final long traceStart = Tracer.start();
+
+            try {
+                responses = bulkRequest.execute().actionGet( );
+            } catch ( Throwable t ) {
+                log.error( "Unable to communicate with elasticsearch", t );
+                failureMonitor.fail( "Unable to execute batch", t );
+                throw t;
+            }finally{
+                duration = timer.stop();
+                Tracer.end( "es.bulk", traceStart );
+                bulkController.release();
+            }
 
-        final StringBuilder errorString = new StringBuilder(  );
+            failureMonitor.success();
 
-        boolean hasTooManyRequests= false;
-        for ( BulkItemResponse response : responses ) {
+            recordFlush( responses, duration );
+
+            final BulkRequestBuilder rejected = initRequest();
+
+            for ( BulkItemResponse response : responses ) {
+
+                if ( !response.isFailed() ) {
+                    continue;
+                }
+
+                //the index is overloaded, only this operation needs to be sent again
+                if ( response.getFailure() != null
+                    && response.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS ) {
+                    rejected.request().add( requests.get( response.getItemId() ) );
+                    continue;
+                }
 
-            if ( response.isFailed() ) {
                 // log error and continue processing
                 log.error( "Unable to index id={}, type={}, index={}, failureMessage={} ", response.getId(),
                     response.getType(), response.getIndex(),  response.getFailureMessage() );
-                //if index is overloaded on the queue fail.
-                if(response.getFailure()!=null && response.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS){
-                    hasTooManyRequests =true;
-                }
+
                 error = true;
 
                 errorString.append( response.getFailureMessage() ).append( "\n" );
             }
+
+            final int rejectedCount = rejected.numberOfActions();
+
+            bulkController.onResponse( rejectedCount, TimeUnit.NANOSECONDS.toMillis( duration ) );
+
+            if ( rejectedCount == 0 ) {
+                break;
+            }
+
+            rejectedCounter.inc( rejectedCount );
+
+            if ( attempt >= indexFig.getBulkMaxRetries() ) {
+                error = true;
+                errorString.append( rejectedCount ).append( " operations rejected after " ).append( attempt )
+                           .append( " retries\n" );
+                break;
+            }
+
+            final long delay = bulkController.getRetryDelay( attempt );
+
+            log.warn( "Elasticsearch rejected {} of {} operations, retrying them in {} ms", rejectedCount,
+                requests.size(), delay );
+
+            try {
+                Thread.sleep( delay );
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted retrying rejected bulk index operations", e );
+            }
+
+            bulkRequest = rejected;
         }
 
         if ( error ) {
-            if(hasTooManyRequests){
-                try{
-                    log.warn("Encountered Queue Capacity Exception from ElasticSearch slowing by "
-                        + indexFig.getSleepTimeForQueueError() );
-                    Thread.sleep(indexFig.getSleepTimeForQueueError());
-                }catch (Exception e){
-                    //move on
-                }
-            }
             throw new RuntimeException(
                 "Error during processing of bulk index operations one of the responses failed. \n" + errorString);
         }
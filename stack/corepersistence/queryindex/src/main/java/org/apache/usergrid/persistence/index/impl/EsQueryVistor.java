@@ -372,7 +372,9 @@ public class EsQueryVistor implements QueryVisitor {
                 //we start
                 final WildcardQueryBuilder wildcardQuery =
                         QueryBuilders.wildcardQuery( IndexingUtils.FIELD_STRING_NESTED_UNANALYZED, stringValue );
-                queryBuilders.push( fieldNameTerm( name, wildcardQuery ) );
+
+                //it's still an exact match, so don't score it.  Only contains is scored
+                queryBuilders.push( QueryBuilders.constantScoreQuery( fieldNameTerm( name, wildcardQuery ) ) );
                 filterBuilders.push( NoOpFilterBuilder.INSTANCE );
                 return;
             }
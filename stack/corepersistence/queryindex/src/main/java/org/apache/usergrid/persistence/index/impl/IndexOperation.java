@@ -46,10 +46,19 @@ public class IndexOperation implements BatchOperation {
     @JsonProperty
     public Map<String, Object> data;
 
+    /**
+     * The shard routing, null to route by the document id
+     */
+    @JsonProperty
+    public String routing;
+
     public IndexOperation( final String writeAlias, final ApplicationScope applicationScope, IndexEdge indexEdge,
-                           Entity entity ) {
+                           Entity entity, final boolean edgeRouting ) {
         this(writeAlias,IndexingUtils.createIndexDocId(applicationScope, entity,indexEdge), EntityToMapConverter.convert(applicationScope,indexEdge, entity));
 
+        if ( edgeRouting ) {
+            this.routing = IndexingUtils.createEdgeRouting( indexEdge );
+        }
     }
 
     public IndexOperation( final String writeAlias, String documentId, Map<String, Object> data ) {
@@ -68,6 +77,9 @@ public class IndexOperation implements BatchOperation {
     public void doOperation( final Client client, final BulkRequestBuilder bulkRequest ) {
         IndexRequestBuilder builder = client.prepareIndex( writeAlias, IndexingUtils.ES_ENTITY_TYPE, documentId ).setSource( data );
 
+        if ( routing != null ) {
+            builder.setRouting( routing );
+        }
 
         bulkRequest.add( builder );
     }
@@ -96,6 +108,10 @@ public class IndexOperation implements BatchOperation {
             return false;
         }
 
+        if ( routing != null ? !routing.equals( that.routing ) : that.routing != null ) {
+            return false;
+        }
+
         return true;
     }
 
@@ -105,6 +121,7 @@ public class IndexOperation implements BatchOperation {
         int result = writeAlias.hashCode();
         result = 31 * result + documentId.hashCode();
         result = 31 * result + data.hashCode();
+        result = 31 * result + ( routing != null ? routing.hashCode() : 0 );
         return result;
     }
 }
@@ -36,4 +36,11 @@ public interface IndexProducer {
     Observable<IndexOperationMessage>  put(EntityIndexBatch message);
     Observable<IndexOperationMessage>  put(IndexOperationMessage message);
 
+    /**
+     * The time in milliseconds callers should wait before producing more work, non zero while Elasticsearch is
+     * rejecting operations
+     * @return
+     */
+    long getBackPressureDelay();
+
 }
@@ -148,6 +148,20 @@ public class IndexingUtils {
     }
 
 
+    /**
+     * Create the routing value for the documents of the search edge.  All the documents of an edge are routed to the
+     * same shard
+     */
+    public static String createEdgeRouting( final SearchEdge searchEdge ) {
+        return createEdgeRouting( searchEdge.getNodeId().getUuid().toString(), searchEdge.getEdgeName() );
+    }
+
+
+    private static String createEdgeRouting( final String nodeUuid, final String edgeName ) {
+        return nodeUuid + ID_SEPERATOR + edgeName;
+    }
+
+
     /**
      * Create the index doc from the given entity
      */
@@ -280,6 +294,21 @@ public class IndexingUtils {
     }
 
 
+    /**
+     * Parse the routing value of the document's search edge from the document id
+     */
+    public static String parseEdgeRoutingFromIndexDocId( final String documentId ) {
+
+        final Matcher matcher = DOCUMENT_PATTERN.matcher( documentId );
+
+        Preconditions.checkArgument( matcher.matches(), "Pattern for document id did not match expected format" );
+        Preconditions.checkArgument( matcher.groupCount() == 9, "9 groups expected in the pattern" );
+
+        //group 6 is the node uuid, and group 8 is the edge name
+        return createEdgeRouting( matcher.group( 6 ), matcher.group( 8 ) );
+    }
+
+
     /**
      * Get the entity type
      */
@@ -298,6 +327,19 @@ public class IndexingUtils {
         return sb.toString();
     }
 
+    /**
+     * Read the application id from the start of the document id, without matching the whole id
+     */
+    public static UUID parseAppIdPrefixFromIndexDocId( final String documentId ) {
+        final int start = APPID_NAME.length() + 1;
+
+        Preconditions.checkArgument( documentId.startsWith( APPID_NAME + "(" ) && documentId.length() > start + 36,
+            "Pattern for document id did not match expected format" );
+
+        return UUID.fromString( documentId.substring( start, start + 36 ) );
+    }
+
+
     public static UUID getApplicationIdFromIndexDocId(String documentId) {
         return parseAppIdFromIndexDocId(documentId);
     }
@@ -0,0 +1,93 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ *
+ */
+package org.apache.usergrid.persistence.index.impl;
+
+
+import org.antlr.runtime.CommonTokenStream;
+import org.apache.commons.lang.StringUtils;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.ParsedQueryTemplate;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Caches a template of each query shape we've parsed.  The ql is still lexed on every search to find its shape and
+ * literals, but the parser only runs the first time a shape is seen.
+ */
+@Singleton
+public class QueryPlanCacheImpl implements QueryPlanCache {
+
+    private final Cache<String, ParsedQueryTemplate> templates;
+    private final Meter hitMeter;
+    private final Meter missMeter;
+
+
+    @Inject
+    public QueryPlanCacheImpl( final IndexFig indexFig, final MetricsFactory metricsFactory ) {
+        this.templates =
+            CacheBuilder.newBuilder().maximumSize( indexFig.getQueryPlanCacheSize() ).recordStats().build();
+
+        this.hitMeter = metricsFactory.getMeter( QueryPlanCacheImpl.class, "query.plan.hit" );
+        this.missMeter = metricsFactory.getMeter( QueryPlanCacheImpl.class, "query.plan.miss" );
+        metricsFactory.addGauge( QueryPlanCacheImpl.class, "query.plan.hit_ratio",
+            ( Gauge<Double> ) () -> templates.stats().hitRate() );
+    }
+
+
+    @Override
+    public ParsedQuery getParsedQuery( final String ql ) {
+        if ( StringUtils.isEmpty( ql ) ) {
+            return null;
+        }
+
+        final CommonTokenStream tokens = ParsedQueryBuilder.tokenize( ql );
+        final String shape = ParsedQueryTemplate.getShape( tokens );
+
+        final ParsedQueryTemplate template = templates.getIfPresent( shape );
+
+        if ( template != null ) {
+            hitMeter.mark();
+            return template.bind( ql, tokens );
+        }
+
+        missMeter.mark();
+
+        final ParsedQuery parsedQuery = ParsedQueryBuilder.parse( ql, tokens );
+        final ParsedQueryTemplate newTemplate = ParsedQueryTemplate.create( parsedQuery, tokens );
+
+        //the template keeps the parsed tree, so hand out a copy of it
+        if ( newTemplate != null ) {
+            templates.put( shape, newTemplate );
+            return newTemplate.bind( ql, tokens );
+        }
+
+        return parsedQuery;
+    }
+}
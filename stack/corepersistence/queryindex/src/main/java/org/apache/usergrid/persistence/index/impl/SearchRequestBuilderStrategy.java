@@ -27,6 +27,7 @@ import org.elasticsearch.index.query.BoolFilterBuilder;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.TermFilterBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.GeoDistanceSortBuilder;
@@ -63,15 +64,17 @@ public class SearchRequestBuilderStrategy {
     private final ApplicationScope applicationScope;
     private final IndexAlias alias;
     private final int cursorTimeout;
+    private final boolean edgeRouting;
 
 
     public SearchRequestBuilderStrategy( final EsProvider esProvider, final ApplicationScope applicationScope,
-                                         final IndexAlias alias, int cursorTimeout ) {
+                                         final IndexAlias alias, int cursorTimeout, final boolean edgeRouting ) {
 
         this.esProvider = esProvider;
         this.applicationScope = applicationScope;
         this.alias = alias;
         this.cursorTimeout = cursorTimeout;
+        this.edgeRouting = edgeRouting;
     }
 
 
@@ -88,16 +91,28 @@ public class SearchRequestBuilderStrategy {
             esProvider.getClient().prepareSearch( alias.getReadAlias() ).setTypes( IndexingUtils.ES_ENTITY_TYPE )
                       .setSearchType( SearchType.QUERY_THEN_FETCH );
 
+        //all the documents of the edge are on one shard, only search it
+        if ( edgeRouting ) {
+            srb.setRouting( IndexingUtils.createEdgeRouting( searchEdge ) );
+        }
 
         final QueryVisitor visitor = visitParsedQuery( query );
 
         final Optional<QueryBuilder> queryBuilder = visitor.getQueryBuilder();
 
+        final FilterBuilder filterBuilder = createFilterBuilder( searchEdge, visitor, searchTypes );
+
+        /**
+         * Apply our filters in the query instead of as a post filter, so ES filters before it scores and can cache
+         * them.  Only contains produces a scored query, everything else is a constant score.  The sorts never use
+         * the score, so the results are the same either way
+         */
         if ( queryBuilder.isPresent() ) {
-            srb.setQuery( queryBuilder.get() );
+            srb.setQuery( QueryBuilders.filteredQuery( queryBuilder.get(), filterBuilder ) );
+        }
+        else {
+            srb.setQuery( QueryBuilders.constantScoreQuery( filterBuilder ) );
         }
-
-        srb.setPostFilter( createFilterBuilder( searchEdge, visitor, searchTypes ) );
 
 
         srb = srb.setFrom( from ).setSize( limit );
@@ -207,11 +222,11 @@ public class SearchRequestBuilderStrategy {
         // TODO evaluate performance when it's an all query.
         // Do we need to put the context term first for performance?
 
-        //make sure we have entity in the context
-        BoolFilterBuilder boolQueryFilter = FilterBuilders.boolFilter();
+        //make sure we have entity in the context.  Every search of the edge repeats this part, so cache it
+        BoolFilterBuilder edgeFilter = FilterBuilders.boolFilter().cache( true );
 
         //add our edge search
-        boolQueryFilter.must( FilterBuilders.termFilter( IndexingUtils.EDGE_SEARCH_FIELDNAME, context ) );
+        edgeFilter.must( FilterBuilders.termFilter( IndexingUtils.EDGE_SEARCH_FIELDNAME, context ) );
 
 
         /**
@@ -228,18 +243,18 @@ public class SearchRequestBuilderStrategy {
             }
 
             //add all our types, 1 type must match per query
-            boolQueryFilter.must( FilterBuilders.orFilter( typeTerms ) );
+            edgeFilter.must( FilterBuilders.orFilter( typeTerms ) );
         }
 
-        //if we have a filter from our visitor, add it
+        //if we have a filter from our visitor, add it.  The literals vary per query, so it's not cached as a whole
 
         Optional<FilterBuilder> queryBuilder = visitor.getFilterBuilder();
 
-        if ( queryBuilder.isPresent() ) {
-            boolQueryFilter.must( queryBuilder.get() );
+        if ( !queryBuilder.isPresent() ) {
+            return edgeFilter;
         }
 
-        return boolQueryFilter;
+        return FilterBuilders.boolFilter().must( edgeFilter ).must( queryBuilder.get() );
     }
 
 
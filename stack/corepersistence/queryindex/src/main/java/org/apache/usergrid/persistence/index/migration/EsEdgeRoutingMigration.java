@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.index.migration;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.guicyfig.ClusterFig;
+import org.apache.usergrid.persistence.core.migration.data.DataMigration;
+import org.apache.usergrid.persistence.core.migration.data.ProgressObserver;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.impl.EsProvider;
+import org.apache.usergrid.persistence.index.impl.IndexingUtils;
+
+import com.google.inject.Inject;
+
+
+/**
+ * Moves every document to the shard of its search edge once elasticsearch.edge_routing is enabled.  Documents indexed
+ * before were routed by their document id, so each one is indexed again with its edge routing and the copy routed by
+ * id is deleted.  Until the migration completes, searches only see the documents that have been moved.
+ *
+ * Only the indexes under this cluster's index root are migrated.  The scroll is a snapshot, so a document may have
+ * been de-indexed, or written again with its edge routing, after the migration saw it.  De-indexing deletes the copy
+ * routed by id as well while edge routing is on, so the routed copy is created only if it doesn't exist yet, and it's
+ * deleted again when the copy routed by id turns out to be gone.
+ *
+ * The migration only runs when edge routing is enabled, so it can be run any time after the property is set.
+ */
+public class EsEdgeRoutingMigration implements DataMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger( EsEdgeRoutingMigration.class );
+
+    private static final TimeValue SCROLL_TIMEOUT = TimeValue.timeValueMinutes( 5 );
+
+    private final EsProvider provider;
+    private final IndexFig indexFig;
+    private final ClusterFig clusterFig;
+
+
+    @Inject
+    public EsEdgeRoutingMigration( final EsProvider provider, final IndexFig indexFig, final ClusterFig clusterFig ) {
+        this.provider = provider;
+        this.indexFig = indexFig;
+        this.clusterFig = clusterFig;
+    }
+
+
+    @Override
+    public int migrate( final int currentVersion, final ProgressObserver observer ) {
+        final Client client = provider.getClient();
+
+        //every application and management index is named after the cluster, see IndexLocationStrategy
+        final String indexRoot = clusterFig.getClusterName().toLowerCase() + "_";
+
+        final String[] indexes =
+            client.admin().indices().prepareGetIndex().setIndices( indexRoot + "*" ).execute().actionGet()
+                  .getIndices();
+
+        for ( final String index : indexes ) {
+            final long moved = migrateIndex( client, index );
+
+            logger.info( "Moved {} documents of index {} to their edge shards", moved, index );
+            observer.update( getMaxVersion(), "Moved " + moved + " documents of index " + index );
+        }
+
+        return getMaxVersion();
+    }
+
+
+    private long migrateIndex( final Client client, final String index ) {
+        long moved = 0;
+
+        SearchResponse response =
+            client.prepareSearch( index ).setTypes( IndexingUtils.ES_ENTITY_TYPE ).setSearchType( SearchType.SCAN )
+                  .setScroll( SCROLL_TIMEOUT ).setQuery( QueryBuilders.matchAllQuery() )
+                  .setSize( indexFig.getIndexBatchSize() ).execute().actionGet();
+
+        while ( true ) {
+            response = client.prepareSearchScroll( response.getScrollId() ).setScroll( SCROLL_TIMEOUT ).execute()
+                             .actionGet();
+
+            final SearchHit[] hits = response.getHits().getHits();
+
+            if ( hits.length == 0 ) {
+                return moved;
+            }
+
+            moved += moveDocuments( client, index, hits );
+        }
+    }
+
+
+    /**
+     * Move one page of the scroll, returns the number of documents moved
+     */
+    private long moveDocuments( final Client client, final String index, final SearchHit[] hits ) {
+
+        //create the routed copies first, so the document is searchable throughout
+        final Map<String, String> routings = new HashMap<>();
+        final BulkRequestBuilder createRequest = client.prepareBulk();
+
+        for ( final SearchHit hit : hits ) {
+            final String routing;
+
+            try {
+                routing = IndexingUtils.parseEdgeRoutingFromIndexDocId( hit.getId() );
+            }
+            catch ( IllegalArgumentException e ) {
+                logger.warn( "Skipping document {} of index {}, it has no search edge", hit.getId(), index );
+                continue;
+            }
+
+            routings.put( hit.getId(), routing );
+            createRequest.add( client.prepareIndex( index, IndexingUtils.ES_ENTITY_TYPE, hit.getId() )
+                                     .setSource( hit.getSourceRef() ).setRouting( routing )
+                                     .setOpType( IndexRequest.OpType.CREATE ) );
+        }
+
+        if ( createRequest.numberOfActions() == 0 ) {
+            return 0;
+        }
+
+        //ids whose routed copy we created.  If it already existed it was written after routing was enabled, or it
+        //is the same document because the edge routes to the same shard as the id, and either way it's left alone
+        final List<String> created = new ArrayList<>();
+        for ( final BulkItemResponse item : execute( createRequest, index ) ) {
+            if ( !item.isFailed() ) {
+                created.add( item.getId() );
+            }
+            else if ( item.getFailure().getStatus() != RestStatus.CONFLICT ) {
+                throw new RuntimeException(
+                    "Unable to move document " + item.getId() + " of index " + index + ": " + item.getFailureMessage() );
+            }
+        }
+
+        if ( created.isEmpty() ) {
+            return 0;
+        }
+
+        final BulkRequestBuilder deleteRequest = client.prepareBulk();
+        for ( final String id : created ) {
+            deleteRequest.add( client.prepareDelete( index, IndexingUtils.ES_ENTITY_TYPE, id ) );
+        }
+
+        //the copy routed by id was de-indexed since the scroll started, so the one we created is stale
+        final BulkRequestBuilder staleRequest = client.prepareBulk();
+        for ( final BulkItemResponse item : execute( deleteRequest, index ) ) {
+            if ( item.isFailed() ) {
+                throw new RuntimeException( "Unable to delete document " + item.getId() + " of index " + index + ": "
+                    + item.getFailureMessage() );
+            }
+            if ( !( ( DeleteResponse ) item.getResponse() ).isFound() ) {
+                staleRequest.add( client.prepareDelete( index, IndexingUtils.ES_ENTITY_TYPE, item.getId() )
+                                        .setRouting( routings.get( item.getId() ) ) );
+            }
+        }
+
+        if ( staleRequest.numberOfActions() > 0 ) {
+            logger.info( "Removing {} documents of index {} de-indexed during the migration",
+                staleRequest.numberOfActions(), index );
+            for ( final BulkItemResponse item : execute( staleRequest, index ) ) {
+                if ( item.isFailed() ) {
+                    throw new RuntimeException( "Unable to delete document " + item.getId() + " of index " + index
+                        + ": " + item.getFailureMessage() );
+                }
+            }
+        }
+
+        return created.size() - staleRequest.numberOfActions();
+    }
+
+
+    private BulkItemResponse[] execute( final BulkRequestBuilder bulkRequest, final String index ) {
+        final BulkResponse bulkResponse = bulkRequest.execute().actionGet();
+        logger.debug( "Executed {} operations on index {} in {} ms", bulkRequest.numberOfActions(), index,
+            bulkResponse.getTookInMillis() );
+        return bulkResponse.getItems();
+    }
+
+
+    @Override
+    public boolean supports( final int currentVersion ) {
+        return currentVersion < getMaxVersion();
+    }
+
+
+    /**
+     * The index data only reaches the edge routing version once routing is enabled.  Until then this migration leaves
+     * the plugin at the version it had before edge routing existed.
+     */
+    @Override
+    public int getMaxVersion() {
+        return indexFig.isEdgeRouting() ? IndexDataVersions.EDGE_ROUTING.getVersion() :
+               IndexDataVersions.MANY_INDEXES.getVersion();
+    }
+}
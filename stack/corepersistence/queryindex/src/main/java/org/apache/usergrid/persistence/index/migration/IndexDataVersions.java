@@ -25,7 +25,11 @@ package org.apache.usergrid.persistence.index.migration;
  */
 public enum IndexDataVersions {
     MANY_INDEXES(0),
-    SINGLE_INDEX(1);
+    SINGLE_INDEX(1),
+    /**
+     * Documents are routed by their search edge, only reached when elasticsearch.edge_routing is enabled
+     */
+    EDGE_ROUTING(2);
 
     private final int version;
 
@@ -61,6 +61,21 @@ public class ParsedQuery {
     private String originalQuery;
 
 
+    public ParsedQuery() {
+    }
+
+
+    /**
+     * Create a query with the selects and sorts of the template and a new root operand
+     */
+    ParsedQuery( final ParsedQuery template, final Operand rootOperand ) {
+        this.sortPropertyNames.addAll( template.sortPropertyNames );
+        this.sortPredicateList.addAll( template.sortPredicateList );
+        this.fieldMappings.putAll( template.fieldMappings );
+        this.rootOperand = rootOperand;
+    }
+
+
     /**
      * Get the original query
      * @return
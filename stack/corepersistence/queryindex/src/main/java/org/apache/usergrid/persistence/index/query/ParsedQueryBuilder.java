@@ -53,6 +53,15 @@ public class ParsedQueryBuilder {
         if ( StringUtils.isEmpty( ql ) ) {
             return null;
         }
+
+        return parse( ql, tokenize( ql ) );
+    }
+
+
+    /**
+     * Lex the ql once it's been rewritten into our full grammar.  All the tokens are read, so a bad token fails here
+     */
+    public static CommonTokenStream tokenize( final String ql ) {
         logger.debug( "Processing raw query: " + ql );
 
         final String trimmedLowercaseQuery = ql.trim().toLowerCase();
@@ -83,6 +92,16 @@ public class ParsedQueryBuilder {
         ANTLRStringStream in = new ANTLRStringStream( outputQuery );
         CpQueryFilterLexer lexer = new CpQueryFilterLexer( in );
         CommonTokenStream tokens = new CommonTokenStream( lexer );
+        tokens.fill();
+
+        return tokens;
+    }
+
+
+    /**
+     * Parse the tokens of the ql returned by {@link #tokenize(String)}
+     */
+    public static ParsedQuery parse( final String ql, final CommonTokenStream tokens ) throws QueryParseException {
         CpQueryFilterParser parser = new CpQueryFilterParser( tokens );
 
 
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.usergrid.persistence.index.query;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.antlr.runtime.BufferedTokenStream;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.tree.CommonTree;
+
+import org.apache.usergrid.persistence.index.query.tree.AndOperand;
+import org.apache.usergrid.persistence.index.query.tree.BooleanLiteral;
+import org.apache.usergrid.persistence.index.query.tree.ContainsOperand;
+import org.apache.usergrid.persistence.index.query.tree.ContainsProperty;
+import org.apache.usergrid.persistence.index.query.tree.CpQueryFilterParser;
+import org.apache.usergrid.persistence.index.query.tree.Equal;
+import org.apache.usergrid.persistence.index.query.tree.FloatLiteral;
+import org.apache.usergrid.persistence.index.query.tree.GreaterThan;
+import org.apache.usergrid.persistence.index.query.tree.GreaterThanEqual;
+import org.apache.usergrid.persistence.index.query.tree.LessThan;
+import org.apache.usergrid.persistence.index.query.tree.LessThanEqual;
+import org.apache.usergrid.persistence.index.query.tree.LongLiteral;
+import org.apache.usergrid.persistence.index.query.tree.NotOperand;
+import org.apache.usergrid.persistence.index.query.tree.Operand;
+import org.apache.usergrid.persistence.index.query.tree.OrOperand;
+import org.apache.usergrid.persistence.index.query.tree.Property;
+import org.apache.usergrid.persistence.index.query.tree.StringLiteral;
+import org.apache.usergrid.persistence.index.query.tree.UUIDLiteral;
+import org.apache.usergrid.persistence.index.query.tree.WithinOperand;
+import org.apache.usergrid.persistence.index.query.tree.WithinProperty;
+
+
+/**
+ * A parsed query with its literals pulled out as parameters.  Queries that only differ in their literals have the same
+ * shape, e.g. "name = 'fred' and age > 5" and "name = 'bob' and age > 10", and the parser only depends on the token
+ * types, so they always produce the same tree.  The tree is parsed once per shape and each query binds its own
+ * literals into a copy of it.
+ */
+public class ParsedQueryTemplate {
+
+    /**
+     * Create the node of each type in the tree, the same way the parser does
+     */
+    private static final Map<Class<?>, Function<Token, CommonTree>> NODES = new HashMap<>();
+
+    static {
+        NODES.put( AndOperand.class, AndOperand::new );
+        NODES.put( OrOperand.class, OrOperand::new );
+        NODES.put( NotOperand.class, NotOperand::new );
+        NODES.put( Equal.class, Equal::new );
+        NODES.put( LessThan.class, LessThan::new );
+        NODES.put( LessThanEqual.class, LessThanEqual::new );
+        NODES.put( GreaterThan.class, GreaterThan::new );
+        NODES.put( GreaterThanEqual.class, GreaterThanEqual::new );
+        NODES.put( ContainsOperand.class, ContainsOperand::new );
+        NODES.put( WithinOperand.class, WithinOperand::new );
+        NODES.put( Property.class, Property::new );
+        NODES.put( ContainsProperty.class, ContainsProperty::new );
+        NODES.put( WithinProperty.class, WithinProperty::new );
+        NODES.put( BooleanLiteral.class, BooleanLiteral::new );
+        NODES.put( LongLiteral.class, LongLiteral::new );
+        NODES.put( FloatLiteral.class, FloatLiteral::new );
+        NODES.put( StringLiteral.class, StringLiteral::new );
+        NODES.put( UUIDLiteral.class, UUIDLiteral::new );
+    }
+
+    private final ParsedQuery parsedQuery;
+
+    /**
+     * The position of each literal token of the template in the literals of a query
+     */
+    private final Map<Token, Integer> parameters;
+
+
+    private ParsedQueryTemplate( final ParsedQuery parsedQuery, final Map<Token, Integer> parameters ) {
+        this.parsedQuery = parsedQuery;
+        this.parameters = parameters;
+    }
+
+
+    /**
+     * Create a template from a query parsed from the tokens.  Returns null if the tree contains a node we can't copy, in
+     * which case the query should always be parsed
+     */
+    public static ParsedQueryTemplate create( final ParsedQuery parsedQuery, final BufferedTokenStream tokens ) {
+        final Map<Token, Integer> parameters = new IdentityHashMap<>();
+
+        final List<Token> literals = getLiterals( tokens );
+        for ( int i = 0; i < literals.size(); i++ ) {
+            parameters.put( literals.get( i ), i );
+        }
+
+        final ParsedQueryTemplate template = new ParsedQueryTemplate( parsedQuery, parameters );
+
+        if ( parsedQuery.getRootOperand() != null && !template.canCopy( parsedQuery.getRootOperand() ) ) {
+            return null;
+        }
+
+        return template;
+    }
+
+
+    /**
+     * Get the shape of the query.  Every token but the literals is part of the shape, the literals are only kept by
+     * type
+     */
+    public static String getShape( final BufferedTokenStream tokens ) {
+        final StringBuilder shape = new StringBuilder();
+
+        for ( Token token : getTokens( tokens ) ) {
+            shape.append( token.getType() );
+
+            if ( !isLiteral( token ) ) {
+                shape.append( ':' ).append( token.getText() );
+            }
+
+            shape.append( '\u0000' );
+        }
+
+        return shape.toString();
+    }
+
+
+    /**
+     * Get the literals of the query in the order they appear
+     */
+    public static List<Token> getLiterals( final BufferedTokenStream tokens ) {
+        final List<Token> literals = new ArrayList<>();
+
+        for ( Token token : getTokens( tokens ) ) {
+            if ( isLiteral( token ) ) {
+                literals.add( token );
+            }
+        }
+
+        return literals;
+    }
+
+
+    /**
+     * Create the parsed query for the ql.  The tokens must have the same shape as the template
+     */
+    public ParsedQuery bind( final String ql, final BufferedTokenStream tokens ) {
+        final List<Token> literals = getLiterals( tokens );
+
+        final Operand root = parsedQuery.getRootOperand();
+
+        final ParsedQuery bound =
+            new ParsedQuery( parsedQuery, root == null ? null : ( Operand ) copy( root, literals ) );
+        bound.setOriginalQuery( ql );
+
+        return bound;
+    }
+
+
+    private CommonTree copy( final CommonTree node, final List<Token> literals ) {
+        final Integer parameter = parameters.get( node.getToken() );
+        final Token token = parameter == null ? node.getToken() : literals.get( parameter );
+
+        final CommonTree copy = NODES.get( node.getClass() ).apply( token );
+
+        for ( int i = 0; i < node.getChildCount(); i++ ) {
+            copy.addChild( copy( ( CommonTree ) node.getChild( i ), literals ) );
+        }
+
+        return copy;
+    }
+
+
+    /**
+     * True if we can copy every node, and every literal in the tree came from a literal token
+     */
+    private boolean canCopy( final CommonTree node ) {
+        if ( !NODES.containsKey( node.getClass() ) ) {
+            return false;
+        }
+
+        if ( isLiteral( node.getToken() ) && !parameters.containsKey( node.getToken() ) ) {
+            return false;
+        }
+
+        for ( int i = 0; i < node.getChildCount(); i++ ) {
+            if ( !( node.getChild( i ) instanceof CommonTree ) || !canCopy( ( CommonTree ) node.getChild( i ) ) ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * The tokens the parser sees, hidden tokens such as whitespace are left out
+     */
+    private static List<Token> getTokens( final BufferedTokenStream tokens ) {
+        final List<Token> visible = new ArrayList<>( tokens.size() );
+
+        for ( Object token : tokens.getTokens() ) {
+            final Token visibleToken = ( Token ) token;
+
+            if ( visibleToken.getChannel() == Token.DEFAULT_CHANNEL && visibleToken.getType() != Token.EOF ) {
+                visible.add( visibleToken );
+            }
+        }
+
+        return visible;
+    }
+
+
+    private static boolean isLiteral( final Token token ) {
+        if ( token == null ) {
+            return false;
+        }
+
+        switch ( token.getType() ) {
+            case CpQueryFilterParser.BOOLEAN:
+            case CpQueryFilterParser.LONG:
+            case CpQueryFilterParser.FLOAT:
+            case CpQueryFilterParser.STRING:
+            case CpQueryFilterParser.UUID:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
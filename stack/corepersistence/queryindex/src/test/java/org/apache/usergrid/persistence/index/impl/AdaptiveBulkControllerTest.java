@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.index.impl;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.index.IndexFig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class AdaptiveBulkControllerTest {
+
+    private AdaptiveBulkController controller;
+
+
+    @Before
+    public void setup() {
+        final IndexFig indexFig = mock( IndexFig.class );
+        when( indexFig.getIndexBatchSize() ).thenReturn( 1000 );
+        when( indexFig.getIndexFlushWorkerCount() ).thenReturn( 4 );
+        when( indexFig.getBulkMinSize() ).thenReturn( 300 );
+        when( indexFig.getBulkSizeIncrement() ).thenReturn( 250 );
+        when( indexFig.getBulkTargetLatency() ).thenReturn( 60000L );
+        when( indexFig.getSleepTimeForQueueError() ).thenReturn( 200L );
+
+        controller = new AdaptiveBulkController( indexFig );
+    }
+
+
+    @Test
+    public void rejectionHalvesOncePerWindow() {
+        controller.onResponse( 10, 100 );
+
+        assertEquals( 500, controller.getBatchSize() );
+        assertEquals( 2, controller.getConcurrency() );
+        assertTrue( controller.getBackPressureDelay() > 0 );
+
+        //responses of requests already in flight don't shrink it again
+        controller.onResponse( 10, 100 );
+
+        assertEquals( 500, controller.getBatchSize() );
+        assertEquals( 2, controller.getConcurrency() );
+    }
+
+
+    @Test
+    public void slowResponseShrinksWithoutBackPressure() {
+        controller.onResponse( 0, 120000 );
+
+        assertEquals( 500, controller.getBatchSize() );
+        assertEquals( 2, controller.getConcurrency() );
+        assertEquals( 0, controller.getBackPressureDelay() );
+    }
+
+
+    @Test
+    public void growsSizeThenConcurrency() {
+        controller.onResponse( 1, 100 );
+
+        controller.onResponse( 0, 100 );
+        assertEquals( 750, controller.getBatchSize() );
+        assertEquals( 2, controller.getConcurrency() );
+
+        controller.onResponse( 0, 100 );
+        controller.onResponse( 0, 100 );
+        assertEquals( 1000, controller.getBatchSize() );
+        assertEquals( 3, controller.getConcurrency() );
+
+        controller.onResponse( 0, 100 );
+        controller.onResponse( 0, 100 );
+        assertEquals( 1000, controller.getBatchSize() );
+        assertEquals( 4, controller.getConcurrency() );
+    }
+
+
+    @Test
+    public void retryDelayIsJitteredAndCapped() {
+        for ( int i = 0; i < 100; i++ ) {
+            final long first = controller.getRetryDelay( 0 );
+            assertTrue( first >= 100 && first <= 200 );
+
+            final long capped = controller.getRetryDelay( 20 );
+            assertTrue( capped >= 3200 && capped <= 6400 );
+        }
+    }
+}
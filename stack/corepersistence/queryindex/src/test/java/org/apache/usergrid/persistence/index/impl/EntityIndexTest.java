@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,6 +34,10 @@ import com.google.common.base.Optional;
 import org.apache.usergrid.persistence.core.astyanax.CassandraFig;
 import org.apache.usergrid.persistence.index.*;
 import org.apache.usergrid.persistence.model.field.*;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.search.SearchHit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -41,14 +47,19 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang3.time.StopWatch;
 
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
 import org.apache.usergrid.persistence.core.test.UseModules;
 import org.apache.usergrid.persistence.core.util.Health;
 import org.apache.usergrid.persistence.index.guice.TestIndexModule;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.tree.QueryVisitor;
 import org.apache.usergrid.persistence.index.utils.UUIDUtils;
 import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.value.Location;
 import org.apache.usergrid.persistence.model.util.EntityUtils;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
@@ -87,16 +98,20 @@ public class EntityIndexTest extends BaseIT {
     @Inject
     @Rule
     public ElasticSearchRule elasticSearchRule;
+    @Inject
+    public EsProvider esProvider;
+
     private EntityIndex entityIndex;
+    private IndexLocationStrategy indexLocationStrategy;
     private SimpleId appId;
 
     @Before
     public void setup(){
         appId = new SimpleId(UUID.randomUUID(), "application" );
 
-        IndexLocationStrategy strategy =  new TestIndexIdentifier(cassandraFig,fig,new ApplicationScopeImpl(appId));
+        indexLocationStrategy =  new TestIndexIdentifier(cassandraFig,fig,new ApplicationScopeImpl(appId));
 
-        entityIndex = eif.createEntityIndex( strategy );
+        entityIndex = eif.createEntityIndex( indexLocationStrategy );
     }
 
     @Test
@@ -1272,6 +1287,103 @@ public class EntityIndexTest extends BaseIT {
 
     }
 
+    /**
+     * Searches now apply their predicates in the filter context instead of as a post filter.  Check every operator
+     * returns the same entities as the post filter did
+     */
+    @Test
+    public void filterContextMatchesPostFilter() throws Throwable {
+
+        final String type = "search";
+        final Id ownerId = new SimpleId( "owner" );
+        final IndexEdge indexEdge = new IndexEdgeImpl( ownerId, "searches", SearchEdge.NodeType.SOURCE, 1 );
+        final SearchTypes searchTypes = SearchTypes.fromTypes( type );
+
+        final String[] names = { "alpha", "bravo", "charlie", "delta", "echo" };
+
+        EntityIndexBatch batch = entityIndex.createBatch();
+
+        for ( int i = 0; i < 10; i++ ) {
+            final Entity entity = new Entity( type );
+            entity.setField( new StringField( "name", names[i % names.length] + " long string " + i ) );
+            entity.setField( new StringField( "status", i % 2 == 0 ? "active" : "inactive" ) );
+            entity.setField( new IntegerField( "count", i ) );
+            entity.setField( new DoubleField( "weight", i * 1.5 ) );
+            entity.setField( new BooleanField( "enabled", i % 3 == 0 ) );
+            entity.setField( new UUIDField( "ref", new UUID( 0, i ) ) );
+            entity.setField( new LocationField( "location", new Location( 37.0 + i, -75.0 + i ) ) );
+            EntityUtils.setVersion( entity, UUIDGenerator.newTimeUUID() );
+
+            batch.index( indexEdge, entity );
+        }
+
+        indexProducer.put( batch.build() ).subscribe();
+        entityIndex.refreshAsync().toBlocking().first();
+
+        final String[] queries = {
+            "status = 'active'", "status = 'act*'", "count = 4", "weight = 4.5", "enabled = true",
+            "ref = " + new UUID( 0, 3 ), "count < 4", "count <= 4", "count > 4", "count >= 4", "weight < 6.0",
+            "weight >= 6.0", "name contains 'alpha'", "name contains 'bra*'", "name contains 'long'",
+            "location within 200000 of 38, -74", "count > 2 and status = 'active'",
+            "count > 7 or status = 'inactive'", "not status = 'active'", "not count > 4 and enabled = true",
+            "name contains 'alpha' or name contains 'echo'", "name contains 'alpha' and count > 2",
+            "not name contains 'charlie'", "select * order by count desc"
+        };
+
+        for ( String ql : queries ) {
+            final CandidateResults results = entityIndex.search( indexEdge, searchTypes, ql, 100, 0 );
+
+            final Set<Id> ids = new HashSet<>();
+            for ( CandidateResult result : results ) {
+                ids.add( result.getId() );
+            }
+
+            assertEquals( ql, postFilterSearch( indexEdge, searchTypes, ql ), ids );
+        }
+    }
+
+
+    /**
+     * Search the way we did before filters were moved into the query, with the predicates as a post filter
+     */
+    private Set<Id> postFilterSearch( final SearchEdge searchEdge, final SearchTypes searchTypes, final String ql )
+        throws Exception {
+
+        final QueryVisitor visitor = new EsQueryVistor();
+        final ParsedQuery parsedQuery = ParsedQueryBuilder.build( ql );
+        if ( parsedQuery.getRootOperand() != null ) {
+            parsedQuery.getRootOperand().visit( visitor );
+        }
+
+        final ApplicationScope applicationScope = indexLocationStrategy.getApplicationScope();
+
+        final BoolFilterBuilder filter = FilterBuilders.boolFilter().must( FilterBuilders
+            .termFilter( IndexingUtils.EDGE_SEARCH_FIELDNAME,
+                IndexingUtils.createContextName( applicationScope, searchEdge ) ) ).must( FilterBuilders.orFilter(
+            FilterBuilders.termFilter( IndexingUtils.ENTITY_TYPE_FIELDNAME,
+                searchTypes.getTypeNames( applicationScope )[0] ) ) );
+
+        if ( visitor.getFilterBuilder().isPresent() ) {
+            filter.must( visitor.getFilterBuilder().get() );
+        }
+
+        final SearchRequestBuilder srb =
+            esProvider.getClient().prepareSearch( indexLocationStrategy.getAlias().getReadAlias() )
+                      .setTypes( IndexingUtils.ES_ENTITY_TYPE ).setPostFilter( filter ).setSize( 100 );
+
+        if ( visitor.getQueryBuilder().isPresent() ) {
+            srb.setQuery( visitor.getQueryBuilder().get() );
+        }
+
+        final Set<Id> ids = new HashSet<>();
+        for ( SearchHit hit : srb.execute().actionGet().getHits().getHits() ) {
+            ids.add( IndexingUtils.parseIndexDocId( hit ).getId() );
+        }
+
+        return ids;
+    }
+
+
     /**
      * Tests that we're supporting null fields when indexing at Elasticsearch
      */
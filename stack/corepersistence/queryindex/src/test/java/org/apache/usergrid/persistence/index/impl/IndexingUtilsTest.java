@@ -32,6 +32,7 @@ import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
 import static org.apache.usergrid.persistence.index.impl.IndexingUtils.parseAppIdFromIndexDocId;
+import static org.apache.usergrid.persistence.index.impl.IndexingUtils.parseAppIdPrefixFromIndexDocId;
 import static org.apache.usergrid.persistence.index.impl.IndexingUtils.parseIndexDocId;
 import static org.junit.Assert.assertEquals;
 
@@ -123,6 +124,8 @@ public class IndexingUtilsTest {
 
         final UUID appId = parseAppIdFromIndexDocId(output);
         assertEquals(appId,applicationScope.getApplication().getUuid());
+
+        assertEquals( appId, parseAppIdPrefixFromIndexDocId( output ) );
     }
 
 
@@ -174,4 +177,27 @@ public class IndexingUtilsTest {
 
         assertEquals( output, expected );
     }
+
+
+    @Test
+    public void testEdgeRouting() {
+
+        final ApplicationScopeImpl applicationScope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+
+        final Id id = new SimpleId( "id" );
+        final UUID version = UUIDGenerator.newTimeUUID();
+
+        final SearchEdgeImpl searchEdge =
+            new SearchEdgeImpl( new SimpleId( "source" ), "zzzcollzzz|users", SearchEdge.NodeType.TARGET );
+
+        final String routing = IndexingUtils.createEdgeRouting( searchEdge );
+
+        assertEquals( searchEdge.getNodeId().getUuid() + ",zzzcollzzz|users", routing );
+
+
+        //deindexing by document id must route to the same shard
+        final String docId = IndexingUtils.createIndexDocId( applicationScope, id, version, searchEdge );
+
+        assertEquals( routing, IndexingUtils.parseEdgeRoutingFromIndexDocId( docId ) );
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.index.impl;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.SortPredicate;
+import org.apache.usergrid.persistence.index.query.tree.Equal;
+import org.apache.usergrid.persistence.index.query.tree.QueryVisitor;
+
+import com.codahale.metrics.Meter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class QueryPlanCacheTest {
+
+    private QueryPlanCacheImpl cache;
+    private Meter hits;
+    private Meter misses;
+
+
+    @Before
+    public void setup() {
+        final IndexFig indexFig = mock( IndexFig.class );
+        when( indexFig.getQueryPlanCacheSize() ).thenReturn( 100 );
+
+        hits = new Meter();
+        misses = new Meter();
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenAnswer(
+            invocation -> invocation.getArguments()[1].toString().endsWith( "hit" ) ? hits : misses );
+
+        cache = new QueryPlanCacheImpl( indexFig, metricsFactory );
+    }
+
+
+    @Test
+    public void bindsLiterals() throws Exception {
+        final String[][] queries = {
+            { "name = 'fred' and age > 5", "name = 'bob' and age > 10" },
+            { "select * where uuid = 6e16b4a6-3abb-11e5-9f6c-c21d0b8b6b4d or active = true",
+                "select * where uuid = 7f27c5b7-3abb-11e5-9f6c-c21d0b8b6b4d or active = false" },
+            { "where not (weight >= 1.5 or weight <= -2.5)", "where not (weight >= 7.25 or weight <= 0.5)" },
+            { "name contains 'fre*' and status = 'active*'", "name contains 'bo*' and status = 'inactive'" },
+            { "location within 1000 of 37.7, -122.4 order by created desc",
+                "location within 25 of -33.8, 151.2 order by created desc" },
+            { "select name, age where age < 30 order by age asc, name",
+                "select name, age where age < 99 order by age asc, name" }
+        };
+
+        for ( String[] sameShape : queries ) {
+            for ( String ql : sameShape ) {
+                assertSameQuery( ParsedQueryBuilder.build( ql ), cache.getParsedQuery( ql ) );
+            }
+        }
+
+        assertEquals( queries.length, misses.getCount() );
+        assertEquals( queries.length, hits.getCount() );
+    }
+
+
+    @Test
+    public void shapeIgnoresWhitespace() {
+        cache.getParsedQuery( "name = 'fred'" );
+        final ParsedQuery bound = cache.getParsedQuery( "  name='bob'   " );
+
+        assertEquals( 1, hits.getCount() );
+        assertEquals( "bob", ( ( Equal ) bound.getRootOperand() )
+            .getLiteral().getValue() );
+        assertEquals( "  name='bob'   ", bound.getOriginalQuery() );
+    }
+
+
+    @Test
+    public void differentShapes() {
+        cache.getParsedQuery( "name = 'fred'" );
+        cache.getParsedQuery( "name = 5" );
+        cache.getParsedQuery( "title = 'fred'" );
+        cache.getParsedQuery( "name > 'fred'" );
+
+        assertEquals( 0, hits.getCount() );
+        assertEquals( 4, misses.getCount() );
+    }
+
+
+    @Test
+    public void queriesAreNotShared() {
+        final ParsedQuery first = cache.getParsedQuery( "name = 'fred' order by name" );
+        final ParsedQuery second = cache.getParsedQuery( "name = 'fred' order by name" );
+
+        assertNotSame( first, second );
+        assertNotSame( first.getRootOperand(), second.getRootOperand() );
+        assertNotSame( first.getSortPredicates(), second.getSortPredicates() );
+    }
+
+
+    @Test
+    public void emptyQuery() {
+        assertNull( cache.getParsedQuery( "" ) );
+        assertNull( cache.getParsedQuery( null ) );
+    }
+
+
+    /**
+     * The queries must be the same, and build the same elasticsearch query
+     */
+    private void assertSameQuery( final ParsedQuery expected, final ParsedQuery actual ) throws Exception {
+        assertEquals( expected.getOriginalQuery(), actual.getOriginalQuery() );
+        assertEquals( expected.getRootOperand().toStringTree(), actual.getRootOperand().toStringTree() );
+
+        assertEquals( expected.getSortPredicates().size(), actual.getSortPredicates().size() );
+        for ( int i = 0; i < expected.getSortPredicates().size(); i++ ) {
+            final SortPredicate expectedSort = expected.getSortPredicates().get( i );
+            final SortPredicate actualSort = actual.getSortPredicates().get( i );
+            assertEquals( expectedSort.getPropertyName(), actualSort.getPropertyName() );
+            assertEquals( expectedSort.getDirection(), actualSort.getDirection() );
+        }
+
+        assertEquals( expected.getSelectFieldMappings().size(), actual.getSelectFieldMappings().size() );
+
+        final QueryVisitor expectedVisitor = new EsQueryVistor();
+        expected.getRootOperand().visit( expectedVisitor );
+
+        final QueryVisitor actualVisitor = new EsQueryVistor();
+        actual.getRootOperand().visit( actualVisitor );
+
+        assertEquals( expectedVisitor.getQueryBuilder().toString(), actualVisitor.getQueryBuilder().toString() );
+        assertEquals( expectedVisitor.getFilterBuilder().toString(), actualVisitor.getFilterBuilder().toString() );
+        assertEquals( expectedVisitor.getGeoSorts().fields(), actualVisitor.getGeoSorts().fields() );
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.index.impl;
+
+
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.index.IndexAlias;
+import org.apache.usergrid.persistence.index.SearchEdge;
+import org.apache.usergrid.persistence.index.SearchTypes;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.tree.QueryVisitor;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Checks every operator of the grammar compiles to the same predicates it did as a post filter, now applied in the
+ * filter context, and that only contains is scored
+ */
+public class SearchRequestBuilderStrategyTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ApplicationScope applicationScope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+
+    private final SearchEdge searchEdge =
+        new SearchEdgeImpl( new SimpleId( "owner" ), "zzzcollzzz|searches", SearchEdge.NodeType.SOURCE );
+
+    private final SearchTypes searchTypes = SearchTypes.fromTypes( "search" );
+
+    private SearchRequestBuilderStrategy strategy;
+
+
+    @Before
+    public void setup() {
+        final Client client = mock( Client.class );
+        when( client.prepareSearch( anyString() ) )
+            .thenAnswer( invocation -> new SearchRequestBuilder( client ).setIndices( "read" ) );
+
+        final EsProvider esProvider = mock( EsProvider.class );
+        when( esProvider.getClient() ).thenReturn( client );
+
+        final IndexAlias alias = mock( IndexAlias.class );
+        when( alias.getReadAlias() ).thenReturn( "read" );
+
+        strategy = new SearchRequestBuilderStrategy( esProvider, applicationScope, alias, 2, false );
+    }
+
+
+    @Test
+    public void equal() throws Exception {
+        assertFiltered( "string = 'alpha'" );
+        assertFiltered( "long = 5" );
+        assertFiltered( "double = 5.5" );
+        assertFiltered( "boolean = true" );
+        assertFiltered( "uuid = 6e16b4a6-3abb-11e5-9f6c-c21d0b8b6b4d" );
+    }
+
+
+    @Test
+    public void equalWildcard() throws Exception {
+        final Map<String, Object> search = assertQueried( "string = 'alp*'" );
+
+        //exact matches don't score even when they need a query
+        final Map<String, Object> query = get( search, "query", "filtered", "query" );
+        assertTrue( query.containsKey( "constant_score" ) );
+    }
+
+
+    @Test
+    public void lessThan() throws Exception {
+        assertFiltered( "long < 5" );
+        assertFiltered( "double lt 5.5" );
+        assertFiltered( "string < 'bravo'" );
+    }
+
+
+    @Test
+    public void lessThanEqual() throws Exception {
+        assertFiltered( "long <= 5" );
+        assertFiltered( "double lte 5.5" );
+    }
+
+
+    @Test
+    public void greaterThan() throws Exception {
+        assertFiltered( "long > 5" );
+        assertFiltered( "double gt 5.5" );
+    }
+
+
+    @Test
+    public void greaterThanEqual() throws Exception {
+        assertFiltered( "long >= 5" );
+        assertFiltered( "double gte 5.5" );
+    }
+
+
+    @Test
+    public void and() throws Exception {
+        assertFiltered( "long > 5 and string = 'alpha'" );
+        assertQueried( "long > 5 and string contains 'alpha'" );
+    }
+
+
+    @Test
+    public void or() throws Exception {
+        assertFiltered( "long > 5 or string = 'alpha'" );
+        assertQueried( "string contains 'alpha' or string contains 'bravo'" );
+    }
+
+
+    @Test
+    public void not() throws Exception {
+        assertFiltered( "not long > 5" );
+        assertFiltered( "string = 'alpha' and not long > 5" );
+        assertQueried( "not string contains 'alpha'" );
+    }
+
+
+    @Test
+    public void contains() throws Exception {
+        final Map<String, Object> search = assertQueried( "string contains 'alpha'" );
+
+        //contains is the only scored query
+        final Map<String, Object> query = get( search, "query", "filtered", "query" );
+        assertFalse( query.containsKey( "constant_score" ) );
+    }
+
+
+    @Test
+    public void within() throws Exception {
+        assertFiltered( "location within 1000 of 37.7, -122.4" );
+    }
+
+
+    @Test
+    public void noPredicates() throws Exception {
+        final Map<String, Object> search = search( "select * order by created desc" );
+
+        assertFalse( search.containsKey( "post_filter" ) );
+        assertEquals( edgeFilter(), get( search, "query", "constant_score", "filter" ) );
+    }
+
+
+    /**
+     * The query has no scored part, so it's a constant score of the edge filter and the predicates
+     */
+    private Map<String, Object> assertFiltered( final String ql ) throws Exception {
+        final Map<String, Object> search = search( ql );
+        final QueryVisitor visitor = visit( ql );
+
+        assertFalse( visitor.getQueryBuilder().isPresent() );
+        assertFalse( search.containsKey( "post_filter" ) );
+
+        assertFilter( visitor, get( search, "query", "constant_score", "filter" ) );
+
+        return search;
+    }
+
+
+    /**
+     * The query has a scored part, it's filtered by the edge filter and the predicates
+     */
+    private Map<String, Object> assertQueried( final String ql ) throws Exception {
+        final Map<String, Object> search = search( ql );
+        final QueryVisitor visitor = visit( ql );
+
+        assertFalse( search.containsKey( "post_filter" ) );
+
+        final Map<String, Object> filtered = get( search, "query", "filtered" );
+
+        assertEquals( toMap( visitor.getQueryBuilder().get() ), filtered.get( "query" ) );
+
+        if ( visitor.getFilterBuilder().isPresent() ) {
+            assertFilter( visitor, ( Map<String, Object> ) filtered.get( "filter" ) );
+        }
+        else {
+            assertEquals( edgeFilter(), filtered.get( "filter" ) );
+        }
+
+        return search;
+    }
+
+
+    /**
+     * The filter is the cached edge filter, and the predicates exactly as the visitor built them
+     */
+    private void assertFilter( final QueryVisitor visitor, final Map<String, Object> filter ) throws Exception {
+        final List<Object> must = ( List<Object> ) get( filter, "bool" ).get( "must" );
+
+        assertEquals( 2, must.size() );
+        assertEquals( edgeFilter(), must.get( 0 ) );
+        assertEquals( toMap( visitor.getFilterBuilder().get() ), must.get( 1 ) );
+    }
+
+
+    private Map<String, Object> edgeFilter() throws Exception {
+        final String context = IndexingUtils.createContextName( applicationScope, searchEdge );
+
+        return MAPPER.readValue( "{\"bool\":{\"must\":[{\"term\":{\"" + IndexingUtils.EDGE_SEARCH_FIELDNAME + "\":\""
+            + context + "\"}},{\"or\":{\"filters\":[{\"term\":{\"" + IndexingUtils.ENTITY_TYPE_FIELDNAME + "\":\""
+            + searchTypes.getTypeNames( applicationScope )[0] + "\"}}]}}],\"_cache\":true}}", Map.class );
+    }
+
+
+    private Map<String, Object> search( final String ql ) throws Exception {
+        final ParsedQuery parsedQuery = ParsedQueryBuilder.build( ql );
+        final SearchRequestBuilder srb = strategy.getBuilder( searchEdge, searchTypes, parsedQuery, 10, 0 );
+
+        return MAPPER.readValue( srb.toString(), Map.class );
+    }
+
+
+    private QueryVisitor visit( final String ql ) throws Exception {
+        final QueryVisitor visitor = new EsQueryVistor();
+        final ParsedQuery parsedQuery = ParsedQueryBuilder.build( ql );
+
+        if ( parsedQuery.getRootOperand() != null ) {
+            parsedQuery.getRootOperand().visit( visitor );
+        }
+
+        return visitor;
+    }
+
+
+    private Map<String, Object> toMap( final Object builder ) throws Exception {
+        return MAPPER.readValue( builder.toString(), Map.class );
+    }
+
+
+    private Map<String, Object> get( final Map<String, Object> map, final String... path ) {
+        Map<String, Object> current = map;
+
+        for ( String key : path ) {
+            assertTrue( "Expected " + key + " in " + current, current.get( key ) instanceof Map );
+            current = ( Map<String, Object> ) current.get( key );
+        }
+
+        return current;
+    }
+}
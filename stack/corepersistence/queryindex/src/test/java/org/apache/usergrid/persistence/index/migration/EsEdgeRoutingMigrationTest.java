@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.index.migration;
+
+
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.guicyfig.ClusterFig;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.impl.EsProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Checks the edge routing migration only raises the index data version when routing is enabled
+ */
+public class EsEdgeRoutingMigrationTest {
+
+    @Test
+    public void versionUnchangedWithoutEdgeRouting() {
+        final EsEdgeRoutingMigration migration = migration( false );
+
+        assertEquals( IndexDataVersions.MANY_INDEXES.getVersion(), migration.getMaxVersion() );
+        assertFalse( migration.supports( IndexDataVersions.MANY_INDEXES.getVersion() ) );
+        assertFalse( migration.supports( IndexDataVersions.SINGLE_INDEX.getVersion() ) );
+    }
+
+
+    @Test
+    public void edgeRoutingVersionWithEdgeRouting() {
+        final EsEdgeRoutingMigration migration = migration( true );
+
+        assertEquals( IndexDataVersions.EDGE_ROUTING.getVersion(), migration.getMaxVersion() );
+        assertTrue( migration.supports( IndexDataVersions.MANY_INDEXES.getVersion() ) );
+        assertTrue( migration.supports( IndexDataVersions.SINGLE_INDEX.getVersion() ) );
+        assertFalse( migration.supports( IndexDataVersions.EDGE_ROUTING.getVersion() ) );
+    }
+
+
+    private EsEdgeRoutingMigration migration( final boolean edgeRouting ) {
+        final IndexFig indexFig = mock( IndexFig.class );
+        when( indexFig.isEdgeRouting() ).thenReturn( edgeRouting );
+
+        return new EsEdgeRoutingMigration( mock( EsProvider.class ), indexFig, mock( ClusterFig.class ) );
+    }
+}
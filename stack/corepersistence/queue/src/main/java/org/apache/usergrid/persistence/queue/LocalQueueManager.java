@@ -48,14 +48,12 @@ public class LocalQueueManager implements QueueManager {
     public    List<QueueMessage> getMessages(int limit, int transactionTimeout, int waitTime, Class klass) {
         List<QueueMessage> returnQueue = new ArrayList<>();
         try {
-            QueueMessage message=null;
-            int count = 5;
-            do {
-                message = queue.poll(100, TimeUnit.MILLISECONDS);
-                if (message != null) {
-                    returnQueue.add(message);
-                }
-            }while(message!=null && count-->0);
+            //long poll for the first message, then take whatever else is ready without waiting
+            QueueMessage message = queue.poll(Math.max(waitTime, 100), TimeUnit.MILLISECONDS);
+            if (message != null) {
+                returnQueue.add(message);
+                queue.drainTo(returnQueue, limit - 1);
+            }
         }catch (InterruptedException ie){
             throw new RuntimeException(ie);
         }
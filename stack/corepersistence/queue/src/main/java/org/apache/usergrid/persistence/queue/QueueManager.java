@@ -59,7 +59,7 @@ public interface QueueManager {
     /**
      * send messages to queue
      * @param bodies body objects must be serializable
-     * @throws IOException
+     * @throws IOException a QueueSendException if only some of the messages could not be sent
      */
     void sendMessages(List bodies) throws IOException;
 
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.usergrid.persistence.queue;
+
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Thrown when some of the messages given to {@link QueueManager#sendMessages(List)} could not be sent.  The others
+ * were sent.
+ */
+public class QueueSendException extends IOException {
+
+    private final List<?> failed;
+
+
+    public QueueSendException( final String message, final List<?> failed ) {
+        super( message );
+        this.failed = Collections.unmodifiableList( failed );
+    }
+
+
+    /**
+     * The bodies that were not sent
+     */
+    public List<?> getFailed() {
+        return failed;
+    }
+}
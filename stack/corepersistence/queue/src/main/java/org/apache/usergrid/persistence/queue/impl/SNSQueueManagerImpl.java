@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +40,7 @@ import org.apache.usergrid.persistence.queue.QueueFig;
 import org.apache.usergrid.persistence.queue.QueueManager;
 import org.apache.usergrid.persistence.queue.QueueMessage;
 import org.apache.usergrid.persistence.queue.QueueScope;
+import org.apache.usergrid.persistence.queue.QueueSendException;
 import org.apache.usergrid.persistence.queue.util.AmazonNotificationUtils;
 
 import com.amazonaws.AmazonServiceException;
@@ -65,6 +67,9 @@ import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.fasterxml.jackson.core.JsonFactory;
@@ -93,6 +98,12 @@ public class SNSQueueManagerImpl implements QueueManager {
     private final AmazonSQSAsyncClient sqsAsync;
 
 
+    /**
+     * The max number of messages SQS accepts in a single send batch
+     */
+    private static final int MAX_SEND_BATCH_SIZE = 10;
+    private static final int MAX_SEND_ATTEMPTS = 3;
+
     private static final JsonFactory JSON_FACTORY = new JsonFactory();
     private static final ObjectMapper mapper = new ObjectMapper( JSON_FACTORY );
 
@@ -545,12 +556,92 @@ public class SNSQueueManagerImpl implements QueueManager {
 
         if ( sqsAsync == null ) {
             logger.error( "SQS client is null, perhaps it failed to initialize successfully" );
-            return;
+            throw new IOException( "SQS client is null, unable to send messages" );
         }
 
+        final String url = getReadQueue().getUrl();
+
+        List<Object> pending = new ArrayList<>( bodies.size() );
         for ( Object body : bodies ) {
-            sendMessage( ( Serializable ) body );
+            pending.add( body );
+        }
+
+        final List<Object> rejected = new ArrayList<>();
+
+        //retry only the entries that failed, the rest of each batch has been sent
+        for ( int attempt = 0; attempt < MAX_SEND_ATTEMPTS && !pending.isEmpty(); attempt++ ) {
+            pending = sendBatches( url, pending, rejected );
+        }
+
+        rejected.addAll( pending );
+
+        if ( !rejected.isEmpty() ) {
+            throw new QueueSendException(
+                "Unable to send " + rejected.size() + " of " + bodies.size() + " messages to url: " + url, rejected );
+        }
+    }
+
+
+    /**
+     * Send the bodies in batches of the max SQS allows in one request and wait for the results.  Bodies SQS refused
+     * because of the message itself are added to rejected
+     *
+     * @return The bodies that failed and can be retried
+     */
+    private List<Object> sendBatches( final String url, final List<Object> bodies, final List<Object> rejected )
+        throws IOException {
+
+        final List<List<Object>> batches = new ArrayList<>();
+        final List<Future<SendMessageBatchResult>> futures = new ArrayList<>();
+
+        for ( int start = 0; start < bodies.size(); start += MAX_SEND_BATCH_SIZE ) {
+
+            final List<Object> batch = bodies.subList( start, Math.min( bodies.size(), start + MAX_SEND_BATCH_SIZE ) );
+            final List<SendMessageBatchRequestEntry> entries = new ArrayList<>( batch.size() );
+
+            for ( int i = 0; i < batch.size(); i++ ) {
+                entries.add( new SendMessageBatchRequestEntry( String.valueOf( i ), toString( ( Serializable ) batch.get( i ) ) ) );
+            }
+
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "Publishing batch of {} messages to url: {}", entries.size(), url );
+            }
+
+            batches.add( batch );
+            futures.add( sqsAsync.sendMessageBatchAsync( new SendMessageBatchRequest( url, entries ) ) );
+        }
+
+        final List<Object> failed = new ArrayList<>();
+
+        for ( int i = 0; i < futures.size(); i++ ) {
+            final List<Object> batch = batches.get( i );
+
+            try {
+                for ( BatchResultErrorEntry entry : futures.get( i ).get().getFailed() ) {
+                    logger.error( "Send failed reason: {} to url: {}", entry.getMessage(), url );
+
+                    final Object body = batch.get( Integer.parseInt( entry.getId() ) );
+
+                    //the message itself was refused, sending it again won't help
+                    if ( Boolean.TRUE.equals( entry.getSenderFault() ) ) {
+                        rejected.add( body );
+                    }
+                    else {
+                        failed.add( body );
+                    }
+                }
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted sending messages to url: " + url, e );
+            }
+            catch ( ExecutionException e ) {
+                logger.error( "Error sending message batch to url: {}", url, e.getCause() );
+                failed.addAll( batch );
+            }
         }
+
+        return failed;
     }
 
 
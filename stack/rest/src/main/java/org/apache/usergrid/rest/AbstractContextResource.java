@@ -18,7 +18,8 @@ package org.apache.usergrid.rest;
 
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Injector;
 import net.tanesha.recaptcha.ReCaptcha;
@@ -41,6 +42,8 @@ import javax.ws.rs.container.ResourceContext;
 import javax.ws.rs.core.*;
 import javax.xml.ws.spi.http.HttpContext;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -203,13 +206,121 @@ public abstract class AbstractContextResource {
      */
     protected Object readJsonToObject(String content) throws IOException {
 
-        JsonNode jsonNode = mapper.readTree(content);
-        Object jsonObject;
-        if (jsonNode.isArray()) {
-            jsonObject = mapper.readValue(content, listTypeReference);
-        } else {
-            jsonObject = mapper.readValue(content, mapTypeReference);
+        try ( JsonParser parser = mapper.getFactory().createParser( content ) ) {
+            return readJsonToObject( mapper, parser );
         }
-        return jsonObject;
+    }
+
+
+    /**
+     * Read the body of a request in a single pass without buffering it, the elements of an array are read one at a
+     * time so only the parsed entities are held.  Returns null for an empty body.  The body may be JSON or Smile.
+     */
+    protected Object readJsonToObject(InputStream content) throws IOException {
+
+        final ObjectMapper requestMapper = getRequestMapper();
+
+        try ( JsonParser parser = requestMapper.getFactory().createParser( content ) ) {
+            return readJsonToObject( requestMapper, parser );
+        }
+    }
+
+
+    /**
+     * Read the body of a request in a single pass, handing the elements of an array to the handler in lists of at
+     * most batchSize as they are parsed so the whole array is never held.  A body that isn't an array is handed over
+     * as is, an empty body as null and an empty array as an empty list.
+     */
+    protected void readJsonInBatches( InputStream content, int batchSize, JsonBatchHandler handler ) throws Exception {
+
+        final ObjectMapper requestMapper = getRequestMapper();
+
+        try ( JsonParser parser = requestMapper.getFactory().createParser( content ) ) {
+
+            JsonToken token = parser.nextToken();
+
+            if ( token == null ) {
+                handler.handle( null );
+                return;
+            }
+
+            if ( token != JsonToken.START_ARRAY ) {
+                handler.handle( requestMapper.readValue( parser, mapTypeReference ) );
+                return;
+            }
+
+            List<Object> batch = new ArrayList<>( batchSize );
+            boolean handled = false;
+
+            while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                batch.add( requestMapper.readValue( parser, Object.class ) );
+
+                if ( batch.size() == batchSize ) {
+                    handler.handle( batch );
+                    batch = new ArrayList<>( batchSize );
+                    handled = true;
+                }
+            }
+
+            if ( !batch.isEmpty() || !handled ) {
+                handler.handle( batch );
+            }
+        }
+    }
+
+
+    /**
+     * Handles the parsed body of a request, or one batch of it
+     */
+    protected interface JsonBatchHandler {
+        void handle( Object json ) throws Exception;
+    }
+
+
+    /**
+     * Read the body of a request that must be a single object in a single pass without buffering it
+     */
+    protected Map<String, Object> readJsonToMap(InputStream content) throws IOException {
+
+        final ObjectMapper requestMapper = getRequestMapper();
+
+        try ( JsonParser parser = requestMapper.getFactory().createParser( content ) ) {
+            return parser.nextToken() == null ? null : requestMapper.readValue( parser, mapTypeReference );
+        }
+    }
+
+
+    private Object readJsonToObject(ObjectMapper requestMapper, JsonParser parser) throws IOException {
+
+        JsonToken token = parser.nextToken();
+
+        if ( token == null ) {
+            return null;
+        }
+
+        if ( token != JsonToken.START_ARRAY ) {
+            return requestMapper.readValue( parser, mapTypeReference );
+        }
+
+        List<Object> jsonList = new ArrayList<>();
+
+        while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+            jsonList.add( requestMapper.readValue( parser, Object.class ) );
+        }
+
+        return jsonList;
+    }
+
+
+    /**
+     * The mapper for the content type of the request
+     */
+    private ObjectMapper getRequestMapper() {
+
+        if ( httpServletRequest != null && JacksonSmileProvider.isSmile( httpServletRequest.getContentType() ) ) {
+            return JacksonSmileProvider.getMapper();
+        }
+
+        return mapper;
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+
+/**
+ * Reads and writes Smile, the binary encoding of the JSON object model.  Property names repeated across the entities
+ * of a page are written once and referred to after, so pages of entities are much smaller than their JSON.
+ */
+@Provider
+@Component
+@Scope("singleton")
+@Produces( JacksonSmileProvider.APPLICATION_SMILE )
+@Consumes( JacksonSmileProvider.APPLICATION_SMILE )
+public class JacksonSmileProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    public static final MediaType APPLICATION_SMILE_TYPE = MediaType.valueOf( APPLICATION_SMILE );
+
+    private static final ObjectMapper mapper = createMapper();
+
+
+    /**
+     * Create a mapper that writes Smile with the same object model as the JSON one
+     */
+    public static ObjectMapper createMapper() {
+        final SmileFactory factory = new SmileFactory();
+
+        //share repeated property names, and short repeated values such as types
+        factory.configure( SmileGenerator.Feature.CHECK_SHARED_NAMES, true );
+        factory.configure( SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true );
+
+        final ObjectMapper smileMapper = new ObjectMapper( factory );
+        smileMapper.configure( JsonGenerator.Feature.AUTO_CLOSE_TARGET, false );
+
+        return smileMapper;
+    }
+
+
+    /**
+     * True if the request body is Smile, so resources reading the body themselves parse it with this mapper
+     */
+    public static boolean isSmile( String contentType ) {
+        return contentType != null && APPLICATION_SMILE_TYPE.isCompatible( MediaType.valueOf( contentType ) );
+    }
+
+
+    public static ObjectMapper getMapper() {
+        return mapper;
+    }
+
+
+    @Override
+    public boolean isReadable( Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType ) {
+        return APPLICATION_SMILE_TYPE.isCompatible( mediaType );
+    }
+
+
+    @Override
+    public Object readFrom( Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, String> httpHeaders, InputStream entityStream )
+        throws IOException {
+        return mapper.readValue( entityStream, mapper.constructType( genericType ) );
+    }
+
+
+    @Override
+    public boolean isWriteable( Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType ) {
+        return APPLICATION_SMILE_TYPE.isCompatible( mediaType );
+    }
+
+
+    @Override
+    public long getSize( Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType ) {
+        return -1;
+    }
+
+
+    @Override
+    public void writeTo( Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                         MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream )
+        throws IOException {
+        mapper.writeValue( entityStream, o );
+    }
+}
@@ -19,21 +19,30 @@ package org.apache.usergrid.rest.applications;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.jaxrs.json.annotation.JSONP;
 import org.apache.commons.lang.StringUtils;
 import org.apache.usergrid.management.OrganizationConfig;
 import org.apache.usergrid.management.OrganizationConfigProps;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityRef;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.QueryUtils;
+import org.apache.usergrid.persistence.Schema;
+import org.apache.usergrid.persistence.SimpleEntityRef;
+import org.apache.usergrid.persistence.entities.Application;
 import org.apache.usergrid.rest.AbstractContextResource;
 import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.JacksonSmileProvider;
 import org.apache.usergrid.rest.RootResource;
 import org.apache.usergrid.rest.applications.assets.AssetsResource;
+import org.apache.usergrid.rest.exceptions.NotModifiedException;
+import org.apache.usergrid.rest.exceptions.PreconditionFailedException;
+import org.apache.usergrid.rest.filters.CompressionInterceptor;
+import org.apache.usergrid.rest.filters.EntityTagFilter;
 import org.apache.usergrid.rest.security.annotations.RequireApplicationAccess;
 import org.apache.usergrid.security.oauth.AccessInfo;
+import org.apache.usergrid.security.shiro.utils.SubjectUtils;
 import org.apache.usergrid.services.*;
 import org.apache.usergrid.services.assets.data.AssetUtils;
 import org.apache.usergrid.services.assets.data.AwsSdkS3BinaryStore;
@@ -65,13 +74,25 @@ import static org.apache.usergrid.management.AccountCreationProps.PROPERTIES_USE
 @Scope("prototype")
 @Produces({
         MediaType.APPLICATION_JSON, "application/javascript", "application/x-javascript", "text/ecmascript",
-        "application/ecmascript", "text/jscript"
+        "application/ecmascript", "text/jscript", JacksonSmileProvider.APPLICATION_SMILE
 })
 public class ServiceResource extends AbstractContextResource {
 
     protected static final Logger logger = LoggerFactory.getLogger( ServiceResource.class );
     private static final String FILE_FIELD_NAME = "file";
 
+    /**
+     * The most elements of an array POSTed in one request that are handed to the service at once
+     */
+    public static final int POST_BATCH_SIZE = 100;
+
+    /**
+     * The media types a GET can be answered in, in the order of the resource's @Produces
+     */
+    private static final List<Variant> REPRESENTATIONS = Variant.mediaTypes( APPLICATION_JSON_TYPE,
+        MediaType.TEXT_HTML_TYPE, MediaType.valueOf( "application/javascript" ),
+        JacksonSmileProvider.APPLICATION_SMILE_TYPE ).add().build();
+
 
    // @Autowired
     private BinaryStore binaryStore;
@@ -243,6 +264,16 @@ public class ServiceResource extends AbstractContextResource {
 
     public ServiceResults executeServiceRequest( UriInfo ui, ApiResponse response, ServiceAction action,
                                                  ServicePayload payload ) throws Exception {
+        return executeServiceRequest( ui, response, action, payload, getServiceParameters() );
+    }
+
+
+    /**
+     * Execute the request with the given parameters, the query parameters of the request are added to them
+     */
+    public ServiceResults executeServiceRequest( UriInfo ui, ApiResponse response, ServiceAction action,
+                                                 ServicePayload payload, List<ServiceParameter> parameters )
+            throws Exception {
         if(logger.isDebugEnabled()){
             logger.debug( "ServiceResource.executeServiceRequest" );
         }
@@ -288,11 +319,11 @@ public class ServiceResource extends AbstractContextResource {
 
         boolean collectionGet = false;
         if ( action == ServiceAction.GET ) {
-            collectionGet = (getServiceParameters().size() == 1 && InflectionUtils
-                    .isPlural(getServiceParameters().get(0)));
+            collectionGet = (parameters.size() == 1 && InflectionUtils
+                    .isPlural(parameters.get(0)));
         }
-        addQueryParams( getServiceParameters(), ui );
-        ServiceRequest r = services.newRequest( action, tree, getServiceParameters(), payload,
+        addQueryParams( parameters, ui );
+        ServiceRequest r = services.newRequest( action, tree, parameters, payload,
             returnInboundConnections, returnOutboundConnections );
         response.setServiceRequest( r );
         ServiceResults results = r.execute();
@@ -327,7 +358,8 @@ public class ServiceResource extends AbstractContextResource {
 
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_HTML, "application/javascript"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_HTML, "application/javascript",
+        JacksonSmileProvider.APPLICATION_SMILE})
     @RequireApplicationAccess
     @JSONP
     public ApiResponse executeGet( @Context UriInfo ui,
@@ -338,18 +370,204 @@ public class ServiceResource extends AbstractContextResource {
             logger.debug( "ServiceResource.executeGet" );
         }
 
+        boolean single = isEntityRequest( ui );
+        String representation = getRepresentation();
+
+        // a conditional request for a single entity can be answered from its latest version without loading it, once
+        // the caller has passed the permission check the service would make before loading it
+        if ( single && httpServletRequest.getHeader( HttpHeaders.IF_NONE_MATCH ) != null ) {
+            EntityRef entityRef = getEntityRequestRef( ui );
+
+            if ( entityRef != null ) {
+                checkPermissionsForEntity( entityRef, ServiceAction.GET );
+
+                UUID version = getLatestVersion( entityRef );
+
+                if ( version != null ) {
+                    checkNotModified( EntityTagFilter.forRepresentation( EntityTagFilter.forVersion( version ),
+                        representation ) );
+                }
+            }
+        }
+
         ApiResponse response = createApiResponse();
 
         response.setAction( "get" );
         response.setApplication( services.getApplication() );
         response.setParams( ui.getQueryParameters() );
 
-        executeServiceRequest( ui, response, ServiceAction.GET, null );
+        ServiceResults results = executeServiceRequest( ui, response, ServiceAction.GET, null );
+
+        String entityTag = EntityTagFilter.forRepresentation( getEntityTag( ui, results, single ), representation );
+
+        checkNotModified( entityTag );
+
+        if ( entityTag != null ) {
+            httpServletRequest.setAttribute( EntityTagFilter.ENTITY_TAG_PROPERTY, entityTag );
+        }
 
         return response;
     }
 
 
+    /**
+     * True if the request is for a single entity, /{collection}/{uuid or name}, without reading anything
+     */
+    private boolean isEntityRequest( UriInfo ui ) {
+
+        List<ServiceParameter> parameters = getServiceParameters();
+
+        if ( parameters.size() != 2 || !parameters.get( 0 ).isName() || ui.getQueryParameters().containsKey( "ql" ) ) {
+            return false;
+        }
+
+        ServiceParameter item = parameters.get( 1 );
+
+        return ( item.isId() || item.isName() ) && Schema.getDefaultSchema()
+            .getCollectionType( Application.ENTITY_TYPE, parameters.get( 0 ).getName() ) != null;
+    }
+
+
+    /**
+     * Get the entity addressed by a /{collection}/{uuid or name} request, or null if the request is for anything else
+     */
+    private EntityRef getEntityRequestRef( UriInfo ui ) throws Exception {
+
+        if ( !isEntityRequest( ui ) ) {
+            return null;
+        }
+
+        List<ServiceParameter> parameters = getServiceParameters();
+
+        String type = Schema.getDefaultSchema().getCollectionType( Application.ENTITY_TYPE,
+            parameters.get( 0 ).getName() );
+
+        ServiceParameter item = parameters.get( 1 );
+
+        if ( item.isId() ) {
+            return new SimpleEntityRef( type, item.getId() );
+        }
+
+        if ( item.isName() ) {
+            return services.getEntityManager().getAlias( type, item.getName() );
+        }
+
+        return null;
+    }
+
+
+    private UUID getLatestVersion( EntityRef entityRef ) throws Exception {
+        return services.getEntityManager().getLatestVersions( Collections.singletonList( entityRef ) )
+                       .get( entityRef.getUuid() );
+    }
+
+
+    /**
+     * Check the permission for an action on an entity that the collection service checks before it touches the entity
+     */
+    private void checkPermissionsForEntity( EntityRef entityRef, ServiceAction action ) {
+        String path = "/" + getServiceParameters().get( 0 ).getName() + "/" + entityRef.getUuid();
+        SubjectUtils.checkPermission( SubjectUtils
+            .getPermissionFromPath( services.getApplicationId(), action.toString().toLowerCase(), path ) );
+    }
+
+
+    /**
+     * Tag the loaded entities with the versions they were loaded at, a single entity with its version and a page with
+     * the versions on the page.  Null if the results aren't entities or any entity has no version.
+     */
+    private String getEntityTag( UriInfo ui, ServiceResults results, boolean single ) {
+
+        if ( results == null || results.hasData() || results.getEntities() == null
+            || results.getEntities().isEmpty() ) {
+            return null;
+        }
+
+        List<Entity> entities = results.getEntities();
+        List<UUID> ids = new ArrayList<UUID>( entities.size() );
+        Map<UUID, UUID> versions = new HashMap<UUID, UUID>( entities.size() );
+
+        for ( Entity entity : entities ) {
+            if ( entity.getVersion() == null ) {
+                return null;
+            }
+
+            ids.add( entity.getUuid() );
+            versions.put( entity.getUuid(), entity.getVersion() );
+        }
+
+        if ( single && entities.size() == 1 ) {
+            return EntityTagFilter.forVersion( entities.get( 0 ).getVersion() );
+        }
+
+        return EntityTagFilter.forPage( ui.getRequestUri().toString(), ids, versions, results.getCursor() );
+    }
+
+
+    /**
+     * The representation the response is sent in, the media type negotiated from Accept unless it's JSON and the
+     * coding the compression interceptor picks from Accept-Encoding.  Null for uncompressed JSON.
+     */
+    private String getRepresentation() {
+
+        String mediaType = null;
+
+        if ( request != null ) {
+            Variant variant = request.selectVariant( REPRESENTATIONS );
+
+            if ( variant != null && !APPLICATION_JSON_TYPE.isCompatible( variant.getMediaType() ) ) {
+                mediaType = variant.getMediaType().getSubtype();
+            }
+        }
+
+        Enumeration<String> acceptEncodings = httpServletRequest.getHeaders( HttpHeaders.ACCEPT_ENCODING );
+        String encoding =
+            acceptEncodings == null ? null : CompressionInterceptor.getEncoding( Collections.list( acceptEncodings ) );
+
+        if ( mediaType == null ) {
+            return encoding;
+        }
+
+        return encoding == null ? mediaType : mediaType + "+" + encoding;
+    }
+
+
+    private void checkNotModified( String entityTag ) {
+        if ( entityTag != null && EntityTagFilter
+            .matches( httpServletRequest.getHeaders( HttpHeaders.IF_NONE_MATCH ), entityTag, true ) ) {
+            throw new NotModifiedException( entityTag );
+        }
+    }
+
+
+    /**
+     * Check the If-Match header of a PUT to a single entity against its latest version.  This is a check before the
+     * write, not a compare and set, so two writers checking the same version at the same time can both succeed.
+     */
+    private void checkPreconditions( UriInfo ui ) throws Exception {
+
+        if ( httpServletRequest.getHeader( HttpHeaders.IF_MATCH ) == null ) {
+            return;
+        }
+
+        EntityRef entityRef = getEntityRequestRef( ui );
+
+        if ( entityRef == null ) {
+            return;
+        }
+
+        checkPermissionsForEntity( entityRef, ServiceAction.PUT );
+
+        UUID version = getLatestVersion( entityRef );
+
+        if ( version == null || !EntityTagFilter
+            .matchesAnyRepresentation( httpServletRequest.getHeaders( HttpHeaders.IF_MATCH ),
+                EntityTagFilter.forVersion( version ) ) ) {
+            throw new PreconditionFailedException( "Entity has been modified" );
+        }
+    }
+
+
     @SuppressWarnings({ "unchecked" })
     public ServicePayload getPayload( Object json ) {
         ServicePayload payload = null;
@@ -384,6 +602,15 @@ public class ServiceResource extends AbstractContextResource {
      */
     public ApiResponse executePostWithObject( @Context UriInfo ui, Object json,
             @QueryParam("callback") @DefaultValue("callback") String callback ) throws Exception {
+        return executePostWithObject( ui, json, callback, getServiceParameters() );
+    }
+
+
+    /**
+     * Post the object to the service with the given parameters
+     */
+    protected ApiResponse executePostWithObject( UriInfo ui, Object json, String callback,
+                                                 List<ServiceParameter> parameters ) throws Exception {
 
         if(logger.isDebugEnabled()){
             logger.debug( "ServiceResource.executePostWithMap" );
@@ -398,7 +625,7 @@ public class ServiceResource extends AbstractContextResource {
 
         ServicePayload payload = getPayload( json );
 
-        executeServiceRequest( ui, response, ServiceAction.POST, payload );
+        executeServiceRequest( ui, response, ServiceAction.POST, payload, parameters );
 
         return response;
     }
@@ -420,6 +647,8 @@ public class ServiceResource extends AbstractContextResource {
 
         ServicePayload payload = getPayload( json );
 
+        checkPreconditions( ui );
+
         executeServiceRequest( ui, response, ServiceAction.PUT, payload );
 
         return response;
@@ -428,45 +657,64 @@ public class ServiceResource extends AbstractContextResource {
 
     @POST
     @RequireApplicationAccess
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, JacksonSmileProvider.APPLICATION_SMILE})
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
-    public ApiResponse executePost( @Context UriInfo ui, String body,
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
+    public ApiResponse executePost( @Context UriInfo ui, InputStream body,
             @QueryParam("callback") @DefaultValue("callback") String callback ) throws Exception {
 
         if(logger.isDebugEnabled()){
-            logger.debug( "ServiceResource.executePost: body = " + body );
+            logger.debug( "ServiceResource.executePost" );
         }
 
-        Object json;
-        if ( StringUtils.isEmpty( body ) ) {
-            json = null;
-        } else {
-            json = readJsonToObject( body );
-        }
+        return executePostInBatches( ui, body, callback );
+    }
 
-        ApiResponse response = createApiResponse();
 
+    /**
+     * Post the body as it is read, an array is handed to the service POST_BATCH_SIZE elements at a time and the
+     * entities of each batch are gathered into the response of the first.  A batch that fails fails the request, the
+     * batches before it stay written.
+     */
+    protected ApiResponse executePostInBatches( final UriInfo ui, InputStream body, final String callback )
+            throws Exception {
 
-        response.setAction( "post" );
-        response.setApplication( services.getApplication() );
-        response.setParams( ui.getQueryParameters() );
+        // each request adds the query to its parameters, so every batch gets its own copy of the path's parameters
+        final List<ServiceParameter> parameters = getServiceParameters();
+        final List<ApiResponse> responses = new ArrayList<>( 1 );
 
-        ServicePayload payload = getPayload( json );
+        readJsonInBatches( body, POST_BATCH_SIZE, json -> {
 
-        executeServiceRequest( ui, response, ServiceAction.POST, payload );
+            ApiResponse response = executePostWithObject( ui, json, callback, new ArrayList<>( parameters ) );
 
-        return response;
+            if ( responses.isEmpty() ) {
+                responses.add( response );
+                return;
+            }
+
+            ApiResponse first = responses.get( 0 );
+
+            if ( response.getEntities() != null ) {
+                List<Entity> entities = new ArrayList<>();
+                if ( first.getEntities() != null ) {
+                    entities.addAll( first.getEntities() );
+                }
+                entities.addAll( response.getEntities() );
+                first.setEntities( entities );
+            }
+        } );
+
+        return responses.get( 0 );
     }
 
 
 
     @PUT
     @RequireApplicationAccess
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, JacksonSmileProvider.APPLICATION_SMILE})
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
-    public ApiResponse executePut( @Context UriInfo ui, String body,
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
+    public ApiResponse executePut( @Context UriInfo ui, InputStream body,
                                        @QueryParam("callback") @DefaultValue("callback") String callback )
             throws Exception {
 
@@ -474,8 +722,7 @@ public class ServiceResource extends AbstractContextResource {
             logger.debug( "ServiceResource.executePut" );
         }
 
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> json = mapper.readValue( body, mapTypeReference );
+        Map<String, Object> json = readJsonToMap( body );
 
         return executePutWithMap(ui, json, callback);
     }
@@ -484,7 +731,7 @@ public class ServiceResource extends AbstractContextResource {
     @DELETE
     @RequireApplicationAccess
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
     public ApiResponse executeDelete(
         @Context UriInfo ui,
         @QueryParam("callback") @DefaultValue("callback") String callback,
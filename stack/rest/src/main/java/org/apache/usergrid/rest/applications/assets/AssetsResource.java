@@ -17,12 +17,12 @@
 package org.apache.usergrid.rest.applications.assets;
 
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.jaxrs.json.annotation.JSONP;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.entities.Asset;
 import org.apache.usergrid.rest.AbstractContextResource;
 import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.JacksonSmileProvider;
 import org.apache.usergrid.rest.applications.ServiceResource;
 import org.apache.usergrid.rest.security.annotations.CheckPermissionsForPath;
 import org.apache.usergrid.rest.security.annotations.RequireApplicationAccess;
@@ -95,15 +95,14 @@ public class AssetsResource extends ServiceResource {
     @Override
     @PUT
     @RequireApplicationAccess
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, JacksonSmileProvider.APPLICATION_SMILE})
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
-    public ApiResponse executePut( @Context UriInfo ui, String body,
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
+    public ApiResponse executePut( @Context UriInfo ui, InputStream body,
                                        @QueryParam("callback") @DefaultValue("callback") String callback )
             throws Exception {
 
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> json = mapper.readValue( body, mapTypeReference );
+        Map<String, Object> json = readJsonToMap( body );
 
         return super.executePutWithMap( ui, json, callback );
     }
@@ -17,6 +17,7 @@
 package org.apache.usergrid.rest.applications.users;
 
 
+import java.io.InputStream;
 import java.util.Map;
 import java.util.UUID;
 
@@ -53,6 +54,7 @@ import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.persistence.index.query.Identifier;
 import org.apache.usergrid.rest.AbstractContextResource;
 import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.JacksonSmileProvider;
 import org.apache.usergrid.rest.applications.ServiceResource;
 import org.apache.usergrid.rest.exceptions.RedirectionException;
 import org.apache.usergrid.rest.security.annotations.RequireApplicationAccess;
@@ -61,7 +63,6 @@ import org.apache.usergrid.security.oauth.AccessInfo;
 import org.apache.usergrid.security.tokens.exceptions.TokenException;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.jaxrs.json.annotation.JSONP;
 
 import net.tanesha.recaptcha.ReCaptchaImpl;
@@ -107,15 +108,14 @@ public class UserResource extends ServiceResource {
 
     @PUT
     @RequireApplicationAccess
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, JacksonSmileProvider.APPLICATION_SMILE})
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
-    public ApiResponse executePut( @Context UriInfo ui, String body,
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
+    public ApiResponse executePut( @Context UriInfo ui, InputStream body,
                                        @QueryParam("callback") @DefaultValue("callback") String callback )
             throws Exception {
 
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> json = mapper.readValue( body, mapTypeReference );
+        Map<String, Object> json = readJsonToMap( body );
 
         if ( json != null ) {
             json.remove( "password" );
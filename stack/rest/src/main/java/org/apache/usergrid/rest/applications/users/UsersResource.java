@@ -17,7 +17,6 @@
 package org.apache.usergrid.rest.applications.users;
 
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.jaxrs.json.annotation.JSONP;
 import net.tanesha.recaptcha.ReCaptchaImpl;
 import net.tanesha.recaptcha.ReCaptchaResponse;
@@ -27,10 +26,12 @@ import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.persistence.index.query.Identifier;
 import org.apache.usergrid.rest.AbstractContextResource;
 import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.JacksonSmileProvider;
 import org.apache.usergrid.rest.RootResource;
 import org.apache.usergrid.rest.applications.ServiceResource;
 import org.apache.usergrid.rest.exceptions.RedirectionException;
 import org.apache.usergrid.rest.security.annotations.RequireApplicationAccess;
+import org.apache.usergrid.services.ServiceParameter;
 import org.glassfish.jersey.server.mvc.Viewable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +43,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.UriInfo;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -183,17 +185,16 @@ public class UsersResource extends ServiceResource {
     @Override
     @RequireApplicationAccess
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
-    public ApiResponse executePut( @Context UriInfo ui, String body,
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
+    public ApiResponse executePut( @Context UriInfo ui, InputStream body,
                                        @QueryParam("callback") @DefaultValue("callback") String callback )
             throws Exception {
 
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> json = mapper.readValue( body, mapTypeReference );
+        Map<String, Object> json = readJsonToMap( body );
 
         User user = getUser();
         if ( user == null ) {
-            return executePost( ui, body, callback );
+            return executePostWithObject( ui, json, callback );
         }
         if ( json != null ) {
             json.remove( "password" );
@@ -207,16 +208,25 @@ public class UsersResource extends ServiceResource {
     @Override
     @RequireApplicationAccess
     @JSONP
-    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
-    public ApiResponse executePost( @Context UriInfo ui, String body,
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript", JacksonSmileProvider.APPLICATION_SMILE})
+    public ApiResponse executePost( @Context UriInfo ui, InputStream body,
                                         @QueryParam("callback") @DefaultValue("callback") String callback )
             throws Exception {
 
         if(logger.isDebugEnabled()){
-            logger.debug( "UsersResource.executePost: body = " + body);
+            logger.debug( "UsersResource.executePost" );
         }
 
-        Object json = readJsonToObject( body );
+        return executePostInBatches( ui, body, callback );
+    }
+
+
+    /**
+     * Create the users with their passwords and pins, which are never stored as properties
+     */
+    @Override
+    protected ApiResponse executePostWithObject( UriInfo ui, Object json, String callback,
+                                                 List<ServiceParameter> parameters ) throws Exception {
 
         String password = null;
         String pin = null;
@@ -249,7 +259,7 @@ public class UsersResource extends ServiceResource {
             }
         }
 
-        ApiResponse response = ( ApiResponse ) super.executePostWithObject( ui, json, callback );
+        ApiResponse response = ( ApiResponse ) super.executePostWithObject( ui, json, callback, parameters );
 
         if ( ( response.getEntities() != null ) && ( response.getEntities().size() == 1 ) ) {
 
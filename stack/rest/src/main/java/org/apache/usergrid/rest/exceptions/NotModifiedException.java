@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.exceptions;
+
+
+/**
+ * Thrown when a conditional GET matches the entity tag the client already holds.
+ */
+public class NotModifiedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String entityTag;
+
+
+    public NotModifiedException( String entityTag ) {
+        this.entityTag = entityTag;
+    }
+
+
+    public String getEntityTag() {
+        return entityTag;
+    }
+}
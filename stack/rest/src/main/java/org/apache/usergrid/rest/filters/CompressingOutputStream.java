@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+
+/**
+ * Buffers the start of a response, and compresses it once it's larger than the threshold.  A response that ends
+ * under the threshold is written as is, since compressing it costs more than sending it.
+ */
+public class CompressingOutputStream extends OutputStream {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = { 0x1f, ( byte ) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final OutputStream out;
+    private final String encoding;
+    private final int threshold;
+    private final DeflaterPool deflaterPool;
+    private final Runnable onCompress;
+
+    private final boolean gzip;
+
+    private ByteArrayOutputStream buffer;
+
+    private Deflater deflater;
+    private DeflaterOutputStream compressed;
+    private CRC32 crc;
+    private long size;
+
+    private boolean finished = false;
+
+
+    /**
+     * @param out The stream to write to
+     * @param encoding {@value #GZIP} or {@value #DEFLATE}
+     * @param threshold The most bytes to write without compressing
+     * @param deflaterPool The pool to borrow the deflater from
+     * @param onCompress Called once before the first compressed byte is written, to set the headers
+     */
+    public CompressingOutputStream( final OutputStream out, final String encoding, final int threshold,
+                                    final DeflaterPool deflaterPool, final Runnable onCompress ) {
+        this.out = out;
+        this.encoding = encoding;
+        this.threshold = threshold;
+        this.deflaterPool = deflaterPool;
+        this.onCompress = onCompress;
+        this.gzip = GZIP.equals( encoding );
+        this.buffer = new ByteArrayOutputStream( Math.min( threshold, 8192 ) );
+    }
+
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+
+    /**
+     * True once the response is over the threshold and is being compressed
+     */
+    public boolean isCompressing() {
+        return compressed != null;
+    }
+
+
+    @Override
+    public void write( final int b ) throws IOException {
+        write( new byte[] { ( byte ) b }, 0, 1 );
+    }
+
+
+    @Override
+    public void write( final byte[] b, final int off, final int len ) throws IOException {
+        if ( compressed == null ) {
+            if ( buffer.size() + len <= threshold ) {
+                buffer.write( b, off, len );
+                return;
+            }
+
+            startCompressing();
+        }
+
+        writeCompressed( b, off, len );
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        //flushing the buffer would commit the response before we know if it's compressed
+        if ( compressed != null ) {
+            compressed.flush();
+        }
+    }
+
+
+    /**
+     * Write what's left of the response, without closing the stream underneath
+     */
+    public void finish() throws IOException {
+        if ( finished ) {
+            return;
+        }
+
+        finished = true;
+
+        if ( compressed == null ) {
+            buffer.writeTo( out );
+            buffer = null;
+            return;
+        }
+
+        try {
+            compressed.finish();
+
+            if ( gzip ) {
+                writeInt( ( int ) crc.getValue() );
+                writeInt( ( int ) size );
+            }
+        }
+        finally {
+            deflaterPool.release( deflater, gzip );
+            deflater = null;
+        }
+    }
+
+
+    /**
+     * Give up on the response after a failure writing it, returning the deflater without writing anything more
+     */
+    public void discard() {
+        if ( finished ) {
+            return;
+        }
+
+        finished = true;
+        buffer = null;
+
+        if ( deflater != null ) {
+            deflaterPool.release( deflater, gzip );
+            deflater = null;
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+
+    private void startCompressing() throws IOException {
+        onCompress.run();
+
+        deflater = deflaterPool.borrow( gzip );
+        compressed = new DeflaterOutputStream( out, deflater, 8192 );
+
+        if ( gzip ) {
+            crc = new CRC32();
+            out.write( GZIP_HEADER );
+        }
+
+        final byte[] buffered = buffer.toByteArray();
+        buffer = null;
+
+        writeCompressed( buffered, 0, buffered.length );
+    }
+
+
+    private void writeCompressed( final byte[] b, final int off, final int len ) throws IOException {
+        compressed.write( b, off, len );
+
+        if ( gzip ) {
+            crc.update( b, off, len );
+            size += len;
+        }
+    }
+
+
+    /**
+     * Write an int little endian, as the gzip trailer is
+     */
+    private void writeInt( final int i ) throws IOException {
+        out.write( i & 0xff );
+        out.write( ( i >> 8 ) & 0xff );
+        out.write( ( i >> 16 ) & 0xff );
+        out.write( ( i >> 24 ) & 0xff );
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import java.io.IOException;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.apache.usergrid.rest.ServerEnvironmentProperties;
+
+
+/**
+ * Compress responses with gzip or deflate when the client accepts them.  Responses under the threshold are sent as
+ * they are, and the deflaters are pooled across responses.
+ */
+@Provider
+public class CompressionInterceptor implements WriterInterceptor {
+
+    public static final String COMPRESSION_ENABLED = "usergrid.rest.compression.enabled";
+
+    public static final String COMPRESSION_THRESHOLD = "usergrid.rest.compression.threshold";
+
+    public static final String COMPRESSION_LEVEL = "usergrid.rest.compression.level";
+
+    public static final String COMPRESSION_POOL_SIZE = "usergrid.rest.compression.pool.size";
+
+    @Autowired
+    private ServerEnvironmentProperties properties;
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    private volatile Settings settings;
+
+
+    @Override
+    public void aroundWriteTo( WriterInterceptorContext context ) throws IOException, WebApplicationException {
+
+        Settings settings = getSettings();
+
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+
+        String encoding = settings.enabled && !headers.containsKey( HttpHeaders.CONTENT_ENCODING ) ?
+                          getEncoding( requestHeaders.getRequestHeader( HttpHeaders.ACCEPT_ENCODING ) ) : null;
+
+        if ( encoding == null ) {
+            context.proceed();
+            return;
+        }
+
+        headers.add( HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING );
+
+        CompressingOutputStream compressing =
+            new CompressingOutputStream( context.getOutputStream(), encoding, settings.threshold, settings.pool,
+                () -> {
+                    headers.putSingle( HttpHeaders.CONTENT_ENCODING, encoding );
+                    headers.remove( HttpHeaders.CONTENT_LENGTH );
+                } );
+
+        context.setOutputStream( compressing );
+
+        try {
+            context.proceed();
+            compressing.finish();
+        }
+        catch ( IOException | RuntimeException e ) {
+            compressing.discard();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Get the encoding to use from the Accept-Encoding headers, gzip if it's accepted, then deflate
+     */
+    public static String getEncoding( Iterable<String> acceptEncodings ) {
+
+        if ( acceptEncodings == null ) {
+            return null;
+        }
+
+        boolean deflate = false;
+
+        for ( String header : acceptEncodings ) {
+            for ( String accepted : header.split( "," ) ) {
+                String[] parts = accepted.trim().split( ";" );
+                String coding = parts[0].trim();
+
+                //a quality of zero refuses the coding
+                if ( parts.length > 1 && parts[1].trim().matches( "q\\s*=\\s*0(\\.0*)?" ) ) {
+                    continue;
+                }
+
+                if ( CompressingOutputStream.GZIP.equalsIgnoreCase( coding ) ) {
+                    return CompressingOutputStream.GZIP;
+                }
+
+                if ( CompressingOutputStream.DEFLATE.equalsIgnoreCase( coding ) ) {
+                    deflate = true;
+                }
+            }
+        }
+
+        return deflate ? CompressingOutputStream.DEFLATE : null;
+    }
+
+
+    private Settings getSettings() {
+        if ( settings == null ) {
+            settings = new Settings(
+                Boolean.parseBoolean( getProperty( COMPRESSION_ENABLED, "true" ) ),
+                Integer.parseInt( getProperty( COMPRESSION_THRESHOLD, "1024" ) ),
+                Integer.parseInt( getProperty( COMPRESSION_LEVEL, "6" ) ),
+                Integer.parseInt( getProperty( COMPRESSION_POOL_SIZE, "64" ) ) );
+        }
+
+        return settings;
+    }
+
+
+    private String getProperty( String key, String defaultValue ) {
+        String value = properties != null ? properties.getProperty( key ) : null;
+        return value != null ? value : defaultValue;
+    }
+
+
+    /**
+     * The compression settings, read once
+     */
+    private static final class Settings {
+        private final boolean enabled;
+        private final int threshold;
+        private final DeflaterPool pool;
+
+
+        private Settings( boolean enabled, int threshold, int level, int poolSize ) {
+            this.enabled = enabled;
+            this.threshold = threshold;
+            this.pool = new DeflaterPool( level, poolSize );
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+
+/**
+ * A pool of deflaters.  A deflater holds native memory, and allocating one per response is slow and leaves the
+ * memory to the finalizer.
+ */
+public class DeflaterPool {
+
+    private final int level;
+
+    /**
+     * Deflaters that write zlib headers, for deflate
+     */
+    private final BlockingQueue<Deflater> zlib;
+
+    /**
+     * Deflaters that write raw deflate data, for gzip
+     */
+    private final BlockingQueue<Deflater> raw;
+
+
+    public DeflaterPool( final int level, final int size ) {
+        this.level = level;
+        this.zlib = new ArrayBlockingQueue<>( size );
+        this.raw = new ArrayBlockingQueue<>( size );
+    }
+
+
+    /**
+     * Take a deflater from the pool, or create one if the pool is empty
+     *
+     * @param nowrap True for raw deflate data, false for zlib
+     */
+    public Deflater borrow( final boolean nowrap ) {
+        final Deflater deflater = ( nowrap ? raw : zlib ).poll();
+
+        return deflater != null ? deflater : new Deflater( level, nowrap );
+    }
+
+
+    /**
+     * Return a deflater to the pool, or free it if the pool is full
+     */
+    public void release( final Deflater deflater, final boolean nowrap ) {
+        deflater.reset();
+
+        if ( !( nowrap ? raw : zlib ).offer( deflater ) ) {
+            deflater.end();
+        }
+    }
+}
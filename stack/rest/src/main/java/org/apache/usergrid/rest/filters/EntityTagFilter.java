@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+
+/**
+ * Send the entity tag a resource computed for its response.  Entity tags are built from entity versions, a single
+ * entity is tagged with its version and a page of entities with a hash of the versions on the page.  The tags are
+ * strong, so each representation of the same versions (Smile, compressed) gets its own tag.
+ */
+@Provider
+public class EntityTagFilter implements ContainerResponseFilter {
+
+    public static final String ENTITY_TAG_PROPERTY = "usergrid.entityTag";
+
+    private static final String REPRESENTATION_SEPARATOR = "+";
+
+
+    @Override
+    public void filter( ContainerRequestContext request, ContainerResponseContext response ) {
+
+        String entityTag = ( String ) request.getProperty( ENTITY_TAG_PROPERTY );
+
+        if ( entityTag == null || response.getStatus() != Response.Status.OK.getStatusCode() ) {
+            return;
+        }
+
+        response.getHeaders().putSingle( HttpHeaders.ETAG, new EntityTag( entityTag ) );
+    }
+
+
+    /**
+     * The tag of a single entity
+     */
+    public static String forVersion( UUID version ) {
+        return version.toString();
+    }
+
+
+    /**
+     * The tag of one representation of the versions a tag was built from, the tag itself for uncompressed JSON
+     */
+    public static String forRepresentation( String entityTag, String representation ) {
+
+        if ( entityTag == null || representation == null ) {
+            return entityTag;
+        }
+
+        return entityTag + REPRESENTATION_SEPARATOR + representation;
+    }
+
+
+    /**
+     * The tag of a page of entities, a hash of the request, the version of each entity in order and the cursor
+     */
+    public static String forPage( String request, List<UUID> ids, Map<UUID, UUID> versions, String cursor ) {
+
+        Hasher hasher = Hashing.sha1().newHasher().putString( request, StandardCharsets.UTF_8 );
+
+        for ( UUID id : ids ) {
+            UUID version = versions.get( id );
+
+            hasher.putLong( id.getMostSignificantBits() ).putLong( id.getLeastSignificantBits() );
+
+            if ( version != null ) {
+                hasher.putLong( version.getMostSignificantBits() ).putLong( version.getLeastSignificantBits() );
+            }
+        }
+
+        if ( cursor != null ) {
+            hasher.putString( cursor, StandardCharsets.UTF_8 );
+        }
+
+        return hasher.hash().toString();
+    }
+
+
+    /**
+     * True if any of the If-None-Match or If-Match header values match the tag.  The wildcard matches any tag, weak
+     * tags only match when using the weak comparison of If-None-Match.
+     */
+    public static boolean matches( Enumeration<String> headers, String entityTag, boolean weakComparison ) {
+        return matches( headers, entityTag, weakComparison, false );
+    }
+
+
+    /**
+     * True if any of the If-Match header values is a strong tag of any representation of the versions of the tag
+     */
+    public static boolean matchesAnyRepresentation( Enumeration<String> headers, String entityTag ) {
+        return matches( headers, entityTag, false, true );
+    }
+
+
+    private static boolean matches( Enumeration<String> headers, String entityTag, boolean weakComparison,
+                                    boolean anyRepresentation ) {
+
+        if ( headers == null || entityTag == null ) {
+            return false;
+        }
+
+        while ( headers.hasMoreElements() ) {
+            for ( String candidate : headers.nextElement().split( "," ) ) {
+                candidate = candidate.trim();
+
+                if ( candidate.equals( "*" ) ) {
+                    return true;
+                }
+
+                if ( candidate.startsWith( "W/" ) ) {
+                    if ( !weakComparison ) {
+                        continue;
+                    }
+                    candidate = candidate.substring( 2 );
+                }
+
+                if ( candidate.length() > 1 && candidate.startsWith( "\"" ) && candidate.endsWith( "\"" ) ) {
+                    candidate = candidate.substring( 1, candidate.length() - 1 );
+                }
+
+                if ( candidate.equals( entityTag ) || ( anyRepresentation && candidate
+                    .startsWith( entityTag + REPRESENTATION_SEPARATOR ) ) ) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import com.google.inject.Injector;
+import org.apache.usergrid.persistence.core.trace.Trace;
+import org.apache.usergrid.persistence.core.trace.TraceService;
+import org.apache.usergrid.persistence.core.trace.Tracer;
+import org.apache.usergrid.utils.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.ws.rs.container.*;
+import javax.ws.rs.ext.Provider;
+
+
+/**
+ * Trace sampled requests through the core persistence stack.  A request with the {@value #TRACE_HEADER} header is
+ * always traced, the id of the trace is returned in the {@value #TRACE_ID_HEADER} header and the trace can be read
+ * from /system/traces/{id}.
+ */
+@Provider
+public class RequestTraceFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String TRACE_HEADER = "X-Usergrid-Trace";
+
+    public static final String TRACE_ID_HEADER = "X-Usergrid-Trace-Id";
+
+    private static final String TRACE_PROPERTY = "usergrid.trace";
+
+    @Autowired
+    private Injector injector;
+
+
+    @Override
+    public void filter( ContainerRequestContext request ) {
+
+        // never carry a trace over from a previous request on this thread
+        Tracer.attach( null );
+
+        boolean force = !StringUtils.isBlank( request.getHeaderString( TRACE_HEADER ) );
+
+        Trace trace = injector.getInstance( TraceService.class )
+            .start( request.getMethod() + " " + request.getUriInfo().getPath( true ), force );
+
+        if ( trace != null ) {
+            request.setProperty( TRACE_PROPERTY, trace );
+        }
+    }
+
+
+    @Override
+    public void filter( ContainerRequestContext request, ContainerResponseContext response ) {
+
+        Trace trace = ( Trace ) request.getProperty( TRACE_PROPERTY );
+
+        if ( trace == null ) {
+            return;
+        }
+
+        injector.getInstance( TraceService.class ).stop( trace );
+
+        response.getHeaders().putSingle( TRACE_ID_HEADER, trace.getId() );
+    }
+}
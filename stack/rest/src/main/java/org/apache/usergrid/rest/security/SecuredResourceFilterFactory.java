@@ -440,8 +440,6 @@ public class SecuredResourceFilterFactory implements DynamicFeature {
                     throw new Exception("Subject not permitted");
                 }
 
-
-                SubjectUtils.checkPermission( perm );
                 Subject subject = SubjectUtils.getSubject();
 
                 if ( logger.isDebugEnabled() ) {
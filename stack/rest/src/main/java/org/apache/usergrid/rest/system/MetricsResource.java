@@ -0,0 +1,87 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  *  contributor license agreements.  The ASF licenses this file to You
+ *  * under the Apache License, Version 2.0 (the "License"); you may not
+ *  * use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.  For additional information regarding
+ *  * copyright in this work, please see the NOTICE file in the top level
+ *  * directory of this distribution.
+ *
+ */
+package org.apache.usergrid.rest.system;
+
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
+import org.apache.usergrid.rest.AbstractContextResource;
+import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.security.annotations.RequireSystemAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * retrieves latency and throughput of operations, for all applications and the busiest ones
+ */
+@Component
+@Scope( "singleton" )
+@Produces( {
+    MediaType.APPLICATION_JSON, "application/javascript", "application/x-javascript", "text/ecmascript",
+    "application/ecmascript", "text/jscript"
+} )
+public class MetricsResource extends AbstractContextResource {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsResource.class);
+
+    public MetricsResource(){logger.info("metrics resource initialized");}
+
+    /**
+     * Return the latencies of each operation for all applications.  Times are in milliseconds, rates are per second.
+     */
+    @GET
+    @RequireSystemAccess
+    @Path("operations")
+    public ApiResponse getOperations(
+        @QueryParam("callback") @DefaultValue("callback") String callback ) {
+
+        ApiResponse response = createApiResponse();
+        response.setAction( "get operation metrics" );
+
+        ApplicationMetrics applicationMetrics = injector.getInstance(ApplicationMetrics.class);
+
+        response.setProperty( "data", applicationMetrics.getOperations() );
+
+        return response;
+    }
+
+    /**
+     * Return the latencies of the applications that spent the most time, the busiest first.
+     */
+    @GET
+    @RequireSystemAccess
+    @Path("applications")
+    public ApiResponse getApplications(
+        @QueryParam("limit") @DefaultValue("10") int limit,
+        @QueryParam("callback") @DefaultValue("callback") String callback ) {
+
+        ApiResponse response = createApiResponse();
+        response.setAction( "get application metrics" );
+
+        ApplicationMetrics applicationMetrics = injector.getInstance(ApplicationMetrics.class);
+
+        response.setProperty( "data", applicationMetrics.getTopApplications( limit ) );
+
+        return response;
+    }
+
+}
@@ -114,6 +114,16 @@ public class SystemResource extends AbstractContextResource {
         return getSubResource( ApplicationsResource.class );
     }
 
+    @Path( "metrics" )
+    public MetricsResource metrics() {
+        return getSubResource( MetricsResource.class );
+    }
+
+    @Path( "traces" )
+    public TracesResource traces() {
+        return getSubResource( TracesResource.class );
+    }
+
 
     @Path( "connection" )
     public ConnectionResource connection() { return getSubResource( ConnectionResource.class ); }
@@ -0,0 +1,106 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  *  contributor license agreements.  The ASF licenses this file to You
+ *  * under the Apache License, Version 2.0 (the "License"); you may not
+ *  * use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.  For additional information regarding
+ *  * copyright in this work, please see the NOTICE file in the top level
+ *  * directory of this distribution.
+ *
+ */
+package org.apache.usergrid.rest.system;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.usergrid.persistence.core.trace.Trace;
+import org.apache.usergrid.persistence.core.trace.TraceService;
+import org.apache.usergrid.rest.AbstractContextResource;
+import org.apache.usergrid.rest.ApiResponse;
+import org.apache.usergrid.rest.security.annotations.RequireSystemAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+
+/**
+ * retrieves the most recent request traces
+ */
+@Component
+@Scope( "singleton" )
+@Produces( {
+    MediaType.APPLICATION_JSON, "application/javascript", "application/x-javascript", "text/ecmascript",
+    "application/ecmascript", "text/jscript"
+} )
+public class TracesResource extends AbstractContextResource {
+    private static final Logger logger = LoggerFactory.getLogger(TracesResource.class);
+
+    public TracesResource(){logger.info("traces resource initialized");}
+
+    /**
+     * Return the most recent traces without their spans, the most recent first.
+     */
+    @GET
+    @RequireSystemAccess
+    public ApiResponse getTraces(
+        @QueryParam("limit") @DefaultValue("20") int limit,
+        @QueryParam("callback") @DefaultValue("callback") String callback ) {
+
+        ApiResponse response = createApiResponse();
+        response.setAction( "get traces" );
+
+        List<Trace> traces = injector.getInstance(TraceService.class).getTraces();
+
+        ArrayNode nodes = JsonNodeFactory.instance.arrayNode();
+
+        for ( Trace trace : traces.subList( 0, Math.min( limit, traces.size() ) ) ) {
+            ObjectNode node = nodes.addObject();
+            node.put( "id", trace.getId() );
+            node.put( "name", trace.getName() );
+            node.put( "startTime", trace.getStartTime() );
+            node.put( "duration", trace.getDuration() );
+            node.put( "spans", trace.getSpans().size() );
+        }
+
+        response.setProperty( "data", nodes );
+
+        return response;
+    }
+
+    /**
+     * Return the trace with its spans.  Times are in milliseconds, span starts are from the start of the trace.
+     */
+    @GET
+    @RequireSystemAccess
+    @Path("{traceId}")
+    public ApiResponse getTrace(
+        @PathParam("traceId") String traceId,
+        @QueryParam("callback") @DefaultValue("callback") String callback ) {
+
+        Trace trace = injector.getInstance(TraceService.class).getTrace( traceId );
+
+        if ( trace == null ) {
+            throw new NotFoundException( "Trace " + traceId + " is no longer kept" );
+        }
+
+        ApiResponse response = createApiResponse();
+        response.setAction( "get trace" );
+        response.setProperty( "data", trace );
+
+        return response;
+    }
+
+}
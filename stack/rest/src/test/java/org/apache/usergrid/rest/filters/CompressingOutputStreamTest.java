@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class CompressingOutputStreamTest {
+
+    private final DeflaterPool pool = new DeflaterPool( 6, 2 );
+
+
+    @Test
+    public void smallResponseNotCompressed() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger compressed = new AtomicInteger();
+
+        final CompressingOutputStream stream = new CompressingOutputStream( out, CompressingOutputStream.GZIP, 100,
+            pool, () -> compressed.incrementAndGet() );
+
+        stream.write( "{\"small\":true}".getBytes( StandardCharsets.UTF_8 ) );
+        stream.finish();
+
+        assertFalse( stream.isCompressing() );
+        assertEquals( 0, compressed.get() );
+        assertEquals( "{\"small\":true}", out.toString( "UTF-8" ) );
+    }
+
+
+    @Test
+    public void gzipRoundTrip() throws IOException {
+        final byte[] body = body();
+
+        final byte[] written = write( CompressingOutputStream.GZIP, body );
+
+        assertTrue( written.length < body.length );
+        assertArrayEquals( body, IOUtils.toByteArray( new GZIPInputStream( new ByteArrayInputStream( written ) ) ) );
+    }
+
+
+    @Test
+    public void deflateRoundTrip() throws IOException {
+        final byte[] body = body();
+
+        final byte[] written = write( CompressingOutputStream.DEFLATE, body );
+
+        assertTrue( written.length < body.length );
+        assertArrayEquals( body, IOUtils.toByteArray( inflate( written ) ) );
+    }
+
+
+    @Test
+    public void pooledDeflaterReused() throws IOException {
+        final byte[] body = body();
+
+        //the second and third responses reuse the deflaters of the first
+        for ( int i = 0; i < 3; i++ ) {
+            assertArrayEquals( body, IOUtils.toByteArray(
+                new GZIPInputStream( new ByteArrayInputStream( write( CompressingOutputStream.GZIP, body ) ) ) ) );
+        }
+    }
+
+
+    @Test
+    public void acceptEncoding() {
+        assertEquals( "gzip", CompressionInterceptor.getEncoding( Arrays.asList( "gzip, deflate" ) ) );
+        assertEquals( "gzip", CompressionInterceptor.getEncoding( Arrays.asList( "deflate", "GZIP;q=0.5" ) ) );
+        assertEquals( "deflate", CompressionInterceptor.getEncoding( Arrays.asList( "gzip;q=0, deflate" ) ) );
+        assertNull( CompressionInterceptor.getEncoding( Arrays.asList( "identity" ) ) );
+        assertNull( CompressionInterceptor.getEncoding( null ) );
+    }
+
+
+    private byte[] write( final String encoding, final byte[] body ) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger compressed = new AtomicInteger();
+
+        final CompressingOutputStream stream =
+            new CompressingOutputStream( out, encoding, 100, pool, () -> compressed.incrementAndGet() );
+
+        //write in pieces across the threshold
+        for ( int i = 0; i < body.length; i += 64 ) {
+            stream.write( body, i, Math.min( 64, body.length - i ) );
+        }
+
+        stream.finish();
+
+        assertTrue( stream.isCompressing() );
+        assertEquals( 1, compressed.get() );
+
+        return out.toByteArray();
+    }
+
+
+    private InputStream inflate( final byte[] written ) {
+        return new InflaterInputStream( new ByteArrayInputStream( written ) );
+    }
+
+
+    private byte[] body() {
+        final StringBuilder body = new StringBuilder( "[" );
+
+        for ( int i = 0; i < 100; i++ ) {
+            body.append( "{\"type\":\"user\",\"username\":\"user" ).append( i ).append( "\",\"activated\":true}," );
+        }
+
+        return body.append( "{}]" ).toString().getBytes( StandardCharsets.UTF_8 );
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.rest.filters;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class EntityTagFilterTest {
+
+    @Test
+    public void matchesIfNoneMatch() {
+        String tag = EntityTagFilter.forVersion( UUIDUtils.newTimeUUID() );
+
+        assertTrue( EntityTagFilter.matches( headers( "\"" + tag + "\"" ), tag, true ) );
+        assertTrue( EntityTagFilter.matches( headers( "\"other\", W/\"" + tag + "\"" ), tag, true ) );
+        assertTrue( EntityTagFilter.matches( headers( "\"other\"", "\"" + tag + "\"" ), tag, true ) );
+        assertTrue( EntityTagFilter.matches( headers( "*" ), tag, true ) );
+        assertFalse( EntityTagFilter.matches( headers( "\"other\"" ), tag, true ) );
+        assertFalse( EntityTagFilter.matches( null, tag, true ) );
+    }
+
+
+    @Test
+    public void ifMatchIsStrong() {
+        String tag = EntityTagFilter.forVersion( UUIDUtils.newTimeUUID() );
+
+        assertTrue( EntityTagFilter.matches( headers( "\"" + tag + "\"" ), tag, false ) );
+        assertFalse( EntityTagFilter.matches( headers( "W/\"" + tag + "\"" ), tag, false ) );
+    }
+
+
+    @Test
+    public void representationsHaveTheirOwnTags() {
+        String tag = EntityTagFilter.forVersion( UUIDUtils.newTimeUUID() );
+        String smile = EntityTagFilter.forRepresentation( tag, "x-jackson-smile" );
+        String gzip = EntityTagFilter.forRepresentation( tag, "gzip" );
+
+        assertEquals( tag, EntityTagFilter.forRepresentation( tag, null ) );
+        assertNotEquals( smile, gzip );
+        assertFalse( EntityTagFilter.matches( headers( "\"" + gzip + "\"" ), tag, true ) );
+        assertFalse( EntityTagFilter.matches( headers( "\"" + gzip + "\"" ), smile, true ) );
+        assertTrue( EntityTagFilter.matches( headers( "\"" + gzip + "\"" ), gzip, true ) );
+    }
+
+
+    @Test
+    public void ifMatchAcceptsAnyRepresentation() {
+        String tag = EntityTagFilter.forVersion( UUIDUtils.newTimeUUID() );
+        String other = EntityTagFilter.forVersion( UUIDUtils.newTimeUUID() );
+
+        assertTrue( EntityTagFilter.matchesAnyRepresentation( headers( "\"" + tag + "\"" ), tag ) );
+        assertTrue( EntityTagFilter.matchesAnyRepresentation(
+            headers( "\"" + EntityTagFilter.forRepresentation( tag, "x-jackson-smile+gzip" ) + "\"" ), tag ) );
+        assertFalse( EntityTagFilter.matchesAnyRepresentation(
+            headers( "W/\"" + EntityTagFilter.forRepresentation( tag, "gzip" ) + "\"" ), tag ) );
+        assertFalse( EntityTagFilter.matchesAnyRepresentation(
+            headers( "\"" + EntityTagFilter.forRepresentation( other, "gzip" ) + "\"" ), tag ) );
+    }
+
+
+    @Test
+    public void pageTagFollowsVersions() {
+        UUID first = UUIDUtils.newTimeUUID();
+        UUID second = UUIDUtils.newTimeUUID();
+        List<UUID> ids = Arrays.asList( first, second );
+
+        Map<UUID, UUID> versions = new HashMap<>();
+        versions.put( first, UUIDUtils.newTimeUUID() );
+        versions.put( second, UUIDUtils.newTimeUUID() );
+
+        String tag = EntityTagFilter.forPage( "/test/things", ids, versions, "cursor" );
+
+        assertEquals( tag, EntityTagFilter.forPage( "/test/things", ids, new HashMap<>( versions ), "cursor" ) );
+        assertNotEquals( tag, EntityTagFilter.forPage( "/test/things", ids, versions, null ) );
+        assertNotEquals( tag, EntityTagFilter.forPage( "/test/things?limit=1", ids, versions, "cursor" ) );
+        assertNotEquals( tag, EntityTagFilter.forPage( "/test/things", Arrays.asList( second, first ), versions,
+            "cursor" ) );
+
+        versions.put( second, UUIDUtils.newTimeUUID() );
+
+        assertNotEquals( tag, EntityTagFilter.forPage( "/test/things", ids, versions, "cursor" ) );
+    }
+
+
+    private static Enumeration<String> headers( String... values ) {
+        return Collections.enumeration( Arrays.asList( values ) );
+    }
+}
@@ -37,6 +37,9 @@ import org.apache.usergrid.management.exceptions.*;
 import org.apache.usergrid.persistence.*;
 import org.apache.usergrid.persistence.Query.Level;
 import org.apache.usergrid.persistence.cache.CacheFactory;
+import org.apache.usergrid.persistence.core.cache.LookupCache;
+import org.apache.usergrid.persistence.core.cache.LookupCacheFactory;
+import org.apache.usergrid.persistence.core.invalidation.InvalidationBus;
 import org.apache.usergrid.persistence.cache.CacheScope;
 import org.apache.usergrid.persistence.cache.ScopedCache;
 import org.apache.usergrid.persistence.cassandra.CassandraService;
@@ -163,6 +166,13 @@ public class ManagementServiceImpl implements ManagementService {
 
     protected ApplicationService service;
 
+    protected InvalidationBus invalidationBus;
+
+    /** Organization ids by name, organizations are looked up by name on most management requests */
+    protected LookupCache<String, UUID> organizationIdCache;
+
+    private static final String ORGANIZATION_ID_CACHE = "organizationIds";
+
 
 
     /** Must be constructed with a CassandraClientPool. */
@@ -173,7 +183,19 @@ public class ManagementServiceImpl implements ManagementService {
         this.cacheFactory = injector.getInstance( CacheFactory.class );
         this.aggregationServiceFactory = injector.getInstance(AggregationServiceFactory.class);
         this.service = injector.getInstance(ApplicationService.class);
+        this.invalidationBus = injector.getInstance( InvalidationBus.class );
 
+        this.organizationIdCache = injector.getInstance( LookupCacheFactory.class ).create( ORGANIZATION_ID_CACHE,
+            organizationName -> Optional.fromNullable( loadOrganizationId( organizationName ) ) );
+
+        this.invalidationBus.subscribe( ORGANIZATION_ID_CACHE, key -> {
+            if ( key.isPresent() ) {
+                organizationIdCache.invalidate( key.get() );
+            }
+            else {
+                organizationIdCache.invalidateAll();
+            }
+        } );
     }
 
     @Autowired
@@ -574,6 +596,9 @@ public class ManagementServiceImpl implements ManagementService {
             organizationEntity = em.get( orgUuid, Group.class );
         }
 
+        // the name may have been cached as missing
+        invalidationBus.invalidate( ORGANIZATION_ID_CACHE, getOrganizationIdKey( organizationName ) );
+
         em.addToCollection( organizationEntity, "users", new SimpleEntityRef( User.ENTITY_TYPE, user.getUuid() ) );
 //        em.addToCollection( new SimpleEntityRef( User.ENTITY_TYPE, user.getUuid() ), Schema.COLLECTION_GROUPS, organizationEntity );
 
@@ -697,6 +722,7 @@ public class ManagementServiceImpl implements ManagementService {
         properties.put( PROPERTY_PATH, organizationName );
         properties.put( PROPERTY_SECRET, generateOAuthSecretKey( AuthPrincipalType.ORGANIZATION ) );
         Entity organization = em.create( organizationId, Group.ENTITY_TYPE, properties );
+        invalidationBus.invalidate( ORGANIZATION_ID_CACHE, getOrganizationIdKey( organizationName ) );
         // em.addToCollection(organization, "users", new SimpleEntityRef(
         // User.ENTITY_TYPE, userId));
         return new OrganizationInfo( organization.getUuid(), organizationName );
@@ -777,12 +803,30 @@ public class ManagementServiceImpl implements ManagementService {
             return null;
         }
 
+        Optional<UUID> organizationId = organizationIdCache.get( getOrganizationIdKey( organizationName ) );
+        if ( !organizationId.isPresent() ) {
+            return null;
+        }
+        return getOrganizationByUuid( organizationId.get() );
+    }
+
+
+    /**
+     * Aliases are looked up ignoring case, so the names are cached that way too
+     */
+    private static String getOrganizationIdKey( String organizationName ) {
+        return organizationName.toLowerCase();
+    }
+
+
+    private UUID loadOrganizationId( String organizationName ) throws Exception {
+
         EntityManager em = emf.getEntityManager(smf.getManagementAppId());
         EntityRef ref = em.getAlias( Group.ENTITY_TYPE, organizationName );
         if ( ref == null ) {
             return null;
         }
-        return getOrganizationByUuid( ref.getUuid() );
+        return ref.getUuid();
     }
 
 
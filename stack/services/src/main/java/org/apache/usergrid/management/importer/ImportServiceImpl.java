@@ -18,6 +18,8 @@
 package org.apache.usergrid.management.importer;
 
 import com.google.common.base.Preconditions;
+import com.google.inject.Injector;
+import com.google.inject.Key;
 import org.apache.usergrid.batch.JobExecution;
 import org.apache.usergrid.batch.service.SchedulerService;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
@@ -30,6 +32,8 @@ import org.apache.usergrid.persistence.entities.JobData;
 import org.apache.usergrid.persistence.exceptions.EntityNotFoundException;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.Query.Level;
+import org.apache.usergrid.persistence.core.executor.BackgroundScheduler;
+import org.apache.usergrid.persistence.core.rx.RxTaskScheduler;
 import org.apache.usergrid.utils.InflectionUtils;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonParser;
@@ -38,10 +42,10 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
 import rx.functions.Action1;
 import rx.functions.Func2;
-import rx.schedulers.Schedulers;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
@@ -72,6 +76,8 @@ public class ImportServiceImpl implements ImportService {
 
     private JsonFactory jsonFactory = new JsonFactory();
 
+    private Scheduler rxScheduler;
+
 
     @PostConstruct
     public void init() {
@@ -515,6 +521,12 @@ public class ImportServiceImpl implements ImportService {
     }
 
 
+    public void setInjector(final Injector injector) {
+        this.rxScheduler = injector.getInstance( Key.get( RxTaskScheduler.class, BackgroundScheduler.class ) )
+            .getAsyncIOScheduler();
+    }
+
+
     /**
      * This method creates sub-jobs for each file i.e. File Import Jobs.
      *
@@ -1002,7 +1014,7 @@ public class ImportServiceImpl implements ImportService {
         // with this code we get asynchronous behavior and testImportWithMultipleFiles will fail
         final int connectionCount = otherEventObservable.takeWhile(
             writeEvent -> !tracker.shouldStopProcessingConnections()).skip(connectionNumSkip).flatMap(entityWrapper -> {
-            return Observable.just(entityWrapper).doOnNext(doWork).subscribeOn(Schedulers.io());
+            return Observable.just(entityWrapper).doOnNext(doWork).subscribeOn(rxScheduler);
 
         }, 10).reduce(0, heartbeatReducer).toBlocking().last();
 
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.security.shiro;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.shiro.authz.Permission;
+
+
+/**
+ * The permissions of a principal compiled for matching.  Permissions are indexed by the id in their third part, and
+ * then by the literal leading segments of their paths, e.g. applications:get:{appId}:/users/*&#47;devices is stored
+ * under {appId} and then users.  A request only evaluates the permissions on its own path through the trie, instead of
+ * every permission the principal has.
+ *
+ * The trie only narrows the candidates, each candidate is still checked with {@link CustomPermission#implies}, so
+ * matching is exactly the same as checking every permission.
+ */
+public class PermissionTrie {
+
+    private static final String APPLICATIONS = "applications";
+
+    private final List<CustomPermission> permissions = new ArrayList<>();
+
+    /**
+     * Permissions that can't be indexed, they're candidates for every request
+     */
+    private final List<CustomPermission> unindexed = new ArrayList<>();
+
+    private final Map<String, Node> byId = new HashMap<>();
+
+    /**
+     * Permissions with a wildcard or several ids
+     */
+    private final Node anyId = new Node();
+
+
+    public PermissionTrie( final Collection<String> permissionStrings ) {
+        for ( String permissionString : permissionStrings ) {
+            add( new CustomPermission( permissionString ) );
+        }
+    }
+
+
+    private void add( final CustomPermission permission ) {
+        permissions.add( permission );
+
+        final List<Set<String>> parts = permission.getParts();
+        if ( parts.size() < 3 ) {
+            unindexed.add( permission );
+            return;
+        }
+
+        final Set<String> ids = parts.get( 2 );
+        final Node root;
+        if ( ids.size() == 1 && !isPattern( ids.iterator().next() ) ) {
+            root = byId.computeIfAbsent( ids.iterator().next(), id -> new Node() );
+        }
+        else {
+            root = anyId;
+        }
+
+        root.all.add( permission );
+
+        if ( parts.size() < 4 ) {
+            root.permissions.add( permission );
+            return;
+        }
+
+        //a request matches if any of the paths match, so index under each of them
+        for ( String path : parts.get( 3 ) ) {
+            Node node = root;
+            for ( String segment : getSegments( path ) ) {
+                if ( !isLiteral( segment ) ) {
+                    break;
+                }
+                node = node.children.computeIfAbsent( segment, key -> new Node() );
+            }
+            node.permissions.add( permission );
+        }
+    }
+
+
+    /**
+     * True if one of the permissions implies the requested permission
+     */
+    public boolean implies( final Permission requested ) {
+        for ( CustomPermission candidate : getCandidates( requested ) ) {
+            if ( candidate.implies( requested ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    public int size() {
+        return permissions.size();
+    }
+
+
+    /**
+     * The permissions that could imply the request
+     */
+    List<CustomPermission> getCandidates( final Permission requested ) {
+        if ( !( requested instanceof CustomPermission ) ) {
+            return permissions;
+        }
+
+        final List<Set<String>> parts = ( ( CustomPermission ) requested ).getParts();
+        if ( parts.size() < 3 || parts.get( 2 ).size() != 1 || isPattern( parts.get( 2 ).iterator().next() ) ) {
+            return permissions;
+        }
+
+        final List<CustomPermission> candidates = new ArrayList<>( unindexed );
+        final Node root = byId.get( parts.get( 2 ).iterator().next() );
+
+        //only application paths are normalized before they're compared, so only they can use the path index
+        if ( parts.size() == 4 && parts.get( 0 ).contains( APPLICATIONS ) && parts.get( 3 ).size() == 1 ) {
+            final List<String> segments = getSegments( parts.get( 3 ).iterator().next() );
+            if ( root != null ) {
+                root.collect( segments, candidates );
+            }
+            anyId.collect( segments, candidates );
+        }
+        else {
+            if ( root != null ) {
+                candidates.addAll( root.all );
+            }
+            candidates.addAll( anyId.all );
+        }
+
+        return candidates;
+    }
+
+
+    /**
+     * The segments of the path after it's normalized the way {@link CustomPermission} normalizes application paths
+     */
+    static List<String> getSegments( final String path ) {
+        final List<String> segments = new ArrayList<>();
+        for ( String segment : CustomPermission.makePath( path ).split( "/" ) ) {
+            if ( !segment.isEmpty() ) {
+                segments.add( segment );
+            }
+        }
+        return segments;
+    }
+
+
+    private static boolean isPattern( final String value ) {
+        return value.indexOf( '*' ) != -1 || value.indexOf( '?' ) != -1 || value.indexOf( '{' ) != -1;
+    }
+
+
+    /**
+     * A segment that can only match itself.  ${user} and me are replaced with the current user before matching
+     */
+    private static boolean isLiteral( final String segment ) {
+        return !isPattern( segment ) && segment.indexOf( '$' ) == -1 && !"me".equals( segment );
+    }
+
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        /**
+         * Permissions whose literal path ends at this node
+         */
+        private final List<CustomPermission> permissions = new ArrayList<>();
+
+        /**
+         * Every permission under this node, only kept at the root of an id
+         */
+        private final List<CustomPermission> all = new ArrayList<>();
+
+
+        private void collect( final List<String> segments, final List<CustomPermission> candidates ) {
+            Node node = this;
+            candidates.addAll( node.permissions );
+            for ( String segment : segments ) {
+                node = node.children.get( segment );
+                if ( node == null ) {
+                    return;
+                }
+                candidates.addAll( node.permissions );
+            }
+        }
+    }
+}
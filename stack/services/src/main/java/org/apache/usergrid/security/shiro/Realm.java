@@ -22,6 +22,7 @@ import org.apache.shiro.authc.*;
 import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
 import org.apache.shiro.authc.credential.CredentialsMatcher;
 import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.realm.AuthorizingRealm;
@@ -39,6 +40,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import static org.apache.usergrid.management.AccountCreationProps.PROPERTIES_SYSADMIN_LOGIN_ALLOWED;
 
 
@@ -55,6 +64,14 @@ public class Realm extends AuthorizingRealm {
     private ManagementService management;
     private TokenService tokens;
 
+    /**
+     * Compiled permissions, keyed by the permission set they were compiled from.  The authorization info of a
+     * principal is evicted from the Shiro cache when its roles or permissions change, and the new info has a different
+     * permission set, so a stale trie is never used.  Principals with the same permissions share a trie
+     */
+    private final Cache<Set<String>, PermissionTrie> permissionTries =
+        CacheBuilder.newBuilder().maximumSize( 10000 ).expireAfterAccess( 1, TimeUnit.HOURS ).build();
+
 
     @Value( "${" + PROPERTIES_SYSADMIN_LOGIN_ALLOWED + "}" )
     private boolean superUserEnabled;
@@ -154,6 +171,32 @@ public class Realm extends AuthorizingRealm {
     }
 
 
+    /**
+     * Match against the compiled permissions instead of resolving and checking every permission string
+     */
+    @Override
+    protected boolean isPermitted( Permission permission, AuthorizationInfo info ) {
+        if ( info == null || info.getStringPermissions() == null
+            || ( info.getObjectPermissions() != null && !info.getObjectPermissions().isEmpty() ) ) {
+            return super.isPermitted( permission, info );
+        }
+
+        return getPermissionTrie( info.getStringPermissions() ).implies( permission );
+    }
+
+
+    private PermissionTrie getPermissionTrie( Collection<String> stringPermissions ) {
+        PermissionTrie trie = permissionTries.getIfPresent( stringPermissions );
+        if ( trie == null ) {
+            //copy the key, the info's set may change after this
+            Set<String> key = ImmutableSet.copyOf( stringPermissions );
+            trie = new PermissionTrie( key );
+            permissionTries.put( key, trie );
+        }
+        return trie;
+    }
+
+
     @Override
     protected AuthenticationInfo doGetAuthenticationInfo( AuthenticationToken token ) throws AuthenticationException {
         PrincipalCredentialsToken pcToken = ( PrincipalCredentialsToken ) token;
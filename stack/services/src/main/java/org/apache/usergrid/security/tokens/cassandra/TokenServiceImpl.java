@@ -28,6 +28,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.util.Assert;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 import org.apache.usergrid.persistence.cassandra.CassandraService;
+import org.apache.usergrid.persistence.core.metrics.ApplicationMetrics;
 import org.apache.usergrid.persistence.entities.Application;
 import org.apache.usergrid.security.AuthPrincipalInfo;
 import org.apache.usergrid.security.AuthPrincipalType;
@@ -40,6 +41,8 @@ import org.apache.usergrid.security.tokens.exceptions.InvalidTokenException;
 import org.apache.usergrid.utils.JsonUtils;
 import org.apache.usergrid.utils.UUIDUtils;
 
+import com.google.inject.Injector;
+
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.HColumn;
 import me.prettyprint.hector.api.mutation.Mutator;
@@ -155,6 +158,8 @@ public class TokenServiceImpl implements TokenService {
 
     protected EntityManagerFactory emf;
 
+    protected ApplicationMetrics applicationMetrics;
+
 
     public TokenServiceImpl() {
 
@@ -308,6 +313,8 @@ public class TokenServiceImpl implements TokenService {
     @Override
     public TokenInfo getTokenInfo( String token ) throws Exception {
 
+        final long start = System.nanoTime();
+
         UUID uuid = getUUIDForToken( token );
 
         if ( uuid == null ) {
@@ -342,6 +349,12 @@ public class TokenServiceImpl implements TokenService {
 
         batch.execute();
 
+        if ( applicationMetrics != null ) {
+            final AuthPrincipalInfo principal = tokenInfo.getPrincipal();
+            applicationMetrics.record( principal != null ? principal.getApplicationId() : null,
+                ApplicationMetrics.TOKEN_CHECK, System.nanoTime() - start );
+        }
+
         return tokenInfo;
     }
 
@@ -654,6 +667,12 @@ public class TokenServiceImpl implements TokenService {
     }
 
 
+    @Autowired
+    public void setInjector( Injector injector ) {
+        this.applicationMetrics = injector.getInstance( ApplicationMetrics.class );
+    }
+
+
     private String getTokenForUUID( TokenInfo tokenInfo, TokenCategory tokenCategory, UUID uuid ) {
         int l = 36;
         if ( tokenCategory.getExpires() ) {
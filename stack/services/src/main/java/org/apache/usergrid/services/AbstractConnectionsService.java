@@ -40,7 +40,6 @@ import org.apache.usergrid.services.ServiceResults.Type;
 import org.apache.usergrid.services.exceptions.ServiceResourceNotFoundException;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 import static org.apache.usergrid.services.ServiceParameter.filter;
 import static org.apache.usergrid.services.ServiceParameter.firstParameterIsName;
@@ -463,7 +462,7 @@ public class AbstractConnectionsService extends AbstractService {
                     catch ( Exception e ) {
                         throw new RuntimeException( "Unable to save connection", e );
                     }
-                }).subscribeOn( Schedulers.io() );
+                }).subscribeOn( getRxScheduler() );
             }, 10).toBlocking().lastOrDefault(null); //needs to rethrow
 
 
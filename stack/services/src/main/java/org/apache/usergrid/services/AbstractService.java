@@ -134,6 +134,14 @@ public abstract class AbstractService implements Service {
     }
 
 
+    /**
+     * The bounded scheduler services should run their parallel I/O on
+     */
+    protected Scheduler getRxScheduler() {
+        return rxScheduler;
+    }
+
+
     public ApplicationContext getApplicationContext() {
         return sm.getApplicationContext();
     }
@@ -1368,7 +1376,10 @@ public abstract class AbstractService implements Service {
             logger.debug( PATH_MSG, new Object[] { path, context.getAction(), perm, permitted } );
         }
 
-        SubjectUtils.checkPermission( perm );
+        //only check again to raise the exception, the permission was just evaluated
+        if ( !permitted ) {
+            SubjectUtils.checkPermission( perm );
+        }
         Subject subject = SubjectUtils.getSubject();
 
         if (logger.isDebugEnabled()) {
@@ -38,6 +38,16 @@ public interface ApplicationQueueManager {
 
     public static final  String DEFAULT_QUEUE_NAME = "push"; //keep this short as AWS limits queue name size to 80 chars
 
+    public static final String FAN_OUT_PAGE_SIZE_PROPERTY = "usergrid.notifications.fanout.pageSize";
+
+    public static final String FAN_OUT_CONCURRENCY_PROPERTY = "usergrid.notifications.fanout.concurrency";
+
+    public static final int DEFAULT_FAN_OUT_CONCURRENCY = 10;
+
+    public static final String QUEUE_BATCH_SIZE_PROPERTY = "usergrid.notifications.queue.batchSize";
+
+    public static final int DEFAULT_QUEUE_BATCH_SIZE = 500;
+
     /**
      * send notification to queue
      * @param notification
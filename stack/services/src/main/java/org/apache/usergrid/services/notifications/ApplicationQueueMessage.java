@@ -37,6 +37,7 @@ public class ApplicationQueueMessage implements Serializable {
     private UUID deviceId;
     private String notifierKey;
     private String notifierId;
+    private long queued;
 
 
     public ApplicationQueueMessage() {
@@ -48,6 +49,7 @@ public class ApplicationQueueMessage implements Serializable {
         this.deviceId = deviceId;
         this.notifierKey = notifierKey;
         this.notifierId = notifierId;
+        this.queued = System.currentTimeMillis();
         setNotificationId(notificationId);
         setNotifierKey(notifierKey);
         setNotifierId(notifierId);
@@ -102,5 +104,16 @@ public class ApplicationQueueMessage implements Serializable {
         notifierKey = name;
     }
 
+    /**
+     * Time the message was put on the queue, 0 if it's unknown
+     */
+    public long getQueued() {
+        return queued;
+    }
+
+    public void setQueued(long queued) {
+        this.queued = queued;
+    }
+
 
 }
@@ -33,6 +33,7 @@ import org.apache.usergrid.persistence.entities.Notifier;
 import org.apache.usergrid.persistence.entities.Receipt;
 import org.apache.usergrid.persistence.exceptions.RequiredPropertyNotFoundException;
 import org.apache.usergrid.persistence.index.query.Identifier;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.queue.QueueManager;
 import org.apache.usergrid.persistence.queue.QueueManagerFactory;
@@ -49,6 +50,7 @@ import org.apache.usergrid.services.ServiceRequest;
 import org.apache.usergrid.services.ServiceResults;
 import org.apache.usergrid.services.exceptions.ForbiddenServiceOperationException;
 import org.apache.usergrid.services.notifications.impl.ApplicationQueueManagerImpl;
+import org.apache.usergrid.services.notifications.impl.BufferedReceiptSink;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
@@ -56,7 +58,6 @@ import com.google.inject.Injector;
 
 import rx.Observable;
 import rx.functions.Func1;
-import rx.schedulers.Schedulers;
 
 import static org.apache.usergrid.utils.InflectionUtils.pluralize;
 
@@ -84,6 +85,7 @@ public class NotificationsService extends AbstractCollectionService {
     private ServiceManagerFactory smf;
     private EntityManagerFactory emf;
     private QueueManagerFactory queueManagerFactory;
+    private Properties props;
 
     public NotificationsService() {
         logger.info("/notifications");
@@ -95,7 +97,7 @@ public class NotificationsService extends AbstractCollectionService {
         smf = getApplicationContext().getBean(ServiceManagerFactory.class);
         emf = getApplicationContext().getBean(EntityManagerFactory.class);
 
-        Properties props = (Properties)getApplicationContext().getBean("properties");
+        props = (Properties)getApplicationContext().getBean("properties");
         metricsService = getApplicationContext().getBean(Injector.class).getInstance(MetricsFactory.class);
         postMeter = metricsService.getMeter(NotificationsService.class, "collection.post_requests");
         postTimer = metricsService.getTimer(this.getClass(), "collection.post_requests");
@@ -104,7 +106,9 @@ public class NotificationsService extends AbstractCollectionService {
         QueueScope queueScope = new QueueScopeImpl( name, QueueScope.RegionImplementation.LOCAL);
         queueManagerFactory = getApplicationContext().getBean( Injector.class ).getInstance(QueueManagerFactory.class);
         QueueManager queueManager = queueManagerFactory.getQueueManager(queueScope);
-        notificationQueueManager = new ApplicationQueueManagerImpl(jobScheduler,em,queueManager,metricsService,props);
+        MapManagerFactory mapManagerFactory = getApplicationContext().getBean( Injector.class ).getInstance(MapManagerFactory.class);
+        ReceiptSink receiptSink = new BufferedReceiptSink(em, mapManagerFactory, metricsService, props);
+        notificationQueueManager = new ApplicationQueueManagerImpl(jobScheduler,em,queueManager,metricsService,receiptSink,props);
         gracePeriod = JobScheduler.SCHEDULER_GRACE_PERIOD;
     }
 
@@ -263,7 +267,7 @@ public class NotificationsService extends AbstractCollectionService {
             }
             final Map<String, Object> payloads = (Map<String, Object>) obj_payloads;
             final Map<Object, Notifier> notifierMap = getNotifierMap(payloads);
-            Observable t = Observable.from(payloads.entrySet()).subscribeOn(Schedulers.io()).map(new Func1<Map.Entry<String, Object>, Object>() {
+            Observable t = Observable.from(payloads.entrySet()).subscribeOn(getRxScheduler()).map(new Func1<Map.Entry<String, Object>, Object>() {
                 @Override
                 public Object call(Map.Entry<String, Object> entry) {
                     String notifierId = entry.getKey();
@@ -272,7 +276,7 @@ public class NotificationsService extends AbstractCollectionService {
                         throw new IllegalArgumentException("notifier \""
                                 + notifierId + "\" not found");
                     }
-                    ProviderAdapter providerAdapter = ProviderAdapterFactory.getProviderAdapter(notifier, em);
+                    ProviderAdapter providerAdapter = ProviderAdapterFactory.getProviderAdapter(notifier, em, props);
                     Object payload = entry.getValue();
                     try {
                         return providerAdapter.translatePayload(payload); // validate
@@ -347,7 +351,7 @@ public class NotificationsService extends AbstractCollectionService {
      * failure
      */
     public void testConnection(Notifier notifier) throws Exception {
-        ProviderAdapter providerAdapter = ProviderAdapterFactory.getProviderAdapter(notifier,em);
+        ProviderAdapter providerAdapter = ProviderAdapterFactory.getProviderAdapter(notifier,em,props);
         if (providerAdapter != null) {
             providerAdapter.testConnection();
         }
@@ -20,6 +20,8 @@ import org.apache.usergrid.persistence.entities.Notification;
 import org.apache.usergrid.persistence.entities.Notifier;
 import org.apache.usergrid.services.ServicePayload;
 
+import java.util.Collection;
+
 /**
  * To send a Notification, the following methods should be called in this order:
  * 1) testConnection() for each notifier to be used 2) translatePayload() for
@@ -54,6 +56,14 @@ public interface ProviderAdapter {
      */
     public void doneSendingNotifications() throws Exception;
 
+    /**
+     * close out any open batches like {@link #doneSendingNotifications()}, but only wait for the sends of the given
+     * trackers, so one caller doesn't wait on notifications another is still sending
+     */
+    default void doneSendingNotifications(Collection<TaskTracker> trackers) throws Exception {
+        doneSendingNotifications();
+    }
+
     /**
      * remove inactive devices
      * @throws Exception
@@ -26,6 +26,8 @@ import org.apache.usergrid.services.notifications.apns.APNsAdapter;
 import org.apache.usergrid.services.notifications.gcm.GCMAdapter;
 import org.apache.usergrid.services.notifications.wns.WNSAdapter;
 
+import java.util.Properties;
+
 
 /**
  * Get valid provideradapters
@@ -33,10 +35,17 @@ import org.apache.usergrid.services.notifications.wns.WNSAdapter;
 public class ProviderAdapterFactory {
     private static final String[] providers =  new String[]{"apple", "google", "noop"};
    public static ProviderAdapter getProviderAdapter(Notifier notifier, EntityManager entityManager){
+       return getProviderAdapter(notifier, entityManager, new Properties());
+   }
+
+    /**
+     * Get the adapter for the notifier, configured from the properties
+     */
+   public static ProviderAdapter getProviderAdapter(Notifier notifier, EntityManager entityManager, Properties properties){
        ProviderAdapter adapter = null;
        switch(notifier.getProvider().toLowerCase()){
            case "apple" : adapter = new APNsAdapter(entityManager,notifier); break;
-           case "google" : adapter = new GCMAdapter(entityManager ,notifier); break;
+           case "google" : adapter = new GCMAdapter(entityManager ,notifier, properties); break;
            case "windows" : adapter = new WNSAdapter(entityManager ,notifier); break;
            case "noop" : adapter = new TestAdapter(notifier); break;
            default: throw new IllegalArgumentException(notifier.getProvider()
@@ -19,21 +19,26 @@ package org.apache.usergrid.services.notifications;
 import com.codahale.metrics.*;
 import com.codahale.metrics.Timer;
 import com.google.common.cache.*;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Injector;
 
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
 import org.apache.usergrid.persistence.queue.*;
 import org.apache.usergrid.persistence.queue.QueueManager;
 import org.apache.usergrid.persistence.queue.impl.QueueScopeImpl;
 import org.apache.usergrid.services.ServiceManager;
 import org.apache.usergrid.services.ServiceManagerFactory;
 import org.apache.usergrid.services.notifications.impl.ApplicationQueueManagerImpl;
+import org.apache.usergrid.services.notifications.impl.BufferedReceiptSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -42,14 +47,31 @@ import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
- * Singleton listens for notifications queue messages
+ * Singleton listens for notifications queue messages.
+ *
+ * The number of consumers follows the depth of the queue, between usergrid.notifications.listener.minThreads and
+ * usergrid.notifications.listener.maxThreads. Each consumer long polls the queue and hands the batch off to a send
+ * pool, so the next fetch is in flight while the previous batch is being sent to the providers.  The number of batches
+ * being sent at once is bounded, which stops consumers from pulling messages they can't send before their visibility
+ * timeout expires.
  */
 public class QueueListener  {
     public  final int MESSAGE_TRANSACTION_TIMEOUT =  25 * 1000;
     private final QueueManagerFactory queueManagerFactory;
+    private final MapManagerFactory mapManagerFactory;
 
+    /**
+     * Initial back off after a failed fetch, doubled on each consecutive failure
+     */
     public   long DEFAULT_SLEEP = 5000;
 
+    /**
+     * Longest time a fetch waits for messages to arrive, SQS caps this at 20 seconds
+     */
+    public static final int DEFAULT_POLL_WAIT = 20000;
+
+    private static final long MAX_BACK_OFF = 15000;
+
     private static final Logger logger = LoggerFactory.getLogger(QueueListener.class);
 
     private MetricsFactory metricsService;
@@ -64,20 +86,41 @@ public class QueueListener  {
 
     private ServiceManager svcMgr;
 
-    private long sleepWhenNoneFound = 0;
-
     private long sleepBetweenRuns = 0;
 
-    private ExecutorService pool;
-    private List<Future> futures;
+    private volatile boolean running;
+    private ExecutorService consumerPool;
+    private ExecutorService sendPool;
+    private Scheduler sendScheduler;
+    private ScheduledExecutorService scaler;
+    private final ConcurrentHashMap<Integer, Future> consumers = new ConcurrentHashMap<>();
+    private final AtomicInteger targetConsumers = new AtomicInteger();
+    private Semaphore batchesInFlight;
+
+    private QueueManager queueManager;
+    private LoadingCache<UUID, ApplicationQueueManager> queueManagerMap;
+    private final AtomicLong runCount = new AtomicLong(0);
 
-    public  final int MAX_THREADS = 2;
+    public  final int MAX_THREADS = 8;
     private Integer batchSize = 10;
     private String queueName;
     private int consecutiveCallsToRemoveDevices;
+    private int minThreads;
+    private int maxThreads;
+    private int depthPerThread;
+    private int pollWait;
+
+    private Meter meter;
+    private Timer dequeueTimer;
+    private Timer sendTimer;
+    private Timer deliveryLag;
+    private Counter consumerCounter;
+    private Counter inFlightCounter;
+    private Histogram queueDepth;
 
     public QueueListener(ServiceManagerFactory smf, EntityManagerFactory emf, Properties props){
         this.queueManagerFactory = smf.getApplicationContext().getBean( Injector.class ).getInstance(QueueManagerFactory.class);
+        this.mapManagerFactory = smf.getApplicationContext().getBean( Injector.class ).getInstance(MapManagerFactory.class);
         this.smf = smf;
         this.emf = emf;
         this.metricsService = smf.getApplicationContext().getBean( Injector.class ).getInstance(MetricsFactory.class);
@@ -93,165 +136,260 @@ public class QueueListener  {
 
 
             logger.info("QueueListener: starting.");
-            int threadCount = 0;
 
             try {
 
                 sleepBetweenRuns = new Long(properties.getProperty("usergrid.notifications.listener.sleep.between", ""+sleepBetweenRuns)).longValue();
-                sleepWhenNoneFound = new Long(properties.getProperty("usergrid.notifications.listener.sleep.after", ""+DEFAULT_SLEEP)).longValue();
                 batchSize = new Integer(properties.getProperty("usergrid.notifications.listener.batchSize", (""+batchSize)));
                 consecutiveCallsToRemoveDevices = new Integer(properties.getProperty("usergrid.notifications.inactive.interval", ""+200));
                 queueName = ApplicationQueueManagerImpl.getQueueNames(properties);
 
-                int maxThreads = new Integer(properties.getProperty("usergrid.notifications.listener.maxThreads", ""+MAX_THREADS));
-
-                futures = new ArrayList<Future>(maxThreads);
-
-                //create our thread pool based on our threadcount.
-
-                pool = Executors.newFixedThreadPool(maxThreads);
-
-                while (threadCount++ < maxThreads) {
-                    logger.info("QueueListener: Starting thread {}.", threadCount);
-                    final int threadNumber = threadCount;
-                    Runnable task = new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                execute(threadNumber);
-                            } catch (Exception e) {
-
-                                if(pool.isShutdown()){
-                                    logger.warn("QueueListener: push listener pool already shut down.");
-                                }else{
-                                    logger.error("QueueListener: threads interrupted", e);
-                                }
-                            }
-                        }
-                    };
-                    futures.add( pool.submit(task));
-                }
+                maxThreads = new Integer(properties.getProperty("usergrid.notifications.listener.maxThreads", ""+MAX_THREADS));
+                minThreads = Math.min(maxThreads, new Integer(properties.getProperty("usergrid.notifications.listener.minThreads", "1")));
+                depthPerThread = new Integer(properties.getProperty("usergrid.notifications.listener.depthPerThread", "1000"));
+                pollWait = new Integer(properties.getProperty("usergrid.notifications.listener.pollWait", ""+DEFAULT_POLL_WAIT));
+                long scaleInterval = new Long(properties.getProperty("usergrid.notifications.listener.scaleInterval", "10000"));
+                int sendThreads = new Integer(properties.getProperty("usergrid.notifications.listener.sendThreads", ""+(maxThreads * 2)));
+                int maxInFlight = new Integer(properties.getProperty("usergrid.notifications.listener.batchesInFlight", ""+(maxThreads * 2)));
+
+                meter = metricsService.getMeter(QueueListener.class, "execute.commit");
+                dequeueTimer = metricsService.getTimer(QueueListener.class, "execute.dequeue");
+                sendTimer = metricsService.getTimer(QueueListener.class, "execute.send");
+                deliveryLag = metricsService.getTimer(QueueListener.class, "delivery.lag");
+                consumerCounter = metricsService.getCounter(QueueListener.class, "consumers");
+                inFlightCounter = metricsService.getCounter(QueueListener.class, "batches.inflight");
+                queueDepth = metricsService.getHistogram(QueueListener.class, "queue.depth");
+
+                svcMgr = smf.getServiceManager(smf.getManagementAppId());
+                logger.info("getting from queue {} ", queueName);
+                QueueScope queueScope = new QueueScopeImpl( queueName, QueueScope.RegionImplementation.LOCAL);
+                queueManager = queueManagerFactory.getQueueManager(queueScope);
+                //cache to retrieve push manager, cached per notifier, so many notifications will get same push manager
+                queueManagerMap = getQueueManagerCache(queueManager);
+
+                batchesInFlight = new Semaphore(maxInFlight);
+                consumerPool = Executors.newCachedThreadPool(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat(getClass().getSimpleName() + "_PushNotifications-%d").build());
+                sendPool = Executors.newFixedThreadPool(sendThreads,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat(getClass().getSimpleName() + "_PushSend-%d").build());
+                sendScheduler = Schedulers.from(sendPool);
+                scaler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat(getClass().getSimpleName() + "_Scaler").build());
+
+                running = true;
+                targetConsumers.set(minThreads);
+                startConsumers();
+
+                scaler.scheduleWithFixedDelay(this::scale, scaleInterval, scaleInterval, TimeUnit.MILLISECONDS);
             } catch (Exception e) {
                 logger.error("QueueListener: failed to start:", e);
             }
             logger.info("QueueListener: done starting.");
     }
 
-    private void execute(int threadNumber){
-        if(Thread.currentThread().isDaemon()) {
-            Thread.currentThread().setDaemon(true);
+    /**
+     * Resize the consumers to the depth of the queue.  New consumers are started right away, extra consumers exit
+     * once their current fetch returns
+     */
+    private void scale(){
+        try {
+            long depth = queueManager.getQueueDepth();
+            if (depth < 0) {
+                //depth is unknown, leave things as they are
+                return;
+            }
+            queueDepth.update(depth);
+
+            int target = getConsumerCount(depth, minThreads, maxThreads, depthPerThread);
+            int previous = targetConsumers.getAndSet(target);
+            if (target != previous) {
+                logger.info("QueueListener: queue depth {}, scaling consumers to {}", depth, target);
+            }
+            startConsumers();
+        } catch (Exception e) {
+            logger.error("QueueListener: failed to scale consumers", e);
         }
-        Thread.currentThread().setName(getClass().getSimpleName()+"_PushNotifications-"+threadNumber);
+    }
 
-        final AtomicInteger consecutiveExceptions = new AtomicInteger();
+    /**
+     * The number of consumers to run for a queue of the given depth
+     */
+    public static int getConsumerCount(final long depth, final int minThreads, final int maxThreads, final int depthPerThread){
+        long wanted = (depth + depthPerThread - 1) / Math.max(1, depthPerThread);
+        return (int) Math.max(minThreads, Math.min(maxThreads, wanted));
+    }
+
+    private synchronized void startConsumers(){
+        for (int consumerNumber = 1; running && consumerNumber <= targetConsumers.get(); consumerNumber++) {
+            if (consumers.containsKey(consumerNumber)) {
+                continue;
+            }
+            logger.info("QueueListener: Starting consumer {}.", consumerNumber);
+            final int number = consumerNumber;
+            consumers.put(number, consumerPool.submit(() -> {
+                try {
+                    execute(number);
+                } catch (Exception e) {
+                    if (consumerPool.isShutdown()) {
+                        logger.warn("QueueListener: push listener pool already shut down.");
+                    } else {
+                        logger.error("QueueListener: threads interrupted", e);
+                    }
+                } finally {
+                    consumers.remove(number);
+                }
+            }));
+        }
+    }
+
+    private void execute(int consumerNumber){
         logger.info("QueueListener: Starting execute process.");
-        Meter meter = metricsService.getMeter(QueueListener.class, "execute.commit");
-        com.codahale.metrics.Timer timer = metricsService.getTimer(QueueListener.class, "execute.dequeue");
-        svcMgr = smf.getServiceManager(smf.getManagementAppId());
-        logger.info("getting from queue {} ", queueName);
-        QueueScope queueScope = new QueueScopeImpl( queueName, QueueScope.RegionImplementation.LOCAL);
-        QueueManager queueManager = queueManagerFactory.getQueueManager(queueScope);
-        // run until there are no more active jobs
-        final AtomicLong runCount = new AtomicLong(0);
-        //cache to retrieve push manager, cached per notifier, so many notifications will get same push manager
-        LoadingCache<UUID, ApplicationQueueManager> queueManagerMap = getQueueManagerCache(queueManager);
-
-        while ( true ) {
-
-                Timer.Context timerContext = timer.time();
-                rx.Observable.from(queueManager.getMessages(getBatchSize(), MESSAGE_TRANSACTION_TIMEOUT, 10000, ApplicationQueueMessage.class))
-                    .buffer(getBatchSize())
-                    .doOnNext(messages -> {
+        consumerCounter.inc();
+        int consecutiveExceptions = 0;
 
-                        try {
-                            logger.info("retrieved batch of {} messages from queue {} ", messages.size(),queueName);
-
-                            if (messages.size() > 0) {
-                                HashMap<UUID, List<QueueMessage>> messageMap = new HashMap<>(messages.size());
-
-                                //group messages into hash map by app id
-                                for (QueueMessage message : messages) {
-                                    //TODO: stop copying around this area as it gets notification specific.
-                                    ApplicationQueueMessage queueMessage = (ApplicationQueueMessage) message.getBody();
-                                    UUID applicationId = queueMessage.getApplicationId();
-
-                                    //Groups queue messages by application Id, ( they are all probably going to the same place )
-                                    if (!messageMap.containsKey(applicationId)) {
-                                        //For each app id it sends the set.
-                                        List<QueueMessage> applicationQueueMessages = new ArrayList<QueueMessage>();
-                                        applicationQueueMessages.add(message);
-                                        messageMap.put(applicationId, applicationQueueMessages);
-                                    } else {
-                                        messageMap.get(applicationId).add(message);
-                                    }
-                                }
-
-                                long now = System.currentTimeMillis();
-                                Observable merge = null;
-
-                                //send each set of app ids together
-                                for (Map.Entry<UUID, List<QueueMessage>> entry : messageMap.entrySet()) {
-                                    UUID applicationId = entry.getKey();
-                                    ApplicationQueueManager manager = queueManagerMap.get(applicationId);
-                                    logger.info("send batch for app {} of {} messages", entry.getKey(), entry.getValue().size());
-                                    Observable current = manager.sendBatchToProviders(entry.getValue(),queueName);
-
-                                    if(merge == null)
-                                        merge = current;
-                                    else {
-                                        merge = Observable.merge(merge,current);
-                                    }
-                                }
-
-                                if(merge!=null) {
-                                    merge.toBlocking().lastOrDefault(null);
-                                }
-                                queueManager.commitMessages(messages);
-
-                                meter.mark(messages.size());
-                                logger.info("sent batch {} messages duration {} ms", messages.size(),System.currentTimeMillis() - now);
-
-                                if(sleepBetweenRuns > 0) {
-                                    logger.info("sleep between rounds...sleep...{}", sleepBetweenRuns);
-                                    Thread.sleep(sleepBetweenRuns);
-                                }
-
-                                if(runCount.incrementAndGet() % consecutiveCallsToRemoveDevices == 0){
-                                    for(ApplicationQueueManager applicationQueueManager : queueManagerMap.asMap().values()){
-                                        try {
-                                            applicationQueueManager.asyncCheckForInactiveDevices();
-                                        }catch (Exception inactiveDeviceException){
-                                            logger.error("Inactive Device Get failed",inactiveDeviceException);
-                                        }
-                                    }
-                                    //clear everything
-                                    runCount.set(0);
-                                }
-                            }
+        try {
+            while (running && consumerNumber <= targetConsumers.get()) {
 
-                            else{
-                                logger.info("no messages...sleep...{}", sleepWhenNoneFound);
-                                Thread.sleep(sleepWhenNoneFound);
-                            }
+                try {
+                    //wait for a send slot before taking messages off the queue
+                    batchesInFlight.acquire();
+                    boolean dispatched = false;
+
+                    try {
+                        long start = System.currentTimeMillis();
+                        Timer.Context timerContext = dequeueTimer.time();
+                        List<QueueMessage> messages;
+                        try {
+                            messages = queueManager.getMessages(getBatchSize(), MESSAGE_TRANSACTION_TIMEOUT, pollWait, ApplicationQueueMessage.class);
+                        } finally {
                             timerContext.stop();
-                            //send to the providers
-                            consecutiveExceptions.set(0);
-                        }catch (Exception ex){
-                            logger.error("failed to dequeue",ex);
-                            try {
-                                long sleeptime = sleepWhenNoneFound*consecutiveExceptions.incrementAndGet();
-                                long maxSleep = 15000;
-                                sleeptime = sleeptime > maxSleep ? maxSleep : sleeptime ;
-                                logger.info("sleeping due to failures {} ms", sleeptime);
-                                Thread.sleep(sleeptime);
-                            }catch (InterruptedException ie){
-                                logger.info("sleep interrupted");
-                            }
                         }
-                    })
-                    .toBlocking().lastOrDefault(null);
 
+                        if (messages.size() > 0) {
+                            logger.info("retrieved batch of {} messages from queue {} ", messages.size(), queueName);
+                            dispatch(messages);
+                            dispatched = true;
+                        } else if (System.currentTimeMillis() - start < pollWait / 2) {
+                            //the queue didn't wait for messages, don't spin on it
+                            logger.debug("no messages...sleep...{}", DEFAULT_SLEEP);
+                            Thread.sleep(DEFAULT_SLEEP);
+                        }
+                    } finally {
+                        if (!dispatched) {
+                            batchesInFlight.release();
+                        }
+                    }
+
+                    consecutiveExceptions = 0;
+
+                    if (sleepBetweenRuns > 0) {
+                        logger.info("sleep between rounds...sleep...{}", sleepBetweenRuns);
+                        Thread.sleep(sleepBetweenRuns);
+                    }
+                } catch (InterruptedException ie) {
+                    logger.info("QueueListener: consumer {} interrupted", consumerNumber);
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception ex) {
+                    logger.error("failed to dequeue", ex);
+                    try {
+                        long sleeptime = Math.min(MAX_BACK_OFF, DEFAULT_SLEEP << Math.min(consecutiveExceptions++, 10));
+                        logger.info("sleeping due to failures {} ms", sleeptime);
+                        Thread.sleep(sleeptime);
+                    } catch (InterruptedException ie) {
+                        logger.info("sleep interrupted");
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            consumerCounter.dec();
+        }
+    }
+
+    /**
+     * Send the messages to their providers on the send pool, commit them once every provider is done with them.  The
+     * send slot taken by the consumer is released when the batch completes
+     */
+    private void dispatch(final List<QueueMessage> messages) throws ExecutionException {
+        HashMap<UUID, List<QueueMessage>> messageMap = new HashMap<>(messages.size());
+
+        //group messages into hash map by app id
+        for (QueueMessage message : messages) {
+            //TODO: stop copying around this area as it gets notification specific.
+            ApplicationQueueMessage queueMessage = (ApplicationQueueMessage) message.getBody();
+            UUID applicationId = queueMessage.getApplicationId();
+
+            //Groups queue messages by application Id, ( they are all probably going to the same place )
+            List<QueueMessage> applicationQueueMessages = messageMap.get(applicationId);
+            if (applicationQueueMessages == null) {
+                applicationQueueMessages = new ArrayList<>();
+                messageMap.put(applicationId, applicationQueueMessages);
+            }
+            applicationQueueMessages.add(message);
+        }
+
+        //send each set of app ids together
+        List<Observable<?>> sends = new ArrayList<>(messageMap.size());
+        for (Map.Entry<UUID, List<QueueMessage>> entry : messageMap.entrySet()) {
+            ApplicationQueueManager manager = queueManagerMap.get(entry.getKey());
+            logger.info("send batch for app {} of {} messages", entry.getKey(), entry.getValue().size());
+            sends.add(Observable.defer(() -> manager.sendBatchToProviders(entry.getValue(), queueName)));
+        }
+
+        final long now = System.currentTimeMillis();
+        final Timer.Context sendContext = sendTimer.time();
+        inFlightCounter.inc();
+
+        Observable.merge(sends)
+            .subscribeOn(sendScheduler)
+            .finallyDo(() -> {
+                sendContext.stop();
+                inFlightCounter.dec();
+                batchesInFlight.release();
+            })
+            .subscribe(
+                sent -> {},
+                throwable -> logger.error("failed to send batch of " + messages.size() + " messages, they will be retried", throwable),
+                () -> {
+                    try {
+                        queueManager.commitMessages(messages);
+                    } catch (Exception e) {
+                        logger.error("failed to commit batch", e);
+                    }
+
+                    meter.mark(messages.size());
+                    updateDeliveryLag(messages);
+                    logger.info("sent batch {} messages duration {} ms", messages.size(), System.currentTimeMillis() - now);
+
+                    if (runCount.incrementAndGet() % consecutiveCallsToRemoveDevices == 0) {
+                        checkForInactiveDevices();
+                    }
+                });
+    }
 
+    /**
+     * Record how long each message waited between being queued and handed to its provider
+     */
+    private void updateDeliveryLag(final List<QueueMessage> messages){
+        final long now = System.currentTimeMillis();
+        for (QueueMessage message : messages) {
+            long queued = ((ApplicationQueueMessage) message.getBody()).getQueued();
+            //messages queued before the timestamp was added don't have one
+            if (queued > 0) {
+                deliveryLag.update(Math.max(0, now - queued), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void checkForInactiveDevices(){
+        for(ApplicationQueueManager applicationQueueManager : queueManagerMap.asMap().values()){
+            try {
+                applicationQueueManager.asyncCheckForInactiveDevices();
+            }catch (Exception inactiveDeviceException){
+                logger.error("Inactive Device Get failed",inactiveDeviceException);
+            }
         }
     }
 
@@ -273,17 +411,7 @@ public class QueueListener  {
                          @Override
                          public ApplicationQueueManager load(final UUID applicationId) {
                              try {
-                                 EntityManager entityManager = emf.getEntityManager(applicationId);
-                                 ServiceManager serviceManager = smf.getServiceManager(applicationId);
-
-                                 ApplicationQueueManagerImpl manager = new ApplicationQueueManagerImpl(
-                                         new JobScheduler(serviceManager, entityManager),
-                                         entityManager,
-                                         queueManager,
-                                         metricsService,
-                                         properties
-                                 );
-                                 return manager;
+                                 return createApplicationQueueManager(applicationId, queueManager);
                              } catch (Exception e) {
                                  logger.error("Could not instantiate queue manager", e);
                                  return null;
@@ -292,17 +420,40 @@ public class QueueListener  {
                      });
     }
 
+    /**
+     * Create the manager that sends the application's notifications to their providers
+     */
+    protected ApplicationQueueManager createApplicationQueueManager(final UUID applicationId,
+                                                                    final QueueManager queueManager) throws Exception {
+        EntityManager entityManager = emf.getEntityManager(applicationId);
+        ServiceManager serviceManager = smf.getServiceManager(applicationId);
+
+        return new ApplicationQueueManagerImpl(
+                new JobScheduler(serviceManager, entityManager),
+                entityManager,
+                queueManager,
+                metricsService,
+                new BufferedReceiptSink(entityManager, mapManagerFactory, metricsService, properties),
+                properties
+        );
+    }
+
     public void stop(){
         logger.info("stop processes");
 
-        if(futures == null){
+        running = false;
+
+        if(consumerPool == null){
             return;
         }
-        for(Future future : futures){
+
+        scaler.shutdownNow();
+        for(Future future : consumers.values()){
             future.cancel(true);
         }
 
-        pool.shutdownNow();
+        consumerPool.shutdownNow();
+        sendPool.shutdownNow();
     }
 
 
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications;
+
+
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.entities.Notification;
+import org.apache.usergrid.persistence.entities.Receipt;
+
+
+/**
+ * Collects the receipts produced while delivering a notification.  Implementations are free to buffer receipts and
+ * write them in batches, so callers must flush when a notification finishes or before the sink is discarded.
+ */
+public interface ReceiptSink {
+
+    String PROPERTY_BATCH_SIZE = "usergrid.notifications.receipts.batchSize";
+
+    String PROPERTY_FLUSH_INTERVAL = "usergrid.notifications.receipts.flushInterval";
+
+    String PROPERTY_TTL = "usergrid.notifications.receipts.ttl";
+
+    String PROPERTY_PROMOTE_FAILURES = "usergrid.notifications.receipts.failures.entities";
+
+    /**
+     * Record a receipt for a device the notification was delivered to
+     * @param notification
+     * @param receipt
+     * @throws Exception
+     */
+    void sent( Notification notification, Receipt receipt ) throws Exception;
+
+    /**
+     * Record a receipt for a device the notification could not be delivered to.  The receipt must have its error code
+     * set
+     * @param notification
+     * @param receipt
+     * @throws Exception
+     */
+    void failed( Notification notification, Receipt receipt ) throws Exception;
+
+    /**
+     * Write out any buffered receipts for the notification
+     * @param notificationId
+     * @throws Exception
+     */
+    void flush( UUID notificationId ) throws Exception;
+
+    /**
+     * Write out all buffered receipts
+     * @throws Exception
+     */
+    void flush() throws Exception;
+
+    /**
+     * Read back the receipt written for the device, null if none has been flushed
+     * @param notificationId
+     * @param deviceId
+     * @return
+     */
+    Receipt getReceipt( UUID notificationId, UUID deviceId );
+}
@@ -37,11 +37,13 @@ public class TaskManager {
     private AtomicLong successes = new AtomicLong();
     private AtomicLong failures = new AtomicLong();
     private EntityManager em;
+    private ReceiptSink receiptSink;
     private boolean hasFinished;
 
-    public TaskManager(EntityManager em, Notification notification) {
+    public TaskManager(EntityManager em, Notification notification, ReceiptSink receiptSink) {
         this.em = em;
         this.notification = notification;
+        this.receiptSink = receiptSink;
         hasFinished = false;
     }
 
@@ -67,7 +69,7 @@ public class TaskManager {
                     logger.debug("notification {} sent to device {}. saving receipt.", notification.getUuid(), deviceUUID);
                 }
                 receipt.setSent(System.currentTimeMillis());
-                this.saveReceipt(notification, deviceRef, receipt,false);
+                receiptSink.sent(notification, receipt);
                 if (logger.isDebugEnabled()) {
                     logger.debug("notification {} receipt saved for device {}", notification.getUuid(), deviceUUID);
                 }
@@ -113,7 +115,7 @@ public class TaskManager {
             }
             receipt.setErrorCode(code);
             receipt.setErrorMessage(message);
-            this.saveReceipt(notification, new SimpleEntityRef(Device.ENTITY_TYPE, deviceUUID), receipt,true);
+            receiptSink.failed(notification, receipt);
             if (logger.isDebugEnabled()) {
                 logger.debug("notification {} receipt saved for device {}", notification.getUuid(), deviceUUID);
             }
@@ -122,24 +124,6 @@ public class TaskManager {
         }
     }
 
-    /*
-    * called from TaskManager - creates a persistent receipt and updates the
-    * passed one w/ the UUID
-    */
-    private void saveReceipt(EntityRef notification, EntityRef device, Receipt receipt, boolean hasError) throws Exception {
-        if (this.notification.getDebug() || hasError) {
-            if (receipt.getUuid() == null) {
-                Receipt savedReceipt = em.create(receipt);
-                receipt.setUuid(savedReceipt.getUuid());
-                List<EntityRef> entities = Arrays.asList(notification, device);
-//              em.addToCollections(entities, Notification.RECEIPTS_COLLECTION, savedReceipt);
-            } else {
-                em.update(receipt);
-            }
-        }
-
-    }
-
     protected void replaceProviderId(EntityRef device, Notifier notifier,
                                      String newProviderId) throws Exception {
         Object value = em.getProperty(device, notifier.getName()
@@ -159,6 +143,10 @@ public class TaskManager {
     }
     public void finishedBatch(boolean fetch, boolean force) throws Exception {
 
+        //write out the receipts of every batch, so receipts and counts of successful sends aren't held until the
+        //sink is discarded and lost on shutdown.  This comes before the statistics so they never lag behind the counts
+        receiptSink.flush(notification.getUuid());
+
         if (notification.getDebug() || getFailures() > 0 || force) {
             long successes = this.successes.get(); //reset counters
             long failures = this.failures.get(); //reset counters
@@ -35,17 +35,36 @@ import org.apache.usergrid.services.notifications.TaskTracker;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Batches devices by payload and sends each batch as a GCM multicast through the shared {@link GCMClient}.  A batch
+ * is sent as soon as it has {@link GCMClient#MAX_MULTICAST_SIZE} ids, or once it has waited the client's flush
+ * interval, so batches go out while more devices are still being added.  doneSendingNotifications() sends whatever
+ * is left and waits for the batches in flight, or only for the ones carrying the given trackers.
+ *
+ * Unless a client is given, the adapter takes a reference to the shared client for its endpoint when it first sends
+ * and gives it back on {@link #stop()}, so the client is shut down once no adapter is using it.  Adapters that are
+ * only used to validate payloads never take one.
+ */
 public class GCMAdapter implements ProviderAdapter {
 
     private static final Logger LOG = LoggerFactory.getLogger(GCMAdapter.class);
-    private static final int SEND_RETRIES = 3;
-    private static int BATCH_SIZE = 1000;
+    private static int BATCH_SIZE = GCMClient.MAX_MULTICAST_SIZE;
     private final Notifier notifier;
+    private final Properties properties;
+    private GCMClient client;
+    private final AtomicBoolean stopped = new AtomicBoolean();
     private EntityManager entityManager;
 
     private ConcurrentHashMap<Long,Batch> batches;
+    //the send each tracker is waiting on, removed once the send completes
+    private final Map<TaskTracker, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Date> inactiveDevices = new ConcurrentHashMap<>();
 
     private static final String ttlKey = "time_to_live";
     private static final String priorityKey = "priority";
@@ -53,28 +72,69 @@ public class GCMAdapter implements ProviderAdapter {
 
 
     public GCMAdapter(EntityManager entityManager,Notifier notifier){
+        this(entityManager, notifier, new Properties());
+    }
+
+    /**
+     * Use the shared client for the endpoint in the properties, it's released when the adapter is stopped
+     */
+    public GCMAdapter(EntityManager entityManager,Notifier notifier, Properties properties){
+        this(entityManager, notifier, null, properties);
+    }
+
+    /**
+     * Use the given client, the caller owns it and shuts it down
+     */
+    public GCMAdapter(EntityManager entityManager,Notifier notifier, GCMClient client){
+        this(entityManager, notifier, client, null);
+    }
+
+    private GCMAdapter(EntityManager entityManager,Notifier notifier, GCMClient client, Properties properties){
         this.notifier = notifier;
         this.entityManager = entityManager;
+        this.client = client;
+        this.properties = properties;
         batches = new ConcurrentHashMap<>();
     }
+
+    /**
+     * The client to send with, taking the shared one on first use
+     */
+    private synchronized GCMClient getClient() {
+        if (client == null) {
+            if (stopped.get()) {
+                throw new IllegalStateException("GCM adapter for notifier " + notifier.getName() + " is stopped");
+            }
+            client = GCMClient.getInstance(properties);
+        }
+        return client;
+    }
     @Override
     public void testConnection() throws Exception {
-        Sender sender = new Sender(notifier.getApiKey());
-        Message message = new Message.Builder().addData("registration_id", "").build();
-        List<String> ids = new ArrayList<String>();
-        ids.add("device_token");
+        Map<String, Object> message = new HashMap<String, Object>();
+        message.put(dataKey, Collections.singletonMap("registration_id", ""));
+        //an adapter that hasn't sent yet only borrows the shared client, it's usually thrown away after the test
+        final boolean borrowed;
+        final GCMClient testClient;
+        synchronized (this) {
+            borrowed = client == null;
+            testClient = borrowed ? GCMClient.getInstance(properties) : client;
+        }
         try {
-            MulticastResult result = sender.send(message, ids, 1);
+            List<GCMClient.Result> result = testClient.send(notifier.getApiKey(), message, Collections.singletonList("device_token"));
             LOG.debug("testConnection result: {}", result);
         } catch (InvalidRequestException e){
-            // do nothing, we don't have a valid device token to test with
+            if(e.getHttpStatusCode() == 401){
+                throw new InvalidRequestException(401, Constants.ERROR_INVALID_REGISTRATION);
+            }
+            // otherwise do nothing, we don't have a valid device token to test with
             LOG.debug("here for testing only");
         }
         catch (IOException e) {
-            if(isInvalidRequestException(e)){
-                throw new InvalidRequestException(401, Constants.ERROR_INVALID_REGISTRATION);
-            }else {
-                throw new ConnectionException(e.getMessage(), e);
+            throw new ConnectionException(e.getMessage(), e);
+        } finally {
+            if (borrowed) {
+                testClient.release();
             }
         }
     }
@@ -98,31 +158,47 @@ public class GCMAdapter implements ProviderAdapter {
     }
 
     private Batch getBatch( Map<String, Object> payload) {
-        synchronized (this) {
-            long hash = MurmurHash.hash64(payload);
-            Batch batch = batches.get(hash);
-            if (batch == null && payload != null) {
-                batch = new Batch(notifier, payload);
-                batches.put(hash, batch);
-            }
-            return batch;
-        }
+        return batches.computeIfAbsent(MurmurHash.hash64(payload), hash -> new Batch(payload));
     }
 
     @Override
     public void doneSendingNotifications() throws Exception {
-        synchronized (this) {
-            for (Batch batch : batches.values()) {
-                batch.send();
+        sendOpenBatches();
+        awaitInFlight(new ArrayList<CompletableFuture<Void>>(inFlight.values()));
+    }
+
+    @Override
+    public void doneSendingNotifications(Collection<TaskTracker> trackers) throws Exception {
+        sendOpenBatches();
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        for (TaskTracker tracker : trackers) {
+            CompletableFuture<Void> future = inFlight.get(tracker);
+            if (future != null) {
+                futures.add(future);
             }
         }
+        awaitInFlight(futures);
+    }
+
+    /**
+     * Hand every partial batch to the client.  Once this returns every tracker added before it is either complete
+     * or in flight
+     */
+    private void sendOpenBatches() throws Exception {
+        for (Batch batch : batches.values()) {
+            batch.send();
+        }
+    }
+
+    private void awaitInFlight(Collection<CompletableFuture<Void>> futures) {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
     }
 
     @Override
     public void removeInactiveDevices( ) throws Exception {
-        Batch batch = getBatch( null);
-        if(batch != null) {
-            Map<String,Date> map = batch.getAndClearInactiveDevices();
+        Map<String,Date> map = new HashMap<String, Date>(inactiveDevices);
+        inactiveDevices.keySet().removeAll(map.keySet());
+        if(map.size() > 0) {
             InactiveDeviceManager deviceManager = new InactiveDeviceManager(notifier,entityManager);
             deviceManager.removeInactiveDevices(map);
         }
@@ -157,14 +233,19 @@ public class GCMAdapter implements ProviderAdapter {
 
     @Override
     public void stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
         try {
+            doneSendingNotifications();
+        }catch (Exception e){
+            LOG.error("error while trying to send on stop",e);
+        } finally {
             synchronized (this) {
-                for (Batch batch : batches.values()) {
-                    batch.send();
+                if (properties != null && client != null) {
+                    client.release();
                 }
             }
-        }catch (Exception e){
-            LOG.error("error while trying to send on stop",e);
         }
     }
 
@@ -173,116 +254,145 @@ public class GCMAdapter implements ProviderAdapter {
         return notifier;
     }
 
-    // this is a hack because Google library can't parse exceptions properly when you have a bad API key
-    private boolean isInvalidRequestException(IOException ie){
-        String message = ie.getMessage();
-        return message.contains("Could not post JSON requests to GCM");
+    /**
+     * Build the GCM message for a payload, the ttl and priority are sent as options and everything else as data
+     */
+    static Map<String, Object> buildMessage(Map<String, Object> payload) {
+        Map<String, Object> message = new HashMap<String, Object>();
+        Map<String, String> data = new HashMap<String, String>();
+        for (Map.Entry<String, Object> entry : payload.entrySet()) {
+            if (ttlKey.equals(entry.getKey())) {
+                Object ttl = entry.getValue();
+                message.put(ttlKey, ttl instanceof Number ? ((Number) ttl).intValue() : Integer.parseInt(String.valueOf(ttl)));
+            } else if (priorityKey.equals(entry.getKey())) {
+                // anything but high is sent as normal
+                message.put(priorityKey, "high".equalsIgnoreCase(String.valueOf(entry.getValue())) ? "high" : "normal");
+            } else if (entry.getValue() != null) {
+                data.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        message.put(dataKey, data);
+        return message;
     }
 
     private class Batch {
-        private Notifier notifier;
-        private Map payload;
-        private List<String> ids;
-        private List<TaskTracker> trackers;
-        private Map<String, Date> inactiveDevices = new HashMap<String, Date>();
-
-        Batch(Notifier notifier, Map<String,Object> payload) {
-            this.notifier = notifier;
-            this.payload = payload;
-            this.ids = new ArrayList<String>();
-            this.trackers = new ArrayList<TaskTracker>();
-        }
+        private final Map<String, Object> message;
+        private LinkedHashMap<String, TaskTracker> trackers;
+        private ScheduledFuture<?> flush;
 
-        synchronized Map<String, Date> getAndClearInactiveDevices() {
-            Map<String, Date> map = inactiveDevices;
-            inactiveDevices = new HashMap<String, Date>();
-            return map;
+        Batch(Map<String,Object> payload) {
+            this.message = buildMessage(payload);
+            this.trackers = new LinkedHashMap<String, TaskTracker>();
         }
 
         void add(String id, TaskTracker tracker) throws Exception {
+            boolean full = false;
             synchronized (this) {
-                if(!ids.contains(id)) { //dedupe to a device
-                    ids.add(id);
-                    trackers.add(tracker);
-                    if (ids.size() == BATCH_SIZE) {
-                        send();
-                    }
-                }else{
+                if (trackers.containsKey(id)) { //dedupe to a device
                     tracker.completed();
+                    return;
                 }
-
+                trackers.put(id, tracker);
+                if (trackers.size() == 1) {
+                    //don't let a partial batch wait for doneSendingNotifications
+                    flush = getClient().getFlushScheduler().schedule(() -> {
+                        try {
+                            send();
+                        } catch (Exception e) {
+                            LOG.error("failed to flush GCM batch", e);
+                        }
+                    }, getClient().getFlushInterval(), TimeUnit.MILLISECONDS);
+                }
+                full = trackers.size() >= BATCH_SIZE;
+            }
+            if (full) {
+                send();
             }
         }
 
-
+        /**
+         * Hand the ids collected so far to the client, this doesn't wait for the response
+         */
         void send() throws Exception {
+            final LinkedHashMap<String, TaskTracker> sending;
+            final CompletableFuture<Void> future = new CompletableFuture<Void>();
             synchronized (this) {
-                if (ids.size() == 0)
+                if (trackers.size() == 0)
                     return;
-                Sender sender = new Sender(notifier.getApiKey());
-                Message.Builder builder = new Message.Builder();
-                if(payload.containsKey(ttlKey)){
-                    builder.timeToLive((int)payload.get(ttlKey));
-                    payload.remove(ttlKey);
+                sending = trackers;
+                trackers = new LinkedHashMap<String, TaskTracker>();
+                if (flush != null) {
+                    flush.cancel(false);
+                    flush = null;
                 }
-                if(payload.containsKey(priorityKey)){
-
-                    try{
-                        builder.priority(Message.Priority.valueOf(payload.get(priorityKey).toString().toUpperCase()));
-                    }catch(Exception e){
-                        // couldn't determine the priority from the notification, default to "normal"
-                        builder.priority(Message.Priority.NORMAL);
-                    }
-                    payload.remove(priorityKey);
-
+                //register before leaving the lock so a concurrent doneSendingNotifications sees these trackers
+                for (TaskTracker tracker : sending.values()) {
+                    inFlight.put(tracker, future);
                 }
+            }
 
-                // add our source notification payload data into the Message Builder
-                // Message.Builder requires the payload to be Map<String,String> so blindly cast
-                Map<String,String> dataMap = (Map<String,String>) payload;
-                dataMap.forEach( (key, value) -> builder.addData(key, value));
-
-                Message message = builder.build();
-                MulticastResult multicastResult;
-                try{
-
-                    multicastResult = sender.send(message, ids, SEND_RETRIES);
-
-                }catch (IOException e) {
-                    if(isInvalidRequestException(e)){
-                        String error = Constants.ERROR_INVALID_REGISTRATION;
-                        for(int i=0; i < ids.size(); i++){
-                            trackers.get(i).failed(error, error);
-                        }
-                        this.ids.clear();
-                        this.trackers.clear();
+            final List<String> ids = new ArrayList<String>(sending.keySet());
+            final List<TaskTracker> batchTrackers = new ArrayList<TaskTracker>(sending.values());
 
-                        return;
-                        
-                    }else {
-                        throw new ConnectionException(e.getMessage(), e);
+            getClient().sendAsync(notifier.getApiKey(), message, ids).whenComplete((results, throwable) -> {
+                try {
+                    if (throwable != null) {
+                        failed(ids, batchTrackers, throwable);
+                    } else {
+                        completed(ids, batchTrackers, results);
+                    }
+                } finally {
+                    for (TaskTracker tracker : batchTrackers) {
+                        inFlight.remove(tracker, future);
                     }
+                    future.complete(null);
                 }
+            });
+        }
 
-
-                LOG.debug("sendNotification result: {}", multicastResult);
-
-                for (int i = 0; i < multicastResult.getResults().size(); i++) {
-                    Result result = multicastResult.getResults().get(i);
-
+        private void completed(List<String> ids, List<TaskTracker> batchTrackers, List<GCMClient.Result> results) {
+            LOG.debug("sendNotification results: {}", results.size());
+            for (int i = 0; i < results.size(); i++) {
+                GCMClient.Result result = results.get(i);
+                try {
                     if (result.getMessageId() != null) {
                         String canonicalRegId = result.getCanonicalRegistrationId();
-                        trackers.get(i).completed(canonicalRegId);
+                        batchTrackers.get(i).completed(canonicalRegId);
                     } else {
-                        String error = result.getErrorCodeName();
-                        trackers.get(i).failed(error, error);
+                        String error = result.getErrorCode();
+                        batchTrackers.get(i).failed(error, error);
                         if (Constants.ERROR_NOT_REGISTERED.equals(error) || Constants.ERROR_INVALID_REGISTRATION.equals(error)) {
                             inactiveDevices.put(ids.get(i), new Date());
                         }
                     }
+                } catch (Exception e) {
+                    LOG.error("failed to track GCM result", e);
+                }
+            }
+        }
+
+        private void failed(List<String> ids, List<TaskTracker> batchTrackers, Throwable throwable) {
+            Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause instanceof GCMClient.GCMException) {
+                cause = cause.getCause();
+            }
+            String code;
+            String error;
+            if (cause instanceof InvalidRequestException && ((InvalidRequestException) cause).getHttpStatusCode() == 401) {
+                // the api key was rejected
+                code = Constants.ERROR_INVALID_REGISTRATION;
+                error = Constants.ERROR_INVALID_REGISTRATION;
+            } else {
+                LOG.error("failed to send GCM batch of " + ids.size() + " devices", cause);
+                code = Constants.ERROR_UNAVAILABLE;
+                error = cause.getMessage();
+            }
+            for (TaskTracker tracker : batchTrackers) {
+                try {
+                    tracker.failed(code, error);
+                } catch (Exception e) {
+                    LOG.error("failed to track GCM failure", e);
                 }
-                this.ids.clear();
-                this.trackers.clear();
             }
         }
     }
@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.gcm;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.utils.JsonUtils;
+
+import com.google.android.gcm.server.Constants;
+import com.google.android.gcm.server.InvalidRequestException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * Sends multicast messages to the GCM HTTP endpoint.  One client is shared by all the adapters sending to the same
+ * endpoint, so connections are pooled and kept alive across notifiers and batches, and the multicast requests of a
+ * batch go out concurrently on the client's send pool.
+ *
+ * Requests that fail with a 5xx or an I/O error, and the ids GCM reports as Unavailable or InternalServerError, are
+ * retried with exponential backoff.
+ */
+public class GCMClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger( GCMClient.class );
+
+    public static final String PROPERTY_URL = "usergrid.notifications.gcm.url";
+    public static final String PROPERTY_MAX_CONNECTIONS = "usergrid.notifications.gcm.maxConnections";
+    public static final String PROPERTY_SEND_THREADS = "usergrid.notifications.gcm.sendThreads";
+    public static final String PROPERTY_RETRIES = "usergrid.notifications.gcm.retries";
+    public static final String PROPERTY_BACKOFF = "usergrid.notifications.gcm.backoff";
+    public static final String PROPERTY_FLUSH_INTERVAL = "usergrid.notifications.gcm.flushInterval";
+
+    public static final String DEFAULT_URL = "https://gcm-http.googleapis.com/gcm/send";
+
+    /**
+     * GCM won't take more than this many registration ids in one request
+     */
+    public static final int MAX_MULTICAST_SIZE = 1000;
+
+    private static final int MAX_BACKOFF = 60000;
+
+    private static final ConcurrentHashMap<String, GCMClient> clients = new ConcurrentHashMap<>();
+
+    private final String url;
+    private final int retries;
+    private final long backoff;
+    private final long flushInterval;
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService sendPool;
+    private final ScheduledExecutorService flushScheduler;
+
+    //adapters holding this client, guarded by the clients map
+    private int references;
+
+
+    public GCMClient( final String url, final int maxConnections, final int sendThreads, final int retries,
+                      final long backoff, final long flushInterval ) {
+        this.url = url;
+        this.retries = retries;
+        this.backoff = backoff;
+        this.flushInterval = flushInterval;
+
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal( maxConnections );
+        connectionManager.setDefaultMaxPerRoute( maxConnections );
+
+        final RequestConfig requestConfig =
+            RequestConfig.custom().setConnectTimeout( 10000 ).setSocketTimeout( 30000 ).build();
+
+        this.httpClient = HttpClients.custom().setConnectionManager( connectionManager )
+                                     .setDefaultRequestConfig( requestConfig ).build();
+        this.sendPool = Executors.newFixedThreadPool( sendThreads,
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "GCMClient-send-%d" ).build() );
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "GCMClient-flush" ).build() );
+    }
+
+
+    /**
+     * Get the shared client for the endpoint in the properties, creating it on first use.  Every call must be matched
+     * by a {@link #release()}, the client is shut down when the last holder releases it
+     */
+    public static GCMClient getInstance( final Properties properties ) {
+        final String url = properties.getProperty( PROPERTY_URL, DEFAULT_URL );
+        synchronized ( clients ) {
+            final GCMClient client = clients.computeIfAbsent( url, key -> new GCMClient( key,
+                Integer.parseInt( properties.getProperty( PROPERTY_MAX_CONNECTIONS, "50" ) ),
+                Integer.parseInt( properties.getProperty( PROPERTY_SEND_THREADS, "20" ) ),
+                Integer.parseInt( properties.getProperty( PROPERTY_RETRIES, "3" ) ),
+                Long.parseLong( properties.getProperty( PROPERTY_BACKOFF, "1000" ) ),
+                Long.parseLong( properties.getProperty( PROPERTY_FLUSH_INTERVAL, "1000" ) ) ) );
+            client.references++;
+            return client;
+        }
+    }
+
+
+    /**
+     * Give back a client from {@link #getInstance(Properties)}, shutting it down if nothing else holds it
+     */
+    public void release() {
+        synchronized ( clients ) {
+            if ( --references > 0 ) {
+                return;
+            }
+            clients.remove( url, this );
+        }
+        shutdown();
+    }
+
+
+    /**
+     * Stop the pools and close the connections.  Sends already on the pool are finished first
+     */
+    public void shutdown() {
+        flushScheduler.shutdown();
+        sendPool.shutdown();
+        try {
+            if ( !sendPool.awaitTermination( 30, TimeUnit.SECONDS ) ) {
+                LOG.warn( "GCM sends to {} still running after 30 seconds, closing the connections", url );
+            }
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            httpClient.close();
+        }
+        catch ( IOException e ) {
+            LOG.warn( "Failed to close the GCM connections to " + url, e );
+        }
+    }
+
+
+    /**
+     * How long a partial batch may wait before it's sent
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+
+    public ScheduledExecutorService getFlushScheduler() {
+        return flushScheduler;
+    }
+
+
+    /**
+     * Send the message to the ids on the send pool.  The results are in the same order as the ids
+     */
+    public CompletableFuture<List<Result>> sendAsync( final String apiKey, final Map<String, Object> message,
+                                                      final List<String> ids ) {
+        return CompletableFuture.supplyAsync( () -> {
+            try {
+                return send( apiKey, message, ids );
+            }
+            catch ( IOException e ) {
+                throw new GCMException( e );
+            }
+        }, sendPool );
+    }
+
+
+    /**
+     * Send the message to the ids, retrying the ids that can be retried.  The results are in the same order as the
+     * ids
+     *
+     * @throws InvalidRequestException if GCM rejects the request, e.g. for a bad api key
+     * @throws IOException if GCM can't be reached after all the retries
+     */
+    public List<Result> send( final String apiKey, final Map<String, Object> message, final List<String> ids )
+        throws IOException {
+
+        if ( ids.size() > MAX_MULTICAST_SIZE ) {
+            throw new IllegalArgumentException( "GCM allows at most " + MAX_MULTICAST_SIZE + " ids per request" );
+        }
+
+        final Result[] results = new Result[ids.size()];
+
+        //positions in ids that still need a result
+        List<Integer> pending = new ArrayList<>( ids.size() );
+        for ( int i = 0; i < ids.size(); i++ ) {
+            pending.add( i );
+        }
+
+        for ( int attempt = 0; ; attempt++ ) {
+            final List<String> pendingIds = new ArrayList<>( pending.size() );
+            for ( int position : pending ) {
+                pendingIds.add( ids.get( position ) );
+            }
+
+            List<Result> attemptResults;
+            try {
+                attemptResults = post( apiKey, message, pendingIds );
+            }
+            catch ( InvalidRequestException e ) {
+                if ( e.getHttpStatusCode() / 100 != 5 || attempt >= retries ) {
+                    throw e;
+                }
+                LOG.warn( "GCM returned {}, retrying {} ids", e.getHttpStatusCode(), pendingIds.size() );
+                sleep( attempt );
+                continue;
+            }
+            catch ( IOException e ) {
+                if ( attempt >= retries ) {
+                    throw e;
+                }
+                LOG.warn( "Unable to reach GCM, retrying {} ids: {}", pendingIds.size(), e.getMessage() );
+                sleep( attempt );
+                continue;
+            }
+
+            final List<Integer> retry = new ArrayList<>();
+            for ( int i = 0; i < pending.size(); i++ ) {
+                final Result result = attemptResults.get( i );
+                results[pending.get( i )] = result;
+                if ( result.isRetryable() ) {
+                    retry.add( pending.get( i ) );
+                }
+            }
+
+            if ( retry.isEmpty() || attempt >= retries ) {
+                break;
+            }
+
+            pending = retry;
+            sleep( attempt );
+        }
+
+        final List<Result> resultList = new ArrayList<>( results.length );
+        for ( Result result : results ) {
+            resultList.add( result );
+        }
+        return resultList;
+    }
+
+
+    /**
+     * Post one multicast request
+     */
+    private List<Result> post( final String apiKey, final Map<String, Object> message, final List<String> ids )
+        throws IOException {
+
+        final Map<String, Object> body = new HashMap<>( message );
+        body.put( "registration_ids", ids );
+
+        final HttpPost post = new HttpPost( url );
+        post.setHeader( "Authorization", "key=" + apiKey );
+        post.setEntity( new StringEntity( JsonUtils.mapToJsonString( body ), ContentType.APPLICATION_JSON ) );
+
+        try ( CloseableHttpResponse response = httpClient.execute( post ) ) {
+            final int status = response.getStatusLine().getStatusCode();
+            final String responseBody = response.getEntity() != null ? EntityUtils.toString( response.getEntity() ) : "";
+
+            if ( status != HttpStatus.SC_OK ) {
+                throw new InvalidRequestException( status, responseBody );
+            }
+
+            return parseResults( responseBody, ids.size() );
+        }
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    static List<Result> parseResults( final String responseBody, final int expected ) throws IOException {
+        final Object parsed;
+        try {
+            parsed = JsonUtils.parse( responseBody );
+        }
+        catch ( RuntimeException e ) {
+            throw new IOException( "Could not parse GCM response: " + responseBody, e );
+        }
+        if ( !( parsed instanceof Map ) || !( ( ( Map ) parsed ).get( "results" ) instanceof List ) ) {
+            throw new IOException( "Could not parse GCM response: " + responseBody );
+        }
+
+        final List<Map<String, Object>> entries = ( List<Map<String, Object>> ) ( ( Map ) parsed ).get( "results" );
+        if ( entries.size() != expected ) {
+            throw new IOException( "GCM returned " + entries.size() + " results for " + expected + " ids" );
+        }
+
+        final List<Result> results = new ArrayList<>( entries.size() );
+        for ( Map<String, Object> entry : entries ) {
+            results.add( new Result( ( String ) entry.get( "message_id" ), ( String ) entry.get( "registration_id" ),
+                ( String ) entry.get( Constants.JSON_ERROR ) ) );
+        }
+        return results;
+    }
+
+
+    private void sleep( final int attempt ) throws IOException {
+        final long delay = Math.min( MAX_BACKOFF, backoff << Math.min( attempt, 16 ) );
+        try {
+            //jitter so retries from concurrent batches don't land together
+            Thread.sleep( delay / 2 + ThreadLocalRandom.current().nextLong( delay / 2 + 1 ) );
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting to retry", e );
+        }
+    }
+
+
+    /**
+     * The outcome of sending to one registration id
+     */
+    public static class Result {
+
+        private final String messageId;
+        private final String canonicalRegistrationId;
+        private final String errorCode;
+
+
+        public Result( final String messageId, final String canonicalRegistrationId, final String errorCode ) {
+            this.messageId = messageId;
+            this.canonicalRegistrationId = canonicalRegistrationId;
+            this.errorCode = errorCode;
+        }
+
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+
+        public String getCanonicalRegistrationId() {
+            return canonicalRegistrationId;
+        }
+
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+
+        boolean isRetryable() {
+            return Constants.ERROR_UNAVAILABLE.equals( errorCode ) || Constants.ERROR_INTERNAL_SERVER_ERROR
+                .equals( errorCode );
+        }
+    }
+
+
+    /**
+     * Wraps the IOException of an async send
+     */
+    public static class GCMException extends RuntimeException {
+
+        public GCMException( final IOException cause ) {
+            super( cause.getMessage(), cause );
+        }
+
+
+        @Override
+        public synchronized IOException getCause() {
+            return ( IOException ) super.getCause();
+        }
+    }
+}
@@ -16,9 +16,8 @@
  */
 package org.apache.usergrid.services.notifications.impl;
 
-import com.clearspring.analytics.hash.MurmurHash;
-import com.clearspring.analytics.stream.frequency.CountMinSketch;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import org.apache.usergrid.batch.JobExecution;
 import org.apache.usergrid.persistence.*;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
@@ -29,13 +28,15 @@ import org.apache.usergrid.persistence.entities.Receipt;
 import org.apache.usergrid.persistence.Query;
 import org.apache.usergrid.persistence.queue.QueueManager;
 import org.apache.usergrid.persistence.queue.QueueMessage;
+import org.apache.usergrid.persistence.queue.QueueSendException;
 import org.apache.usergrid.services.notifications.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
-import rx.Subscriber;
 import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -51,21 +52,31 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
     private final QueueManager qm;
     private final JobScheduler jobScheduler;
     private final MetricsFactory metricsFactory;
+    private final ReceiptSink receiptSink;
     private final String queueName;
     private final Meter queueMeter;
     private final Meter sendMeter;
+    private final int fanOutPageSize;
+    private final int fanOutConcurrency;
+    private final int queueBatchSize;
+    private final Properties properties;
 
     HashMap<Object, ProviderAdapter> notifierHashMap; // only retrieve notifiers once
 
 
-    public ApplicationQueueManagerImpl(JobScheduler jobScheduler, EntityManager entityManager, QueueManager queueManager, MetricsFactory metricsFactory, Properties properties){
+    public ApplicationQueueManagerImpl(JobScheduler jobScheduler, EntityManager entityManager, QueueManager queueManager, MetricsFactory metricsFactory, ReceiptSink receiptSink, Properties properties){
         this.em = entityManager;
         this.qm = queueManager;
         this.jobScheduler = jobScheduler;
         this.metricsFactory = metricsFactory;
+        this.receiptSink = receiptSink;
         this.queueName = getQueueNames(properties);
+        this.properties = properties;
         queueMeter = metricsFactory.getMeter(ApplicationQueueManagerImpl.class, "notification.queue");
         sendMeter = metricsFactory.getMeter(NotificationsService.class, "queue.send");
+        fanOutPageSize = Integer.parseInt(properties.getProperty(FAN_OUT_PAGE_SIZE_PROPERTY, ""+Query.MAX_LIMIT));
+        fanOutConcurrency = Integer.parseInt(properties.getProperty(FAN_OUT_CONCURRENCY_PROPERTY, ""+DEFAULT_FAN_OUT_CONCURRENCY));
+        queueBatchSize = Integer.parseInt(properties.getProperty(QUEUE_BATCH_SIZE_PROPERTY, ""+DEFAULT_QUEUE_BATCH_SIZE));
 
     }
 
@@ -108,81 +119,64 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                 em.update(notification);
                 return;
             }
-            final CountMinSketch sketch = new CountMinSketch(0.0001,.99,7364181); //add probablistic counter to find dups
             final UUID appId = em.getApplication().getUuid();
             final Map<String,Object> payloads = notification.getPayloads();
-
-            final Func1<Entity,Entity> entityListFunct = entity -> {
-
-                try {
-
-                    long now = System.currentTimeMillis();
-                    List<EntityRef> devicesRef = getDevices(entity); // resolve group
-
-                    logger.info("notification {} queue  {} devices, duration "+(System.currentTimeMillis()-now)+" ms", notification.getUuid(), devicesRef.size());
-
-                    for (EntityRef deviceRef : devicesRef) {
-                        logger.info("notification {} starting to queue device {} ", notification.getUuid(), deviceRef.getUuid());
-                        long hash = MurmurHash.hash(deviceRef.getUuid());
-                        if (sketch.estimateCount(hash) > 0) { //look for duplicates
-                            logger.warn("Maybe Found duplicate device: {}", deviceRef.getUuid());
-                            continue;
-                        } else {
-                            sketch.add(hash, 1);
-                        }
-                        String notifierId = null;
-                        String notifierKey = null;
-
-                        //find the device notifier info, match it to the payload
-                        for (Map.Entry<String, Object> entry : payloads.entrySet()) {
-                            ProviderAdapter adapter = notifierMap.get(entry.getKey().toLowerCase());
-                            now = System.currentTimeMillis();
-                            String providerId = getProviderId(deviceRef, adapter.getNotifier());
-                            if (providerId != null) {
-                                notifierId = providerId;
-                                notifierKey = entry.getKey().toLowerCase();
-                                break;
-                            }
-                            logger.info("Provider query for notification {} device {} took "+(System.currentTimeMillis()-now)+" ms",notification.getUuid(),deviceRef.getUuid());
-                        }
-
-                        if (notifierId == null) {
-                            logger.info("Notifier did not match for device {} ", deviceRef);
-                            continue;
-                        }
-
-                        ApplicationQueueMessage message = new ApplicationQueueMessage(appId, notification.getUuid(), deviceRef.getUuid(), notifierKey, notifierId);
-                        if (notification.getQueued() == null) {
-                            // update queued time
-                            now = System.currentTimeMillis();
-                            notification.setQueued(System.currentTimeMillis());
-                            logger.info("notification {} device {} queue time set. duration "+(System.currentTimeMillis()-now)+" ms", notification.getUuid(), deviceRef.getUuid());
-                        }
-                        now = System.currentTimeMillis();
-                        qm.sendMessage(message);
-                        logger.info("notification {} post-queue to device {} duration " + (System.currentTimeMillis() - now) + " ms "+queueName+" queue", notification.getUuid(), deviceRef.getUuid());
-                        deviceCount.incrementAndGet();
-                        queueMeter.mark();
+            final DeviceFanOut fanOut = new DeviceFanOut(em, fanOutPageSize, fanOutConcurrency);
+            final DeviceIdSet queuedDevices = new DeviceIdSet(Query.MAX_LIMIT); //dedupe devices reachable through more than one user or group
+
+            //find the device notifier info, match it to the payload
+            final Func1<Entity,ApplicationQueueMessage> messageFunct = device -> {
+                for (Map.Entry<String, Object> entry : payloads.entrySet()) {
+                    ProviderAdapter adapter = notifierMap.get(entry.getKey().toLowerCase());
+                    if (adapter == null) {
+                        continue;
+                    }
+                    String providerId = getProviderId(device, adapter.getNotifier());
+                    if (providerId != null) {
+                        return new ApplicationQueueMessage(appId, notification.getUuid(), device.getUuid(), entry.getKey().toLowerCase(), providerId);
                     }
-                } catch (Exception deviceLoopException) {
-                    logger.error("Failed to add devices", deviceLoopException);
-                    errorMessages.add("Failed to add devices for entity: " + entity.getUuid() + " error:" + deviceLoopException);
                 }
-                return entity;
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Notifier did not match for device {} ", device.getUuid());
+                }
+                return null;
             };
 
             long now = System.currentTimeMillis();
 
-
-            //process up to 10 concurrently
-            Observable o = rx.Observable.create( new IteratorObservable<Entity>( iterator ) )
-
-                                        .flatMap(entity -> Observable.just(entity).map(entityListFunct)
-                                            .doOnError(throwable -> {
-                                                logger.error("Failed while writing",
-                                                    throwable);
-                                            })
-                                            , 10);
+            //read the devices of up to fanOutConcurrency targets at once, a page at a time, and send them to the queue in batches
+            Observable o = rx.Observable.<Entity>from( (Iterable<Device>) () -> iterator )
+                .flatMap(entity -> fanOut.getDevices(entity).subscribeOn(Schedulers.io()).onErrorResumeNext(throwable -> {
+                    logger.error("Failed to add devices", throwable);
+                    errorMessages.add("Failed to add devices for entity: " + entity.getUuid() + " error:" + throwable);
+                    return Observable.empty();
+                }), fanOutConcurrency)
+                .filter(device -> queuedDevices.add(device.getUuid()))
+                .map(messageFunct)
+                .filter(message -> message != null)
+                .buffer(queueBatchSize)
+                .doOnNext(messages -> {
+                    if (notification.getQueued() == null) {
+                        // update queued time
+                        notification.setQueued(System.currentTimeMillis());
+                    }
+                    int queued = messages.size();
+                    try {
+                        qm.sendMessages(messages);
+                    } catch (QueueSendException e) {
+                        //only count the devices that made it onto the queue
+                        queued -= e.getFailed().size();
+                        logger.error("notification " + notification.getUuid() + " failed to queue " + e.getFailed().size() + " devices", e);
+                        errorMessages.add("Failed to queue " + e.getFailed().size() + " devices error:" + e.getMessage());
+                    } catch (IOException e) {
+                        throw new RuntimeException("Unable to queue devices for notification " + notification.getUuid(), e);
+                    }
+                    deviceCount.addAndGet(queued);
+                    queueMeter.mark(queued);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("notification {} queued {} devices", notification.getUuid(), queued);
+                    }
+                });
 
             o.toBlocking().lastOrDefault( null );
             logger.info( "notification {} done queueing duration {} ms", notification.getUuid(), System.currentTimeMillis() - now);
@@ -207,7 +201,7 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
 
         //do i have devices, and have i already started batching.
         if (deviceCount.get() <= 0 || !notification.getDebug()) {
-            TaskManager taskManager = new TaskManager(em, notification);
+            TaskManager taskManager = new TaskManager(em, notification, receiptSink);
             //if i'm in a test value will be false, do not mark finished for test orchestration, not ideal need real tests
             taskManager.finishedBatch(false,true);
         }else {
@@ -222,7 +216,7 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
      * only need to get notifiers once. will reset on next batch
      * @return
      */
-    private HashMap<Object,ProviderAdapter> getAdapterMap(){
+    private synchronized HashMap<Object,ProviderAdapter> getAdapterMap(){
         if(notifierHashMap == null) {
             long now = System.currentTimeMillis();
             notifierHashMap = new HashMap<Object, ProviderAdapter>();
@@ -239,7 +233,7 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                 Notifier notifier = notifierIterator.next();
                 String name = notifier.getName() != null ? notifier.getName() : "";
                 UUID uuid = notifier.getUuid() != null ? notifier.getUuid() : UUID.randomUUID();
-                ProviderAdapter providerAdapter = ProviderAdapterFactory.getProviderAdapter(notifier,em);
+                ProviderAdapter providerAdapter = ProviderAdapterFactory.getProviderAdapter(notifier,em,properties);
                 notifierHashMap.put(name.toLowerCase(), providerAdapter);
                 notifierHashMap.put(uuid, providerAdapter);
                 notifierHashMap.put(uuid.toString(), providerAdapter);
@@ -266,6 +260,8 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
         final ApplicationQueueManagerImpl proxy = this;
         final ConcurrentHashMap<UUID,TaskManager> taskMap = new ConcurrentHashMap<UUID, TaskManager>(messages.size());
         final ConcurrentHashMap<UUID,Notification> notificationMap = new ConcurrentHashMap<UUID, Notification>(messages.size());
+        //every tracker handed to a provider in this batch, so closing out waits only on them
+        final Queue<TaskTracker> trackers = new ConcurrentLinkedQueue<TaskTracker>();
 
         final Func1<QueueMessage, ApplicationQueueMessage> func = new Func1<QueueMessage, ApplicationQueueMessage>() {
             @Override
@@ -285,7 +281,7 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                     }
                     TaskManager taskManager = taskMap.get(message.getNotificationId());
                     if (taskManager == null) {
-                        taskManager = new TaskManager(em, notification);
+                        taskManager = new TaskManager(em, notification, receiptSink);
                         taskMap.putIfAbsent(message.getNotificationId(), taskManager);
                         taskManager = taskMap.get(message.getNotificationId());
                     }
@@ -300,6 +296,7 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                         Object payload = translatedPayloads.get(notifierName);
                         Receipt receipt = new Receipt(notification.getUuid(), message.getNotifierId(), payload, deviceUUID);
                         TaskTracker tracker = new TaskTracker(providerAdapter.getNotifier(), taskManager, receipt, deviceUUID);
+                        trackers.add(tracker);
                         if(!isOkToSend(notification)){
                              tracker.failed(0, "Notification is duplicate/expired/cancelled.");
                         }else {
@@ -310,11 +307,13 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                                 tracker.failed(0, "failed to match payload to " + message.getNotifierId() + " notifier");
                             } else {
                                 long now = System.currentTimeMillis();
+                                Timer.Context providerTimer = getProviderTimer(providerAdapter).time();
                                 try {
                                     providerAdapter.sendNotification(message.getNotifierId(), payload, notification, tracker);
                                 } catch (Exception e) {
                                     tracker.failed(0, e.getMessage());
                                 } finally {
+                                    providerTimer.stop();
                                     logger.info("sending to device {} for Notification: {} duration " + (System.currentTimeMillis() - now) + " ms", deviceUUID, notification.getUuid());
                                 }
                             }
@@ -338,41 +337,44 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
             }
         };
 
-        //from each queue message, process them in parallel up to 10 at a time
-        Observable o = rx.Observable.from( messages ).flatMap( queueMessage -> {
-
-
-            return Observable.just( queueMessage ).map( func ).buffer( messages.size() ).map( queueMessages -> {
-                //for gcm this will actually send notification
-                for ( ProviderAdapter providerAdapter : notifierMap.values() ) {
+        //hand every message to its provider, then close out the providers' batches once for the whole queue batch
+        Observable o = rx.Observable.from( messages ).map( func ).toList().map( queueMessages -> {
+            //for gcm this will actually send notification, and waits only for this batch's devices
+            for ( ProviderAdapter providerAdapter : new HashSet<>( notifierMap.values() ) ) {
+                try {
+                    providerAdapter.doneSendingNotifications( trackers );
+                }
+                catch ( Exception e ) {
+                    logger.error( "providerAdapter.doneSendingNotifications: ", e );
+                }
+            }
+            //TODO: check if a notification is done and mark it
+            HashMap<UUID, ApplicationQueueMessage> notifications = new HashMap<>();
+            for ( ApplicationQueueMessage message : queueMessages ) {
+                if ( message != null && notifications.get( message.getNotificationId() ) == null ) {
                     try {
-                        providerAdapter.doneSendingNotifications();
+                        TaskManager taskManager = taskMap.get( message.getNotificationId() );
+                        notifications.put( message.getNotificationId(), message );
+                        taskManager.finishedBatch();
                     }
                     catch ( Exception e ) {
-                        logger.error( "providerAdapter.doneSendingNotifications: ", e );
+                        logger.error( "Failed to finish batch", e );
                     }
                 }
-                //TODO: check if a notification is done and mark it
-                HashMap<UUID, ApplicationQueueMessage> notifications = new HashMap<>();
-                for ( ApplicationQueueMessage message : queueMessages ) {
-                    if ( notifications.get( message.getNotificationId() ) == null ) {
-                        try {
-                            TaskManager taskManager = taskMap.get( message.getNotificationId() );
-                            notifications.put( message.getNotificationId(), message );
-                            taskManager.finishedBatch();
-                        }
-                        catch ( Exception e ) {
-                            logger.error( "Failed to finish batch", e );
-                        }
-                    }
-                }
-                return notifications;
-            } ).doOnError( throwable -> logger.error( "Failed while sending", throwable ) );
-        }, 10 );
+            }
+            return notifications;
+        } ).doOnError( throwable -> logger.error( "Failed while sending", throwable ) );
 
         return o;
     }
 
+    /**
+     * Throughput and latency of the sends to each provider
+     */
+    private Timer getProviderTimer(final ProviderAdapter providerAdapter){
+        return metricsFactory.getTimer(ApplicationQueueManagerImpl.class, "provider." + providerAdapter.getNotifier().getProvider() + ".send");
+    }
+
     @Override
     public void stop(){
         for(ProviderAdapter adapter : getAdapterMap().values()){
@@ -382,6 +384,11 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
                 logger.error("failed to stop adapter",e);
             }
         }
+        try {
+            receiptSink.flush();
+        }catch (Exception e){
+            logger.error("failed to flush receipts",e);
+        }
     }
 
 
@@ -414,34 +421,6 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
         return name;
     }
 
-    private static final class IteratorObservable<T> implements rx.Observable.OnSubscribe<T> {
-        private final Iterator<T> input;
-        private IteratorObservable( final Iterator input ) {this.input = input;}
-
-        @Override
-        public void call( final Subscriber<? super T> subscriber ) {
-
-            /**
-             * You would replace this code with your file reading.  Instead of emitting from an iterator,
-             * you would create a bean object that represents the entity, and then emit it
-             */
-
-            try {
-                while ( !subscriber.isUnsubscribed() && input.hasNext() ) {
-                    //send our input to the next
-                    subscriber.onNext( (T) input.next() );
-                }
-
-                //tell the subscriber we don't have any more data
-                subscriber.onCompleted();
-            }
-            catch ( Throwable t ) {
-                logger.error("failed on subscriber",t);
-                subscriber.onError( t );
-            }
-        }
-    }
-
     @Override
     public void asyncCheckForInactiveDevices() throws Exception {
         Collection<ProviderAdapter> providerAdapters = getAdapterMap().values();
@@ -487,29 +466,12 @@ public class ApplicationQueueManagerImpl implements ApplicationQueueManager {
         return true;
     }
 
-    private List<EntityRef> getDevices(EntityRef ref) throws Exception {
-        List<EntityRef> devices = Collections.EMPTY_LIST;
-        if ("device".equals(ref.getType())) {
-            devices = Collections.singletonList(ref);
-        } else if ("user".equals(ref.getType())) {
-            devices = em.getCollection(ref, "devices", null, Query.MAX_LIMIT,
-                    Query.Level.REFS, false).getRefs();
-        } else if ("group".equals(ref.getType())) {
-            devices = new ArrayList<EntityRef>();
-            for (EntityRef r : em.getCollection(ref, "users", null,
-                    Query.MAX_LIMIT, Query.Level.REFS, false).getRefs()) {
-                devices.addAll(getDevices(r));
-            }
-        }
-        return devices;
-    }
-
-
-    private String getProviderId(EntityRef device, Notifier notifier) throws Exception {
+    private String getProviderId(Entity device, Notifier notifier) {
         try {
-            Object value = em.getProperty(device, notifier.getName() + NOTIFIER_ID_POSTFIX);
+            //devices are loaded with their properties during fan out, so read them without going back to the entity manager
+            Object value = device.getProperty(notifier.getName() + NOTIFIER_ID_POSTFIX);
             if (value == null) {
-                value = em.getProperty(device, notifier.getUuid() + NOTIFIER_ID_POSTFIX);
+                value = device.getProperty(notifier.getUuid() + NOTIFIER_ID_POSTFIX);
             }
             return value != null ? value.toString() : null;
         } catch (Exception e) {
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.entities.Notification;
+import org.apache.usergrid.persistence.entities.Receipt;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.MapScope;
+import org.apache.usergrid.persistence.map.impl.MapScopeImpl;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.services.notifications.ReceiptSink;
+import org.apache.usergrid.utils.JsonUtils;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+
+/**
+ * Buffers receipts per notification and writes them in batches to a map keyed by device id, one map per
+ * notification.  Receipts are stored in a compact form (sent time, notifier id, error code and message) instead of
+ * as entities, so they are not indexed.  Receipts of debug notifications, and failed receipts when enabled, are still
+ * promoted to Receipt entities.
+ */
+public class BufferedReceiptSink implements ReceiptSink {
+
+    private static final Logger logger = LoggerFactory.getLogger( BufferedReceiptSink.class );
+
+    public static final String RECEIPTS_MAP_NAME = "receipts";
+
+    public static final String COUNTER_SENT = "notifications.sent";
+
+    public static final String COUNTER_ERRORS = "notifications.errors";
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final long DEFAULT_FLUSH_INTERVAL = 5000;
+
+    //30 days
+    private static final int DEFAULT_TTL = 2592000;
+
+    private final EntityManager em;
+    private final MapManagerFactory mapManagerFactory;
+    private final int batchSize;
+    private final long flushInterval;
+    private final int ttl;
+    private final boolean promoteFailures;
+    private final Meter receiptMeter;
+    private final Timer flushTimer;
+
+    private final ConcurrentHashMap<UUID, ReceiptBuffer> buffers = new ConcurrentHashMap<>();
+
+
+    public BufferedReceiptSink( final EntityManager em, final MapManagerFactory mapManagerFactory,
+                                final MetricsFactory metricsFactory, final Properties properties ) {
+        this.em = em;
+        this.mapManagerFactory = mapManagerFactory;
+        this.batchSize =
+            Integer.parseInt( properties.getProperty( PROPERTY_BATCH_SIZE, String.valueOf( DEFAULT_BATCH_SIZE ) ) );
+        this.flushInterval = Long.parseLong(
+            properties.getProperty( PROPERTY_FLUSH_INTERVAL, String.valueOf( DEFAULT_FLUSH_INTERVAL ) ) );
+        this.ttl = Integer.parseInt( properties.getProperty( PROPERTY_TTL, String.valueOf( DEFAULT_TTL ) ) );
+        this.promoteFailures = Boolean.parseBoolean( properties.getProperty( PROPERTY_PROMOTE_FAILURES, "true" ) );
+        this.receiptMeter = metricsFactory.getMeter( BufferedReceiptSink.class, "receipts" );
+        this.flushTimer = metricsFactory.getTimer( BufferedReceiptSink.class, "receipts.flush" );
+    }
+
+
+    @Override
+    public void sent( final Notification notification, final Receipt receipt ) throws Exception {
+        if ( notification.getDebug() ) {
+            saveEntity( receipt );
+        }
+        add( notification.getUuid(), receipt, false );
+    }
+
+
+    @Override
+    public void failed( final Notification notification, final Receipt receipt ) throws Exception {
+        if ( notification.getDebug() || promoteFailures ) {
+            saveEntity( receipt );
+        }
+        add( notification.getUuid(), receipt, true );
+    }
+
+
+    @Override
+    public void flush( final UUID notificationId ) throws Exception {
+        //closed buffers are dropped so finished notifications don't stay in memory
+        final ReceiptBuffer buffer = buffers.remove( notificationId );
+        if ( buffer != null ) {
+            write( notificationId, buffer.close() );
+        }
+    }
+
+
+    @Override
+    public void flush() throws Exception {
+        for ( UUID notificationId : buffers.keySet() ) {
+            flush( notificationId );
+        }
+    }
+
+
+    @Override
+    public Receipt getReceipt( final UUID notificationId, final UUID deviceId ) {
+        final String value = getMapManager( notificationId ).getString( deviceId.toString() );
+        return value != null ? decode( notificationId, deviceId, value ) : null;
+    }
+
+
+    private void add( final UUID notificationId, final Receipt receipt, final boolean failed ) throws Exception {
+        receiptMeter.mark();
+
+        final String deviceId = receipt.getDeviceId().toString();
+        final String value = encode( receipt );
+
+        ReceiptBuffer buffer;
+        do {
+            buffer = buffers.computeIfAbsent( notificationId, id -> new ReceiptBuffer() );
+        }
+        //the buffer was closed by a concurrent flush, retry with a new one
+        while ( !buffer.add( deviceId, value, failed ) );
+
+        final BufferedReceipts full = buffer.drainIfReady( batchSize, flushInterval );
+
+        //only the thread that drained the buffer writes it, everyone else keeps buffering
+        if ( full != null ) {
+            write( notificationId, full );
+        }
+    }
+
+
+    private void write( final UUID notificationId, final BufferedReceipts receipts ) {
+        if ( receipts.isEmpty() ) {
+            return;
+        }
+
+        final Timer.Context timer = flushTimer.time();
+        try {
+            getMapManager( notificationId ).putStrings( receipts.values, ttl );
+
+            final Map<String, Long> counters = new HashMap<>( 2 );
+            counters.put( COUNTER_SENT, receipts.sent );
+            counters.put( COUNTER_ERRORS, receipts.errors );
+            em.incrementAggregateCounters( null, null, null, counters );
+
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "notification {} flushed {} receipts", notificationId, receipts.values.size() );
+            }
+        }
+        finally {
+            timer.stop();
+        }
+    }
+
+
+    private void saveEntity( final Receipt receipt ) throws Exception {
+        if ( receipt.getUuid() == null ) {
+            Receipt savedReceipt = em.create( receipt );
+            receipt.setUuid( savedReceipt.getUuid() );
+        }
+        else {
+            em.update( receipt );
+        }
+    }
+
+
+    private MapManager getMapManager( final UUID notificationId ) {
+        final MapScope scope =
+            new MapScopeImpl( new SimpleId( notificationId, Notification.ENTITY_TYPE ), RECEIPTS_MAP_NAME );
+        return mapManagerFactory.createMapManager( scope );
+    }
+
+
+    /**
+     * Encode the receipt as a json array of [sent, notifierId, errorCode, errorMessage]
+     */
+    protected static String encode( final Receipt receipt ) {
+        return JsonUtils.mapToJsonString(
+            Arrays.asList( receipt.getSent(), receipt.getNotifierId(), receipt.getErrorCode(),
+                receipt.getErrorMessage() ) );
+    }
+
+
+    protected static Receipt decode( final UUID notificationId, final UUID deviceId, final String value ) {
+        final List<Object> fields = ( List<Object> ) JsonUtils.parse( value );
+
+        final Receipt receipt = new Receipt();
+        receipt.setNotificationUUID( notificationId );
+        receipt.setDeviceId( deviceId );
+        receipt.setSent( fields.get( 0 ) != null ? ( ( Number ) fields.get( 0 ) ).longValue() : null );
+        receipt.setNotifierId( ( String ) fields.get( 1 ) );
+        receipt.setErrorCode( fields.get( 2 ) );
+        receipt.setErrorMessage( ( String ) fields.get( 3 ) );
+        return receipt;
+    }
+
+
+    /**
+     * The receipts buffered for one notification
+     */
+    private static final class ReceiptBuffer {
+
+        private BufferedReceipts current = new BufferedReceipts();
+        private long started = System.currentTimeMillis();
+        private boolean closed;
+
+
+        /**
+         * Add the receipt, returns false if the buffer has already been closed
+         */
+        synchronized boolean add( final String deviceId, final String value, final boolean failed ) {
+            if ( closed ) {
+                return false;
+            }
+            current.values.put( deviceId, value );
+            if ( failed ) {
+                current.errors++;
+            }
+            else {
+                current.sent++;
+            }
+            return true;
+        }
+
+
+        /**
+         * Returns the drained receipts if the buffer reached the batch size or has been buffering longer than the
+         * flush interval, otherwise null
+         */
+        synchronized BufferedReceipts drainIfReady( final int batchSize, final long flushInterval ) {
+            final long now = System.currentTimeMillis();
+            if ( current.values.size() < batchSize && now - started < flushInterval ) {
+                return null;
+            }
+            final BufferedReceipts drained = current;
+            current = new BufferedReceipts();
+            started = now;
+            return drained;
+        }
+
+
+        synchronized BufferedReceipts close() {
+            closed = true;
+            return current;
+        }
+    }
+
+
+    private static final class BufferedReceipts {
+        private final Map<String, String> values = new HashMap<>();
+        private long sent;
+        private long errors;
+
+
+        boolean isEmpty() {
+            return values.isEmpty();
+        }
+    }
+}
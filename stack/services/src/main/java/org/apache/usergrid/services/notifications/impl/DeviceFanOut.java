@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.Iterator;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.PagingResultsIterator;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.entities.Device;
+import org.apache.usergrid.persistence.entities.Group;
+import org.apache.usergrid.persistence.entities.User;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+
+/**
+ * Expands the targets of a notification into the devices they own.  Users and groups are read a page at a time as the
+ * devices are consumed, so only one page per level of the graph is held in memory regardless of how many devices are
+ * targeted.  The users of a group are read concurrently, at most {@code concurrency} at a time.
+ */
+public class DeviceFanOut {
+
+    private final EntityManager em;
+    private final int pageSize;
+    private final int concurrency;
+
+
+    public DeviceFanOut( final EntityManager em, final int pageSize, final int concurrency ) {
+        this.em = em;
+        this.pageSize = pageSize;
+        this.concurrency = concurrency;
+    }
+
+
+    /**
+     * Emit all the devices of the entity.  A device emits itself, a user emits its devices and a group emits the
+     * devices of all its users
+     */
+    public Observable<Entity> getDevices( final Entity entity ) {
+        switch ( entity.getType() ) {
+            case Device.ENTITY_TYPE:
+                return Observable.just( entity );
+            case User.ENTITY_TYPE:
+                return getCollection( entity, "devices" );
+            case Group.ENTITY_TYPE:
+                return getCollection( entity, "users" )
+                    .flatMap( user -> getDevices( user ).subscribeOn( Schedulers.io() ), concurrency );
+            default:
+                return Observable.empty();
+        }
+    }
+
+
+    /**
+     * Lazily page through the collection, the next page is only read once the previous one has been consumed.  The
+     * members are only emitted as they are requested, which is what bounds the users of a group read at once.
+     */
+    private Observable<Entity> getCollection( final Entity owner, final String collectionName ) {
+        return Observable.defer( () -> {
+            final Query query = new Query();
+            query.setLimit( pageSize );
+            query.setResultsLevel( Query.Level.ALL_PROPERTIES );
+            try {
+                final Iterator<Entity> members = new PagingResultsIterator(
+                    em.searchCollection( owner, collectionName, query ), Query.Level.ALL_PROPERTIES );
+                return Observable.from( () -> members );
+            }
+            catch ( Exception e ) {
+                throw new RuntimeException(
+                    "Unable to read " + collectionName + " of " + owner.getType() + " " + owner.getUuid(), e );
+            }
+        } );
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.UUID;
+
+
+/**
+ * A set of device ids stored as pairs of longs in an open addressing table, so millions of ids can be deduped without
+ * allocating a UUID and a map entry for each one.  Unlike a sketch it never reports a false duplicate.  Thread safe.
+ */
+public class DeviceIdSet {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    //the most and least significant bits of each id, in adjacent slots
+    private long[] table;
+    private boolean[] used;
+    private int size;
+    private int resizeAt;
+
+
+    public DeviceIdSet( final int expectedSize ) {
+        int capacity = Integer.highestOneBit( Math.max( 16, ( int ) ( expectedSize / LOAD_FACTOR ) ) - 1 ) << 1;
+        allocate( capacity );
+    }
+
+
+    /**
+     * Add the id, returns true if it was not already present
+     */
+    public synchronized boolean add( final UUID id ) {
+        final long msb = id.getMostSignificantBits();
+        final long lsb = id.getLeastSignificantBits();
+
+        if ( !insert( msb, lsb ) ) {
+            return false;
+        }
+
+        if ( ++size >= resizeAt ) {
+            resize();
+        }
+        return true;
+    }
+
+
+    public synchronized boolean contains( final UUID id ) {
+        final long msb = id.getMostSignificantBits();
+        final long lsb = id.getLeastSignificantBits();
+        final int mask = used.length - 1;
+
+        for ( int slot = hash( msb, lsb ) & mask; used[slot]; slot = ( slot + 1 ) & mask ) {
+            if ( table[slot * 2] == msb && table[slot * 2 + 1] == lsb ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    public synchronized int size() {
+        return size;
+    }
+
+
+    private boolean insert( final long msb, final long lsb ) {
+        final int mask = used.length - 1;
+        int slot = hash( msb, lsb ) & mask;
+
+        while ( used[slot] ) {
+            if ( table[slot * 2] == msb && table[slot * 2 + 1] == lsb ) {
+                return false;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+
+        used[slot] = true;
+        table[slot * 2] = msb;
+        table[slot * 2 + 1] = lsb;
+        return true;
+    }
+
+
+    private void resize() {
+        final long[] oldTable = table;
+        final boolean[] oldUsed = used;
+
+        allocate( oldUsed.length << 1 );
+
+        for ( int i = 0; i < oldUsed.length; i++ ) {
+            if ( oldUsed[i] ) {
+                insert( oldTable[i * 2], oldTable[i * 2 + 1] );
+            }
+        }
+    }
+
+
+    private void allocate( final int capacity ) {
+        table = new long[capacity * 2];
+        used = new boolean[capacity];
+        resizeAt = ( int ) ( capacity * LOAD_FACTOR );
+    }
+
+
+    /**
+     * Time uuids share most of their bits, so mix all of them before picking a slot
+     */
+    private static int hash( final long msb, final long lsb ) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return ( int ) h;
+    }
+}
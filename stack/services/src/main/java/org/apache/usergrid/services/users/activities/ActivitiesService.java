@@ -19,18 +19,22 @@ package org.apache.usergrid.services.users.activities;
 
 import java.util.*;
 
+import org.apache.usergrid.corepersistence.asyncevents.AsyncEventService;
+import org.apache.usergrid.corepersistence.util.CpNamingUtils;
 import org.apache.usergrid.persistence.*;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.usergrid.persistence.entities.Activity;
 import org.apache.usergrid.persistence.entities.Activity.ActivityObject;
 import org.apache.usergrid.persistence.entities.User;
-import org.apache.usergrid.persistence.Query.Level;
 import org.apache.usergrid.services.ServiceContext;
 import org.apache.usergrid.services.ServicePayload;
 import org.apache.usergrid.services.ServiceResults;
 import org.apache.usergrid.services.generic.GenericCollectionService;
 
+import com.google.inject.Injector;
+
 
 public class ActivitiesService extends GenericCollectionService {
 
@@ -134,31 +138,12 @@ public class ActivitiesService extends GenericCollectionService {
         //add activity
         em.addToCollection( user, "feed", activity );
 
-        //publish to all connections
-        Results results =  em.getSourceEntities(
-            new SimpleEntityRef(user.getType(), user.getUuid()),
-            "following", User.ENTITY_TYPE, Level.REFS);
-
-        if( results != null ){
-            PagingResultsIterator itr = new PagingResultsIterator(results);
-
-            List<EntityRef> refs = new ArrayList<EntityRef>();
-            EntityRef c;
-            int breaker = 10000;
-            //collect
-            while (itr.hasNext()) {
-                c = (EntityRef) itr.next();
-                refs.add(c);
-                //break out when you get too big
-                if( refs.size() > breaker ){
-                    em.addToCollections(refs, "feed", activity);
-                    refs.clear();
-                }
-            }
-            //add to collections
-            if (refs.size() > 0) {
-                em.addToCollections(refs, "feed", activity);
-            }
-        }
+        //publish to the followers, pages after the first in the background.  Authors with too many followers are read
+        //with the feed instead
+        final AsyncEventService asyncEventService =
+            getApplicationContext().getBean( Injector.class ).getInstance( AsyncEventService.class );
+
+        asyncEventService.queueFeedFanout( CpNamingUtils.getApplicationScope( em.getApplicationId() ),
+            new SimpleId( user.getUuid(), user.getType() ), new SimpleId( activity.getUuid(), activity.getType() ) );
     }
 }
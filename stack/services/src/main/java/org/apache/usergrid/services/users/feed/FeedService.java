@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.users.feed;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.corepersistence.service.FeedFanoutService;
+import org.apache.usergrid.corepersistence.util.CpNamingUtils;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.entities.Activity;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.services.ServiceContext;
+import org.apache.usergrid.services.ServiceResults;
+import org.apache.usergrid.services.ServiceResults.Type;
+import org.apache.usergrid.services.generic.GenericCollectionService;
+
+import com.google.common.base.Optional;
+import com.google.inject.Injector;
+
+
+/**
+ * Reads the feed of a user.  The activities of authors with too many followers aren't written to each feed, so a plain
+ * read of the feed merges them in, newest first.  Queries with a ql still search the feed collection.
+ */
+public class FeedService extends GenericCollectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger( FeedService.class );
+
+    private static final String CURSOR_PREFIX = "feed:";
+
+    private static final String CURSOR_SEPARATOR = ":";
+
+
+    public FeedService() {
+        super();
+        if (logger.isDebugEnabled()) {
+            logger.debug("/users/*/feed");
+        }
+    }
+
+
+    @Override
+    public ServiceResults getItemsByQuery( ServiceContext context, Query query ) throws Exception {
+
+        checkPermissionsForCollection( context );
+
+        final Optional<String> cursor = query.getCursor();
+        final boolean feedCursor = cursor.isPresent() && cursor.get().startsWith( CURSOR_PREFIX );
+
+        if ( query.getQl().isPresent() || context.moreParameters() || ( cursor.isPresent() && !feedCursor ) ) {
+            return super.getItemsByQuery( context, query );
+        }
+
+        final FeedFanoutService feedFanoutService =
+            getApplicationContext().getBean( Injector.class ).getInstance( FeedFanoutService.class );
+
+        final EntityRef owner = context.getOwner();
+        final ApplicationScope applicationScope = CpNamingUtils.getApplicationScope( em.getApplicationId() );
+        final Id reader = new SimpleId( owner.getUuid(), owner.getType() );
+
+        final List<Id> authors = feedFanoutService.getPullAuthors( applicationScope, reader ).toList().toBlocking().last();
+
+        //nothing to merge in, the feed collection has every activity
+        if ( authors.isEmpty() && !feedCursor ) {
+            return super.getItemsByQuery( context, query );
+        }
+
+        final Results r = getFeed( feedFanoutService, applicationScope, reader, authors,
+            feedCursor ? cursor : Optional.<String>absent(), query.getLimit() );
+
+        importEntities( context, r );
+
+        return new ServiceResults( this, context, Type.COLLECTION, r, null, null );
+    }
+
+
+    /**
+     * Read a page of the reader's feed with the authors' activities merged in, after the feed cursor if there is one
+     */
+    Results getFeed( final FeedFanoutService feedFanoutService, final ApplicationScope applicationScope,
+                     final Id reader, final List<Id> authors, final Optional<String> cursor, final int limit )
+        throws Exception {
+
+        //the cursor is the timestamp and target of the last edge returned
+        long maxTimestamp = Long.MAX_VALUE;
+        Optional<UUID> lastTarget = Optional.absent();
+
+        if ( cursor.isPresent() ) {
+            final String[] position = cursor.get().substring( CURSOR_PREFIX.length() ).split( CURSOR_SEPARATOR );
+            maxTimestamp = Long.parseLong( position[0] );
+
+            //cursors of older versions only have a timestamp, already past the last edge
+            if ( position.length > 1 ) {
+                lastTarget = Optional.of( UUID.fromString( position[1] ) );
+            }
+        }
+
+        final List<MarkedEdge> edges =
+            feedFanoutService.loadFeed( applicationScope, reader, authors, maxTimestamp, lastTarget ).take( limit )
+                             .toList().toBlocking().last();
+
+        final List<UUID> uuids = new ArrayList<>( edges.size() );
+
+        for ( MarkedEdge edge : edges ) {
+            uuids.add( edge.getTargetNode().getUuid() );
+        }
+
+        final Results r = em.getEntities( uuids, Activity.ENTITY_TYPE );
+
+        //a full page may have older activities after it
+        if ( edges.size() == limit ) {
+            final MarkedEdge last = edges.get( edges.size() - 1 );
+            r.setCursor( CURSOR_PREFIX + last.getTimestamp() + CURSOR_SEPARATOR + last.getTargetNode().getUuid() );
+        }
+
+        return r;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.security.shiro;
+
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class PermissionTrieTest {
+
+    private static final UUID APP = UUID.fromString( "9d1e2a4e-7b0c-11e5-8bcf-feff819cdc9f" );
+    private static final UUID OTHER_APP = UUID.fromString( "a6b3c2d0-7b0c-11e5-8bcf-feff819cdc9f" );
+
+    private static final List<String> PERMISSIONS = Arrays.asList(
+        getPermissionFromPath( APP, "access" ),
+        getPermissionFromPath( APP, "get,put,post,delete", "/users/${user}", "/users/${user}/feed" ),
+        getPermissionFromPath( APP, "get", "/users/*/devices" ),
+        getPermissionFromPath( APP, "post", "/devices" ),
+        getPermissionFromPath( APP, "put", "/devices/*" ),
+        getPermissionFromPath( APP, "get", "/books/**" ),
+        getPermissionFromPath( APP, "get", "/me/activities" ),
+        getPermissionFromPath( APP, "get", "groups" ),
+        getPermissionFromPath( OTHER_APP, "get,put,post,delete", "/**" ),
+        "applications:get:*:/roles/*",
+        "organizations:access:" + OTHER_APP );
+
+    private static final List<String> REQUESTS = Arrays.asList(
+        getPermissionFromPath( APP, "access" ),
+        getPermissionFromPath( OTHER_APP, "access" ),
+        getPermissionFromPath( APP, "get", "/users/fred/devices" ),
+        getPermissionFromPath( APP, "put", "/users/fred/devices" ),
+        getPermissionFromPath( APP, "get", "/users" ),
+        getPermissionFromPath( APP, "post", "/devices" ),
+        getPermissionFromPath( APP, "post", "/devices/" ),
+        getPermissionFromPath( APP, "put", "/devices/abc" ),
+        getPermissionFromPath( APP, "put", "/devices/abc/more" ),
+        getPermissionFromPath( APP, "get", "/books" ),
+        getPermissionFromPath( APP, "get", "/books/1/chapters/2" ),
+        getPermissionFromPath( APP, "delete", "/books/1" ),
+        getPermissionFromPath( APP, "get", "/groups" ),
+        getPermissionFromPath( APP, "get", "/GROUPS" ),
+        getPermissionFromPath( APP, "get", "/roles/admin" ),
+        getPermissionFromPath( APP, "get", "/roles/admin/users" ),
+        getPermissionFromPath( OTHER_APP, "delete", "/anything/at/all" ),
+        getPermissionFromPath( UUID.randomUUID(), "get", "/books" ),
+        getPermissionFromPath( APP, "get", "/books", "/devices" ),
+        "organizations:access:" + OTHER_APP,
+        "organizations:access:" + APP );
+
+
+    @Test
+    public void sameAsCheckingEveryPermission() {
+        final PermissionTrie trie = new PermissionTrie( PERMISSIONS );
+        assertEquals( PERMISSIONS.size(), trie.size() );
+
+        for ( String request : REQUESTS ) {
+            final CustomPermission requested = new CustomPermission( request );
+
+            boolean expected = false;
+            for ( String permission : PERMISSIONS ) {
+                expected |= new CustomPermission( permission ).implies( requested );
+            }
+
+            assertEquals( request, expected, trie.implies( requested ) );
+        }
+    }
+
+
+    @Test
+    public void narrowsCandidates() {
+        final PermissionTrie trie = new PermissionTrie( PERMISSIONS );
+
+        assertTrue( trie.implies( new CustomPermission( getPermissionFromPath( APP, "put", "/devices/abc" ) ) ) );
+        assertFalse( trie.implies( new CustomPermission( getPermissionFromPath( APP, "get", "/cats" ) ) ) );
+
+        //the access permission, /me/activities which can't be indexed past me, and the wildcard id roles permission
+        final List<CustomPermission> candidates =
+            trie.getCandidates( new CustomPermission( getPermissionFromPath( APP, "get", "/roles/admin" ) ) );
+        assertEquals( 3, candidates.size() );
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications;
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.queue.QueueManager;
+import org.apache.usergrid.persistence.queue.QueueManagerFactory;
+import org.apache.usergrid.persistence.queue.QueueMessage;
+import org.apache.usergrid.persistence.queue.QueueScope;
+import org.apache.usergrid.services.ServiceManagerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+import com.google.inject.Injector;
+
+import rx.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class QueueListenerTest {
+
+    private QueueManager queueManager;
+    private ServiceManagerFactory smf;
+    private Counter consumers;
+    private QueueListener listener;
+
+
+    @Before
+    public void setup() {
+        queueManager = mock( QueueManager.class );
+
+        final QueueManagerFactory queueManagerFactory = mock( QueueManagerFactory.class );
+        when( queueManagerFactory.getQueueManager( any( QueueScope.class ) ) ).thenReturn( queueManager );
+
+        consumers = new Counter();
+
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+        when( metricsFactory.getCounter( any( Class.class ), anyString() ) ).thenReturn( new Counter() );
+        when( metricsFactory.getCounter( any( Class.class ), eq( "consumers" ) ) ).thenReturn( consumers );
+        when( metricsFactory.getHistogram( any( Class.class ), anyString() ) )
+            .thenReturn( new Histogram( new UniformReservoir() ) );
+
+        final Injector injector = mock( Injector.class );
+        when( injector.getInstance( QueueManagerFactory.class ) ).thenReturn( queueManagerFactory );
+        when( injector.getInstance( MapManagerFactory.class ) ).thenReturn( mock( MapManagerFactory.class ) );
+        when( injector.getInstance( MetricsFactory.class ) ).thenReturn( metricsFactory );
+
+        final ApplicationContext applicationContext = mock( ApplicationContext.class );
+        when( applicationContext.getBean( Injector.class ) ).thenReturn( injector );
+
+        smf = mock( ServiceManagerFactory.class );
+        when( smf.getApplicationContext() ).thenReturn( applicationContext );
+    }
+
+
+    @After
+    public void stop() {
+        if ( listener != null ) {
+            listener.stop();
+        }
+    }
+
+
+    @Test
+    public void consumersScaleWithQueueDepth() throws Exception {
+        final AtomicLong depth = new AtomicLong( 3500 );
+
+        when( queueManager.getQueueDepth() ).thenAnswer( invocation -> depth.get() );
+        //long poll an empty queue
+        when( queueManager.getMessages( anyInt(), anyInt(), anyInt(), any( Class.class ) ) ).thenAnswer( invocation -> {
+            Thread.sleep( 50 );
+            return Collections.emptyList();
+        } );
+
+        listener = start( 4, 8, null );
+
+        awaitConsumers( 4 );
+
+        depth.set( 0 );
+
+        //extra consumers exit once their fetch returns
+        awaitConsumers( 1 );
+    }
+
+
+    @Test
+    public void failedBatchReleasesSendSlot() throws Exception {
+        final UUID applicationId = UUID.randomUUID();
+
+        final ApplicationQueueManager applicationQueueManager = mock( ApplicationQueueManager.class );
+        when( applicationQueueManager.sendBatchToProviders( anyList(), anyString() ) )
+            .thenReturn( Observable.error( new RuntimeException( "provider unavailable" ) ) );
+
+        when( queueManager.getQueueDepth() ).thenReturn( 0L );
+        when( queueManager.getMessages( anyInt(), anyInt(), anyInt(), any( Class.class ) ) ).thenAnswer(
+            invocation -> Collections.singletonList( new QueueMessage( "id", "handle",
+                new ApplicationQueueMessage( applicationId, UUID.randomUUID(), UUID.randomUUID(), "notifier",
+                    "provider" ), "type" ) ) );
+
+        //a single send slot, so the next fetch only happens once the failed batch has given it back
+        listener = start( 1, 1, applicationQueueManager );
+
+        verify( queueManager, timeout( 5000 ).atLeast( 3 ) ).getMessages( anyInt(), anyInt(), anyInt(),
+            any( Class.class ) );
+        verify( queueManager, never() ).commitMessages( anyList() );
+    }
+
+
+    private QueueListener start( final int maxThreads, final int batchesInFlight,
+                                 final ApplicationQueueManager applicationQueueManager ) {
+        final Properties properties = new Properties();
+        properties.setProperty( "usergrid.notifications.listener.minThreads", "1" );
+        properties.setProperty( "usergrid.notifications.listener.maxThreads", String.valueOf( maxThreads ) );
+        properties.setProperty( "usergrid.notifications.listener.depthPerThread", "1000" );
+        properties.setProperty( "usergrid.notifications.listener.scaleInterval", "20" );
+        properties.setProperty( "usergrid.notifications.listener.pollWait", "100" );
+        properties.setProperty( "usergrid.notifications.listener.batchesInFlight", String.valueOf( batchesInFlight ) );
+
+        final QueueListener queueListener = new QueueListener( smf, mock( EntityManagerFactory.class ), properties ) {
+            @Override
+            protected ApplicationQueueManager createApplicationQueueManager( final UUID applicationId,
+                                                                            final QueueManager queueManager ) {
+                return applicationQueueManager;
+            }
+        };
+
+        queueListener.DEFAULT_SLEEP = 10;
+        queueListener.start();
+
+        return queueListener;
+    }
+
+
+    private void awaitConsumers( final long expected ) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while ( consumers.getCount() != expected && System.currentTimeMillis() < deadline ) {
+            Thread.sleep( 10 );
+        }
+
+        assertEquals( expected, consumers.getCount() );
+    }
+
+    @Test
+    public void consumersFollowQueueDepth() {
+        //never below the minimum, even when the queue is empty
+        assertEquals( 1, QueueListener.getConsumerCount( 0, 1, 8, 1000 ) );
+        assertEquals( 2, QueueListener.getConsumerCount( 0, 2, 8, 1000 ) );
+
+        assertEquals( 1, QueueListener.getConsumerCount( 1000, 1, 8, 1000 ) );
+        assertEquals( 2, QueueListener.getConsumerCount( 1001, 1, 8, 1000 ) );
+        assertEquals( 5, QueueListener.getConsumerCount( 4500, 1, 8, 1000 ) );
+
+        //never above the maximum
+        assertEquals( 8, QueueListener.getConsumerCount( 1000000, 1, 8, 1000 ) );
+    }
+}
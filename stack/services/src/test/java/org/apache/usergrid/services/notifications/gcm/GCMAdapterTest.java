@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.gcm;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.entities.Notification;
+import org.apache.usergrid.persistence.entities.Notifier;
+import org.apache.usergrid.services.notifications.TaskTracker;
+
+import com.google.android.gcm.server.Constants;
+import com.google.android.gcm.server.InvalidRequestException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class GCMAdapterTest {
+
+    private MockGCMServer server;
+    private GCMClient client;
+
+
+    @Before
+    public void setup() throws Exception {
+        server = new MockGCMServer().start();
+        client = new GCMClient( server.getUrl(), 4, 4, 2, 10, 60000 );
+    }
+
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+
+    @Test
+    public void multicastInBatchesOfMaxSize() throws Exception {
+        final GCMAdapter adapter = createAdapter( MockGCMServer.API_KEY );
+        final Map<String, Object> payload = payload();
+
+        final List<TaskTracker> trackers = new ArrayList<>();
+        for ( int i = 0; i < GCMClient.MAX_MULTICAST_SIZE + 10; i++ ) {
+            final TaskTracker tracker = mock( TaskTracker.class );
+            trackers.add( tracker );
+            adapter.sendNotification( "device" + i, payload, new Notification(), tracker );
+        }
+
+        //the full batch went out without waiting for doneSendingNotifications
+        verify( trackers.get( 0 ), timeout( 5000 ) ).completed( null );
+
+        adapter.doneSendingNotifications();
+
+        for ( TaskTracker tracker : trackers ) {
+            verify( tracker ).completed( null );
+        }
+
+        final List<List<String>> requests = server.getRequests();
+        assertEquals( 2, requests.size() );
+        assertEquals( GCMClient.MAX_MULTICAST_SIZE + 10, requests.get( 0 ).size() + requests.get( 1 ).size() );
+    }
+
+
+    @Test
+    public void partialBatchFlushedOnInterval() throws Exception {
+        client = new GCMClient( server.getUrl(), 4, 4, 2, 10, 50 );
+        final GCMAdapter adapter = createAdapter( MockGCMServer.API_KEY );
+
+        final TaskTracker tracker = mock( TaskTracker.class );
+        adapter.sendNotification( "device", payload(), new Notification(), tracker );
+
+        verify( tracker, timeout( 5000 ) ).completed( null );
+    }
+
+
+    @Test
+    public void retriesUnavailable() throws Exception {
+        final GCMAdapter adapter = createAdapter( MockGCMServer.API_KEY );
+
+        server.failNextRequest( 503 );
+        server.setErrors( "retried", Constants.ERROR_UNAVAILABLE );
+        server.setErrors( "gone", Constants.ERROR_NOT_REGISTERED );
+
+        final TaskTracker ok = mock( TaskTracker.class );
+        final TaskTracker retried = mock( TaskTracker.class );
+        final TaskTracker gone = mock( TaskTracker.class );
+        final Map<String, Object> payload = payload();
+        adapter.sendNotification( "ok", payload, new Notification(), ok );
+        adapter.sendNotification( "retried", payload, new Notification(), retried );
+        adapter.sendNotification( "gone", payload, new Notification(), gone );
+        adapter.doneSendingNotifications();
+
+        verify( ok ).completed( null );
+        verify( retried ).completed( null );
+        verify( gone ).failed( Constants.ERROR_NOT_REGISTERED, Constants.ERROR_NOT_REGISTERED );
+        verify( gone, never() ).completed( null );
+
+        //the 503, then all three ids, then the unavailable one again
+        final List<List<String>> requests = server.getRequests();
+        assertEquals( 3, requests.size() );
+        assertEquals( Arrays.asList( "retried" ), requests.get( 2 ) );
+    }
+
+
+    @Test
+    public void badApiKey() throws Exception {
+        final GCMAdapter adapter = createAdapter( "bad-key" );
+
+        final TaskTracker tracker = mock( TaskTracker.class );
+        adapter.sendNotification( "device", payload(), new Notification(), tracker );
+        adapter.doneSendingNotifications();
+
+        verify( tracker )
+            .failed( Constants.ERROR_INVALID_REGISTRATION, Constants.ERROR_INVALID_REGISTRATION );
+
+        try {
+            adapter.testConnection();
+            throw new AssertionError( "bad key should fail the connection test" );
+        }
+        catch ( InvalidRequestException e ) {
+            assertEquals( 401, e.getHttpStatusCode() );
+        }
+    }
+
+
+    @Test( timeout = 10000 )
+    public void doneSendingWaitsOnlyForGivenTrackers() throws Exception {
+        final GCMClient blocking = mock( GCMClient.class );
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        when( blocking.getFlushScheduler() ).thenReturn( scheduler );
+        when( blocking.getFlushInterval() ).thenReturn( 60000L );
+
+        //another caller's send never comes back, ours does
+        when( blocking.sendAsync( anyString(), anyMap(), eq( Arrays.asList( "other" ) ) ) )
+            .thenReturn( new CompletableFuture<List<GCMClient.Result>>() );
+        when( blocking.sendAsync( anyString(), anyMap(), eq( Arrays.asList( "mine" ) ) ) ).thenReturn(
+            CompletableFuture.completedFuture( Arrays.asList( new GCMClient.Result( "1", null, null ) ) ) );
+
+        final Notifier notifier = new Notifier();
+        notifier.setApiKey( MockGCMServer.API_KEY );
+        final GCMAdapter adapter = new GCMAdapter( mock( EntityManager.class ), notifier, blocking );
+
+        final Map<String, Object> otherPayload = payload();
+        otherPayload.put( "other", true );
+        final TaskTracker other = mock( TaskTracker.class );
+        final TaskTracker mine = mock( TaskTracker.class );
+        adapter.sendNotification( "other", otherPayload, new Notification(), other );
+        adapter.sendNotification( "mine", payload(), new Notification(), mine );
+
+        adapter.doneSendingNotifications( Collections.singletonList( mine ) );
+
+        verify( mine ).completed( null );
+        verify( other, never() ).completed( null );
+        scheduler.shutdownNow();
+    }
+
+
+    @Test
+    public void sharedClientReleasedWithLastHolder() {
+        final Properties properties = new Properties();
+        properties.setProperty( GCMClient.PROPERTY_URL, server.getUrl() + "/shared" );
+
+        final GCMClient first = GCMClient.getInstance( properties );
+        final GCMClient second = GCMClient.getInstance( properties );
+        assertSame( first, second );
+
+        first.release();
+        final GCMClient third = GCMClient.getInstance( properties );
+        assertSame( first, third );
+
+        second.release();
+        third.release();
+        final GCMClient fresh = GCMClient.getInstance( properties );
+        assertNotSame( first, fresh );
+        assertTrue( first.getFlushScheduler().isShutdown() );
+        fresh.release();
+    }
+
+
+    @Test
+    public void buildMessage() {
+        final Map<String, Object> payload = payload();
+        payload.put( "time_to_live", 60 );
+        payload.put( "priority", "HIGH" );
+        payload.put( "count", 2 );
+
+        final Map<String, Object> message = GCMAdapter.buildMessage( payload );
+
+        assertEquals( 60, message.get( "time_to_live" ) );
+        assertEquals( "high", message.get( "priority" ) );
+        final Map<String, String> data = ( Map<String, String> ) message.get( "data" );
+        assertEquals( "Hello", data.get( "data" ) );
+        assertEquals( "2", data.get( "count" ) );
+        assertTrue( !data.containsKey( "priority" ) );
+    }
+
+
+    private GCMAdapter createAdapter( final String apiKey ) {
+        final Notifier notifier = new Notifier();
+        notifier.setProvider( "google" );
+        notifier.setApiKey( apiKey );
+        return new GCMAdapter( mock( EntityManager.class ), notifier, client );
+    }
+
+
+    private Map<String, Object> payload() {
+        final Map<String, Object> payload = new HashMap<>();
+        payload.put( "data", "Hello" );
+        return payload;
+    }
+}
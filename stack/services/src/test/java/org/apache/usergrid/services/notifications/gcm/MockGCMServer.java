@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.gcm;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.usergrid.utils.JsonUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * A local stand in for the GCM HTTP endpoint.  Every id is accepted unless an error has been set for it, and whole
+ * requests can be made to fail with an http status.  Point {@link GCMClient#PROPERTY_URL} at {@link #getUrl()} to
+ * use it.
+ */
+public class MockGCMServer {
+
+    public static final String API_KEY = "mock-api-key";
+
+    private final HttpServer server;
+    private final Map<String, Queue<String>> errors = new ConcurrentHashMap<>();
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final Queue<List<String>> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger messageIds = new AtomicInteger();
+
+
+    public MockGCMServer() throws IOException {
+        server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        server.createContext( "/gcm/send", this::handle );
+        server.setExecutor( Executors.newCachedThreadPool() );
+    }
+
+
+    public MockGCMServer start() {
+        server.start();
+        return this;
+    }
+
+
+    public void stop() {
+        server.stop( 0 );
+    }
+
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/gcm/send";
+    }
+
+
+    /**
+     * Fail the next request with the status, queued statuses are used up one request at a time
+     */
+    public void failNextRequest( final int status ) {
+        statuses.add( status );
+    }
+
+
+    /**
+     * Return the errors for the id, one per request, then accept it
+     */
+    public void setErrors( final String id, final String... errorCodes ) {
+        final Queue<String> queue = new ConcurrentLinkedQueue<>();
+        for ( String errorCode : errorCodes ) {
+            queue.add( errorCode );
+        }
+        errors.put( id, queue );
+    }
+
+
+    /**
+     * The registration ids of each request, including the failed ones
+     */
+    public List<List<String>> getRequests() {
+        return new ArrayList<>( requests );
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private void handle( final HttpExchange exchange ) throws IOException {
+        final String body;
+        try ( InputStream in = exchange.getRequestBody(); Scanner scanner = new Scanner( in, "UTF-8" ) ) {
+            body = scanner.useDelimiter( "\\A" ).hasNext() ? scanner.next() : "";
+        }
+
+        final Map<String, Object> request = ( Map<String, Object> ) JsonUtils.parse( body );
+        final List<String> ids = ( List<String> ) request.get( "registration_ids" );
+        requests.add( ids );
+
+        if ( !( "key=" + API_KEY ).equals( exchange.getRequestHeaders().getFirst( "Authorization" ) ) ) {
+            respond( exchange, 401, "Unauthorized" );
+            return;
+        }
+
+        final Integer status = statuses.poll();
+        if ( status != null ) {
+            respond( exchange, status, "Scripted failure" );
+            return;
+        }
+
+        final List<Map<String, Object>> results = new ArrayList<>( ids.size() );
+        int failure = 0;
+        for ( String id : ids ) {
+            final Map<String, Object> result = new HashMap<>();
+            final Queue<String> idErrors = errors.get( id );
+            final String error = idErrors != null ? idErrors.poll() : null;
+            if ( error != null ) {
+                result.put( "error", error );
+                failure++;
+            }
+            else {
+                result.put( "message_id", "0:" + messageIds.incrementAndGet() );
+            }
+            results.add( result );
+        }
+
+        final Map<String, Object> response = new HashMap<>();
+        response.put( "multicast_id", System.currentTimeMillis() );
+        response.put( "success", ids.size() - failure );
+        response.put( "failure", failure );
+        response.put( "canonical_ids", 0 );
+        response.put( "results", results );
+        respond( exchange, 200, JsonUtils.mapToJsonString( response ) );
+    }
+
+
+    private void respond( final HttpExchange exchange, final int status, final String body ) throws IOException {
+        final byte[] bytes = body.getBytes( StandardCharsets.UTF_8 );
+        exchange.sendResponseHeaders( status, bytes.length );
+        try ( OutputStream out = exchange.getResponseBody() ) {
+            out.write( bytes );
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.entities.Notification;
+import org.apache.usergrid.persistence.entities.Receipt;
+import org.apache.usergrid.persistence.map.MapManager;
+import org.apache.usergrid.persistence.map.MapManagerFactory;
+import org.apache.usergrid.persistence.map.MapScope;
+import org.apache.usergrid.services.notifications.ReceiptSink;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class BufferedReceiptSinkTest {
+
+    private EntityManager em;
+    private MapManager mapManager;
+    private MapManagerFactory mapManagerFactory;
+    private MetricsFactory metricsFactory;
+
+
+    @Before
+    public void setup() {
+        em = mock( EntityManager.class );
+        mapManager = mock( MapManager.class );
+        mapManagerFactory = mock( MapManagerFactory.class );
+        when( mapManagerFactory.createMapManager( any( MapScope.class ) ) ).thenReturn( mapManager );
+        metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getMeter( any( Class.class ), anyString() ) ).thenReturn( new Meter() );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenReturn( new Timer() );
+    }
+
+
+    @Test
+    public void writesWhenBatchIsFull() throws Exception {
+        final ReceiptSink sink = createSink( 2, false );
+        final Notification notification = createNotification();
+
+        sink.sent( notification, createReceipt( notification ) );
+        verify( mapManager, never() ).putStrings( anyMap(), anyInt() );
+
+        sink.sent( notification, createReceipt( notification ) );
+        verify( mapManager, times( 1 ) ).putStrings( anyMap(), anyInt() );
+
+        //nothing left to write
+        sink.flush( notification.getUuid() );
+        verify( mapManager, times( 1 ) ).putStrings( anyMap(), anyInt() );
+
+        //receipts are never promoted to entities for regular notifications
+        verify( em, never() ).create( any( Receipt.class ) );
+    }
+
+
+    @Test
+    public void flushWritesPartialBatchAndCounters() throws Exception {
+        final ReceiptSink sink = createSink( 100, false );
+        final Notification notification = createNotification();
+
+        sink.sent( notification, createReceipt( notification ) );
+
+        final Receipt failed = createReceipt( notification );
+        failed.setErrorCode( "InvalidRegistration" );
+        sink.failed( notification, failed );
+
+        sink.flush();
+
+        final ArgumentCaptor<Map> values = ArgumentCaptor.forClass( Map.class );
+        verify( mapManager ).putStrings( values.capture(), eq( 60 ) );
+        assertEquals( 2, values.getValue().size() );
+
+        final ArgumentCaptor<Map> counters = ArgumentCaptor.forClass( Map.class );
+        verify( em ).incrementAggregateCounters( eq( ( UUID ) null ), eq( ( UUID ) null ), eq( ( String ) null ),
+            counters.capture() );
+        assertEquals( 1L, counters.getValue().get( BufferedReceiptSink.COUNTER_SENT ) );
+        assertEquals( 1L, counters.getValue().get( BufferedReceiptSink.COUNTER_ERRORS ) );
+
+        //failures were not promoted since it's disabled
+        verify( em, never() ).create( any( Receipt.class ) );
+    }
+
+
+    @Test
+    public void promotesFailures() throws Exception {
+        final ReceiptSink sink = createSink( 100, true );
+        final Notification notification = createNotification();
+
+        final Receipt failed = createReceipt( notification );
+        failed.setErrorCode( 500 );
+        when( em.create( failed ) ).thenReturn( failed );
+
+        sink.failed( notification, failed );
+
+        verify( em ).create( failed );
+    }
+
+
+    @Test
+    public void encodeDecode() {
+        final UUID notificationId = UUID.randomUUID();
+        final UUID deviceId = UUID.randomUUID();
+
+        final Receipt receipt = new Receipt( notificationId, "token", "payload", deviceId );
+        receipt.setSent( 1234L );
+        receipt.setErrorCode( "NotRegistered" );
+        receipt.setErrorMessage( "device is gone" );
+
+        final Receipt decoded =
+            BufferedReceiptSink.decode( notificationId, deviceId, BufferedReceiptSink.encode( receipt ) );
+
+        assertEquals( notificationId, decoded.getNotificationUUID() );
+        assertEquals( deviceId, decoded.getDeviceId() );
+        assertEquals( Long.valueOf( 1234L ), decoded.getSent() );
+        assertEquals( "token", decoded.getNotifierId() );
+        assertEquals( "NotRegistered", decoded.getErrorCode() );
+        assertEquals( "device is gone", decoded.getErrorMessage() );
+
+        receipt.setErrorCode( null );
+        receipt.setErrorMessage( null );
+        final Receipt sent =
+            BufferedReceiptSink.decode( notificationId, deviceId, BufferedReceiptSink.encode( receipt ) );
+        assertNull( sent.getErrorCode() );
+        assertNull( sent.getErrorMessage() );
+    }
+
+
+    private ReceiptSink createSink( final int batchSize, final boolean promoteFailures ) {
+        final Properties properties = new Properties();
+        properties.setProperty( ReceiptSink.PROPERTY_BATCH_SIZE, String.valueOf( batchSize ) );
+        properties.setProperty( ReceiptSink.PROPERTY_FLUSH_INTERVAL, String.valueOf( Long.MAX_VALUE ) );
+        properties.setProperty( ReceiptSink.PROPERTY_TTL, "60" );
+        properties.setProperty( ReceiptSink.PROPERTY_PROMOTE_FAILURES, String.valueOf( promoteFailures ) );
+        return new BufferedReceiptSink( em, mapManagerFactory, metricsFactory, properties );
+    }
+
+
+    private Notification createNotification() {
+        final Notification notification = new Notification();
+        notification.setUuid( UUID.randomUUID() );
+        notification.setDebug( false );
+        return notification;
+    }
+
+
+    private Receipt createReceipt( final Notification notification ) {
+        final Receipt receipt = new Receipt( notification.getUuid(), "token", "payload", UUID.randomUUID() );
+        receipt.setSent( System.currentTimeMillis() );
+        return receipt;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.Entity;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.EntityRef;
+import org.apache.usergrid.persistence.Query;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.entities.Device;
+import org.apache.usergrid.persistence.entities.Group;
+import org.apache.usergrid.persistence.entities.User;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class DeviceFanOutTest {
+
+    private EntityManager em;
+    private DeviceFanOut fanOut;
+
+
+    @Before
+    public void setup() {
+        em = mock( EntityManager.class );
+        fanOut = new DeviceFanOut( em, 10, 10 );
+    }
+
+
+    @Test
+    public void deviceEmitsItself() {
+        final Device device = device();
+
+        assertEquals( Arrays.asList( device ), getDevices( device ) );
+    }
+
+
+    @Test
+    public void groupEmitsDevicesOfItsUsers() throws Exception {
+        final Group group = entity( new Group() );
+        final User first = entity( new User() );
+        final User second = entity( new User() );
+        final Device firstPhone = device();
+        final Device firstTablet = device();
+        final Device secondPhone = device();
+
+        members( group, "users", first, second );
+        members( first, "devices", firstPhone, firstTablet );
+        members( second, "devices", secondPhone );
+
+        assertEquals( new HashSet<>( Arrays.asList( firstPhone, firstTablet, secondPhone ) ),
+            new HashSet<>( getDevices( group ) ) );
+    }
+
+
+    @Test
+    public void usersOfGroupAreReadConcurrently() throws Exception {
+        final Group group = entity( new Group() );
+        final User first = entity( new User() );
+        final User second = entity( new User() );
+        final Device firstPhone = device();
+        final Device secondPhone = device();
+
+        members( group, "users", first, second );
+
+        //each user's devices are only returned once both users are being read
+        final CountDownLatch reading = new CountDownLatch( 2 );
+        concurrentMembers( reading, first, firstPhone );
+        concurrentMembers( reading, second, secondPhone );
+
+        fanOut = new DeviceFanOut( em, 10, 2 );
+
+        assertEquals( new HashSet<>( Arrays.asList( firstPhone, secondPhone ) ),
+            new HashSet<>( getDevices( group ) ) );
+    }
+
+
+    @Test
+    public void usersOfGroupAreReadAtMostConcurrencyAtATime() throws Exception {
+        final Group group = entity( new Group() );
+        final User[] users = new User[6];
+        for ( int i = 0; i < users.length; i++ ) {
+            users[i] = entity( new User() );
+        }
+
+        members( group, "users", users );
+
+        final AtomicInteger reading = new AtomicInteger();
+        final AtomicInteger maxReading = new AtomicInteger();
+        when( em.searchCollection( any( User.class ), eq( "devices" ), any( Query.class ) ) ).thenAnswer( invocation -> {
+            maxReading.accumulateAndGet( reading.incrementAndGet(), Math::max );
+            Thread.sleep( 20 );
+            reading.decrementAndGet();
+            return Results.fromEntities( Arrays.asList( device() ) );
+        } );
+
+        fanOut = new DeviceFanOut( em, 10, 2 );
+
+        assertEquals( users.length, getDevices( group ).size() );
+        assertTrue( "read " + maxReading.get() + " users at once", maxReading.get() <= 2 );
+    }
+
+
+    @Test
+    public void otherEntitiesHaveNoDevices() throws Exception {
+        final Entity notifier = mock( Entity.class );
+        when( notifier.getType() ).thenReturn( "notifier" );
+
+        assertEquals( 0, getDevices( notifier ).size() );
+    }
+
+
+    private List<Entity> getDevices( final Entity entity ) {
+        return fanOut.getDevices( entity ).toList().toBlocking().single();
+    }
+
+
+    private void members( final EntityRef owner, final String collectionName, final Entity... members )
+        throws Exception {
+        when( em.searchCollection( same( owner ), eq( collectionName ), any( Query.class ) ) )
+            .thenReturn( Results.fromEntities( Arrays.asList( members ) ) );
+    }
+
+
+    private void concurrentMembers( final CountDownLatch reading, final EntityRef owner, final Entity... members )
+        throws Exception {
+        when( em.searchCollection( same( owner ), eq( "devices" ), any( Query.class ) ) ).thenAnswer( invocation -> {
+            reading.countDown();
+            assertTrue( "users were not read concurrently", reading.await( 5, TimeUnit.SECONDS ) );
+            return Results.fromEntities( Arrays.asList( members ) );
+        } );
+    }
+
+
+    private Device device() {
+        return entity( new Device() );
+    }
+
+
+    private <T extends Entity> T entity( final T entity ) {
+        final UUID uuid = UUIDUtils.newTimeUUID();
+        entity.setUuid( uuid );
+        return entity;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.notifications.impl;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class DeviceIdSetTest {
+
+    @Test
+    public void dedupesAcrossResizes() {
+        final DeviceIdSet set = new DeviceIdSet( 16 );
+        final List<UUID> ids = new ArrayList<>();
+
+        //time uuids are what devices use, and they only differ in a few bits
+        for ( int i = 0; i < 10000; i++ ) {
+            final UUID id = UUIDUtils.newTimeUUID();
+            ids.add( id );
+            assertTrue( set.add( id ) );
+        }
+
+        assertEquals( ids.size(), set.size() );
+
+        for ( UUID id : ids ) {
+            assertTrue( set.contains( id ) );
+            assertFalse( set.add( id ) );
+        }
+
+        assertFalse( set.contains( UUIDUtils.newTimeUUID() ) );
+        assertEquals( ids.size(), set.size() );
+    }
+
+
+    @Test
+    public void zeroId() {
+        final DeviceIdSet set = new DeviceIdSet( 1 );
+        final UUID zero = new UUID( 0, 0 );
+
+        assertFalse( set.contains( zero ) );
+        assertTrue( set.add( zero ) );
+        assertTrue( set.contains( zero ) );
+        assertFalse( set.add( zero ) );
+    }
+}
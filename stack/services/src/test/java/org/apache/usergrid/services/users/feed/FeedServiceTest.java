@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.users.feed;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.corepersistence.service.FeedFanoutService;
+import org.apache.usergrid.persistence.EntityManager;
+import org.apache.usergrid.persistence.Results;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.impl.SimpleMarkedEdge;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import com.google.common.base.Optional;
+
+import rx.Observable;
+
+import static org.apache.usergrid.corepersistence.util.CpNamingUtils.getEdgeTypeFromCollectionName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class FeedServiceTest {
+
+    private static final String FEED = getEdgeTypeFromCollectionName( "feed" );
+
+    private static final String ACTIVITIES = getEdgeTypeFromCollectionName( "activities" );
+
+    private final ApplicationScope applicationScope =
+        new ApplicationScopeImpl( new SimpleId( UUIDUtils.newTimeUUID(), "application" ) );
+
+    private final Id reader = new SimpleId( UUIDUtils.newTimeUUID(), "user" );
+
+    private final Id author = new SimpleId( UUIDUtils.newTimeUUID(), "user" );
+
+    /**
+     * The merged feed, newest first and by descending target within a timestamp
+     */
+    private List<MarkedEdge> feed;
+
+    private FeedFanoutService feedFanoutService;
+
+    private FeedService feedService;
+
+
+    @Before
+    @SuppressWarnings( "unchecked" )
+    public void setup() {
+        feed = new ArrayList<>();
+
+        feedFanoutService = mock( FeedFanoutService.class );
+        when( feedFanoutService.loadFeed( any( ApplicationScope.class ), any( Id.class ), any( List.class ), anyLong(),
+            any( Optional.class ) ) ).thenAnswer( invocation -> {
+            final long maxTimestamp = ( Long ) invocation.getArguments()[3];
+            final Optional<UUID> lastTarget = ( Optional<UUID> ) invocation.getArguments()[4];
+
+            return Observable.from( feed ).filter( edge -> edge.getTimestamp() < maxTimestamp || (
+                edge.getTimestamp() == maxTimestamp && ( !lastTarget.isPresent()
+                    || edge.getTargetNode().getUuid().compareTo( lastTarget.get() ) < 0 ) ) );
+        } );
+
+        final EntityManager entityManager = mock( EntityManager.class );
+        when( entityManager.getEntities( anyListOf( UUID.class ), anyString() ) ).thenAnswer(
+            invocation -> Results.fromIdList( new ArrayList<>( ( List<UUID> ) invocation.getArguments()[0] ) ) );
+
+        feedService = new FeedService() {
+            {
+                em = entityManager;
+            }
+        };
+    }
+
+
+    @Test
+    public void pagesThroughPushedAndPulledActivitiesInOrder() throws Exception {
+        final List<UUID> expected = new ArrayList<>();
+
+        //pushed and pulled activities alternate, two of them share a timestamp across a page boundary
+        for ( long timestamp : new long[] { 50, 40, 30, 30, 20, 10 } ) {
+            final UUID activity = UUIDUtils.newTimeUUID();
+            final Id source = expected.size() % 2 == 0 ? reader : author;
+            feed.add( new SimpleMarkedEdge( source, FEED, new SimpleId( activity, "activity" ),
+                timestamp, false ) );
+            expected.add( activity );
+        }
+
+        //within a timestamp the greater target comes first
+        if ( expected.get( 2 ).compareTo( expected.get( 3 ) ) < 0 ) {
+            Collections.swap( feed, 2, 3 );
+            Collections.swap( expected, 2, 3 );
+        }
+
+        final List<UUID> read = new ArrayList<>();
+        Optional<String> cursor = Optional.absent();
+        int pages = 0;
+
+        do {
+            final Results page = feedService.getFeed( feedFanoutService, applicationScope, reader,
+                Collections.singletonList( author ), cursor, 3 );
+
+            read.addAll( page.getIds() );
+            cursor = Optional.fromNullable( page.getCursor() );
+            pages++;
+        }
+        while ( cursor.isPresent() && pages < 10 );
+
+        assertEquals( expected, read );
+        assertEquals( 3, pages );
+    }
+
+
+    @Test
+    public void cursorResumesAfterTheLastEdge() throws Exception {
+        final UUID first = UUIDUtils.newTimeUUID();
+        final UUID second = UUIDUtils.newTimeUUID();
+
+        feed.add( new SimpleMarkedEdge( reader, FEED, new SimpleId( first, "activity" ), 20, false ) );
+        feed.add( new SimpleMarkedEdge( author, ACTIVITIES, new SimpleId( second, "activity" ), 10,
+            false ) );
+
+        final Results page = feedService.getFeed( feedFanoutService, applicationScope, reader,
+            Collections.singletonList( author ), Optional.absent(), 1 );
+
+        assertEquals( Collections.singletonList( first ), page.getIds() );
+        assertEquals( "feed:20:" + first, page.getCursor() );
+
+        final Results next = feedService.getFeed( feedFanoutService, applicationScope, reader,
+            Collections.singletonList( author ), Optional.of( page.getCursor() ), 1 );
+
+        verify( feedFanoutService ).loadFeed( applicationScope, reader, Collections.singletonList( author ), 20,
+            Optional.of( first ) );
+        assertEquals( Collections.singletonList( second ), next.getIds() );
+    }
+
+
+    @Test
+    public void timestampOnlyCursorReadsOlderEdges() throws Exception {
+        final UUID activity = UUIDUtils.newTimeUUID();
+
+        feed.add( new SimpleMarkedEdge( reader, FEED, new SimpleId( activity, "activity" ), 10, false ) );
+
+        final Results page = feedService.getFeed( feedFanoutService, applicationScope, reader,
+            Collections.singletonList( author ), Optional.of( "feed:10" ), 5 );
+
+        verify( feedFanoutService ).loadFeed( eq( applicationScope ), eq( reader ), eq( Arrays.asList( author ) ),
+            eq( 10L ), eq( Optional.<UUID>absent() ) );
+
+        //a partial page is the last one
+        assertEquals( Collections.singletonList( activity ), page.getIds() );
+        assertNull( page.getCursor() );
+    }
+}
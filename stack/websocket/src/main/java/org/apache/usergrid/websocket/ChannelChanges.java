@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.handler.codec.http.websocket.DefaultWebSocketFrame;
+import org.apache.usergrid.corepersistence.changes.EntityChange;
+import org.apache.usergrid.persistence.Schema;
+
+import org.apache.shiro.subject.Subject;
+
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
+import static org.apache.usergrid.utils.JsonUtils.mapToJsonString;
+
+
+/**
+ * The changes waiting to be written to a subscribed channel.  Changes are only written while the channel is writable,
+ * until then changes to the same entity replace each other.  If a slow channel falls too far behind its changes are
+ * dropped and it's told to read the subscription again.
+ */
+public class ChannelChanges {
+
+    private final Channel channel;
+    private final Subject subject;
+    private final int maxPending;
+
+    /**
+     * The changes waiting for the channel by their coalesce key, guarded by this
+     */
+    private final Map<String, EntityChange> pending = new LinkedHashMap<String, EntityChange>();
+
+    private boolean overflowed = false;
+
+
+    public ChannelChanges( Channel channel, Subject subject, int maxPending ) {
+        this.channel = channel;
+        this.subject = subject;
+        this.maxPending = maxPending;
+    }
+
+
+    /**
+     * Queue the change if the channel's subject can read the entity, and write what the channel can take
+     */
+    public void offer( EntityChange change ) {
+        if ( !isPermitted( change ) ) {
+            return;
+        }
+
+        synchronized ( this ) {
+            String key = change.getCoalesceKey();
+            EntityChange existing = pending.get( key );
+
+            if ( existing != null ) {
+                pending.put( key, existing.coalesce( change ) );
+            }
+            else if ( pending.size() >= maxPending ) {
+                pending.clear();
+                overflowed = true;
+            }
+            else {
+                pending.put( key, change );
+            }
+        }
+
+        flush();
+    }
+
+
+    /**
+     * Write the pending changes while the channel is writable
+     */
+    public synchronized void flush() {
+        if ( overflowed && channel.isWritable() ) {
+            Map<String, Object> message = new LinkedHashMap<String, Object>();
+            message.put( "action", "overflow" );
+            channel.write( new DefaultWebSocketFrame( mapToJsonString( message ) ) );
+            overflowed = false;
+        }
+
+        Iterator<EntityChange> changes = pending.values().iterator();
+
+        while ( changes.hasNext() && channel.isWritable() ) {
+            channel.write( new DefaultWebSocketFrame( toJson( changes.next() ) ) );
+            changes.remove();
+        }
+    }
+
+
+    private boolean isPermitted( EntityChange change ) {
+        if ( subject == null ) {
+            return false;
+        }
+
+        String path = "/" + Schema.defaultCollectionName( change.getEntityType() ) + "/" + change.getEntityId();
+
+        return subject.isPermitted( getPermissionFromPath( change.getApplicationId(), "get", path ) );
+    }
+
+
+    static String toJson( EntityChange change ) {
+        Map<String, Object> message = new LinkedHashMap<String, Object>();
+        message.put( "action", change.getAction().toString().toLowerCase() );
+        message.put( "applicationId", change.getApplicationId() );
+        message.put( "type", change.getEntityType() );
+        message.put( "uuid", change.getEntityId() );
+
+        if ( change.isConnection() ) {
+            message.put( "connection", change.getEdgeName() );
+            message.put( "targetType", change.getTargetType() );
+            message.put( "targetUuid", change.getTargetId() );
+        }
+
+        return mapToJsonString( message );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.apache.usergrid.corepersistence.changes.ChangeListener;
+import org.apache.usergrid.corepersistence.changes.EntityChange;
+import org.apache.usergrid.persistence.Schema;
+
+
+/**
+ * Delivers the changes from the change feed to the channels subscribed to the collection or the entity.  Connection
+ * changes are delivered to the subscribers of both ends of the connection.
+ */
+public class WebSocketChangePublisher implements ChangeListener {
+
+    @Override
+    public void onChange( EntityChange change ) {
+        Set<Channel> channels = new LinkedHashSet<Channel>();
+
+        addChannels( channels, getCollectionPath( change, change.getEntityType() ) );
+        addChannels( channels, getCollectionPath( change, change.getEntityType() ) + "/" + change.getEntityId() );
+
+        if ( change.isConnection() ) {
+            addChannels( channels, getCollectionPath( change, change.getTargetType() ) );
+            addChannels( channels, getCollectionPath( change, change.getTargetType() ) + "/" + change.getTargetId() );
+        }
+
+        for ( Channel channel : channels ) {
+            ChannelChanges changes = WebSocketChannelHandler.getChannelChanges( channel );
+
+            if ( changes != null ) {
+                changes.offer( change );
+            }
+        }
+    }
+
+
+    private void addChannels( Set<Channel> channels, String path ) {
+        ChannelGroup group = WebSocketChannelHandler.getSubscriptionGroup( path );
+
+        if ( group != null ) {
+            channels.addAll( group );
+        }
+    }
+
+
+    /**
+     * The subscription path of the collection of the type, {application uuid}/{collection}
+     */
+    static String getCollectionPath( EntityChange change, String type ) {
+        return change.getApplicationId() + "/" + Schema.defaultCollectionName( type );
+    }
+}
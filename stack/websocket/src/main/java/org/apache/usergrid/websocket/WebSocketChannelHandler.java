@@ -18,7 +18,9 @@ package org.apache.usergrid.websocket;
 
 
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -49,16 +51,24 @@ import org.jboss.netty.handler.codec.http.websocket.WebSocketFrameEncoder;
 import org.jboss.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.usergrid.management.ApplicationInfo;
 import org.apache.usergrid.management.ManagementService;
+import org.apache.usergrid.management.UserInfo;
 import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.security.shiro.PrincipalCredentialsToken;
 import org.apache.usergrid.services.ServiceManagerFactory;
+import org.apache.usergrid.utils.UUIDUtils;
 
+import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.mgt.SessionsSecurityManager;
 import org.apache.shiro.subject.Subject;
 
+import com.google.common.base.Optional;
+
 import static org.apache.commons.lang.StringUtils.isEmpty;
 import static org.apache.commons.lang.StringUtils.removeEnd;
 import static org.apache.commons.lang.StringUtils.split;
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.ORIGIN;
@@ -89,13 +99,21 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
     private final SessionsSecurityManager securityManager;
     private final boolean ssl;
 
+    /**
+     * The most changes waiting for a slow channel before it's told to read its subscription again
+     */
+    public static final int MAX_PENDING_CHANGES = 1000;
+
     boolean websocket = false;
 
     Subject subject = null;
 
     private static ConcurrentHashMap<String, ChannelGroup> subscribers = new ConcurrentHashMap<String, ChannelGroup>();
 
-    List<String> subscriptions;
+    private static ConcurrentHashMap<Channel, ChannelChanges> channelChanges =
+            new ConcurrentHashMap<Channel, ChannelChanges>();
+
+    List<String> subscriptions = new ArrayList<String>();
 
 
     public WebSocketChannelHandler( EntityManagerFactory emf, ServiceManagerFactory smf, ManagementService management,
@@ -182,6 +200,23 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
         if ( websocket ) {
             logger.info( "Websocket disconnected" );
         }
+        for ( String path : subscriptions ) {
+            removeSubscription( path, ctx.getChannel() );
+        }
+        subscriptions.clear();
+        channelChanges.remove( ctx.getChannel() );
+    }
+
+
+    @Override
+    public void channelInterestChanged( ChannelHandlerContext ctx, ChannelStateEvent e ) throws Exception {
+        super.channelInterestChanged( ctx, e );
+
+        // the channel may be writable again, send the changes held back for it
+        ChannelChanges changes = channelChanges.get( ctx.getChannel() );
+        if ( changes != null ) {
+            changes.flush();
+        }
     }
 
 
@@ -237,27 +272,38 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
             String path = qs.getPath();
             logger.info( path );
 
-            // Fill in the headers and contents depending on handshake method.
-            if ( req.containsHeader( SEC_WEBSOCKET_KEY1 ) && req.containsHeader( SEC_WEBSOCKET_KEY2 ) ) {
+            // subscribe to changes in /{application}/{collection} or /{application}/{collection}/{uuid}
+            String[] segments = split( path, '/' );
 
-                String[] segments = split( path, '/' );
+            if ( segments.length != 2 && segments.length != 3 ) {
+                logger.info( "Wrong number of path segments, expected 2 or 3, found " + segments.length );
+                sendHttpResponse( ctx, req, FORBIDDEN );
+                return;
+            }
 
-                if ( segments.length != 3 ) {
-                    logger.info( "Wrong number of path segments, expected 3, found " + segments.length );
-                    sendHttpResponse( ctx, req, FORBIDDEN );
-                    return;
-                }
+            String nsStr = segments[0];
+            String collStr = segments[1];
+            String idStr = segments.length == 3 ? segments[2] : null;
 
-                String nsStr = segments[0];
-                String collStr = segments[1];
-                String idStr = segments[2];
+            UUID applicationId = getApplicationId( nsStr );
+            UUID entityId = idStr != null ? UUIDUtils.tryGetUUID( idStr ) : null;
 
-                logger.info( nsStr + "/" + collStr + "/" + idStr );
+            if ( applicationId == null || isEmpty( collStr ) || ( idStr != null && entityId == null ) ) {
+                sendHttpResponse( ctx, req, FORBIDDEN );
+                return;
+            }
 
-                if ( isEmpty( nsStr ) || isEmpty( collStr ) || isEmpty( idStr ) ) {
-                    sendHttpResponse( ctx, req, FORBIDDEN );
-                    return;
-                }
+            String resourcePath = "/" + collStr + ( entityId != null ? "/" + entityId : "" );
+            String subscriptionPath = applicationId + resourcePath;
+
+            if ( !login( getFirst( qs, "access_token" ) ) || !subject
+                .isPermitted( getPermissionFromPath( applicationId, "get", resourcePath ) ) ) {
+                sendHttpResponse( ctx, req, FORBIDDEN );
+                return;
+            }
+
+            // Fill in the headers and contents depending on handshake method.
+            if ( req.containsHeader( SEC_WEBSOCKET_KEY1 ) && req.containsHeader( SEC_WEBSOCKET_KEY2 ) ) {
 
                 // New handshake method with a challenge:
                 res.addHeader( SEC_WEBSOCKET_ORIGIN, req.getHeader( ORIGIN ) );
@@ -302,6 +348,10 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
 
             p.replace( "encoder", "wsencoder", new WebSocketFrameEncoder() );
 
+            putChannelChanges( ctx.getChannel(), new ChannelChanges( ctx.getChannel(), subject, MAX_PENDING_CHANGES ) );
+            addSubscription( subscriptionPath, ctx.getChannel() );
+            subscriptions.add( subscriptionPath );
+
             return;
         }
 
@@ -326,7 +376,11 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
         ChannelGroup group = subscribers.get( path );
 
         if ( group == null ) {
-            group = subscribers.putIfAbsent( path, new DefaultChannelGroup() );
+            ChannelGroup created = new DefaultChannelGroup();
+            group = subscribers.putIfAbsent( path, created );
+            if ( group == null ) {
+                group = created;
+            }
         }
 
         return group;
@@ -334,15 +388,24 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
 
 
     public void addSubscription( String path, Channel channel ) {
-        ChannelGroup group = subscribers.get( path );
-        synchronized ( group ) {
-            group.add( channel );
+        while ( true ) {
+            ChannelGroup group = getChannelGroupWithDefault( path );
+            synchronized ( group ) {
+                // the group may have emptied and been removed while we waited
+                if ( subscribers.get( path ) == group ) {
+                    group.add( channel );
+                    return;
+                }
+            }
         }
     }
 
 
     public void removeSubscription( String path, Channel channel ) {
         ChannelGroup group = subscribers.get( path );
+        if ( group == null ) {
+            return;
+        }
         synchronized ( group ) {
             group.remove( channel );
             if ( group.isEmpty() ) {
@@ -352,7 +415,102 @@ public class WebSocketChannelHandler extends SimpleChannelUpstreamHandler {
     }
 
 
-    public ChannelGroup getSubscriptionGroup( String path ) {
+    public static ChannelGroup getSubscriptionGroup( String path ) {
         return subscribers.get( path );
     }
+
+
+    /**
+     * Hold the changes waiting for a subscribed channel
+     */
+    static void putChannelChanges( Channel channel, ChannelChanges changes ) {
+        channelChanges.put( channel, changes );
+    }
+
+
+    /**
+     * Get the changes waiting for a subscribed channel
+     */
+    public static ChannelChanges getChannelChanges( Channel channel ) {
+        return channelChanges.get( channel );
+    }
+
+
+    /**
+     * Get the application from its uuid or org/app name, with : in place of / in the path
+     */
+    private UUID getApplicationId( String ns ) throws Exception {
+        UUID applicationId = UUIDUtils.tryGetUUID( ns );
+        if ( applicationId != null ) {
+            return applicationId;
+        }
+        Optional<UUID> lookup = emf.lookupApplication( ns.replace( ':', '/' ) );
+        return lookup.isPresent() ? lookup.get() : null;
+    }
+
+
+    private static String getFirst( QueryStringDecoder qs, String name ) {
+        List<String> values = qs.getParameters().get( name );
+        return values != null && !values.isEmpty() ? values.get( 0 ) : null;
+    }
+
+
+    /**
+     * Log the channel's subject in with the access token of an app user, an application or an admin user
+     */
+    private boolean login( String accessToken ) {
+        if ( subject == null || isEmpty( accessToken ) ) {
+            return false;
+        }
+
+        PrincipalCredentialsToken token = null;
+
+        try {
+            UserInfo user = management.getAppUserFromAccessToken( accessToken );
+            if ( user != null ) {
+                token = PrincipalCredentialsToken.getFromAppUserInfoAndAccessToken( user, accessToken );
+            }
+        }
+        catch ( Exception e ) {
+            logger.debug( "Access token is not an app user token", e );
+        }
+
+        if ( token == null ) {
+            try {
+                ApplicationInfo application = management.getApplicationInfoFromAccessToken( accessToken );
+                if ( application != null ) {
+                    token = PrincipalCredentialsToken.getFromApplicationInfoAndAccessToken( application, accessToken );
+                }
+            }
+            catch ( Exception e ) {
+                logger.debug( "Access token is not an application token", e );
+            }
+        }
+
+        if ( token == null ) {
+            try {
+                UserInfo user = management.getAdminUserInfoFromAccessToken( accessToken );
+                if ( user != null ) {
+                    token = PrincipalCredentialsToken
+                        .getFromAdminUserInfoAndAccessToken( user, accessToken, emf.getManagementAppId() );
+                }
+            }
+            catch ( Exception e ) {
+                logger.debug( "Access token is not an admin user token", e );
+            }
+        }
+
+        if ( token == null ) {
+            return false;
+        }
+
+        try {
+            subject.login( token );
+            return true;
+        }
+        catch ( AuthenticationException e ) {
+            logger.info( "Unable to authenticate websocket subscriber", e );
+            return false;
+        }
+    }
 }
@@ -32,6 +32,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.apache.usergrid.corepersistence.changes.ChangeFeed;
 import org.apache.usergrid.management.ManagementService;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 import org.apache.usergrid.persistence.cassandra.EntityManagerFactoryImpl;
@@ -41,6 +42,8 @@ import org.apache.shiro.mgt.DefaultSecurityManager;
 import org.apache.shiro.mgt.SessionsSecurityManager;
 import org.apache.shiro.realm.Realm;
 
+import com.google.inject.Injector;
+
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -65,6 +68,8 @@ public class WebSocketServer {
     boolean ssl = false;
     Channel channel;
     Properties properties;
+    Injector injector;
+    WebSocketChangePublisher changePublisher;
 
 
     public static void main( String[] args ) throws Exception {
@@ -107,6 +112,12 @@ public class WebSocketServer {
     }
 
 
+    @Autowired
+    public void setInjector( Injector injector ) {
+        this.injector = injector;
+    }
+
+
     public Properties getProperties() {
         return properties;
     }
@@ -166,12 +177,22 @@ public class WebSocketServer {
         // Bind and start to accept incoming connections.
         channel = bootstrap.bind( new InetSocketAddress( 8088 ) );
 
+        // Push entity changes to the subscribed channels
+        if ( injector != null ) {
+            changePublisher = new WebSocketChangePublisher();
+            injector.getInstance( ChangeFeed.class ).subscribe( changePublisher );
+        }
+
         logger.info( "Usergrid WebSocket Server started..." );
     }
 
 
     public void stopServer() {
         logger.info( "Stopping WebSocket Server" );
+        if ( changePublisher != null ) {
+            injector.getInstance( ChangeFeed.class ).unsubscribe( changePublisher );
+            changePublisher = null;
+        }
         if ( channel != null ) {
             channel.close();
             channel = null;
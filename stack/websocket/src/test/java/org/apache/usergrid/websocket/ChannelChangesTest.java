@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.shiro.subject.Subject;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.handler.codec.http.websocket.WebSocketFrame;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.usergrid.corepersistence.changes.EntityChange;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class ChannelChangesTest {
+
+    private final UUID applicationId = UUIDUtils.newTimeUUID();
+
+    private Channel channel;
+    private Subject subject;
+
+
+    @Before
+    public void setup() {
+        channel = mock( Channel.class );
+        when( channel.isWritable() ).thenReturn( true );
+
+        subject = mock( Subject.class );
+        when( subject.isPermitted( anyString() ) ).thenReturn( true );
+    }
+
+
+    @Test
+    public void changeWritten() {
+        ChannelChanges changes = new ChannelChanges( channel, subject, 10 );
+
+        UUID entityId = UUIDUtils.newTimeUUID();
+        changes.offer( new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", entityId ) );
+
+        List<String> written = getWritten( 1 );
+
+        assertTrue( written.get( 0 ).contains( "\"action\":\"update\"" ) );
+        assertTrue( written.get( 0 ).contains( entityId.toString() ) );
+        verify( subject ).isPermitted( getPermissionFromPath( applicationId, "get", "/users/" + entityId ) );
+    }
+
+
+    @Test
+    public void changeNotPermittedNotWritten() {
+        when( subject.isPermitted( anyString() ) ).thenReturn( false );
+
+        ChannelChanges changes = new ChannelChanges( channel, subject, 10 );
+        changes.offer( new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", UUIDUtils.newTimeUUID() ) );
+
+        verify( channel, never() ).write( any() );
+    }
+
+
+    @Test
+    public void noSubjectNotWritten() {
+        ChannelChanges changes = new ChannelChanges( channel, null, 10 );
+        changes.offer( new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", UUIDUtils.newTimeUUID() ) );
+
+        verify( channel, never() ).write( any() );
+    }
+
+
+    @Test
+    public void coalescedUntilWritable() {
+        when( channel.isWritable() ).thenReturn( false );
+
+        ChannelChanges changes = new ChannelChanges( channel, subject, 10 );
+
+        UUID entityId = UUIDUtils.newTimeUUID();
+        changes.offer( new EntityChange( EntityChange.Action.CREATE, applicationId, "user", entityId ) );
+        changes.offer( new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", entityId ) );
+        changes.offer( new EntityChange( EntityChange.Action.DELETE, applicationId, "user", entityId ) );
+
+        verify( channel, never() ).write( any() );
+
+        when( channel.isWritable() ).thenReturn( true );
+        changes.flush();
+
+        List<String> written = getWritten( 1 );
+
+        assertTrue( written.get( 0 ).contains( "\"action\":\"delete\"" ) );
+    }
+
+
+    @Test
+    public void overflowReported() {
+        when( channel.isWritable() ).thenReturn( false );
+
+        ChannelChanges changes = new ChannelChanges( channel, subject, 2 );
+
+        for ( int i = 0; i < 3; i++ ) {
+            changes.offer(
+                new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", UUIDUtils.newTimeUUID() ) );
+        }
+
+        UUID entityId = UUIDUtils.newTimeUUID();
+        changes.offer( new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", entityId ) );
+
+        when( channel.isWritable() ).thenReturn( true );
+        changes.flush();
+
+        List<String> written = getWritten( 2 );
+
+        assertEquals( "{\"action\":\"overflow\"}", written.get( 0 ) );
+        assertTrue( written.get( 1 ).contains( entityId.toString() ) );
+    }
+
+
+    @Test
+    public void connectionJson() {
+        UUID entityId = UUIDUtils.newTimeUUID();
+        UUID targetId = UUIDUtils.newTimeUUID();
+
+        String json = ChannelChanges.toJson(
+            new EntityChange( EntityChange.Action.CONNECT, applicationId, "user", entityId, "likes", "thing",
+                targetId ) );
+
+        assertTrue( json.contains( "\"action\":\"connect\"" ) );
+        assertTrue( json.contains( "\"connection\":\"likes\"" ) );
+        assertTrue( json.contains( "\"targetType\":\"thing\"" ) );
+        assertTrue( json.contains( targetId.toString() ) );
+    }
+
+
+    private List<String> getWritten( int count ) {
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass( Object.class );
+        verify( channel, times( count ) ).write( frames.capture() );
+
+        List<String> written = new ArrayList<String>();
+        for ( Object frame : frames.getAllValues() ) {
+            written.add( ( ( WebSocketFrame ) frame ).getTextData() );
+        }
+
+        return written;
+    }
+}
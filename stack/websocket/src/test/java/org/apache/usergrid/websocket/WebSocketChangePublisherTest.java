@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.subject.Subject;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.junit.Test;
+
+import org.apache.usergrid.corepersistence.changes.EntityChange;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class WebSocketChangePublisherTest {
+
+    private static final AtomicInteger channelIds = new AtomicInteger( 1000 );
+
+    private final UUID applicationId = UUIDUtils.newTimeUUID();
+
+    private final WebSocketChannelHandler handler = new WebSocketChannelHandler( null, null, null, null, false );
+
+    private final WebSocketChangePublisher publisher = new WebSocketChangePublisher();
+
+
+    @Test
+    public void deliveredToCollectionAndEntitySubscribers() {
+        UUID entityId = UUIDUtils.newTimeUUID();
+
+        Channel collection = subscribe( applicationId + "/users" );
+        Channel entity = subscribe( applicationId + "/users/" + entityId );
+        Channel otherEntity = subscribe( applicationId + "/users/" + UUIDUtils.newTimeUUID() );
+        Channel otherCollection = subscribe( applicationId + "/things" );
+        Channel otherApplication = subscribe( UUIDUtils.newTimeUUID() + "/users" );
+
+        publisher.onChange( new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", entityId ) );
+
+        verify( collection ).write( any() );
+        verify( entity ).write( any() );
+        verify( otherEntity, never() ).write( any() );
+        verify( otherCollection, never() ).write( any() );
+        verify( otherApplication, never() ).write( any() );
+    }
+
+
+    @Test
+    public void connectionDeliveredToBothEnds() {
+        UUID entityId = UUIDUtils.newTimeUUID();
+        UUID targetId = UUIDUtils.newTimeUUID();
+
+        Channel source = subscribe( applicationId + "/users/" + entityId );
+        Channel target = subscribe( applicationId + "/things/" + targetId );
+        Channel both = subscribe( applicationId + "/users", applicationId + "/things" );
+
+        publisher.onChange(
+            new EntityChange( EntityChange.Action.CONNECT, applicationId, "user", entityId, "likes", "thing",
+                targetId ) );
+
+        verify( source ).write( any() );
+        verify( target ).write( any() );
+
+        //a channel subscribed to both ends gets the change once
+        verify( both, times( 1 ) ).write( any() );
+    }
+
+
+    @Test
+    public void channelWithoutChangesSkipped() {
+        Channel channel = mockChannel();
+        handler.addSubscription( applicationId + "/users", channel );
+
+        publisher.onChange(
+            new EntityChange( EntityChange.Action.UPDATE, applicationId, "user", UUIDUtils.newTimeUUID() ) );
+
+        verify( channel, never() ).write( any() );
+    }
+
+
+    private Channel subscribe( String... paths ) {
+        Subject subject = mock( Subject.class );
+        when( subject.isPermitted( anyString() ) ).thenReturn( true );
+
+        Channel channel = mockChannel();
+        WebSocketChannelHandler.putChannelChanges( channel, new ChannelChanges( channel, subject, 10 ) );
+
+        for ( String path : paths ) {
+            handler.addSubscription( path, channel );
+        }
+
+        return channel;
+    }
+
+
+    static Channel mockChannel() {
+        Channel channel = mock( Channel.class );
+        when( channel.getId() ).thenReturn( channelIds.incrementAndGet() );
+        when( channel.getCloseFuture() ).thenReturn( mock( ChannelFuture.class ) );
+        when( channel.isWritable() ).thenReturn( true );
+        return channel;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.websocket;
+
+
+import java.util.UUID;
+
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.mgt.SessionsSecurityManager;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.SubjectContext;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.usergrid.management.ApplicationInfo;
+import org.apache.usergrid.management.ManagementService;
+import org.apache.usergrid.persistence.EntityManagerFactory;
+import org.apache.usergrid.utils.UUIDUtils;
+
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.HOST;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.ORIGIN;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.UPGRADE;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Values.WEBSOCKET;
+import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
+import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class WebSocketChannelHandlerTest {
+
+    private static final String TOKEN = "application-token";
+
+    private final UUID applicationId = UUIDUtils.newTimeUUID();
+
+    private Subject subject;
+    private WebSocketChannelHandler handler;
+
+    private Channel channel;
+    private ChannelHandlerContext ctx;
+
+
+    @Before
+    public void setup() throws Exception {
+        subject = mock( Subject.class );
+
+        SessionsSecurityManager securityManager = mock( SessionsSecurityManager.class );
+        when( securityManager.createSubject( any( SubjectContext.class ) ) ).thenReturn( subject );
+
+        ManagementService management = mock( ManagementService.class );
+        when( management.getApplicationInfoFromAccessToken( TOKEN ) )
+            .thenReturn( new ApplicationInfo( applicationId, "test-organization/test-app" ) );
+
+        handler = new WebSocketChannelHandler( mock( EntityManagerFactory.class ), null, management, securityManager,
+            false );
+
+        channel = WebSocketChangePublisherTest.mockChannel();
+        when( channel.write( any() ) ).thenReturn( mock( ChannelFuture.class ) );
+        when( channel.getPipeline() ).thenReturn( mock( ChannelPipeline.class ) );
+
+        ctx = mock( ChannelHandlerContext.class );
+        when( ctx.getChannel() ).thenReturn( channel );
+    }
+
+
+    @Test
+    public void subscribeWithoutTokenForbidden() throws Exception {
+        when( subject.isPermitted( anyString() ) ).thenReturn( true );
+
+        handler.messageReceived( ctx, request( "/" + applicationId + "/users" ) );
+
+        assertEquals( 403, getResponse().getStatus().getCode() );
+        assertNull( WebSocketChannelHandler.getSubscriptionGroup( applicationId + "/users" ) );
+        verify( subject, never() ).login( any( AuthenticationToken.class ) );
+    }
+
+
+    @Test
+    public void subscribeWithoutPermissionForbidden() throws Exception {
+        when( subject.isPermitted( anyString() ) ).thenReturn( false );
+
+        handler.messageReceived( ctx, request( "/" + applicationId + "/users?access_token=" + TOKEN ) );
+
+        assertEquals( 403, getResponse().getStatus().getCode() );
+        assertNull( WebSocketChannelHandler.getSubscriptionGroup( applicationId + "/users" ) );
+        verify( subject ).login( any( AuthenticationToken.class ) );
+        verify( subject ).isPermitted( getPermissionFromPath( applicationId, "get", "/users" ) );
+    }
+
+
+    @Test
+    public void subscribeWithBadPathForbidden() throws Exception {
+        when( subject.isPermitted( anyString() ) ).thenReturn( true );
+
+        handler.messageReceived( ctx, request( "/" + applicationId + "/users/not-a-uuid?access_token=" + TOKEN ) );
+
+        assertEquals( 403, getResponse().getStatus().getCode() );
+    }
+
+
+    @Test
+    public void subscribedUntilDisconnected() throws Exception {
+        UUID entityId = UUIDUtils.newTimeUUID();
+        String path = applicationId + "/users/" + entityId;
+
+        when( subject.isPermitted( getPermissionFromPath( applicationId, "get", "/users/" + entityId ) ) )
+            .thenReturn( true );
+
+        handler.messageReceived( ctx, request( "/" + path + "?access_token=" + TOKEN ) );
+
+        assertEquals( 101, getResponse().getStatus().getCode() );
+        assertTrue( WebSocketChannelHandler.getSubscriptionGroup( path ).contains( channel ) );
+        assertNotNull( WebSocketChannelHandler.getChannelChanges( channel ) );
+
+        handler.channelDisconnected( ctx, mock( ChannelStateEvent.class ) );
+
+        assertNull( WebSocketChannelHandler.getSubscriptionGroup( path ) );
+        assertNull( WebSocketChannelHandler.getChannelChanges( channel ) );
+    }
+
+
+    private MessageEvent request( String uri ) {
+        HttpRequest request = new DefaultHttpRequest( HTTP_1_1, GET, uri );
+        request.setHeader( CONNECTION, "Upgrade" );
+        request.setHeader( UPGRADE, WEBSOCKET );
+        request.setHeader( HOST, "localhost" );
+        request.setHeader( ORIGIN, "http://localhost" );
+
+        MessageEvent event = mock( MessageEvent.class );
+        when( event.getMessage() ).thenReturn( request );
+        return event;
+    }
+
+
+    private HttpResponse getResponse() {
+        ArgumentCaptor<Object> written = ArgumentCaptor.forClass( Object.class );
+        verify( channel ).write( written.capture() );
+        return ( HttpResponse ) written.getValue();
+    }
+}